@@ -0,0 +1,106 @@
+/*
+ * Copyright 2013-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alibaba.cloud.nacos.benchmarks;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.alibaba.cloud.nacos.NacosDiscoveryProperties;
+import com.alibaba.cloud.nacos.NacosServiceManager;
+import com.alibaba.cloud.nacos.discovery.NacosServiceDiscovery;
+import com.alibaba.cloud.testsupport.nacos.InMemoryNamingService;
+import com.alibaba.nacos.api.common.Constants;
+import com.alibaba.nacos.api.naming.NamingService;
+import com.alibaba.nacos.api.naming.pojo.Instance;
+import com.alibaba.nacos.api.naming.utils.NamingUtils;
+
+/**
+ * Instances and discovery backed by a {@link InMemoryNamingService} shared by the
+ * benchmarks.
+ *
+ * @author Spring Cloud Alibaba contributors
+ * @since 2021.0.4.0
+ */
+public final class BenchmarkInstances {
+
+	/**
+	 * Id of the benchmarked service.
+	 */
+	public static final String SERVICE_ID = "benchmark-service";
+
+	/**
+	 * Clusters the instances are spread over.
+	 */
+	public static final String[] CLUSTERS = { "A", "B", "C" };
+
+	private BenchmarkInstances() {
+	}
+
+	/**
+	 * Create healthy instances of {@link #SERVICE_ID} with weights from 1 to 3, spread
+	 * over {@link #CLUSTERS}.
+	 * @param count number of instances
+	 * @param metadataSize number of user metadata entries of each instance
+	 * @return the instances
+	 */
+	public static List<Instance> instances(int count, int metadataSize) {
+		List<Instance> instances = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			Instance instance = new Instance();
+			instance.setIp("10.0." + (i / 256) + "." + (i % 256));
+			instance.setPort(8080);
+			instance.setWeight(1 + i % 3);
+			instance.setHealthy(true);
+			instance.setEnabled(true);
+			instance.setEphemeral(true);
+			instance.setClusterName(CLUSTERS[i % CLUSTERS.length]);
+			instance.setServiceName(
+					NamingUtils.getGroupedName(SERVICE_ID, Constants.DEFAULT_GROUP));
+			instance.setInstanceId(instance.getIp() + "#" + instance.getPort() + "#"
+					+ instance.getClusterName() + "#" + instance.getServiceName());
+			Map<String, String> metadata = new HashMap<>(metadataSize * 2);
+			for (int j = 0; j < metadataSize; j++) {
+				metadata.put("key-" + j, "value-" + j + "-" + i);
+			}
+			instance.setMetadata(metadata);
+			instances.add(instance);
+		}
+		return instances;
+	}
+
+	/**
+	 * Create a {@link NacosServiceDiscovery} looking up instances from the given naming
+	 * service.
+	 * @param properties discovery properties
+	 * @param namingService naming service
+	 * @return the service discovery
+	 */
+	public static NacosServiceDiscovery serviceDiscovery(
+			NacosDiscoveryProperties properties, NamingService namingService) {
+		NacosServiceManager serviceManager = new NacosServiceManager() {
+			@Override
+			public NamingService getNamingService() {
+				return namingService;
+			}
+		};
+		serviceManager.setNacosDiscoveryProperties(properties);
+		return new NacosServiceDiscovery(properties, serviceManager);
+	}
+
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2013-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alibaba.cloud.nacos.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.alibaba.cloud.nacos.balancer.NacosBalancer;
+import com.alibaba.cloud.nacos.balancer.WeightedInstanceSelector;
+import com.alibaba.cloud.nacos.discovery.NacosServiceDiscovery;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.springframework.cloud.client.ServiceInstance;
+
+import static com.alibaba.cloud.nacos.benchmarks.BenchmarkInstances.SERVICE_ID;
+
+/**
+ * Weighted random selection of {@link NacosBalancer#getHostByRandomWeight3(List)}
+ * compared with {@link WeightedInstanceSelector}, which replaced it in the load
+ * balancer.
+ *
+ * @author Spring Cloud Alibaba contributors
+ * @since 2021.0.4.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NacosBalancerBenchmark {
+
+	@Param({ "10", "100", "1000" })
+	private int instanceCount;
+
+	@Param({ "0", "8" })
+	private int metadataSize;
+
+	private List<ServiceInstance> instances;
+
+	private WeightedInstanceSelector selector;
+
+	@Setup
+	public void setup() {
+		instances = NacosServiceDiscovery.hostToServiceInstanceList(
+				BenchmarkInstances.instances(instanceCount, metadataSize), SERVICE_ID);
+		selector = WeightedInstanceSelector.build(instances);
+	}
+
+	@Benchmark
+	public ServiceInstance getHostByRandomWeight3() {
+		return NacosBalancer.getHostByRandomWeight3(instances);
+	}
+
+	/**
+	 * Build a selector and choose once, as when the instance list changes on each call.
+	 */
+	@Benchmark
+	public ServiceInstance weightedInstanceSelectorBuildAndChoose() {
+		return WeightedInstanceSelector.build(instances).choose();
+	}
+
+	/**
+	 * Choose with a selector built beforehand, as while the instance list is unchanged.
+	 */
+	@Benchmark
+	public ServiceInstance weightedInstanceSelectorChoose() {
+		return selector.choose();
+	}
+
+}
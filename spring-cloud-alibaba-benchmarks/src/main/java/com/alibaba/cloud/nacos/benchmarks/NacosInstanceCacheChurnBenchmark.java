@@ -0,0 +1,159 @@
+/*
+ * Copyright 2013-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alibaba.cloud.nacos.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.alibaba.cloud.nacos.NacosDiscoveryProperties;
+import com.alibaba.cloud.nacos.NacosServiceManager;
+import com.alibaba.cloud.nacos.discovery.NacosInstanceCache;
+import com.alibaba.cloud.nacos.loadbalancer.NacosLoadBalancer;
+import com.alibaba.cloud.testsupport.nacos.ChurnSimulator;
+import com.alibaba.cloud.testsupport.nacos.InMemoryNamingService;
+import com.alibaba.nacos.api.exception.NacosException;
+import com.alibaba.nacos.api.naming.NamingService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import reactor.core.publisher.Flux;
+
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.DefaultRequest;
+import org.springframework.cloud.client.loadbalancer.Request;
+import org.springframework.cloud.client.loadbalancer.RequestDataContext;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+
+import static com.alibaba.cloud.nacos.benchmarks.BenchmarkInstances.SERVICE_ID;
+
+/**
+ * Lookups of {@link NacosInstanceCache} and {@link NacosLoadBalancer#choose(Request)}
+ * while a {@link ChurnSimulator} replaces instances in the background, every 100 ms.
+ * <p>
+ * The pushes are handled on the simulator thread, as on the Nacos notifier thread, so
+ * the benchmarks measure the lookups competing with the snapshot updates.
+ *
+ * @author Spring Cloud Alibaba contributors
+ * @since 2021.0.4.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NacosInstanceCacheChurnBenchmark {
+
+	@Param({ "1000", "5000" })
+	private int instanceCount;
+
+	/**
+	 * Fraction of the instances replaced per second.
+	 */
+	@Param({ "0", "0.02", "0.2" })
+	private double churnRate;
+
+	private final Request<RequestDataContext> request = new DefaultRequest<>(
+			new RequestDataContext());
+
+	private ChurnSimulator simulator;
+
+	private NacosInstanceCache instanceCache;
+
+	private NacosLoadBalancer loadBalancer;
+
+	@Setup
+	public void setup() throws NacosException {
+		InMemoryNamingService namingService = new InMemoryNamingService();
+		simulator = new ChurnSimulator(namingService, SERVICE_ID);
+		simulator.setInstanceCount(instanceCount);
+		simulator.setChurnRate(churnRate);
+		simulator.populate();
+
+		NacosDiscoveryProperties properties = new NacosDiscoveryProperties();
+		NacosServiceManager serviceManager = new NacosServiceManager() {
+			@Override
+			public NamingService getNamingService() {
+				return namingService;
+			}
+		};
+		instanceCache = new NacosInstanceCache(serviceManager, properties);
+		instanceCache.getInstances(SERVICE_ID);
+
+		StaticListableBeanFactory beanFactory = new StaticListableBeanFactory();
+		beanFactory.addBean("supplier", new CacheSupplier(instanceCache));
+		loadBalancer = new NacosLoadBalancer(
+				beanFactory.getBeanProvider(ServiceInstanceListSupplier.class),
+				SERVICE_ID, properties);
+		simulator.start();
+	}
+
+	@TearDown
+	public void tearDown() {
+		simulator.stop();
+		instanceCache.destroy();
+	}
+
+	@Benchmark
+	public List<ServiceInstance> getInstances() throws NacosException {
+		return instanceCache.getInstances(SERVICE_ID);
+	}
+
+	@Benchmark
+	public Response<ServiceInstance> choose() {
+		return loadBalancer.choose(request).block();
+	}
+
+	private static final class CacheSupplier implements ServiceInstanceListSupplier {
+
+		private final Flux<List<ServiceInstance>> instances;
+
+		private CacheSupplier(NacosInstanceCache instanceCache) {
+			this.instances = Flux.defer(() -> {
+				try {
+					return Flux.just(instanceCache.getInstances(SERVICE_ID));
+				}
+				catch (NacosException e) {
+					return Flux.error(e);
+				}
+			});
+		}
+
+		@Override
+		public String getServiceId() {
+			return SERVICE_ID;
+		}
+
+		@Override
+		public Flux<List<ServiceInstance>> get() {
+			return instances;
+		}
+
+	}
+
+}
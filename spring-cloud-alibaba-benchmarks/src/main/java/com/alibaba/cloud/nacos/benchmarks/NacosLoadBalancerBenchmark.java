@@ -0,0 +1,153 @@
+/*
+ * Copyright 2013-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alibaba.cloud.nacos.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.alibaba.cloud.nacos.NacosDiscoveryProperties;
+import com.alibaba.cloud.nacos.discovery.NacosServiceDiscovery;
+import com.alibaba.cloud.nacos.loadbalancer.NacosLoadBalancer;
+import com.alibaba.cloud.testsupport.nacos.InMemoryNamingService;
+import com.alibaba.nacos.api.common.Constants;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import reactor.core.publisher.Flux;
+
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.DefaultRequest;
+import org.springframework.cloud.client.loadbalancer.Request;
+import org.springframework.cloud.client.loadbalancer.RequestDataContext;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+
+import static com.alibaba.cloud.nacos.benchmarks.BenchmarkInstances.SERVICE_ID;
+
+/**
+ * {@link NacosLoadBalancer#choose(Request)} with and without a cluster name.
+ * <p>
+ * {@code choose} looks up the instances from the naming service on each call, as the
+ * default discovery supplier does, while {@code chooseCached} is supplied the same list
+ * on each call, as the caching supplier does.
+ *
+ * @author Spring Cloud Alibaba contributors
+ * @since 2021.0.4.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NacosLoadBalancerBenchmark {
+
+	@Param({ "10", "100", "1000" })
+	private int instanceCount;
+
+	@Param({ "0", "8" })
+	private int metadataSize;
+
+	/**
+	 * Cluster of the client, empty for none.
+	 */
+	@Param({ "", "A" })
+	private String clusterName;
+
+	private final Request<RequestDataContext> request = new DefaultRequest<>(
+			new RequestDataContext());
+
+	private NacosLoadBalancer loadBalancer;
+
+	private NacosLoadBalancer cachedLoadBalancer;
+
+	@Setup
+	public void setup() throws Exception {
+		NacosDiscoveryProperties properties = new NacosDiscoveryProperties();
+		properties.setClusterName(clusterName);
+		InMemoryNamingService namingService = new InMemoryNamingService();
+		namingService.setInstances(SERVICE_ID, Constants.DEFAULT_GROUP,
+				BenchmarkInstances.instances(instanceCount, metadataSize));
+		NacosServiceDiscovery serviceDiscovery = BenchmarkInstances
+				.serviceDiscovery(properties, namingService);
+		List<ServiceInstance> instances = serviceDiscovery.getInstances(SERVICE_ID);
+
+		loadBalancer = loadBalancer(properties, new BenchmarkSupplier(
+				Flux.defer(() -> Flux.just(getInstances(serviceDiscovery)))));
+		cachedLoadBalancer = loadBalancer(properties,
+				new BenchmarkSupplier(Flux.just(instances)));
+	}
+
+	@Benchmark
+	public Response<ServiceInstance> choose() {
+		return loadBalancer.choose(request).block();
+	}
+
+	@Benchmark
+	public Response<ServiceInstance> chooseCached() {
+		return cachedLoadBalancer.choose(request).block();
+	}
+
+	private static NacosLoadBalancer loadBalancer(NacosDiscoveryProperties properties,
+			ServiceInstanceListSupplier supplier) {
+		StaticListableBeanFactory beanFactory = new StaticListableBeanFactory();
+		beanFactory.addBean("supplier", supplier);
+		return new NacosLoadBalancer(
+				beanFactory.getBeanProvider(ServiceInstanceListSupplier.class),
+				SERVICE_ID, properties);
+	}
+
+	private static List<ServiceInstance> getInstances(
+			NacosServiceDiscovery serviceDiscovery) {
+		try {
+			return serviceDiscovery.getInstances(SERVICE_ID);
+		}
+		catch (Exception e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static final class BenchmarkSupplier implements ServiceInstanceListSupplier {
+
+		private final Flux<List<ServiceInstance>> instances;
+
+		private BenchmarkSupplier(Flux<List<ServiceInstance>> instances) {
+			this.instances = instances;
+		}
+
+		@Override
+		public String getServiceId() {
+			return SERVICE_ID;
+		}
+
+		@Override
+		public Flux<List<ServiceInstance>> get() {
+			return instances;
+		}
+
+	}
+
+}
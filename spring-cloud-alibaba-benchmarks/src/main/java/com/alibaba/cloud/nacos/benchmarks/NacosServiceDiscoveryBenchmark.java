@@ -0,0 +1,121 @@
+/*
+ * Copyright 2013-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alibaba.cloud.nacos.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.alibaba.cloud.nacos.NacosDiscoveryProperties;
+import com.alibaba.cloud.nacos.discovery.NacosServiceDiscovery;
+import com.alibaba.cloud.testsupport.nacos.InMemoryNamingService;
+import com.alibaba.nacos.api.common.Constants;
+import com.alibaba.nacos.api.exception.NacosException;
+import com.alibaba.nacos.api.naming.pojo.Instance;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import org.springframework.cloud.client.ServiceInstance;
+
+import static com.alibaba.cloud.nacos.benchmarks.BenchmarkInstances.SERVICE_ID;
+
+/**
+ * Conversion of Nacos instances to service instances, done on each instance lookup.
+ *
+ * @author Spring Cloud Alibaba contributors
+ * @since 2021.0.4.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NacosServiceDiscoveryBenchmark {
+
+	@Param({ "10", "100", "1000" })
+	private int instanceCount;
+
+	@Param({ "0", "8", "32" })
+	private int metadataSize;
+
+	private List<Instance> instances;
+
+	private List<ServiceInstance> previous;
+
+	private NacosServiceDiscovery serviceDiscovery;
+
+	@Setup
+	public void setup() throws NacosException {
+		instances = BenchmarkInstances.instances(instanceCount, metadataSize);
+		previous = NacosServiceDiscovery.hostToServiceInstanceList(instances,
+				SERVICE_ID);
+		InMemoryNamingService namingService = new InMemoryNamingService();
+		namingService.setInstances(SERVICE_ID, Constants.DEFAULT_GROUP, instances);
+		serviceDiscovery = BenchmarkInstances
+				.serviceDiscovery(new NacosDiscoveryProperties(), namingService);
+		serviceDiscovery.getInstances(SERVICE_ID);
+	}
+
+	/**
+	 * Convert instances seen for the first time.
+	 */
+	@Benchmark
+	public List<ServiceInstance> hostToServiceInstanceList() {
+		return NacosServiceDiscovery.hostToServiceInstanceList(instances, SERVICE_ID);
+	}
+
+	/**
+	 * Convert instances unchanged since the previous conversion.
+	 */
+	@Benchmark
+	public List<ServiceInstance> hostToServiceInstanceListUnchanged() {
+		return NacosServiceDiscovery.hostToServiceInstanceList(instances, SERVICE_ID,
+				previous);
+	}
+
+	/**
+	 * Convert instances seen for the first time and read the metadata the load balancer
+	 * reads.
+	 */
+	@Benchmark
+	public void hostToServiceInstanceListAndReadMetadata(Blackhole blackhole) {
+		for (ServiceInstance instance : NacosServiceDiscovery
+				.hostToServiceInstanceList(instances, SERVICE_ID)) {
+			blackhole.consume(instance.getMetadata().get("nacos.weight"));
+			blackhole.consume(instance.getMetadata().get("nacos.cluster"));
+		}
+	}
+
+	/**
+	 * Look up the instances from the naming service.
+	 */
+	@Benchmark
+	public List<ServiceInstance> getInstances() throws NacosException {
+		return serviceDiscovery.getInstances(SERVICE_ID);
+	}
+
+}
@@ -0,0 +1,297 @@
+/*
+ * Copyright 2013-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alibaba.cloud.testsupport.nacos;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import com.alibaba.nacos.api.common.Constants;
+import com.alibaba.nacos.api.naming.pojo.Instance;
+import com.alibaba.nacos.api.naming.utils.NamingUtils;
+
+/**
+ * Scenario engine churning the instances of a service of an
+ * {@link InMemoryNamingService}, to test and measure discovery and load balancing under
+ * realistic instance changes.
+ * <p>
+ * {@link #populate()} registers {@link #setInstanceCount(int) instanceCount} instances.
+ * Each {@link #tick()} then replaces a {@link #setChurnRate(double) churnRate} fraction
+ * of them per second with new instances, and flips the health of a
+ * {@link #setHealthFlapRate(double) healthFlapRate} fraction of them per second. The
+ * changes of a tick are pushed at once, as the Nacos server merges the changes of a
+ * service. {@link #start()} ticks every {@link #setTickMillis(long) tickMillis} on a
+ * background thread, for example 5000 instances with a churn rate of 0.02 replace 10
+ * instances every 100 ms tick.
+ * <p>
+ * Runs are reproducible for a given seed when ticked manually.
+ *
+ * @author Spring Cloud Alibaba contributors
+ * @since 2021.0.4.0
+ */
+public class ChurnSimulator implements AutoCloseable {
+
+	private final InMemoryNamingService namingService;
+
+	private final String serviceName;
+
+	private final String groupName;
+
+	private final Random random;
+
+	private final List<Instance> instances = new ArrayList<>();
+
+	private int instanceCount = 100;
+
+	private double churnRate = 0.02;
+
+	private double healthFlapRate;
+
+	private long tickMillis = 100;
+
+	private List<String> clusterNames = Collections
+			.singletonList(Constants.DEFAULT_CLUSTER_NAME);
+
+	private long sequence;
+
+	private double pendingReplacements;
+
+	private double pendingFlaps;
+
+	private long ticks;
+
+	private long added;
+
+	private long removed;
+
+	private long healthChanges;
+
+	private ScheduledExecutorService scheduler;
+
+	/**
+	 * Churn a service of the default group, with a random seed.
+	 * @param namingService naming service holding the instances
+	 * @param serviceName name of the churned service
+	 */
+	public ChurnSimulator(InMemoryNamingService namingService, String serviceName) {
+		this(namingService, serviceName, Constants.DEFAULT_GROUP, new Random().nextLong());
+	}
+
+	/**
+	 * @param namingService naming service holding the instances
+	 * @param serviceName name of the churned service
+	 * @param groupName group of the churned service
+	 * @param seed seed of the random changes, for reproducible runs
+	 */
+	public ChurnSimulator(InMemoryNamingService namingService, String serviceName,
+			String groupName, long seed) {
+		this.namingService = namingService;
+		this.serviceName = serviceName;
+		this.groupName = groupName;
+		this.random = new Random(seed);
+	}
+
+	/**
+	 * @param instanceCount number of instances registered by {@link #populate()}
+	 */
+	public void setInstanceCount(int instanceCount) {
+		this.instanceCount = instanceCount;
+	}
+
+	/**
+	 * @param churnRate fraction of the instances replaced per second
+	 */
+	public void setChurnRate(double churnRate) {
+		this.churnRate = churnRate;
+	}
+
+	/**
+	 * @param healthFlapRate fraction of the instances whose health flips per second
+	 */
+	public void setHealthFlapRate(double healthFlapRate) {
+		this.healthFlapRate = healthFlapRate;
+	}
+
+	/**
+	 * @param tickMillis simulated time of a tick, and tick period of {@link #start()}
+	 */
+	public void setTickMillis(long tickMillis) {
+		this.tickMillis = tickMillis;
+	}
+
+	/**
+	 * @param clusterNames clusters the new instances are spread over, in turn
+	 */
+	public void setClusterNames(List<String> clusterNames) {
+		this.clusterNames = new ArrayList<>(clusterNames);
+	}
+
+	/**
+	 * Replace the instances of the service with {@link #setInstanceCount(int)
+	 * instanceCount} new healthy instances.
+	 */
+	public synchronized void populate() {
+		instances.clear();
+		for (int i = 0; i < instanceCount; i++) {
+			instances.add(newInstance());
+		}
+		added += instanceCount;
+		publish();
+	}
+
+	/**
+	 * Advance the scenario by {@link #setTickMillis(long) tickMillis}, pushing the
+	 * changes if any.
+	 */
+	public synchronized void tick() {
+		ticks++;
+		double seconds = tickMillis / 1000.0;
+		pendingReplacements += instances.size() * churnRate * seconds;
+		pendingFlaps += instances.size() * healthFlapRate * seconds;
+		int replacements = (int) Math.min(pendingReplacements, instances.size());
+		int flaps = (int) Math.min(pendingFlaps, instances.size());
+		pendingReplacements -= replacements;
+		pendingFlaps -= flaps;
+		for (int i = 0; i < replacements; i++) {
+			instances.set(random.nextInt(instances.size()), newInstance());
+		}
+		for (int i = 0; i < flaps; i++) {
+			int index = random.nextInt(instances.size());
+			// a changed instance is a new object, as after a push of the Nacos client
+			Instance flapped = copy(instances.get(index));
+			flapped.setHealthy(!flapped.isHealthy());
+			instances.set(index, flapped);
+		}
+		added += replacements;
+		removed += replacements;
+		healthChanges += flaps;
+		if (replacements > 0 || flaps > 0) {
+			publish();
+		}
+	}
+
+	/**
+	 * Tick every {@link #setTickMillis(long) tickMillis} on a daemon thread until
+	 * {@link #stop()}.
+	 */
+	public synchronized void start() {
+		if (scheduler != null) {
+			return;
+		}
+		scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "nacos-churn-simulator");
+			thread.setDaemon(true);
+			return thread;
+		});
+		scheduler.scheduleAtFixedRate(this::tick, tickMillis, tickMillis,
+				TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Stop ticking, the instances are left registered.
+	 */
+	public synchronized void stop() {
+		if (scheduler != null) {
+			scheduler.shutdownNow();
+			scheduler = null;
+		}
+	}
+
+	@Override
+	public void close() {
+		stop();
+	}
+
+	/**
+	 * @return current instances of the service
+	 */
+	public synchronized List<Instance> getInstances() {
+		return new ArrayList<>(instances);
+	}
+
+	/**
+	 * @return number of ticks so far
+	 */
+	public synchronized long getTicks() {
+		return ticks;
+	}
+
+	/**
+	 * @return number of instances registered so far
+	 */
+	public synchronized long getAdded() {
+		return added;
+	}
+
+	/**
+	 * @return number of instances replaced so far
+	 */
+	public synchronized long getRemoved() {
+		return removed;
+	}
+
+	/**
+	 * @return number of health flips so far
+	 */
+	public synchronized long getHealthChanges() {
+		return healthChanges;
+	}
+
+	private void publish() {
+		namingService.setInstances(serviceName, groupName, instances);
+	}
+
+	private Instance newInstance() {
+		long n = sequence++;
+		Instance instance = new Instance();
+		// 10.0.0.0/8 addresses, then the next ports once exhausted
+		instance.setIp("10." + ((n >> 16) & 0xFF) + "." + ((n >> 8) & 0xFF) + "."
+				+ (n & 0xFF));
+		instance.setPort(8080 + (int) (n >> 24));
+		instance.setWeight(1.0);
+		instance.setHealthy(true);
+		instance.setEnabled(true);
+		instance.setEphemeral(true);
+		instance.setClusterName(clusterNames.get((int) (n % clusterNames.size())));
+		instance.setServiceName(NamingUtils.getGroupedName(serviceName, groupName));
+		instance.setInstanceId(instance.getIp() + "#" + instance.getPort() + "#"
+				+ instance.getClusterName() + "#" + instance.getServiceName());
+		instance.setMetadata(new HashMap<>(4));
+		return instance;
+	}
+
+	private static Instance copy(Instance instance) {
+		Instance copy = new Instance();
+		copy.setInstanceId(instance.getInstanceId());
+		copy.setIp(instance.getIp());
+		copy.setPort(instance.getPort());
+		copy.setWeight(instance.getWeight());
+		copy.setHealthy(instance.isHealthy());
+		copy.setEnabled(instance.isEnabled());
+		copy.setEphemeral(instance.isEphemeral());
+		copy.setClusterName(instance.getClusterName());
+		copy.setServiceName(instance.getServiceName());
+		copy.setMetadata(new HashMap<>(instance.getMetadata()));
+		return copy;
+	}
+
+}
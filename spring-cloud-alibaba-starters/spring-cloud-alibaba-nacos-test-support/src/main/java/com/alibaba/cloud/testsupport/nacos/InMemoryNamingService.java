@@ -0,0 +1,600 @@
+/*
+ * Copyright 2013-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alibaba.cloud.testsupport.nacos;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.alibaba.nacos.api.common.Constants;
+import com.alibaba.nacos.api.exception.NacosException;
+import com.alibaba.nacos.api.naming.NamingService;
+import com.alibaba.nacos.api.naming.listener.EventListener;
+import com.alibaba.nacos.api.naming.listener.NamingEvent;
+import com.alibaba.nacos.api.naming.pojo.Instance;
+import com.alibaba.nacos.api.naming.pojo.ListView;
+import com.alibaba.nacos.api.naming.pojo.ServiceInfo;
+import com.alibaba.nacos.api.naming.utils.NamingUtils;
+import com.alibaba.nacos.api.selector.AbstractSelector;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * In-memory {@link NamingService} serving the instances registered to it, standing in
+ * for a Nacos server in tests and benchmarks.
+ * <p>
+ * Like the Nacos client between two pushes, lookups return the same {@link Instance}
+ * objects until the instances of the service change. Each change pushes a
+ * {@link NamingEvent} with all the instances of the service to its subscribers,
+ * synchronously by default or from the executor set with
+ * {@link #setPushExecutor(Executor)}. {@link #setAvailable(boolean)} simulates a server
+ * outage.
+ *
+ * @author Spring Cloud Alibaba contributors
+ * @since 2021.0.4.0
+ * @see ChurnSimulator
+ */
+public class InMemoryNamingService implements NamingService {
+
+	private static final Logger log = LoggerFactory
+			.getLogger(InMemoryNamingService.class);
+
+	private final Map<String, List<Instance>> instances = new ConcurrentHashMap<>(16);
+
+	private final Map<String, List<Subscriber>> subscribers = new ConcurrentHashMap<>(
+			16);
+
+	private final AtomicLong pushCount = new AtomicLong();
+
+	private volatile Executor pushExecutor = Runnable::run;
+
+	private volatile boolean available = true;
+
+	/**
+	 * Set the executor notifying the subscribers. A single thread keeps the pushes in
+	 * order, as the Nacos client does.
+	 * @param pushExecutor executor of the pushes, {@code Runnable::run} to notify on the
+	 * thread changing the instances
+	 */
+	public void setPushExecutor(Executor pushExecutor) {
+		this.pushExecutor = pushExecutor;
+	}
+
+	/**
+	 * Simulate a server outage: while unavailable, every call but
+	 * {@link #setInstances(String, String, List)} and {@link #unsubscribe} fails with a
+	 * {@link NacosException}, and {@link #getServerStatus()} returns {@code DOWN}.
+	 * @param available whether the server is available
+	 */
+	public void setAvailable(boolean available) {
+		this.available = available;
+	}
+
+	/**
+	 * @return number of {@link NamingEvent} delivered to subscribers so far
+	 */
+	public long getPushCount() {
+		return pushCount.get();
+	}
+
+	/**
+	 * Replace the instances of the given service.
+	 * @param serviceName name of service
+	 * @param groupName group of service
+	 * @param serviceInstances new instances
+	 */
+	public synchronized void setInstances(String serviceName, String groupName,
+			List<Instance> serviceInstances) {
+		String key = NamingUtils.getGroupedName(serviceName, groupName);
+		List<Instance> copy = Collections
+				.unmodifiableList(new ArrayList<>(serviceInstances));
+		instances.put(key, copy);
+		push(serviceName, groupName, key, copy);
+	}
+
+	@Override
+	public void registerInstance(String serviceName, String ip, int port)
+			throws NacosException {
+		registerInstance(serviceName, Constants.DEFAULT_GROUP, ip, port);
+	}
+
+	@Override
+	public void registerInstance(String serviceName, String groupName, String ip,
+			int port) throws NacosException {
+		registerInstance(serviceName, groupName, ip, port, Constants.DEFAULT_CLUSTER_NAME);
+	}
+
+	@Override
+	public void registerInstance(String serviceName, String ip, int port,
+			String clusterName) throws NacosException {
+		registerInstance(serviceName, Constants.DEFAULT_GROUP, ip, port, clusterName);
+	}
+
+	@Override
+	public void registerInstance(String serviceName, String groupName, String ip,
+			int port, String clusterName) throws NacosException {
+		registerInstance(serviceName, groupName, instance(ip, port, clusterName));
+	}
+
+	@Override
+	public void registerInstance(String serviceName, Instance instance)
+			throws NacosException {
+		registerInstance(serviceName, Constants.DEFAULT_GROUP, instance);
+	}
+
+	@Override
+	public void registerInstance(String serviceName, String groupName,
+			Instance instance) throws NacosException {
+		batchRegisterInstance(serviceName, groupName,
+				Collections.singletonList(instance));
+	}
+
+	@Override
+	public synchronized void batchRegisterInstance(String serviceName,
+			String groupName, List<Instance> registered) throws NacosException {
+		checkAvailable();
+		List<Instance> current = new ArrayList<>(
+				getAllInstances(serviceName, groupName, false));
+		for (Instance instance : registered) {
+			current.removeIf(existing -> sameAddress(existing, instance));
+			current.add(instance);
+		}
+		setInstances(serviceName, groupName, current);
+	}
+
+	@Override
+	public synchronized void batchDeregisterInstance(String serviceName,
+			String groupName, List<Instance> deregistered) throws NacosException {
+		checkAvailable();
+		List<Instance> current = new ArrayList<>(
+				getAllInstances(serviceName, groupName, false));
+		for (Instance instance : deregistered) {
+			current.removeIf(existing -> sameAddress(existing, instance));
+		}
+		setInstances(serviceName, groupName, current);
+	}
+
+	@Override
+	public void deregisterInstance(String serviceName, String ip, int port)
+			throws NacosException {
+		deregisterInstance(serviceName, Constants.DEFAULT_GROUP, ip, port);
+	}
+
+	@Override
+	public void deregisterInstance(String serviceName, String groupName, String ip,
+			int port) throws NacosException {
+		deregisterInstance(serviceName, groupName, ip, port,
+				Constants.DEFAULT_CLUSTER_NAME);
+	}
+
+	@Override
+	public void deregisterInstance(String serviceName, String ip, int port,
+			String clusterName) throws NacosException {
+		deregisterInstance(serviceName, Constants.DEFAULT_GROUP, ip, port, clusterName);
+	}
+
+	@Override
+	public void deregisterInstance(String serviceName, String groupName, String ip,
+			int port, String clusterName) throws NacosException {
+		deregisterInstance(serviceName, groupName, instance(ip, port, clusterName));
+	}
+
+	@Override
+	public void deregisterInstance(String serviceName, Instance instance)
+			throws NacosException {
+		deregisterInstance(serviceName, Constants.DEFAULT_GROUP, instance);
+	}
+
+	@Override
+	public void deregisterInstance(String serviceName, String groupName,
+			Instance instance) throws NacosException {
+		batchDeregisterInstance(serviceName, groupName,
+				Collections.singletonList(instance));
+	}
+
+	@Override
+	public List<Instance> getAllInstances(String serviceName) throws NacosException {
+		return getAllInstances(serviceName, Constants.DEFAULT_GROUP);
+	}
+
+	@Override
+	public List<Instance> getAllInstances(String serviceName, String groupName)
+			throws NacosException {
+		return getAllInstances(serviceName, groupName, Collections.emptyList());
+	}
+
+	@Override
+	public List<Instance> getAllInstances(String serviceName, boolean subscribe)
+			throws NacosException {
+		return getAllInstances(serviceName, Constants.DEFAULT_GROUP, subscribe);
+	}
+
+	@Override
+	public List<Instance> getAllInstances(String serviceName, String groupName,
+			boolean subscribe) throws NacosException {
+		return getAllInstances(serviceName, groupName, Collections.emptyList(),
+				subscribe);
+	}
+
+	@Override
+	public List<Instance> getAllInstances(String serviceName, List<String> clusters)
+			throws NacosException {
+		return getAllInstances(serviceName, Constants.DEFAULT_GROUP, clusters);
+	}
+
+	@Override
+	public List<Instance> getAllInstances(String serviceName, String groupName,
+			List<String> clusters) throws NacosException {
+		return getAllInstances(serviceName, groupName, clusters, true);
+	}
+
+	@Override
+	public List<Instance> getAllInstances(String serviceName, List<String> clusters,
+			boolean subscribe) throws NacosException {
+		return getAllInstances(serviceName, Constants.DEFAULT_GROUP, clusters,
+				subscribe);
+	}
+
+	@Override
+	public List<Instance> getAllInstances(String serviceName, String groupName,
+			List<String> clusters, boolean subscribe) throws NacosException {
+		checkAvailable();
+		List<Instance> all = instances.getOrDefault(
+				NamingUtils.getGroupedName(serviceName, groupName),
+				Collections.emptyList());
+		if (clusters == null || clusters.isEmpty()) {
+			return all;
+		}
+		List<Instance> result = new ArrayList<>(all.size());
+		for (Instance instance : all) {
+			if (clusters.contains(instance.getClusterName())) {
+				result.add(instance);
+			}
+		}
+		return result;
+	}
+
+	@Override
+	public List<Instance> selectInstances(String serviceName, boolean healthy)
+			throws NacosException {
+		return selectInstances(serviceName, Constants.DEFAULT_GROUP, healthy);
+	}
+
+	@Override
+	public List<Instance> selectInstances(String serviceName, String groupName,
+			boolean healthy) throws NacosException {
+		return selectInstances(serviceName, groupName, healthy, true);
+	}
+
+	@Override
+	public List<Instance> selectInstances(String serviceName, boolean healthy,
+			boolean subscribe) throws NacosException {
+		return selectInstances(serviceName, Constants.DEFAULT_GROUP, healthy, subscribe);
+	}
+
+	@Override
+	public List<Instance> selectInstances(String serviceName, String groupName,
+			boolean healthy, boolean subscribe) throws NacosException {
+		return selectInstances(serviceName, groupName, Collections.emptyList(), healthy,
+				subscribe);
+	}
+
+	@Override
+	public List<Instance> selectInstances(String serviceName, List<String> clusters,
+			boolean healthy) throws NacosException {
+		return selectInstances(serviceName, Constants.DEFAULT_GROUP, clusters, healthy);
+	}
+
+	@Override
+	public List<Instance> selectInstances(String serviceName, String groupName,
+			List<String> clusters, boolean healthy) throws NacosException {
+		return selectInstances(serviceName, groupName, clusters, healthy, true);
+	}
+
+	@Override
+	public List<Instance> selectInstances(String serviceName, List<String> clusters,
+			boolean healthy, boolean subscribe) throws NacosException {
+		return selectInstances(serviceName, Constants.DEFAULT_GROUP, clusters, healthy,
+				subscribe);
+	}
+
+	@Override
+	public List<Instance> selectInstances(String serviceName, String groupName,
+			List<String> clusters, boolean healthy, boolean subscribe)
+			throws NacosException {
+		List<Instance> all = getAllInstances(serviceName, groupName, clusters,
+				subscribe);
+		// same filter as the Nacos client
+		List<Instance> result = new ArrayList<>(all.size());
+		for (Instance instance : all) {
+			if (instance.isHealthy() == healthy && instance.isEnabled()
+					&& instance.getWeight() > 0) {
+				result.add(instance);
+			}
+		}
+		return result;
+	}
+
+	@Override
+	public Instance selectOneHealthyInstance(String serviceName) throws NacosException {
+		return selectOneHealthyInstance(serviceName, Constants.DEFAULT_GROUP);
+	}
+
+	@Override
+	public Instance selectOneHealthyInstance(String serviceName, String groupName)
+			throws NacosException {
+		return selectOneHealthyInstance(serviceName, groupName, true);
+	}
+
+	@Override
+	public Instance selectOneHealthyInstance(String serviceName, boolean subscribe)
+			throws NacosException {
+		return selectOneHealthyInstance(serviceName, Constants.DEFAULT_GROUP, subscribe);
+	}
+
+	@Override
+	public Instance selectOneHealthyInstance(String serviceName, String groupName,
+			boolean subscribe) throws NacosException {
+		return selectOneHealthyInstance(serviceName, groupName, Collections.emptyList(),
+				subscribe);
+	}
+
+	@Override
+	public Instance selectOneHealthyInstance(String serviceName, List<String> clusters)
+			throws NacosException {
+		return selectOneHealthyInstance(serviceName, Constants.DEFAULT_GROUP, clusters);
+	}
+
+	@Override
+	public Instance selectOneHealthyInstance(String serviceName, String groupName,
+			List<String> clusters) throws NacosException {
+		return selectOneHealthyInstance(serviceName, groupName, clusters, true);
+	}
+
+	@Override
+	public Instance selectOneHealthyInstance(String serviceName, List<String> clusters,
+			boolean subscribe) throws NacosException {
+		return selectOneHealthyInstance(serviceName, Constants.DEFAULT_GROUP, clusters,
+				subscribe);
+	}
+
+	@Override
+	public Instance selectOneHealthyInstance(String serviceName, String groupName,
+			List<String> clusters, boolean subscribe) throws NacosException {
+		List<Instance> healthy = selectInstances(serviceName, groupName, clusters, true,
+				subscribe);
+		return healthy.isEmpty() ? null : randomByWeight(healthy);
+	}
+
+	@Override
+	public void subscribe(String serviceName, EventListener listener)
+			throws NacosException {
+		subscribe(serviceName, Constants.DEFAULT_GROUP, listener);
+	}
+
+	@Override
+	public void subscribe(String serviceName, String groupName, EventListener listener)
+			throws NacosException {
+		subscribe(serviceName, groupName, Collections.emptyList(), listener);
+	}
+
+	@Override
+	public void subscribe(String serviceName, List<String> clusters,
+			EventListener listener) throws NacosException {
+		subscribe(serviceName, Constants.DEFAULT_GROUP, clusters, listener);
+	}
+
+	@Override
+	public void subscribe(String serviceName, String groupName, List<String> clusters,
+			EventListener listener) throws NacosException {
+		checkAvailable();
+		String key = NamingUtils.getGroupedName(serviceName, groupName);
+		Subscriber subscriber = new Subscriber(listener, clusters);
+		subscribers.computeIfAbsent(key, k -> new CopyOnWriteArrayList<>())
+				.add(subscriber);
+		List<Instance> current = instances.get(key);
+		// like the Nacos client, the current instances are pushed to a new subscriber
+		if (current != null) {
+			pushExecutor.execute(() -> subscriber.push(serviceName, groupName, current));
+		}
+	}
+
+	@Override
+	public void unsubscribe(String serviceName, EventListener listener)
+			throws NacosException {
+		unsubscribe(serviceName, Constants.DEFAULT_GROUP, listener);
+	}
+
+	@Override
+	public void unsubscribe(String serviceName, String groupName,
+			EventListener listener) throws NacosException {
+		unsubscribe(serviceName, groupName, Collections.emptyList(), listener);
+	}
+
+	@Override
+	public void unsubscribe(String serviceName, List<String> clusters,
+			EventListener listener) throws NacosException {
+		unsubscribe(serviceName, Constants.DEFAULT_GROUP, clusters, listener);
+	}
+
+	@Override
+	public void unsubscribe(String serviceName, String groupName, List<String> clusters,
+			EventListener listener) throws NacosException {
+		List<Subscriber> serviceSubscribers = subscribers
+				.get(NamingUtils.getGroupedName(serviceName, groupName));
+		if (serviceSubscribers != null) {
+			serviceSubscribers.removeIf(subscriber -> subscriber.listener == listener
+					&& subscriber.clusters.equals(clusters(clusters)));
+		}
+	}
+
+	@Override
+	public ListView<String> getServicesOfServer(int pageNo, int pageSize)
+			throws NacosException {
+		return getServicesOfServer(pageNo, pageSize, Constants.DEFAULT_GROUP);
+	}
+
+	@Override
+	public ListView<String> getServicesOfServer(int pageNo, int pageSize,
+			String groupName) throws NacosException {
+		return getServicesOfServer(pageNo, pageSize, groupName, null);
+	}
+
+	@Override
+	public ListView<String> getServicesOfServer(int pageNo, int pageSize,
+			AbstractSelector selector) throws NacosException {
+		return getServicesOfServer(pageNo, pageSize, Constants.DEFAULT_GROUP, selector);
+	}
+
+	@Override
+	public ListView<String> getServicesOfServer(int pageNo, int pageSize,
+			String groupName, AbstractSelector selector) throws NacosException {
+		checkAvailable();
+		List<String> services = new ArrayList<>();
+		for (String key : instances.keySet()) {
+			if (groupName.equals(NamingUtils.getGroupName(key))) {
+				services.add(NamingUtils.getServiceName(key));
+			}
+		}
+		Collections.sort(services);
+		int from = Math.min(Math.max(pageNo - 1, 0) * pageSize, services.size());
+		int to = Math.min(from + pageSize, services.size());
+		ListView<String> view = new ListView<>();
+		view.setCount(services.size());
+		view.setData(new ArrayList<>(services.subList(from, to)));
+		return view;
+	}
+
+	@Override
+	public List<ServiceInfo> getSubscribeServices() throws NacosException {
+		checkAvailable();
+		List<ServiceInfo> services = new ArrayList<>();
+		subscribers.forEach((key, serviceSubscribers) -> {
+			if (!serviceSubscribers.isEmpty()) {
+				services.add(new ServiceInfo(key, ""));
+			}
+		});
+		return services;
+	}
+
+	@Override
+	public String getServerStatus() {
+		return available ? "UP" : "DOWN";
+	}
+
+	@Override
+	public void shutDown() throws NacosException {
+		subscribers.clear();
+	}
+
+	private void checkAvailable() throws NacosException {
+		if (!available) {
+			throw new NacosException(NacosException.SERVER_ERROR,
+					"In-memory naming service is unavailable");
+		}
+	}
+
+	private void push(String serviceName, String groupName, String key,
+			List<Instance> serviceInstances) {
+		List<Subscriber> serviceSubscribers = subscribers.get(key);
+		if (serviceSubscribers == null || serviceSubscribers.isEmpty()) {
+			return;
+		}
+		pushExecutor.execute(() -> {
+			for (Subscriber subscriber : serviceSubscribers) {
+				subscriber.push(serviceName, groupName, serviceInstances);
+			}
+		});
+	}
+
+	private static List<String> clusters(List<String> clusters) {
+		return clusters == null ? Collections.emptyList() : clusters;
+	}
+
+	private static Instance randomByWeight(List<Instance> candidates) {
+		double total = 0;
+		for (Instance instance : candidates) {
+			total += instance.getWeight();
+		}
+		double random = ThreadLocalRandom.current().nextDouble(total);
+		for (Instance instance : candidates) {
+			random -= instance.getWeight();
+			if (random < 0) {
+				return instance;
+			}
+		}
+		return candidates.get(candidates.size() - 1);
+	}
+
+	private static boolean sameAddress(Instance a, Instance b) {
+		return a.getIp().equals(b.getIp()) && a.getPort() == b.getPort()
+				&& a.getClusterName().equals(b.getClusterName());
+	}
+
+	private static Instance instance(String ip, int port, String clusterName) {
+		Instance instance = new Instance();
+		instance.setIp(ip);
+		instance.setPort(port);
+		instance.setClusterName(clusterName);
+		return instance;
+	}
+
+	private final class Subscriber {
+
+		private final EventListener listener;
+
+		private final List<String> clusters;
+
+		private final String clusterString;
+
+		private Subscriber(EventListener listener, List<String> clusters) {
+			this.listener = listener;
+			this.clusters = clusters(clusters);
+			this.clusterString = String.join(",", this.clusters);
+		}
+
+		private void push(String serviceName, String groupName,
+				List<Instance> serviceInstances) {
+			List<Instance> pushed = serviceInstances;
+			if (!clusters.isEmpty()) {
+				pushed = new ArrayList<>(serviceInstances.size());
+				for (Instance instance : serviceInstances) {
+					if (clusters.contains(instance.getClusterName())) {
+						pushed.add(instance);
+					}
+				}
+			}
+			try {
+				listener.onEvent(
+						new NamingEvent(serviceName, groupName, clusterString, pushed));
+				pushCount.incrementAndGet();
+			}
+			catch (RuntimeException e) {
+				// the Nacos client logs the failures of listeners too
+				log.error("Naming event listener of service {} failed", serviceName, e);
+			}
+		}
+
+	}
+
+}
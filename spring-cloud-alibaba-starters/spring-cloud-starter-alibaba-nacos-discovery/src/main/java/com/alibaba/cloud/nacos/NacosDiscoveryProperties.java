@@ -20,8 +20,10 @@ import java.net.Inet4Address;
 import java.net.Inet6Address;
 import java.net.InetAddress;
 import java.net.NetworkInterface;
+import java.util.ArrayList;
 import java.util.Enumeration;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Properties;
@@ -111,6 +113,23 @@ public class NacosDiscoveryProperties {
 	 */
 	private long watchDelay = 30000;
 
+	/**
+	 * watch debounce, duration during which service changes are gathered into a single
+	 * gateway heartbeat event.
+	 */
+	private long watchDebounce = 1000;
+
+	/**
+	 * number of service names loaded per request by the service catalog.
+	 */
+	private int servicesPageSize = 1000;
+
+	/**
+	 * duration in milliseconds the service catalog keeps service names before reloading
+	 * them.
+	 */
+	private long servicesCacheTtl = 30000;
+
 	/**
 	 * nacos naming log file name.
 	 */
@@ -132,6 +151,13 @@ public class NacosDiscoveryProperties {
 	 */
 	private String clusterName = "DEFAULT";
 
+	/**
+	 * clusters to fall back to in order, e.g. the other clusters of the same region,
+	 * when the local cluster has no available instance. All instances are used if none
+	 * of them has any.
+	 */
+	private List<String> fallbackClusters = new ArrayList<>();
+
 	/**
 	 * group name for nacos.
 	 */
@@ -223,12 +249,73 @@ public class NacosDiscoveryProperties {
 	 */
 	private boolean failureToleranceEnabled;
 
+	/**
+	 * file the snapshot of the cached services and instances is written to, defaults to
+	 * ${user.home}/nacos/spring-cloud/{namespace}/service-cache.snapshot.
+	 */
+	private String snapshotFile;
+
+	/**
+	 * delay in milliseconds between a change of the cached services or instances and
+	 * the write of the snapshot, gathering changes into a single write.
+	 */
+	private long snapshotWriteDelay = 1000;
+
 	/**
 	 * Throw exceptions during service registration if true, otherwise, log error
 	 * (defaults to true).
 	 */
 	private boolean failFast = true;
 
+	/**
+	 * register the instance on a background thread instead of the startup thread,
+	 * retrying failures with exponential backoff. Failures are then never thrown,
+	 * whatever failFast.
+	 */
+	private boolean registerAsync;
+
+	/**
+	 * maximum number of attempts of an asynchronous registration.
+	 */
+	private int registerRetryMaxAttempts = 10;
+
+	/**
+	 * delay in milliseconds before retrying a failed asynchronous registration for the
+	 * first time, doubled after each failure.
+	 */
+	private long registerRetryInitialInterval = 1000;
+
+	/**
+	 * maximum delay in milliseconds between two attempts of an asynchronous
+	 * registration.
+	 */
+	private long registerRetryMaxInterval = 30000;
+
+	/**
+	 * probe the Nacos server status on a background schedule and answer health checks
+	 * from the last probe instead of calling Nacos on each check.
+	 */
+	private boolean healthProbeAsync;
+
+	/**
+	 * interval in milliseconds between two background probes of the server status,
+	 * with up to 10% random jitter.
+	 */
+	private long healthProbeInterval = 10000;
+
+	/**
+	 * age in milliseconds after which the last successful probe is too old and the
+	 * health is DOWN.
+	 */
+	private long healthProbeMaxAge = 30000;
+
+	/**
+	 * run the blocking Nacos calls of background tasks (async registration, health
+	 * probes, reactive lookups, hostname lookups) on virtual threads. Requires JDK 21 or
+	 * later, platform threads are used otherwise.
+	 */
+	private boolean virtualThreads;
+
 	@Autowired
 	private InetIPv6Util inetIPv6Util;
 
@@ -264,13 +351,13 @@ public class NacosDiscoveryProperties {
 			// traversing network interfaces if didn't specify a interface
 			if (StringUtils.isEmpty(networkInterface)) {
 				if ("IPv4".equalsIgnoreCase(ipType)) {
-					ip = inetUtils.findFirstNonLoopbackHostInfo().getIpAddress();
+					ip = findFirstNonLoopbackIpAddress();
 				}
 				else if ("IPv6".equalsIgnoreCase(ipType)) {
 					ip = inetIPv6Util.findIPv6Address();
 					if (StringUtils.isEmpty(ip)) {
 						log.warn("There is no available IPv6 found. Spring Cloud Alibaba will automatically find IPv4.");
-						ip = inetUtils.findFirstNonLoopbackHostInfo().getIpAddress();
+						ip = findFirstNonLoopbackIpAddress();
 					}
 				}
 				else {
@@ -322,6 +409,19 @@ public class NacosDiscoveryProperties {
 		return nacosServiceManager.getNamingService();
 	}
 
+	/**
+	 * Unlike {@link InetUtils#findFirstNonLoopbackHostInfo()}, does not wait for the
+	 * hostname of the address to be resolved.
+	 */
+	private String findFirstNonLoopbackIpAddress() {
+		InetAddress address = inetUtils.findFirstNonLoopbackAddress();
+		if (address != null) {
+			return address.getHostAddress();
+		}
+		// default ip address of the inet utils properties
+		return inetUtils.findFirstNonLoopbackHostInfo().getIpAddress();
+	}
+
 	public String getEndpoint() {
 		return endpoint;
 	}
@@ -366,6 +466,14 @@ public class NacosDiscoveryProperties {
 		this.clusterName = clusterName;
 	}
 
+	public List<String> getFallbackClusters() {
+		return fallbackClusters;
+	}
+
+	public void setFallbackClusters(List<String> fallbackClusters) {
+		this.fallbackClusters = fallbackClusters;
+	}
+
 	public String getService() {
 		return service;
 	}
@@ -494,6 +602,30 @@ public class NacosDiscoveryProperties {
 		this.watchDelay = watchDelay;
 	}
 
+	public long getWatchDebounce() {
+		return watchDebounce;
+	}
+
+	public void setWatchDebounce(long watchDebounce) {
+		this.watchDebounce = watchDebounce;
+	}
+
+	public int getServicesPageSize() {
+		return servicesPageSize;
+	}
+
+	public void setServicesPageSize(int servicesPageSize) {
+		this.servicesPageSize = servicesPageSize;
+	}
+
+	public long getServicesCacheTtl() {
+		return servicesCacheTtl;
+	}
+
+	public void setServicesCacheTtl(long servicesCacheTtl) {
+		this.servicesCacheTtl = servicesCacheTtl;
+	}
+
 	public String getGroup() {
 		return group;
 	}
@@ -542,6 +674,22 @@ public class NacosDiscoveryProperties {
 		this.failureToleranceEnabled = failureToleranceEnabled;
 	}
 
+	public String getSnapshotFile() {
+		return snapshotFile;
+	}
+
+	public void setSnapshotFile(String snapshotFile) {
+		this.snapshotFile = snapshotFile;
+	}
+
+	public long getSnapshotWriteDelay() {
+		return snapshotWriteDelay;
+	}
+
+	public void setSnapshotWriteDelay(long snapshotWriteDelay) {
+		this.snapshotWriteDelay = snapshotWriteDelay;
+	}
+
 	public boolean isFailFast() {
 		return failFast;
 	}
@@ -550,6 +698,70 @@ public class NacosDiscoveryProperties {
 		this.failFast = failFast;
 	}
 
+	public boolean isRegisterAsync() {
+		return registerAsync;
+	}
+
+	public void setRegisterAsync(boolean registerAsync) {
+		this.registerAsync = registerAsync;
+	}
+
+	public int getRegisterRetryMaxAttempts() {
+		return registerRetryMaxAttempts;
+	}
+
+	public void setRegisterRetryMaxAttempts(int registerRetryMaxAttempts) {
+		this.registerRetryMaxAttempts = registerRetryMaxAttempts;
+	}
+
+	public long getRegisterRetryInitialInterval() {
+		return registerRetryInitialInterval;
+	}
+
+	public void setRegisterRetryInitialInterval(long registerRetryInitialInterval) {
+		this.registerRetryInitialInterval = registerRetryInitialInterval;
+	}
+
+	public long getRegisterRetryMaxInterval() {
+		return registerRetryMaxInterval;
+	}
+
+	public void setRegisterRetryMaxInterval(long registerRetryMaxInterval) {
+		this.registerRetryMaxInterval = registerRetryMaxInterval;
+	}
+
+	public boolean isHealthProbeAsync() {
+		return healthProbeAsync;
+	}
+
+	public void setHealthProbeAsync(boolean healthProbeAsync) {
+		this.healthProbeAsync = healthProbeAsync;
+	}
+
+	public long getHealthProbeInterval() {
+		return healthProbeInterval;
+	}
+
+	public void setHealthProbeInterval(long healthProbeInterval) {
+		this.healthProbeInterval = healthProbeInterval;
+	}
+
+	public long getHealthProbeMaxAge() {
+		return healthProbeMaxAge;
+	}
+
+	public void setHealthProbeMaxAge(long healthProbeMaxAge) {
+		this.healthProbeMaxAge = healthProbeMaxAge;
+	}
+
+	public boolean isVirtualThreads() {
+		return virtualThreads;
+	}
+
+	public void setVirtualThreads(boolean virtualThreads) {
+		this.virtualThreads = virtualThreads;
+	}
+
 	@Override
 	public boolean equals(Object o) {
 		if (this == o) {
@@ -559,11 +771,24 @@ public class NacosDiscoveryProperties {
 			return false;
 		}
 		NacosDiscoveryProperties that = (NacosDiscoveryProperties) o;
-		return watchDelay == that.watchDelay && Float.compare(that.weight, weight) == 0
+		return watchDelay == that.watchDelay && watchDebounce == that.watchDebounce
+				&& servicesPageSize == that.servicesPageSize
+				&& servicesCacheTtl == that.servicesCacheTtl
+				&& Float.compare(that.weight, weight) == 0
 				&& registerEnabled == that.registerEnabled && port == that.port
 				&& secure == that.secure && instanceEnabled == that.instanceEnabled
 				&& ephemeral == that.ephemeral
 				&& failureToleranceEnabled == that.failureToleranceEnabled
+				&& snapshotWriteDelay == that.snapshotWriteDelay
+				&& registerAsync == that.registerAsync
+				&& registerRetryMaxAttempts == that.registerRetryMaxAttempts
+				&& registerRetryInitialInterval == that.registerRetryInitialInterval
+				&& registerRetryMaxInterval == that.registerRetryMaxInterval
+				&& healthProbeAsync == that.healthProbeAsync
+				&& healthProbeInterval == that.healthProbeInterval
+				&& healthProbeMaxAge == that.healthProbeMaxAge
+				&& virtualThreads == that.virtualThreads
+				&& Objects.equals(snapshotFile, that.snapshotFile)
 				&& Objects.equals(serverAddr, that.serverAddr)
 				&& Objects.equals(username, that.username)
 				&& Objects.equals(password, that.password)
@@ -572,6 +797,7 @@ public class NacosDiscoveryProperties {
 				&& Objects.equals(logName, that.logName)
 				&& Objects.equals(service, that.service)
 				&& Objects.equals(clusterName, that.clusterName)
+				&& Objects.equals(fallbackClusters, that.fallbackClusters)
 				&& Objects.equals(group, that.group)
 				&& Objects.equals(namingLoadCacheAtStart, that.namingLoadCacheAtStart)
 				&& Objects.equals(metadata, that.metadata) && Objects.equals(ip, that.ip)
@@ -587,11 +813,15 @@ public class NacosDiscoveryProperties {
 	@Override
 	public int hashCode() {
 		return Objects.hash(serverAddr, username, password, endpoint, namespace,
-				watchDelay, logName, service, weight, clusterName, group,
+				watchDelay, watchDebounce, servicesPageSize, servicesCacheTtl, logName,
+				service, weight, clusterName, fallbackClusters, group,
 				namingLoadCacheAtStart, metadata, registerEnabled, ip, networkInterface,
 				port, secure, accessKey, secretKey, heartBeatInterval, heartBeatTimeout,
 				ipDeleteTimeout, instanceEnabled, ephemeral, failureToleranceEnabled,
-				failFast);
+				snapshotFile, snapshotWriteDelay, failFast, registerAsync,
+				registerRetryMaxAttempts, registerRetryInitialInterval,
+				registerRetryMaxInterval, healthProbeAsync, healthProbeInterval,
+				healthProbeMaxAge, virtualThreads);
 	}
 
 	@Override
@@ -599,9 +829,13 @@ public class NacosDiscoveryProperties {
 		return "NacosDiscoveryProperties{" + "serverAddr='" + serverAddr + '\''
 				+ ", username='" + username + '\'' + ", password='" + password + '\''
 				+ ", endpoint='" + endpoint + '\'' + ", namespace='" + namespace + '\''
-				+ ", watchDelay=" + watchDelay + ", logName='" + logName + '\''
+				+ ", watchDelay=" + watchDelay + ", watchDebounce=" + watchDebounce
+				+ ", servicesPageSize=" + servicesPageSize + ", servicesCacheTtl="
+				+ servicesCacheTtl
+				+ ", logName='" + logName + '\''
 				+ ", service='" + service + '\'' + ", weight=" + weight
-				+ ", clusterName='" + clusterName + '\'' + ", group='" + group + '\''
+				+ ", clusterName='" + clusterName + '\'' + ", fallbackClusters="
+				+ fallbackClusters + ", group='" + group + '\''
 				+ ", namingLoadCacheAtStart='" + namingLoadCacheAtStart + '\''
 				+ ", metadata=" + metadata + ", registerEnabled=" + registerEnabled
 				+ ", ip='" + ip + '\'' + ", networkInterface='" + networkInterface + '\''
@@ -610,7 +844,15 @@ public class NacosDiscoveryProperties {
 				+ heartBeatInterval + ", heartBeatTimeout=" + heartBeatTimeout
 				+ ", ipDeleteTimeout=" + ipDeleteTimeout + ", instanceEnabled="
 				+ instanceEnabled + ", ephemeral=" + ephemeral
-				+ ", failureToleranceEnabled=" + failureToleranceEnabled + '}'
+				+ ", failureToleranceEnabled=" + failureToleranceEnabled
+				+ ", snapshotFile='" + snapshotFile + '\'' + ", snapshotWriteDelay="
+				+ snapshotWriteDelay + ", registerAsync=" + registerAsync
+				+ ", registerRetryMaxAttempts=" + registerRetryMaxAttempts
+				+ ", registerRetryInitialInterval=" + registerRetryInitialInterval
+				+ ", registerRetryMaxInterval=" + registerRetryMaxInterval
+				+ ", healthProbeAsync=" + healthProbeAsync + ", healthProbeInterval="
+				+ healthProbeInterval + ", healthProbeMaxAge=" + healthProbeMaxAge
+				+ ", virtualThreads=" + virtualThreads + '}'
 				+ ", ipDeleteTimeout=" + ipDeleteTimeout + ", failFast=" + failFast + '}';
 	}
 
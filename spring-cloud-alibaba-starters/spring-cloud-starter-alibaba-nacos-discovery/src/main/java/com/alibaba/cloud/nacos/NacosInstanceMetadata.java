@@ -0,0 +1,133 @@
+/*
+ * Copyright 2013-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alibaba.cloud.nacos;
+
+import java.util.AbstractMap;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import com.alibaba.nacos.api.naming.pojo.Instance;
+
+/**
+ * Metadata view of a Nacos {@link Instance}.
+ * <p>
+ * Lookups of user metadata go straight to the metadata of the instance. The
+ * {@code nacos.*} keys of the instance fields are only computed, together with the full map, the first time
+ * one of them is looked up, the map is iterated or modified. The map stays mutable like
+ * the one previously built for each instance, writes going to that copy and never to
+ * the Nacos instance.
+ *
+ * @author Spring Cloud Alibaba contributors
+ * @since 2021.0.4.0
+ */
+final class NacosInstanceMetadata extends AbstractMap<String, String> {
+
+	private static final Set<String> COMPUTED_KEYS = new HashSet<>(
+			Arrays.asList("nacos.instanceId", "nacos.weight", "nacos.healthy",
+					"nacos.cluster", "nacos.ephemeral"));
+
+	private final Instance instance;
+
+	private volatile Map<String, String> materialized;
+
+	NacosInstanceMetadata(Instance instance) {
+		this.instance = instance;
+	}
+
+	@Override
+	public String get(Object key) {
+		Map<String, String> map = this.materialized;
+		if (map == null && !isComputedKey(key)) {
+			Map<String, String> metadata = instance.getMetadata();
+			return metadata == null ? null : metadata.get(key);
+		}
+		return materialize().get(key);
+	}
+
+	@Override
+	public boolean containsKey(Object key) {
+		Map<String, String> map = this.materialized;
+		if (map == null && !isComputedKey(key)) {
+			Map<String, String> metadata = instance.getMetadata();
+			return metadata != null && metadata.containsKey(key);
+		}
+		return materialize().containsKey(key);
+	}
+
+	@Override
+	public int size() {
+		return materialize().size();
+	}
+
+	@Override
+	public Set<Entry<String, String>> entrySet() {
+		return materialize().entrySet();
+	}
+
+	@Override
+	public String put(String key, String value) {
+		return materialize().put(key, value);
+	}
+
+	@Override
+	public String remove(Object key) {
+		return materialize().remove(key);
+	}
+
+	@Override
+	public void putAll(Map<? extends String, ? extends String> m) {
+		materialize().putAll(m);
+	}
+
+	@Override
+	public void clear() {
+		materialize().clear();
+	}
+
+	private static boolean isComputedKey(Object key) {
+		return COMPUTED_KEYS.contains(key);
+	}
+
+	private Map<String, String> materialize() {
+		Map<String, String> map = this.materialized;
+		if (map != null) {
+			return map;
+		}
+		synchronized (this) {
+			map = this.materialized;
+			if (map != null) {
+				return map;
+			}
+			// same precedence as the map previously built for each lookup
+			map = new HashMap<>();
+			map.put("nacos.instanceId", instance.getInstanceId());
+			map.put("nacos.weight", String.valueOf(instance.getWeight()));
+			map.put("nacos.healthy", String.valueOf(instance.isHealthy()));
+			map.put("nacos.cluster", String.valueOf(instance.getClusterName()));
+			if (instance.getMetadata() != null) {
+				map.putAll(instance.getMetadata());
+			}
+			map.put("nacos.ephemeral", String.valueOf(instance.isEphemeral()));
+			this.materialized = map;
+			return map;
+		}
+	}
+
+}
@@ -20,6 +20,8 @@ import java.net.URI;
 import java.util.Map;
 import java.util.Objects;
 
+import com.alibaba.nacos.api.naming.pojo.Instance;
+
 import org.springframework.cloud.client.DefaultServiceInstance;
 import org.springframework.cloud.client.ServiceInstance;
 
@@ -41,6 +43,30 @@ public class NacosServiceInstance implements ServiceInstance {
 
 	private Map<String, String> metadata;
 
+	private Instance nacosInstance;
+
+	public NacosServiceInstance() {
+	}
+
+	/**
+	 * Create a service instance backed by the given Nacos instance, without copying its
+	 * metadata.
+	 * @param instance Nacos instance, must not be modified afterwards
+	 * @param serviceId id of service
+	 */
+	public NacosServiceInstance(Instance instance, String serviceId) {
+		this.serviceId = serviceId;
+		this.instanceId = instance.getInstanceId();
+		this.host = instance.getIp();
+		this.port = instance.getPort();
+		this.nacosInstance = instance;
+		this.metadata = new NacosInstanceMetadata(instance);
+		Map<String, String> instanceMetadata = instance.getMetadata();
+		if (instanceMetadata != null && instanceMetadata.containsKey("secure")) {
+			this.secure = Boolean.parseBoolean(instanceMetadata.get("secure"));
+		}
+	}
+
 	@Override
 	public String getServiceId() {
 		return serviceId;
@@ -76,6 +102,13 @@ public class NacosServiceInstance implements ServiceInstance {
 		return metadata;
 	}
 
+	/**
+	 * @return the Nacos instance backing this service instance, or null
+	 */
+	public Instance getNacosInstance() {
+		return nacosInstance;
+	}
+
 	public void setServiceId(String serviceId) {
 		this.serviceId = serviceId;
 	}
@@ -16,8 +16,12 @@
 
 package com.alibaba.cloud.nacos;
 
+import java.util.Map;
 import java.util.Objects;
 import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import com.alibaba.nacos.api.exception.NacosException;
 import com.alibaba.nacos.api.naming.NamingMaintainService;
@@ -27,40 +31,139 @@ import org.slf4j.LoggerFactory;
 
 import static com.alibaba.nacos.api.NacosFactory.createMaintainService;
 import static com.alibaba.nacos.api.NacosFactory.createNamingService;
+import static com.alibaba.nacos.api.PropertyKeyConst.ACCESS_KEY;
+import static com.alibaba.nacos.api.PropertyKeyConst.ENDPOINT;
+import static com.alibaba.nacos.api.PropertyKeyConst.ENDPOINT_PORT;
+import static com.alibaba.nacos.api.PropertyKeyConst.NAMESPACE;
+import static com.alibaba.nacos.api.PropertyKeyConst.PASSWORD;
+import static com.alibaba.nacos.api.PropertyKeyConst.SECRET_KEY;
+import static com.alibaba.nacos.api.PropertyKeyConst.SERVER_ADDR;
+import static com.alibaba.nacos.api.PropertyKeyConst.USERNAME;
 
 /**
+ * Pool of the naming services, keyed by server address, namespace and credentials, so
+ * that the clients of several namespaces share one naming service per namespace.
+ * <p>
+ * Looking up an existing naming service does not lock. A naming service is shut down
+ * once {@link #nacosServiceShutDown()} has been called and every
+ * {@link #acquireNamingService(Properties) acquired} reference has been released.
+ *
  * @author yuhuangbin
  */
 public class NacosServiceManager {
 
 	private static final Logger log = LoggerFactory.getLogger(NacosServiceManager.class);
 
+	private static final String[] KEY_PROPERTIES = { SERVER_ADDR, ENDPOINT,
+			ENDPOINT_PORT, NAMESPACE, USERNAME, PASSWORD, ACCESS_KEY, SECRET_KEY };
+
 	private NacosDiscoveryProperties nacosDiscoveryProperties;
 
-	private volatile NamingService namingService;
+	private final Map<String, PooledNamingService> namingServices = new ConcurrentHashMap<>(
+			4);
+
+	private final Map<String, NamingService> namespaceNamingServices = new ConcurrentHashMap<>(
+			4);
+
+	private final Map<String, NamingMaintainService> namingMaintainServices = new ConcurrentHashMap<>(
+			4);
 
-	private volatile NamingMaintainService namingMaintainService;
+	private volatile NamingService namingService;
 
 	public NamingService getNamingService() {
-		if (Objects.isNull(this.namingService)) {
-			buildNamingService(nacosDiscoveryProperties.getNacosProperties());
+		NamingService current = this.namingService;
+		if (Objects.isNull(current)) {
+			current = buildNamingService(nacosDiscoveryProperties.getNacosProperties());
 		}
-		return namingService;
+		return current;
 	}
 
+	/**
+	 * Return the naming service of the discovery, creating it with the given properties
+	 * if needed.
+	 * @param properties Nacos client properties, only used if the naming service of the
+	 * discovery does not exist yet
+	 * @return the naming service of the discovery
+	 * @deprecated use {@link #getNamingService()}, or
+	 * {@link #getPooledNamingService(Properties)} for the naming service of the given
+	 * properties
+	 */
 	@Deprecated
 	public NamingService getNamingService(Properties properties) {
-		if (Objects.isNull(this.namingService)) {
-			buildNamingService(properties);
+		NamingService current = this.namingService;
+		if (Objects.isNull(current)) {
+			current = buildNamingService(properties);
+		}
+		return current;
+	}
+
+	/**
+	 * Return the naming service of the given properties, creating it if needed.
+	 * Properties with the same server address, namespace and credentials share a naming
+	 * service, the other properties of the first lookup are used to create it.
+	 * @param properties Nacos client properties
+	 * @return the naming service
+	 */
+	public NamingService getPooledNamingService(Properties properties) {
+		return pooled(key(properties), properties, false).namingService;
+	}
+
+	/**
+	 * Return the naming service of the given namespace, with the server address and
+	 * credentials of the discovery properties.
+	 * @param namespace namespace id
+	 * @return the naming service
+	 */
+	public NamingService getNamespaceNamingService(String namespace) {
+		String namespaceKey = Objects.toString(namespace, "");
+		NamingService current = namespaceNamingServices.get(namespaceKey);
+		if (Objects.isNull(current)) {
+			Properties properties = nacosDiscoveryProperties.getNacosProperties();
+			properties.put(NAMESPACE, namespaceKey);
+			current = getPooledNamingService(properties);
+			namespaceNamingServices.put(namespaceKey, current);
+		}
+		return current;
+	}
+
+	/**
+	 * Return the naming service of the given properties and hold a reference to it,
+	 * which keeps it alive after {@link #nacosServiceShutDown()} until
+	 * {@link #releaseNamingService(Properties)} is called.
+	 * @param properties Nacos client properties
+	 * @return the naming service
+	 */
+	public NamingService acquireNamingService(Properties properties) {
+		return pooled(key(properties), properties, true).namingService;
+	}
+
+	/**
+	 * Release a reference {@link #acquireNamingService(Properties) acquired} to the
+	 * naming service of the given properties, shutting it down if it was the last one.
+	 * @param properties Nacos client properties
+	 * @throws NacosException if the naming service fails to shut down
+	 */
+	public void releaseNamingService(Properties properties) throws NacosException {
+		String key = key(properties);
+		PooledNamingService pooled = namingServices.get(key);
+		if (pooled != null && pooled.release()) {
+			shutDown(key, pooled);
 		}
-		return namingService;
 	}
 
 	public NamingMaintainService getNamingMaintainService(Properties properties) {
-		if (Objects.isNull(namingMaintainService)) {
-			buildNamingMaintainService(properties);
+		String key = key(properties);
+		NamingMaintainService maintainService = namingMaintainServices.get(key);
+		if (Objects.isNull(maintainService)) {
+			NamingMaintainService created = createNamingMaintainService(properties);
+			maintainService = namingMaintainServices.putIfAbsent(key, created);
+			if (maintainService == null) {
+				return created;
+			}
+			// created concurrently
+			shutDownQuietly(created::shutDown);
 		}
-		return namingMaintainService;
+		return maintainService;
 	}
 
 	public boolean isNacosDiscoveryInfoChanged(
@@ -72,29 +175,65 @@ public class NacosServiceManager {
 		return true;
 	}
 
-	private NamingMaintainService buildNamingMaintainService(Properties properties) {
-		if (Objects.isNull(namingMaintainService)) {
-			synchronized (NacosServiceManager.class) {
-				if (Objects.isNull(namingMaintainService)) {
-					namingMaintainService = createNamingMaintainService(properties);
+	private PooledNamingService pooled(String key, Properties properties,
+			boolean acquire) {
+		for (;;) {
+			PooledNamingService pooled = namingServices.get(key);
+			if (pooled != null && !acquire && pooled.managed.get()) {
+				return pooled;
+			}
+			if (pooled == null) {
+				// created outside of the map, which must not block on the server
+				PooledNamingService created = new PooledNamingService(
+						createNewNamingService(properties));
+				pooled = namingServices.putIfAbsent(key, created);
+				if (pooled == null) {
+					pooled = created;
+				}
+				else {
+					// created concurrently
+					shutDownQuietly(created.namingService::shutDown);
 				}
 			}
+			if (acquire ? pooled.retain() : pooled.manage()) {
+				return pooled;
+			}
+			// released concurrently, being shut down
+			namingServices.remove(key, pooled);
 		}
-		return namingMaintainService;
 	}
 
-	private NamingService buildNamingService(Properties properties) {
-		if (Objects.isNull(namingService)) {
-			synchronized (NacosServiceManager.class) {
-				if (Objects.isNull(namingService)) {
-					namingService = createNewNamingService(properties);
-				}
-			}
+	private synchronized NamingService buildNamingService(Properties properties) {
+		if (Objects.isNull(this.namingService)) {
+			this.namingService = getPooledNamingService(properties);
+		}
+		return this.namingService;
+	}
+
+	private static void shutDownQuietly(ShutDown shutDown) {
+		try {
+			shutDown.shutDown();
+		}
+		catch (NacosException e) {
+			log.warn("Nacos service shutDown failed", e);
 		}
-		return namingService;
 	}
 
-	private NamingService createNewNamingService(Properties properties) {
+	private void shutDown(String key, PooledNamingService pooled) throws NacosException {
+		namingServices.remove(key, pooled);
+		namespaceNamingServices.values().removeIf(ns -> ns == pooled.namingService);
+		if (this.namingService == pooled.namingService) {
+			this.namingService = null;
+		}
+		pooled.namingService.shutDown();
+	}
+
+	/**
+	 * Create the naming service of the given properties.
+	 * @param properties Nacos client properties
+	 * @return the naming service
+	 */
+	protected NamingService createNewNamingService(Properties properties) {
 		try {
 			return createNamingService(properties);
 		}
@@ -112,18 +251,117 @@ public class NacosServiceManager {
 		}
 	}
 
+	/**
+	 * Release the references held by this manager, shutting down the naming services
+	 * that are not {@link #acquireNamingService(Properties) acquired} elsewhere.
+	 * @throws NacosException if a naming service fails to shut down
+	 */
 	public void nacosServiceShutDown() throws NacosException {
-		if (Objects.nonNull(this.namingService)) {
-			this.namingService.shutDown();
-			this.namingService = null;
+		this.namingService = null;
+		namespaceNamingServices.clear();
+		NacosException failure = null;
+		for (Map.Entry<String, PooledNamingService> entry : namingServices.entrySet()) {
+			PooledNamingService pooled = entry.getValue();
+			if (pooled.unmanage() && pooled.release()) {
+				try {
+					shutDown(entry.getKey(), pooled);
+				}
+				catch (NacosException e) {
+					log.error("Nacos namingService shutDown failed", e);
+					failure = e;
+				}
+			}
+		}
+		for (NamingMaintainService maintainService : namingMaintainServices.values()) {
+			maintainService.shutDown();
 		}
-		if (Objects.nonNull(this.namingMaintainService)) {
-			this.namingMaintainService.shutDown();
-			this.namingMaintainService = null;
+		namingMaintainServices.clear();
+		if (failure != null) {
+			throw failure;
 		}
 	}
 
 	public void setNacosDiscoveryProperties(NacosDiscoveryProperties nacosDiscoveryProperties) {
 		this.nacosDiscoveryProperties = nacosDiscoveryProperties;
 	}
+
+	private static String key(Properties properties) {
+		StringBuilder key = new StringBuilder();
+		for (String name : KEY_PROPERTIES) {
+			key.append(Objects.toString(properties.get(name), "")).append('\n');
+		}
+		return key.toString();
+	}
+
+	/**
+	 * Naming service of the pool with the number of its holders, the manager counting as
+	 * one holder while it is managed.
+	 */
+	private static final class PooledNamingService {
+
+		private final NamingService namingService;
+
+		private final AtomicInteger references = new AtomicInteger();
+
+		private final AtomicBoolean managed = new AtomicBoolean();
+
+		private PooledNamingService(NamingService namingService) {
+			this.namingService = namingService;
+		}
+
+		private boolean manage() {
+			if (managed.get()) {
+				return true;
+			}
+			if (!retain()) {
+				return false;
+			}
+			if (!managed.compareAndSet(false, true)) {
+				// managed concurrently
+				references.decrementAndGet();
+			}
+			return true;
+		}
+
+		private boolean unmanage() {
+			return managed.compareAndSet(true, false);
+		}
+
+		private boolean retain() {
+			for (;;) {
+				int count = references.get();
+				if (count < 0) {
+					return false;
+				}
+				if (references.compareAndSet(count, count + 1)) {
+					return true;
+				}
+			}
+		}
+
+		/**
+		 * @return true if the last reference was released
+		 */
+		private boolean release() {
+			for (;;) {
+				int count = references.get();
+				if (count <= 0) {
+					return false;
+				}
+				// -1 marks the naming service as shut down
+				int next = count == 1 ? -1 : count - 1;
+				if (references.compareAndSet(count, next)) {
+					return next < 0;
+				}
+			}
+		}
+
+	}
+
+	private interface ShutDown {
+
+		void shutDown() throws NacosException;
+
+	}
+
 }
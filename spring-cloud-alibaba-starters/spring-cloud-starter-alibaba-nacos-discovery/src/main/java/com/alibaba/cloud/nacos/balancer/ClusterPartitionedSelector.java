@@ -0,0 +1,151 @@
+/*
+ * Copyright 2013-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alibaba.cloud.nacos.balancer;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.ToDoubleFunction;
+
+import com.alibaba.cloud.commons.lang.StringUtils;
+
+import org.springframework.cloud.client.ServiceInstance;
+
+/**
+ * Instance list partitioned by the {@code nacos.cluster} metadata, with one
+ * {@link WeightedInstanceSelector} per cluster.
+ * <p>
+ * The partitions are computed once per instance list, so choosing the selector of the
+ * local cluster, or of the first non-empty fallback cluster, only costs a few map
+ * lookups per request.
+ *
+ * @author Spring Cloud Alibaba contributors
+ * @since 2021.0.4.0
+ */
+public final class ClusterPartitionedSelector {
+
+	private final List<ServiceInstance> source;
+
+	private final Map<String, WeightedInstanceSelector> clusters;
+
+	private final WeightedInstanceSelector all;
+
+	private ClusterPartitionedSelector(List<ServiceInstance> source,
+			Map<String, WeightedInstanceSelector> clusters,
+			WeightedInstanceSelector all) {
+		this.source = source;
+		this.clusters = clusters;
+		this.all = all;
+	}
+
+	/**
+	 * Partition the given instances by cluster.
+	 * @param serviceInstances instances to partition
+	 * @return partitioned selector, never null
+	 */
+	public static ClusterPartitionedSelector build(
+			List<ServiceInstance> serviceInstances) {
+		return build(serviceInstances, WeightedInstanceSelector::weightOf);
+	}
+
+	/**
+	 * Partition the given instances by cluster, with computed weights.
+	 * @param serviceInstances instances to partition
+	 * @param weigher effective weight of an instance
+	 * @return partitioned selector, never null
+	 * @see WeightedInstanceSelector#build(List, ToDoubleFunction)
+	 */
+	public static ClusterPartitionedSelector build(
+			List<ServiceInstance> serviceInstances,
+			ToDoubleFunction<ServiceInstance> weigher) {
+		Map<String, List<ServiceInstance>> partitions = new HashMap<>();
+		for (ServiceInstance instance : serviceInstances) {
+			String cluster = clusterOf(instance);
+			if (cluster != null) {
+				partitions.computeIfAbsent(cluster, key -> new ArrayList<>())
+						.add(instance);
+			}
+		}
+		Map<String, WeightedInstanceSelector> clusters = new HashMap<>(
+				partitions.size() * 2);
+		partitions.forEach((cluster, instances) -> clusters.put(cluster,
+				WeightedInstanceSelector.build(instances, weigher)));
+		return new ClusterPartitionedSelector(serviceInstances, clusters,
+				WeightedInstanceSelector.build(serviceInstances, weigher));
+	}
+
+	/**
+	 * Whether this selector was built from the given instances.
+	 * @param serviceInstances instances to compare with
+	 * @return true if the selector can be reused for the given instances
+	 * @see WeightedInstanceSelector#isBuiltFrom(List)
+	 */
+	public boolean isBuiltFrom(List<ServiceInstance> serviceInstances) {
+		return WeightedInstanceSelector.sameInstances(source, serviceInstances);
+	}
+
+	/**
+	 * Return the selector of the first cluster having available instances, trying the
+	 * local cluster first, then the fallback clusters in order, then all instances.
+	 * @param clusterName local cluster, may be blank
+	 * @param fallbackClusters ordered fallback clusters, may be null
+	 * @return selector to choose from, never null
+	 */
+	public WeightedInstanceSelector select(String clusterName,
+			List<String> fallbackClusters) {
+		WeightedInstanceSelector selector = cluster(clusterName);
+		if (selector != null) {
+			return selector;
+		}
+		if (fallbackClusters != null) {
+			for (int i = 0; i < fallbackClusters.size(); i++) {
+				selector = cluster(fallbackClusters.get(i));
+				if (selector != null) {
+					return selector;
+				}
+			}
+		}
+		return all;
+	}
+
+	/**
+	 * Return the available selector of a single cluster.
+	 * @param clusterName cluster name
+	 * @return selector of the cluster, or null if the cluster has no available instance
+	 */
+	public WeightedInstanceSelector cluster(String clusterName) {
+		if (StringUtils.isBlank(clusterName)) {
+			return null;
+		}
+		WeightedInstanceSelector selector = clusters.get(clusterName);
+		return selector != null && selector.size() > 0 ? selector : null;
+	}
+
+	/**
+	 * @return the selector over all instances, regardless of their cluster
+	 */
+	public WeightedInstanceSelector all() {
+		return all;
+	}
+
+	private static String clusterOf(ServiceInstance instance) {
+		Map<String, String> metadata = instance.getMetadata();
+		return metadata == null ? null : metadata.get("nacos.cluster");
+	}
+
+}
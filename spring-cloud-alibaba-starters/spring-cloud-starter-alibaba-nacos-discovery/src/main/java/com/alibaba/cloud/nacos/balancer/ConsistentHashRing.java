@@ -0,0 +1,187 @@
+/*
+ * Copyright 2013-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alibaba.cloud.nacos.balancer;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.springframework.cloud.client.ServiceInstance;
+
+/**
+ * Weighted consistent hash ring built from a {@link WeightedInstanceSelector}.
+ * <p>
+ * Each instance owns a number of virtual nodes proportional to its Nacos weight,
+ * placed on the ring by hashing its id, so adding or removing an instance only remaps
+ * the keys of the neighbouring virtual nodes. Virtual node positions are cached per
+ * instance and reused when the ring is rebuilt for a new instance list; lookups do a
+ * single binary search and do not allocate.
+ * <p>
+ * The ring is built once per cluster selector. Lookups through a selector derived from
+ * it by {@link WeightedInstanceSelector#exclude}, such as without the ejected or
+ * saturated instances, walk past the excluded instances instead of rebuilding the
+ * ring, which maps each key to the same instance as a ring without them.
+ *
+ * @author Spring Cloud Alibaba contributors
+ * @since 2021.0.4.0
+ */
+public final class ConsistentHashRing {
+
+	/**
+	 * Low bits of each ring entry hold the index of the owning instance.
+	 */
+	private static final int INDEX_BITS = 20;
+
+	private static final long INDEX_MASK = (1L << INDEX_BITS) - 1;
+
+	private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+
+	private static final long FNV_PRIME = 0x100000001b3L;
+
+	private final WeightedInstanceSelector selector;
+
+	private final long[] ring;
+
+	private final Map<String, long[]> nodes;
+
+	private ConsistentHashRing(WeightedInstanceSelector selector, long[] ring,
+			Map<String, long[]> nodes) {
+		this.selector = selector;
+		this.ring = ring;
+		this.nodes = nodes;
+	}
+
+	/**
+	 * Build a ring over the instances of the given selector.
+	 * @param selector instances and weights to build the ring from
+	 * @param virtualNodes number of virtual nodes of the instances with the highest
+	 * weight
+	 * @param previous ring built for the previous instance list, whose virtual nodes are
+	 * reused, may be null
+	 * @return hash ring, never null
+	 */
+	public static ConsistentHashRing build(WeightedInstanceSelector selector,
+			int virtualNodes, ConsistentHashRing previous) {
+		int size = Math.min(selector.size(), (int) INDEX_MASK);
+		double maxWeight = 0;
+		for (int i = 0; i < size; i++) {
+			maxWeight = Math.max(maxWeight, selector.getWeight(i));
+		}
+		Map<String, long[]> previousNodes = previous == null ? Collections.emptyMap()
+				: previous.nodes;
+		Map<String, long[]> nodes = new HashMap<>(size * 2);
+		long[][] instanceNodes = new long[size][];
+		int total = 0;
+		for (int i = 0; i < size; i++) {
+			String key = NacosBalancer.instanceKey(selector.getInstance(i));
+			int count = (int) Math.max(1,
+					Math.round(virtualNodes * selector.getWeight(i) / maxWeight));
+			long[] points = previousNodes.get(key);
+			if (points == null || points.length != count) {
+				points = virtualNodes(key, count);
+			}
+			nodes.put(key, points);
+			instanceNodes[i] = points;
+			total += points.length;
+		}
+		long[] ring = new long[total];
+		int position = 0;
+		for (int i = 0; i < size; i++) {
+			for (long point : instanceNodes[i]) {
+				ring[position++] = (point & ~INDEX_MASK) | i;
+			}
+		}
+		Arrays.sort(ring);
+		return new ConsistentHashRing(selector, ring, nodes);
+	}
+
+	/**
+	 * Whether this ring was built from the given selector.
+	 * @param selector selector to compare with
+	 * @return true if the ring can be reused for the given selector
+	 */
+	public boolean isBuiltFrom(WeightedInstanceSelector selector) {
+		return this.selector == selector;
+	}
+
+	/**
+	 * Return the instance owning the given key.
+	 * @param key hash key
+	 * @return the owning instance, or null if the ring is empty
+	 */
+	public ServiceInstance choose(CharSequence key) {
+		return choose(key, selector);
+	}
+
+	/**
+	 * Return the first instance available from the given selector at or after the
+	 * position of the given key.
+	 * @param key hash key
+	 * @param available the selector of the ring, or a selector derived from it
+	 * @return the owning instance, or null if none is available
+	 */
+	public ServiceInstance choose(CharSequence key, WeightedInstanceSelector available) {
+		if (ring.length == 0) {
+			return null;
+		}
+		int index = Arrays.binarySearch(ring, hash(key) & ~INDEX_MASK);
+		if (index < 0) {
+			index = -index - 1;
+		}
+		for (int i = 0; i < ring.length; i++) {
+			int position = (int) (ring[(index + i) % ring.length] & INDEX_MASK);
+			if (available == selector || available.isAvailable(position)) {
+				return selector.getInstance(position);
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * 64-bit FNV-1a hash of the characters, followed by a finalizer that spreads the
+	 * bits over the whole ring.
+	 * @param value value to hash
+	 * @return hash code
+	 */
+	public static long hash(CharSequence value) {
+		long hash = FNV_OFFSET_BASIS;
+		for (int i = 0; i < value.length(); i++) {
+			hash ^= value.charAt(i);
+			hash *= FNV_PRIME;
+		}
+		return mix(hash);
+	}
+
+	private static long[] virtualNodes(String key, int count) {
+		long base = hash(key);
+		long[] points = new long[count];
+		for (int i = 0; i < count; i++) {
+			points[i] = mix(base + (i + 1) * 0x9e3779b97f4a7c15L);
+		}
+		return points;
+	}
+
+	private static long mix(long value) {
+		// finalizer of SplitMix64
+		long z = value;
+		z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+		z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+		return z ^ (z >>> 31);
+	}
+
+}
@@ -67,4 +67,15 @@ public class NacosBalancer extends Balancer {
 		return instanceMap.get(instance);
 	}
 
+	/**
+	 * Key identifying an instance across instance list refreshes.
+	 * @param serviceInstance service instance
+	 * @return the instance id, or host:port if the instance has no id
+	 */
+	public static String instanceKey(ServiceInstance serviceInstance) {
+		String instanceId = serviceInstance.getInstanceId();
+		return instanceId != null ? instanceId
+				: serviceInstance.getHost() + ":" + serviceInstance.getPort();
+	}
+
 }
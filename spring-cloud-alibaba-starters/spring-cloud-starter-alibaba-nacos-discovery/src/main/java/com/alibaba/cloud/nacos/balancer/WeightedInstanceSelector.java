@@ -0,0 +1,276 @@
+/*
+ * Copyright 2013-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alibaba.cloud.nacos.balancer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Predicate;
+import java.util.function.ToDoubleFunction;
+
+import org.springframework.cloud.client.ServiceInstance;
+
+/**
+ * Weighted random selection over a fixed list of {@link ServiceInstance}s.
+ * <p>
+ * Weights are read once from the {@code nacos.weight} metadata and stored as a
+ * cumulative array, so {@link #choose()} costs one random draw plus a binary search and
+ * does not allocate. Same selection semantics as
+ * {@link NacosBalancer#getHostByRandomWeight3(List)}: unhealthy instances and instances
+ * without a positive weight are never chosen.
+ *
+ * @author Spring Cloud Alibaba contributors
+ * @since 2021.0.4.0
+ */
+public final class WeightedInstanceSelector {
+
+	private static final WeightedInstanceSelector EMPTY = new WeightedInstanceSelector(
+			new ArrayList<>(0), new ServiceInstance[0], new double[0], null, null);
+
+	private final List<ServiceInstance> source;
+
+	private final ServiceInstance[] instances;
+
+	private final double[] cumulativeWeights;
+
+	private final double totalWeight;
+
+	/**
+	 * Selector this one was derived from by {@link #exclude(Predicate)}, null if built.
+	 */
+	private final WeightedInstanceSelector origin;
+
+	/**
+	 * Positions in {@link #origin} of the instances of this selector, null if built.
+	 */
+	private final BitSet originPositions;
+
+	private WeightedInstanceSelector(List<ServiceInstance> source,
+			ServiceInstance[] instances, double[] cumulativeWeights,
+			WeightedInstanceSelector origin, BitSet originPositions) {
+		this.source = source;
+		this.instances = instances;
+		this.cumulativeWeights = cumulativeWeights;
+		this.origin = origin;
+		this.originPositions = originPositions;
+		this.totalWeight = cumulativeWeights.length == 0 ? 0
+				: cumulativeWeights[cumulativeWeights.length - 1];
+	}
+
+	/**
+	 * Build a selector for the given instances.
+	 * @param serviceInstances instances to choose from
+	 * @return selector, never null
+	 */
+	public static WeightedInstanceSelector build(List<ServiceInstance> serviceInstances) {
+		return build(serviceInstances, WeightedInstanceSelector::weightOf);
+	}
+
+	/**
+	 * Build a selector for the given instances with computed weights.
+	 * @param serviceInstances instances to choose from
+	 * @param weigher effective weight of an instance, such as its Nacos weight scaled
+	 * during warm-up
+	 * @return selector, never null
+	 */
+	public static WeightedInstanceSelector build(List<ServiceInstance> serviceInstances,
+			ToDoubleFunction<ServiceInstance> weigher) {
+		if (serviceInstances == null || serviceInstances.isEmpty()) {
+			return EMPTY;
+		}
+		ServiceInstance[] instances = new ServiceInstance[serviceInstances.size()];
+		double[] cumulativeWeights = new double[serviceInstances.size()];
+		int count = 0;
+		double sum = 0;
+		for (ServiceInstance instance : serviceInstances) {
+			if (!isHealthy(instance)) {
+				continue;
+			}
+			double weight = weigher.applyAsDouble(instance);
+			if (!(weight > 0)) {
+				continue;
+			}
+			sum += weight;
+			instances[count] = instance;
+			cumulativeWeights[count] = sum;
+			count++;
+		}
+		return new WeightedInstanceSelector(serviceInstances,
+				Arrays.copyOf(instances, count), Arrays.copyOf(cumulativeWeights, count),
+				null, null);
+	}
+
+	/**
+	 * Whether this selector was built from the given instances, either the very same
+	 * list or a list holding the very same instances in the same order.
+	 * <p>
+	 * Instances are compared by identity, not with {@code equals} which would compare
+	 * their metadata on every call. Unchanged instances are reused across lookups, so a
+	 * new list of the same instances still matches.
+	 * @param serviceInstances instances to compare with
+	 * @return true if the selector can be reused for the given instances
+	 */
+	public boolean isBuiltFrom(List<ServiceInstance> serviceInstances) {
+		return sameInstances(source, serviceInstances);
+	}
+
+	/**
+	 * Whether two lists hold the very same instances in the same order.
+	 * @param a a list of instances
+	 * @param b another list of instances
+	 * @return true if the lists are the same or hold the same instances
+	 */
+	static boolean sameInstances(List<ServiceInstance> a, List<ServiceInstance> b) {
+		if (a == b) {
+			return true;
+		}
+		int size = a.size();
+		if (b == null || b.size() != size) {
+			return false;
+		}
+		for (int i = 0; i < size; i++) {
+			if (a.get(i) != b.get(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Choose an instance with a probability proportional to its weight.
+	 * @return the chosen instance, or null if no instance can be chosen
+	 */
+	public ServiceInstance choose() {
+		int size = instances.length;
+		if (size <= 1) {
+			return size == 0 ? null : instances[0];
+		}
+		double random = ThreadLocalRandom.current().nextDouble() * totalWeight;
+		int index = Arrays.binarySearch(cumulativeWeights, random);
+		// first cumulative weight strictly greater than the random value
+		index = index < 0 ? -index - 1 : index + 1;
+		return instances[Math.min(index, size - 1)];
+	}
+
+	/**
+	 * Return a selector without the given instances, keeping the weights of the others.
+	 * @param excluded instances to exclude
+	 * @return a new selector, built from the same source list and with the same
+	 * {@link #getOrigin() origin}
+	 */
+	public WeightedInstanceSelector exclude(Predicate<ServiceInstance> excluded) {
+		WeightedInstanceSelector root = getOrigin();
+		ServiceInstance[] remaining = new ServiceInstance[instances.length];
+		double[] cumulative = new double[instances.length];
+		BitSet positions = new BitSet(root.instances.length);
+		int position = originPositions == null ? 0 : originPositions.nextSetBit(0);
+		int count = 0;
+		double sum = 0;
+		for (int i = 0; i < instances.length; i++) {
+			int current = originPositions == null ? i : position;
+			if (originPositions != null) {
+				position = originPositions.nextSetBit(position + 1);
+			}
+			if (excluded.test(instances[i])) {
+				continue;
+			}
+			sum += getWeight(i);
+			remaining[count] = instances[i];
+			cumulative[count] = sum;
+			positions.set(current);
+			count++;
+		}
+		return new WeightedInstanceSelector(source, Arrays.copyOf(remaining, count),
+				Arrays.copyOf(cumulative, count), root, positions);
+	}
+
+	/**
+	 * Return the selector this one was derived from by {@link #exclude(Predicate)}, so
+	 * that state built for a cluster can be reused by the selectors filtered from it for
+	 * each request.
+	 * @return the built selector this one derives from, this selector if built
+	 */
+	public WeightedInstanceSelector getOrigin() {
+		return origin == null ? this : origin;
+	}
+
+	/**
+	 * Whether an instance of the {@link #getOrigin() origin} can be chosen from this
+	 * selector.
+	 * @param originIndex position of the instance in the origin selector
+	 * @return true if the instance was not excluded
+	 */
+	public boolean isAvailable(int originIndex) {
+		return originPositions == null ? originIndex < instances.length
+				: originPositions.get(originIndex);
+	}
+
+	/**
+	 * @return the number of instances that can be chosen
+	 */
+	public int size() {
+		return instances.length;
+	}
+
+	/**
+	 * Return a choosable instance by position.
+	 * @param index position, between 0 and {@link #size()} exclusive
+	 * @return the instance at the given position
+	 */
+	public ServiceInstance getInstance(int index) {
+		return instances[index];
+	}
+
+	/**
+	 * Return the weight of a choosable instance by position.
+	 * @param index position, between 0 and {@link #size()} exclusive
+	 * @return the weight of the instance at the given position
+	 */
+	public double getWeight(int index) {
+		return index == 0 ? cumulativeWeights[0]
+				: cumulativeWeights[index] - cumulativeWeights[index - 1];
+	}
+
+	/**
+	 * Read the Nacos weight of an instance.
+	 * @param instance service instance
+	 * @return {@code nacos.weight} metadata, 1 if absent or malformed
+	 */
+	public static double weightOf(ServiceInstance instance) {
+		Map<String, String> metadata = instance.getMetadata();
+		String weight = metadata == null ? null : metadata.get("nacos.weight");
+		if (weight == null) {
+			return 1D;
+		}
+		try {
+			double value = Double.parseDouble(weight);
+			return Double.isNaN(value) ? 1D : value;
+		}
+		catch (NumberFormatException e) {
+			return 1D;
+		}
+	}
+
+	private static boolean isHealthy(ServiceInstance instance) {
+		Map<String, String> metadata = instance.getMetadata();
+		return metadata == null || !"false".equals(metadata.get("nacos.healthy"));
+	}
+
+}
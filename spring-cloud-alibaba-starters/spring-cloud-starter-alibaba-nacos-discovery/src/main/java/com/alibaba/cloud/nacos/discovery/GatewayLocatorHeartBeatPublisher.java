@@ -16,11 +16,25 @@
 
 package com.alibaba.cloud.nacos.discovery;
 
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 
 import com.alibaba.cloud.nacos.NacosDiscoveryProperties;
+import com.alibaba.cloud.nacos.NacosServiceManager;
+import com.alibaba.cloud.nacos.utils.NacosThreads;
+import com.alibaba.nacos.api.exception.NacosException;
+import com.alibaba.nacos.api.naming.NamingService;
+import com.alibaba.nacos.api.naming.listener.Event;
+import com.alibaba.nacos.api.naming.listener.EventListener;
+import com.alibaba.nacos.api.naming.listener.NamingEvent;
+import com.alibaba.nacos.api.naming.pojo.Instance;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -30,51 +44,102 @@ import org.springframework.context.ApplicationEventPublisherAware;
 import org.springframework.context.SmartLifecycle;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
 
-
 /**
+ * Publishes a {@link HeartbeatEvent} when the services of the group or their instances
+ * change, so the Spring Cloud Gateway discovery locator only rebuilds its routes when
+ * needed.
+ * <p>
+ * The service list is pulled every {@code watchDelay}, Nacos having no push for it, and
+ * each service is subscribed to for instance changes. Changes are debounced over
+ * {@code watchDebounce} so a burst of changes publishes a single event. Without a
+ * {@link NacosServiceManager}, an event is published every {@code watchDelay}.
+ *
  * @author yuhuangbin
  * @author ruansheng
  */
-public class GatewayLocatorHeartBeatPublisher implements ApplicationEventPublisherAware, SmartLifecycle {
+public class GatewayLocatorHeartBeatPublisher
+		implements ApplicationEventPublisherAware, SmartLifecycle {
 
-	private static final Logger log = LoggerFactory.getLogger(GatewayLocatorHeartBeatPublisher.class);
+	private static final Logger log = LoggerFactory
+			.getLogger(GatewayLocatorHeartBeatPublisher.class);
+
+	private final NacosServiceManager nacosServiceManager;
 
 	private final NacosDiscoveryProperties nacosDiscoveryProperties;
 
+	private final NacosServiceCatalog nacosServiceCatalog;
+
 	private final ThreadPoolTaskScheduler taskScheduler;
+
 	private final AtomicLong nacosWatchIndex = new AtomicLong(0);
+
 	private final AtomicBoolean running = new AtomicBoolean(false);
+
+	private final AtomicBoolean publishScheduled = new AtomicBoolean(false);
+
+	private final Map<String, ServiceListener> listeners = new ConcurrentHashMap<>(16);
+
 	private ApplicationEventPublisher publisher;
+
 	private ScheduledFuture<?> watchFuture;
 
-	public GatewayLocatorHeartBeatPublisher(NacosDiscoveryProperties nacosDiscoveryProperties) {
+	public GatewayLocatorHeartBeatPublisher(
+			NacosDiscoveryProperties nacosDiscoveryProperties) {
+		this(null, nacosDiscoveryProperties);
+	}
+
+	public GatewayLocatorHeartBeatPublisher(NacosServiceManager nacosServiceManager,
+			NacosDiscoveryProperties nacosDiscoveryProperties) {
+		this(nacosServiceManager, nacosDiscoveryProperties, null);
+	}
+
+	public GatewayLocatorHeartBeatPublisher(NacosServiceManager nacosServiceManager,
+			NacosDiscoveryProperties nacosDiscoveryProperties,
+			NacosServiceCatalog nacosServiceCatalog) {
+		this.nacosServiceManager = nacosServiceManager;
 		this.nacosDiscoveryProperties = nacosDiscoveryProperties;
-		this.taskScheduler = getTaskScheduler();
+		this.nacosServiceCatalog = nacosServiceCatalog;
+		this.taskScheduler = getTaskScheduler(nacosDiscoveryProperties != null
+				&& nacosDiscoveryProperties.isVirtualThreads());
 	}
 
-	private static ThreadPoolTaskScheduler getTaskScheduler() {
+	private static ThreadPoolTaskScheduler getTaskScheduler(boolean virtualThreads) {
 		ThreadPoolTaskScheduler taskScheduler = new ThreadPoolTaskScheduler();
 		taskScheduler.setBeanName("HeartBeat-Task-Scheduler");
+		if (virtualThreads) {
+			taskScheduler.setThreadFactory(
+					NacosThreads.threadFactory("HeartBeat-Task-Scheduler", true));
+		}
 		taskScheduler.initialize();
 		return taskScheduler;
 	}
 
 	@Override
 	public void start() {
+		if (!this.running.compareAndSet(false, true)) {
+			return;
+		}
 		log.info("Start nacos gateway locator heartBeat task scheduler.");
-		this.watchFuture = this.taskScheduler.scheduleWithFixedDelay(
-				this::publishHeartBeat, this.nacosDiscoveryProperties.getWatchDelay());
-
+		Runnable task = nacosServiceManager == null ? this::publishHeartBeat
+				: this::refreshServices;
+		this.watchFuture = this.taskScheduler.scheduleWithFixedDelay(task,
+				this.nacosDiscoveryProperties.getWatchDelay());
 	}
 
 	@Override
 	public void stop() {
+		if (!this.running.compareAndSet(true, false)) {
+			return;
+		}
 		if (this.watchFuture != null) {
 			// shutdown current user-thread,
 			// then the other daemon-threads will terminate automatic.
 			this.taskScheduler.shutdown();
 			this.watchFuture.cancel(true);
 		}
+		for (String serviceId : listeners.keySet()) {
+			unsubscribe(serviceId);
+		}
 	}
 
 	@Override
@@ -88,15 +153,156 @@ public class GatewayLocatorHeartBeatPublisher implements ApplicationEventPublish
 	}
 
 	@Override
-	public void setApplicationEventPublisher(ApplicationEventPublisher applicationEventPublisher) {
+	public void setApplicationEventPublisher(
+			ApplicationEventPublisher applicationEventPublisher) {
 		this.publisher = applicationEventPublisher;
 	}
 
 	/**
-	 * nacos doesn't support watch now , publish an event every 30 seconds.
+	 * Publish a heartbeat event right away.
 	 */
 	public void publishHeartBeat() {
-		HeartbeatEvent event = new HeartbeatEvent(this, nacosWatchIndex.getAndIncrement());
+		HeartbeatEvent event = new HeartbeatEvent(this,
+				nacosWatchIndex.getAndIncrement());
 		this.publisher.publishEvent(event);
 	}
+
+	/**
+	 * Pull the service list, subscribe to new services and unsubscribe from removed
+	 * ones, publishing a heartbeat event if the list changed.
+	 */
+	public void refreshServices() {
+		Set<String> services;
+		try {
+			services = new HashSet<>(loadServices());
+		}
+		catch (Exception e) {
+			log.warn("Failed to get services of group {} from nacos",
+					nacosDiscoveryProperties.getGroup(), e);
+			return;
+		}
+		boolean changed = false;
+		for (String serviceId : services) {
+			if (!listeners.containsKey(serviceId)) {
+				changed |= subscribe(serviceId);
+			}
+		}
+		for (String serviceId : listeners.keySet()) {
+			if (!services.contains(serviceId)) {
+				unsubscribe(serviceId);
+				changed = true;
+			}
+		}
+		if (changed) {
+			schedulePublish();
+		}
+	}
+
+	private List<String> loadServices() throws NacosException {
+		if (nacosServiceCatalog == null) {
+			return namingService().getServicesOfServer(1, Integer.MAX_VALUE,
+					nacosDiscoveryProperties.getGroup()).getData();
+		}
+		// keeps the catalog served to the gateway in sync with the published events
+		nacosServiceCatalog.refresh();
+		return nacosServiceCatalog.getServices();
+	}
+
+	private boolean subscribe(String serviceId) {
+		ServiceListener listener = new ServiceListener(currentInstances(serviceId));
+		listeners.put(serviceId, listener);
+		try {
+			namingService().subscribe(serviceId, nacosDiscoveryProperties.getGroup(),
+					listener);
+			return true;
+		}
+		catch (Exception e) {
+			// retried on the next refresh
+			listeners.remove(serviceId);
+			log.warn("Failed to subscribe service {} from nacos", serviceId, e);
+			return false;
+		}
+	}
+
+	/**
+	 * Nacos only notifies a new listener if subscribing changed the cached instances,
+	 * so the first event may already be a change and is compared to the instances
+	 * loaded here.
+	 */
+	private Set<Instance> currentInstances(String serviceId) {
+		try {
+			return new HashSet<>(namingService().getAllInstances(serviceId,
+					nacosDiscoveryProperties.getGroup()));
+		}
+		catch (Exception e) {
+			log.warn("Failed to get instances of service {} from nacos", serviceId, e);
+			return null;
+		}
+	}
+
+	private void unsubscribe(String serviceId) {
+		ServiceListener listener = listeners.remove(serviceId);
+		if (listener == null) {
+			return;
+		}
+		try {
+			namingService().unsubscribe(serviceId, nacosDiscoveryProperties.getGroup(),
+					listener);
+		}
+		catch (Exception e) {
+			log.warn("Failed to unsubscribe service {} from nacos", serviceId, e);
+		}
+	}
+
+	/**
+	 * Publish a heartbeat event at the end of the debounce window, unless one is
+	 * already scheduled.
+	 */
+	private void schedulePublish() {
+		if (!running.get() || !publishScheduled.compareAndSet(false, true)) {
+			return;
+		}
+		try {
+			taskScheduler.schedule(() -> {
+				publishScheduled.set(false);
+				publishHeartBeat();
+			}, Instant.now()
+					.plusMillis(nacosDiscoveryProperties.getWatchDebounce()));
+		}
+		catch (Exception e) {
+			// the scheduler is shut down
+			publishScheduled.set(false);
+		}
+	}
+
+	private NamingService namingService() {
+		return nacosServiceManager.getNamingService();
+	}
+
+	private final class ServiceListener implements EventListener {
+
+		/**
+		 * Last known instances, null if unknown.
+		 */
+		private volatile Set<Instance> instances;
+
+		private ServiceListener(Set<Instance> instances) {
+			this.instances = instances;
+		}
+
+		@Override
+		public void onEvent(Event event) {
+			if (!(event instanceof NamingEvent)) {
+				return;
+			}
+			Set<Instance> current = new HashSet<>(((NamingEvent) event).getInstances());
+			Set<Instance> previous = this.instances;
+			this.instances = current;
+			if (previous == null || !previous.equals(current)) {
+				schedulePublish();
+			}
+		}
+
+	}
+
 }
@@ -0,0 +1,140 @@
+/*
+ * Copyright 2013-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alibaba.cloud.nacos.discovery;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.alibaba.cloud.nacos.balancer.NacosBalancer;
+
+import org.springframework.cloud.client.ServiceInstance;
+
+/**
+ * Difference between two instance snapshots of a service.
+ * <p>
+ * Instances are matched by {@link NacosBalancer#instanceKey(ServiceInstance)}. A matched
+ * instance is updated when the snapshots hold different objects for it, unchanged
+ * instances being reused across snapshots.
+ *
+ * @author Spring Cloud Alibaba contributors
+ * @since 2021.0.4.0
+ */
+public final class InstanceChangeEvent {
+
+	private final String serviceId;
+
+	private final List<ServiceInstance> added;
+
+	private final List<ServiceInstance> removed;
+
+	private final List<ServiceInstance> updated;
+
+	private final List<ServiceInstance> instances;
+
+	public InstanceChangeEvent(String serviceId, List<ServiceInstance> added,
+			List<ServiceInstance> removed, List<ServiceInstance> updated,
+			List<ServiceInstance> instances) {
+		this.serviceId = serviceId;
+		this.added = added;
+		this.removed = removed;
+		this.updated = updated;
+		this.instances = instances;
+	}
+
+	/**
+	 * Compute the changes from a snapshot to the next.
+	 * @param serviceId id of service
+	 * @param previous previous snapshot, null if none
+	 * @param current current snapshot
+	 * @return the changes, possibly empty
+	 */
+	public static InstanceChangeEvent of(String serviceId,
+			List<ServiceInstance> previous, List<ServiceInstance> current) {
+		if (previous == null || previous.isEmpty()) {
+			return new InstanceChangeEvent(serviceId, current, Collections.emptyList(),
+					Collections.emptyList(), current);
+		}
+		Map<String, ServiceInstance> remaining = new HashMap<>(previous.size() * 2);
+		for (ServiceInstance instance : previous) {
+			remaining.put(NacosBalancer.instanceKey(instance), instance);
+		}
+		List<ServiceInstance> added = new ArrayList<>();
+		List<ServiceInstance> updated = new ArrayList<>();
+		for (ServiceInstance instance : current) {
+			ServiceInstance old = remaining.remove(NacosBalancer.instanceKey(instance));
+			if (old == null) {
+				added.add(instance);
+			}
+			else if (old != instance) {
+				updated.add(instance);
+			}
+		}
+		List<ServiceInstance> removed = remaining.isEmpty() ? Collections.emptyList()
+				: new ArrayList<>(remaining.values());
+		return new InstanceChangeEvent(serviceId, added, removed, updated, current);
+	}
+
+	public String getServiceId() {
+		return serviceId;
+	}
+
+	/**
+	 * @return instances that were not in the previous snapshot
+	 */
+	public List<ServiceInstance> getAdded() {
+		return added;
+	}
+
+	/**
+	 * @return instances of the previous snapshot that are gone
+	 */
+	public List<ServiceInstance> getRemoved() {
+		return removed;
+	}
+
+	/**
+	 * @return new version of the instances whose Nacos instance changed
+	 */
+	public List<ServiceInstance> getUpdated() {
+		return updated;
+	}
+
+	/**
+	 * @return all instances of the current snapshot
+	 */
+	public List<ServiceInstance> getInstances() {
+		return instances;
+	}
+
+	/**
+	 * @return true if no instance was added, removed or updated
+	 */
+	public boolean isEmpty() {
+		return added.isEmpty() && removed.isEmpty() && updated.isEmpty();
+	}
+
+	@Override
+	public String toString() {
+		return "InstanceChangeEvent{" + "serviceId='" + serviceId + '\'' + ", added="
+				+ added.size() + ", removed=" + removed.size() + ", updated="
+				+ updated.size() + '}';
+	}
+
+}
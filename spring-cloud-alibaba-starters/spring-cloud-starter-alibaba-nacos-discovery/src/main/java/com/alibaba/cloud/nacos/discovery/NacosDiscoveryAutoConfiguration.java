@@ -20,7 +20,9 @@ import com.alibaba.cloud.nacos.ConditionalOnNacosDiscoveryEnabled;
 import com.alibaba.cloud.nacos.NacosDiscoveryProperties;
 import com.alibaba.cloud.nacos.NacosServiceManager;
 
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.cloud.client.ConditionalOnDiscoveryEnabled;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -39,12 +41,40 @@ public class NacosDiscoveryAutoConfiguration {
 		return new NacosDiscoveryProperties();
 	}
 
+	@Bean
+	@ConditionalOnMissingBean
+	@ConditionalOnProperty(value = "spring.cloud.nacos.discovery.instance-cache.enabled", matchIfMissing = false)
+	public NacosInstanceCache nacosInstanceCache(NacosServiceManager nacosServiceManager,
+			NacosDiscoveryProperties discoveryProperties) {
+		return new NacosInstanceCache(nacosServiceManager, discoveryProperties);
+	}
+
+	@Bean
+	@ConditionalOnMissingBean
+	@ConditionalOnProperty(value = "spring.cloud.nacos.discovery.service-catalog.enabled", matchIfMissing = false)
+	public NacosServiceCatalog nacosServiceCatalog(
+			NacosServiceManager nacosServiceManager,
+			NacosDiscoveryProperties discoveryProperties) {
+		return new NacosServiceCatalog(nacosServiceManager, discoveryProperties);
+	}
+
+	@Bean
+	@ConditionalOnMissingBean
+	@ConditionalOnProperty(value = "spring.cloud.nacos.discovery.snapshot.enabled", matchIfMissing = false)
+	public ServiceCacheSnapshot serviceCacheSnapshot(
+			NacosDiscoveryProperties discoveryProperties) {
+		return new ServiceCacheSnapshot(discoveryProperties);
+	}
+
 	@Bean
 	@ConditionalOnMissingBean
 	public NacosServiceDiscovery nacosServiceDiscovery(
 			NacosDiscoveryProperties discoveryProperties,
-			NacosServiceManager nacosServiceManager) {
-		return new NacosServiceDiscovery(discoveryProperties, nacosServiceManager);
+			NacosServiceManager nacosServiceManager,
+			ObjectProvider<NacosInstanceCache> instanceCache,
+			ObjectProvider<NacosServiceCatalog> serviceCatalog) {
+		return new NacosServiceDiscovery(discoveryProperties, nacosServiceManager,
+				instanceCache.getIfAvailable(), serviceCatalog.getIfAvailable());
 	}
 
 }
@@ -20,6 +20,7 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 
+import com.alibaba.cloud.nacos.metrics.NacosDiscoveryMetrics;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -51,6 +52,19 @@ public class NacosDiscoveryClient implements DiscoveryClient {
 		this.serviceDiscovery = nacosServiceDiscovery;
 	}
 
+	/**
+	 * Return a client discovering the instances and services of the given namespace.
+	 * The clients of other namespaces than the one of the discovery properties do not
+	 * read nor write {@link ServiceCache}, which only holds that namespace.
+	 * @param namespace namespace id
+	 * @return the client of the namespace
+	 * @see NacosServiceDiscovery#forNamespace(String)
+	 */
+	public NacosDiscoveryClient forNamespace(String namespace) {
+		NacosServiceDiscovery discovery = serviceDiscovery.forNamespace(namespace);
+		return discovery == serviceDiscovery ? this : new NacosDiscoveryClient(discovery);
+	}
+
 	@Override
 	public String description() {
 		return DESCRIPTION;
@@ -59,6 +73,10 @@ public class NacosDiscoveryClient implements DiscoveryClient {
 	@Override
 	public List<ServiceInstance> getInstances(String serviceId) {
 		try {
+			if (serviceDiscovery.isInstanceCacheEnabled()
+					|| serviceDiscovery.getNamespace() != null) {
+				return serviceDiscovery.getInstances(serviceId);
+			}
 			return Optional.of(serviceDiscovery.getInstances(serviceId))
 					.map(instances -> {
 						ServiceCache.setInstances(serviceId, instances);
@@ -67,6 +85,7 @@ public class NacosDiscoveryClient implements DiscoveryClient {
 		}
 		catch (Exception e) {
 			if (failureToleranceEnabled) {
+				recordFallback(NacosDiscoveryMetrics.INSTANCES);
 				return ServiceCache.getInstances(serviceId);
 			}
 			throw new RuntimeException(
@@ -77,6 +96,9 @@ public class NacosDiscoveryClient implements DiscoveryClient {
 	@Override
 	public List<String> getServices() {
 		try {
+			if (serviceDiscovery.getNamespace() != null) {
+				return serviceDiscovery.getServices();
+			}
 			return Optional.of(serviceDiscovery.getServices()).map(services -> {
 				ServiceCache.setServiceIds(services);
 				return services;
@@ -84,8 +106,18 @@ public class NacosDiscoveryClient implements DiscoveryClient {
 		}
 		catch (Exception e) {
 			log.error("get service name from nacos server failed.", e);
-			return failureToleranceEnabled ? ServiceCache.getServiceIds()
-					: Collections.emptyList();
+			if (failureToleranceEnabled) {
+				recordFallback(NacosDiscoveryMetrics.SERVICES);
+				return ServiceCache.getServiceIds();
+			}
+			return Collections.emptyList();
+		}
+	}
+
+	private void recordFallback(String operation) {
+		NacosDiscoveryMetrics metrics = serviceDiscovery.getMetrics();
+		if (metrics != null) {
+			metrics.recordFallback(operation);
 		}
 	}
 
@@ -20,6 +20,7 @@ import com.alibaba.cloud.nacos.ConditionalOnNacosDiscoveryEnabled;
 import com.alibaba.cloud.nacos.NacosDiscoveryProperties;
 import com.alibaba.cloud.nacos.NacosServiceManager;
 
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.boot.autoconfigure.AutoConfigureAfter;
 import org.springframework.boot.autoconfigure.AutoConfigureBefore;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
@@ -66,14 +67,18 @@ public class NacosDiscoveryClientConfiguration {
 
 	/**
 	 * Spring Cloud Gateway HeartBeat .
-	 * publish an event every 30 seconds
+	 * publish an event when services or their instances change
 	 * see https://github.com/alibaba/spring-cloud-alibaba/issues/2868
 	 */
 	@Bean
 	@ConditionalOnMissingBean
 	@ConditionalOnProperty(value = "spring.cloud.gateway.discovery.locator.enabled", matchIfMissing = false)
-	public GatewayLocatorHeartBeatPublisher gatewayLocatorHeartBeatPublisher(NacosDiscoveryProperties nacosDiscoveryProperties) {
-		return new GatewayLocatorHeartBeatPublisher(nacosDiscoveryProperties);
+	public GatewayLocatorHeartBeatPublisher gatewayLocatorHeartBeatPublisher(
+			NacosServiceManager nacosServiceManager,
+			NacosDiscoveryProperties nacosDiscoveryProperties,
+			ObjectProvider<NacosServiceCatalog> nacosServiceCatalog) {
+		return new GatewayLocatorHeartBeatPublisher(nacosServiceManager,
+				nacosDiscoveryProperties, nacosServiceCatalog.getIfAvailable());
 	}
 
 }
@@ -0,0 +1,231 @@
+/*
+ * Copyright 2013-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alibaba.cloud.nacos.discovery;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+import com.alibaba.cloud.nacos.NacosDiscoveryProperties;
+import com.alibaba.cloud.nacos.NacosServiceManager;
+import com.alibaba.nacos.api.exception.NacosException;
+import com.alibaba.nacos.api.naming.NamingService;
+import com.alibaba.nacos.api.naming.listener.Event;
+import com.alibaba.nacos.api.naming.listener.EventListener;
+import com.alibaba.nacos.api.naming.listener.NamingEvent;
+import com.alibaba.nacos.api.naming.pojo.Instance;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.cloud.client.ServiceInstance;
+
+/**
+ * Subscription-backed instance cache.
+ * <p>
+ * The first lookup of a service subscribes to it through
+ * {@link NamingService#subscribe(String, String, EventListener)}. The converted
+ * {@link ServiceInstance} list is kept as an immutable snapshot which is only replaced
+ * when Nacos pushes a {@link NamingEvent}, so subsequent lookups return the same list
+ * without querying Nacos or allocating. Listeners registered with
+ * {@link #watch(String, Consumer)} receive the {@link InstanceChangeEvent} of each
+ * snapshot change.
+ *
+ * @author Spring Cloud Alibaba contributors
+ * @since 2021.0.4.0
+ */
+public class NacosInstanceCache implements DisposableBean {
+
+	private static final Logger log = LoggerFactory.getLogger(NacosInstanceCache.class);
+
+	private final Map<String, Subscription> subscriptions = new ConcurrentHashMap<>(16);
+
+	private final NacosServiceManager nacosServiceManager;
+
+	private final NacosDiscoveryProperties properties;
+
+	public NacosInstanceCache(NacosServiceManager nacosServiceManager,
+			NacosDiscoveryProperties properties) {
+		this.nacosServiceManager = nacosServiceManager;
+		this.properties = properties;
+	}
+
+	/**
+	 * Return the current instance snapshot of the given service, subscribing to it on
+	 * first access.
+	 * @param serviceId id of service
+	 * @return immutable list of instances
+	 * @throws NacosException if the first subscription or lookup fails
+	 */
+	public List<ServiceInstance> getInstances(String serviceId) throws NacosException {
+		Subscription subscription = subscriptions.get(serviceId);
+		if (subscription == null) {
+			subscription = subscriptions.computeIfAbsent(serviceId, Subscription::new);
+		}
+		List<ServiceInstance> instances = subscription.instances;
+		return instances != null ? instances : subscription.subscribe();
+	}
+
+	/**
+	 * Return the current instance snapshot of the given service without querying Nacos.
+	 * @param serviceId id of service
+	 * @return immutable list of instances, or null if the service was not loaded yet
+	 */
+	public List<ServiceInstance> getCachedInstances(String serviceId) {
+		Subscription subscription = subscriptions.get(serviceId);
+		return subscription == null ? null : subscription.instances;
+	}
+
+	/**
+	 * Listen to the instance changes of the given service. The current instances, if
+	 * already loaded, are delivered right away as added instances. The service is only
+	 * subscribed to by {@link #getInstances(String)}.
+	 * @param serviceId id of service
+	 * @param listener listener, called on the Nacos notifier thread
+	 * @return callback removing the listener
+	 */
+	public Runnable watch(String serviceId, Consumer<InstanceChangeEvent> listener) {
+		Subscription subscription = subscriptions.computeIfAbsent(serviceId,
+				Subscription::new);
+		return subscription.watch(listener);
+	}
+
+	/**
+	 * Return the ids of all services subscribed so far.
+	 * @return subscribed service ids
+	 */
+	public Set<String> getSubscribedServices() {
+		return Collections.unmodifiableSet(subscriptions.keySet());
+	}
+
+	@Override
+	public void destroy() {
+		subscriptions.values().forEach(Subscription::unsubscribe);
+		subscriptions.clear();
+	}
+
+	private NamingService namingService() {
+		return nacosServiceManager.getNamingService();
+	}
+
+	private static List<ServiceInstance> snapshot(List<Instance> instances,
+			String serviceId, List<ServiceInstance> previous) {
+		return Collections.unmodifiableList(NacosServiceDiscovery
+				.hostToServiceInstanceList(instances, serviceId, previous));
+	}
+
+	private final class Subscription implements EventListener {
+
+		private final String serviceId;
+
+		private final String group;
+
+		private volatile List<ServiceInstance> instances;
+
+		private final List<Consumer<InstanceChangeEvent>> listeners = new CopyOnWriteArrayList<>();
+
+		private boolean subscribed;
+
+		private Subscription(String serviceId) {
+			this.serviceId = serviceId;
+			this.group = properties.getGroup();
+		}
+
+		private synchronized List<ServiceInstance> subscribe() throws NacosException {
+			if (instances != null) {
+				return instances;
+			}
+			NamingService namingService = namingService();
+			if (!subscribed) {
+				namingService.subscribe(serviceId, group, this);
+				subscribed = true;
+			}
+			List<ServiceInstance> loaded = snapshot(
+					namingService.selectInstances(serviceId, group, true), serviceId,
+					null);
+			// a push may have arrived while loading, it is at least as new
+			if (instances == null) {
+				update(loaded);
+			}
+			return instances;
+		}
+
+		private synchronized Runnable watch(Consumer<InstanceChangeEvent> listener) {
+			listeners.add(listener);
+			List<ServiceInstance> current = this.instances;
+			if (current != null && !current.isEmpty()) {
+				notify(listener, InstanceChangeEvent.of(serviceId, null, current));
+			}
+			return () -> listeners.remove(listener);
+		}
+
+		private synchronized void unsubscribe() {
+			if (!subscribed) {
+				return;
+			}
+			try {
+				namingService().unsubscribe(serviceId, group, this);
+				subscribed = false;
+			}
+			catch (Exception e) {
+				log.error("namingService unsubscribe failed, serviceId: {}, group: {}",
+						serviceId, group, e);
+			}
+		}
+
+		@Override
+		public void onEvent(Event event) {
+			if (event instanceof NamingEvent) {
+				// unchanged instances are reused, keeping the caches keyed by them
+				update(snapshot(((NamingEvent) event).getInstances(), serviceId,
+						instances));
+			}
+		}
+
+		private synchronized void update(List<ServiceInstance> snapshot) {
+			List<ServiceInstance> previous = this.instances;
+			this.instances = snapshot;
+			ServiceCache.setInstances(serviceId, snapshot);
+			if (listeners.isEmpty()) {
+				return;
+			}
+			InstanceChangeEvent event = InstanceChangeEvent.of(serviceId, previous,
+					snapshot);
+			if (!event.isEmpty()) {
+				for (Consumer<InstanceChangeEvent> listener : listeners) {
+					notify(listener, event);
+				}
+			}
+		}
+
+		private void notify(Consumer<InstanceChangeEvent> listener,
+				InstanceChangeEvent event) {
+			try {
+				listener.accept(event);
+			}
+			catch (Exception e) {
+				log.warn("Instance change listener of service {} failed", serviceId, e);
+			}
+		}
+
+	}
+
+}
@@ -0,0 +1,196 @@
+/*
+ * Copyright 2013-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alibaba.cloud.nacos.discovery;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.alibaba.cloud.nacos.NacosDiscoveryProperties;
+import com.alibaba.cloud.nacos.NacosServiceManager;
+import com.alibaba.nacos.api.exception.NacosException;
+import com.alibaba.nacos.api.naming.pojo.ListView;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * In-memory catalog of the service names of the group.
+ * <p>
+ * The names are loaded page by page, {@code servicesPageSize} at a time, and kept for
+ * {@code servicesCacheTtl}. A reload producing the same names keeps the previous list,
+ * so callers can detect changes by identity or with {@link #getVersion()}. When a
+ * reload fails the previous names are served until the next attempt, which is delayed by
+ * one second doubling with each consecutive failure, up to {@code servicesCacheTtl}, so
+ * that an unavailable server is not called on every request.
+ *
+ * @author Spring Cloud Alibaba contributors
+ * @since 2021.0.4.0
+ */
+public class NacosServiceCatalog {
+
+	private static final Logger log = LoggerFactory.getLogger(NacosServiceCatalog.class);
+
+	private final NacosServiceManager nacosServiceManager;
+
+	private final NacosDiscoveryProperties properties;
+
+	private volatile Snapshot snapshot;
+
+	public NacosServiceCatalog(NacosServiceManager nacosServiceManager,
+			NacosDiscoveryProperties properties) {
+		this.nacosServiceManager = nacosServiceManager;
+		this.properties = properties;
+	}
+
+	/**
+	 * Return the service names, reloading them once the cache expired.
+	 * @return immutable list of service names
+	 * @throws NacosException if the names were never loaded and loading fails
+	 */
+	public List<String> getServices() throws NacosException {
+		List<String> services = getCachedServices();
+		if (services != null) {
+			return services;
+		}
+		synchronized (this) {
+			services = getCachedServices();
+			if (services != null) {
+				return services;
+			}
+			try {
+				refresh();
+			}
+			catch (NacosException e) {
+				Snapshot current = this.snapshot;
+				if (current == null) {
+					throw e;
+				}
+				int failures = current.failures + 1;
+				long retryDelay = Math.min(
+						TimeUnit.SECONDS.toMillis(1) << Math.min(failures - 1, 20),
+						Math.max(properties.getServicesCacheTtl(), 1000));
+				this.snapshot = new Snapshot(current.services, current.hash,
+						current.version, System.nanoTime()
+								+ TimeUnit.MILLISECONDS.toNanos(retryDelay),
+						failures);
+				log.warn(
+						"Failed to reload services of group {}, serving cached ones for {} ms",
+						properties.getGroup(), retryDelay, e);
+				return current.services;
+			}
+			return this.snapshot.services;
+		}
+	}
+
+	/**
+	 * Return the service names if they are cached and not expired.
+	 * @return immutable list of service names, or null if they must be loaded
+	 */
+	public List<String> getCachedServices() {
+		Snapshot current = this.snapshot;
+		if (current == null || System.nanoTime() - current.expireTime >= 0) {
+			return null;
+		}
+		return current.services;
+	}
+
+	/**
+	 * Reload the service names right away.
+	 * @return true if the names changed
+	 * @throws NacosException if loading fails
+	 */
+	public synchronized boolean refresh() throws NacosException {
+		List<String> services = load();
+		long hash = hash(services);
+		long expireTime = System.nanoTime()
+				+ TimeUnit.MILLISECONDS.toNanos(properties.getServicesCacheTtl());
+		Snapshot current = this.snapshot;
+		if (current != null && current.hash == hash
+				&& current.services.equals(services)) {
+			this.snapshot = new Snapshot(current.services, hash, current.version,
+					expireTime, 0);
+			return false;
+		}
+		long version = current == null ? 1 : current.version + 1;
+		this.snapshot = new Snapshot(Collections.unmodifiableList(services), hash,
+				version, expireTime, 0);
+		return true;
+	}
+
+	/**
+	 * @return a number incremented each time the service names change, 0 if they were
+	 * never loaded
+	 */
+	public long getVersion() {
+		Snapshot current = this.snapshot;
+		return current == null ? 0 : current.version;
+	}
+
+	private List<String> load() throws NacosException {
+		String group = properties.getGroup();
+		int pageSize = Math.max(properties.getServicesPageSize(), 1);
+		List<String> services = new ArrayList<>();
+		for (int pageNo = 1;; pageNo++) {
+			ListView<String> page = nacosServiceManager.getNamingService()
+					.getServicesOfServer(pageNo, pageSize, group);
+			List<String> data = page.getData();
+			if (data != null) {
+				services.addAll(data);
+			}
+			if (data == null || data.size() < pageSize
+					|| services.size() >= page.getCount()) {
+				return services;
+			}
+		}
+	}
+
+	private static long hash(List<String> services) {
+		long hash = 1;
+		for (String service : services) {
+			hash = 31 * hash + service.hashCode();
+		}
+		return hash;
+	}
+
+	private static final class Snapshot {
+
+		private final List<String> services;
+
+		private final long hash;
+
+		private final long version;
+
+		private final long expireTime;
+
+		/**
+		 * Number of consecutive failed reloads.
+		 */
+		private final int failures;
+
+		private Snapshot(List<String> services, long hash, long version,
+				long expireTime, int failures) {
+			this.services = services;
+			this.hash = hash;
+			this.version = version;
+			this.expireTime = expireTime;
+			this.failures = failures;
+		}
+
+	}
+
+}
@@ -17,13 +17,18 @@
 package com.alibaba.cloud.nacos.discovery;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
 
 import com.alibaba.cloud.nacos.NacosDiscoveryProperties;
 import com.alibaba.cloud.nacos.NacosServiceInstance;
 import com.alibaba.cloud.nacos.NacosServiceManager;
+import com.alibaba.cloud.nacos.metrics.NacosDiscoveryMetrics;
 import com.alibaba.nacos.api.exception.NacosException;
 import com.alibaba.nacos.api.naming.NamingService;
 import com.alibaba.nacos.api.naming.pojo.Instance;
@@ -41,10 +46,94 @@ public class NacosServiceDiscovery {
 
 	private NacosServiceManager nacosServiceManager;
 
+	private NacosInstanceCache instanceCache;
+
+	private NacosServiceCatalog serviceCatalog;
+
+	private volatile NacosDiscoveryMetrics metrics;
+
+	/**
+	 * Namespace looked up by this discovery, null for the namespace of the discovery
+	 * properties.
+	 */
+	private final String namespace;
+
+	/**
+	 * Discovery of the namespace of the discovery properties, null if this is it.
+	 */
+	private final NacosServiceDiscovery parent;
+
+	/**
+	 * Discoveries of the other namespaces, by namespace.
+	 */
+	private final Map<String, NacosServiceDiscovery> namespaces = new ConcurrentHashMap<>(
+			4);
+
+	/**
+	 * Last instances returned for each service, reused while unchanged.
+	 */
+	private final Map<String, List<ServiceInstance>> lastInstances = new ConcurrentHashMap<>(
+			16);
+
 	public NacosServiceDiscovery(NacosDiscoveryProperties discoveryProperties,
 			NacosServiceManager nacosServiceManager) {
+		this(discoveryProperties, nacosServiceManager, null);
+	}
+
+	public NacosServiceDiscovery(NacosDiscoveryProperties discoveryProperties,
+			NacosServiceManager nacosServiceManager, NacosInstanceCache instanceCache) {
+		this(discoveryProperties, nacosServiceManager, instanceCache, null);
+	}
+
+	public NacosServiceDiscovery(NacosDiscoveryProperties discoveryProperties,
+			NacosServiceManager nacosServiceManager, NacosInstanceCache instanceCache,
+			NacosServiceCatalog serviceCatalog) {
 		this.discoveryProperties = discoveryProperties;
 		this.nacosServiceManager = nacosServiceManager;
+		this.instanceCache = instanceCache;
+		this.serviceCatalog = serviceCatalog;
+		this.namespace = null;
+		this.parent = null;
+	}
+
+	private NacosServiceDiscovery(NacosServiceDiscovery parent, String namespace) {
+		this.discoveryProperties = parent.discoveryProperties;
+		this.nacosServiceManager = parent.nacosServiceManager;
+		this.namespace = namespace;
+		this.parent = parent;
+	}
+
+	/**
+	 * Return a discovery looking up the instances and services of the given namespace,
+	 * with the naming service of that namespace from {@link NacosServiceManager}.
+	 * <p>
+	 * The instance cache and the service catalog only serve the namespace of the
+	 * discovery properties, the other namespaces are looked up from Nacos on each call.
+	 * @param namespace namespace id
+	 * @return the discovery of the namespace
+	 */
+	public NacosServiceDiscovery forNamespace(String namespace) {
+		if (parent != null) {
+			return parent.forNamespace(namespace);
+		}
+		String key = Objects.toString(namespace, "");
+		if (key.equals(Objects.toString(discoveryProperties.getNamespace(), ""))) {
+			return this;
+		}
+		NacosServiceDiscovery discovery = namespaces.get(key);
+		if (discovery == null) {
+			discovery = namespaces.computeIfAbsent(key,
+					ns -> new NacosServiceDiscovery(this, ns));
+		}
+		return discovery;
+	}
+
+	/**
+	 * @return the namespace looked up by this discovery, null for the namespace of the
+	 * discovery properties
+	 */
+	public String getNamespace() {
+		return namespace;
 	}
 
 	/**
@@ -54,10 +143,73 @@ public class NacosServiceDiscovery {
 	 * @throws NacosException nacosException
 	 */
 	public List<ServiceInstance> getInstances(String serviceId) throws NacosException {
+		NacosDiscoveryMetrics metrics = this.metrics;
+		if (metrics == null) {
+			return loadInstances(serviceId);
+		}
+		long start = System.nanoTime();
+		boolean success = false;
+		try {
+			List<ServiceInstance> instances = loadInstances(serviceId);
+			success = true;
+			return instances;
+		}
+		finally {
+			metrics.recordGetInstances(serviceId, System.nanoTime() - start, success);
+		}
+	}
+
+	private List<ServiceInstance> loadInstances(String serviceId)
+			throws NacosException {
+		if (instanceCache != null) {
+			return instanceCache.getInstances(serviceId);
+		}
 		String group = discoveryProperties.getGroup();
 		List<Instance> instances = namingService().selectInstances(serviceId, group,
 				true);
-		return hostToServiceInstanceList(instances, serviceId);
+		List<ServiceInstance> result = hostToServiceInstanceList(instances, serviceId,
+				lastInstances.get(serviceId));
+		// reused instances are checked against the new Nacos instances, a caller
+		// modifying the returned list can only prevent their reuse
+		lastInstances.put(serviceId, result);
+		return result;
+	}
+
+	/**
+	 * Return all instances for the given service if they can be served from memory.
+	 * @param serviceId id of service
+	 * @return list of instances, or null if they must be loaded from Nacos
+	 * @see NacosInstanceCache#getCachedInstances(String)
+	 */
+	public List<ServiceInstance> getCachedInstances(String serviceId) {
+		return instanceCache == null ? null : instanceCache.getCachedInstances(serviceId);
+	}
+
+	/**
+	 * Listen to the instance changes of the given service.
+	 * @param serviceId id of service
+	 * @param listener listener of the instance changes
+	 * @return callback removing the listener
+	 * @throws IllegalStateException if the instance cache is disabled
+	 * @see NacosInstanceCache#watch(String, Consumer)
+	 */
+	public Runnable watchInstances(String serviceId,
+			Consumer<InstanceChangeEvent> listener) {
+		if (instanceCache == null) {
+			throw new IllegalStateException(
+					"Watching instances requires spring.cloud.nacos.discovery.instance-cache.enabled=true");
+		}
+		return instanceCache.watch(serviceId, listener);
+	}
+
+	/**
+	 * Whether instances are served from the subscription-backed
+	 * {@link NacosInstanceCache}, in which case the returned lists are immutable
+	 * snapshots that are already kept in {@link ServiceCache}.
+	 * @return true if the instance cache is enabled
+	 */
+	public boolean isInstanceCacheEnabled() {
+		return instanceCache != null;
 	}
 
 	/**
@@ -66,17 +218,85 @@ public class NacosServiceDiscovery {
 	 * @throws NacosException nacosException
 	 */
 	public List<String> getServices() throws NacosException {
+		NacosDiscoveryMetrics metrics = this.metrics;
+		if (metrics == null) {
+			return loadServices();
+		}
+		long start = System.nanoTime();
+		boolean success = false;
+		try {
+			List<String> services = loadServices();
+			success = true;
+			return services;
+		}
+		finally {
+			metrics.recordGetServices(System.nanoTime() - start, success);
+		}
+	}
+
+	private List<String> loadServices() throws NacosException {
+		if (serviceCatalog != null) {
+			return serviceCatalog.getServices();
+		}
 		String group = discoveryProperties.getGroup();
 		ListView<String> services = namingService().getServicesOfServer(1,
 				Integer.MAX_VALUE, group);
 		return services.getData();
 	}
 
+	/**
+	 * Set the meters recording the lookups.
+	 * @param metrics discovery meters, may be null
+	 */
+	public void setMetrics(NacosDiscoveryMetrics metrics) {
+		this.metrics = metrics;
+	}
+
+	/**
+	 * @return the meters recording the lookups, or null
+	 */
+	public NacosDiscoveryMetrics getMetrics() {
+		return metrics;
+	}
+
+	/**
+	 * Return the names of all services if they can be served from memory.
+	 * @return list of service names, or null if they must be loaded from Nacos
+	 * @see NacosServiceCatalog#getCachedServices()
+	 */
+	public List<String> getCachedServices() {
+		return serviceCatalog == null ? null : serviceCatalog.getCachedServices();
+	}
+
 	public static List<ServiceInstance> hostToServiceInstanceList(
 			List<Instance> instances, String serviceId) {
+		return hostToServiceInstanceList(instances, serviceId, null);
+	}
+
+	/**
+	 * Convert the given Nacos instances, reusing the service instances of the previous
+	 * conversion whose Nacos instance is unchanged.
+	 * @param instances Nacos instances
+	 * @param serviceId id of service
+	 * @param previous result of the previous conversion, may be null
+	 * @return list of enabled and healthy instances
+	 */
+	public static List<ServiceInstance> hostToServiceInstanceList(
+			List<Instance> instances, String serviceId, List<ServiceInstance> previous) {
+		Map<String, NacosServiceInstance> reusable = reusable(previous);
 		List<ServiceInstance> result = new ArrayList<>(instances.size());
 		for (Instance instance : instances) {
-			ServiceInstance serviceInstance = hostToServiceInstance(instance, serviceId);
+			ServiceInstance serviceInstance = null;
+			if (instance != null && !reusable.isEmpty()) {
+				NacosServiceInstance candidate = reusable.get(instanceKey(instance));
+				if (candidate != null && serviceId.equals(candidate.getServiceId())
+						&& isUnchanged(candidate.getNacosInstance(), instance)) {
+					serviceInstance = candidate;
+				}
+			}
+			if (serviceInstance == null) {
+				serviceInstance = hostToServiceInstance(instance, serviceId);
+			}
 			if (serviceInstance != null) {
 				result.add(serviceInstance);
 			}
@@ -89,32 +309,55 @@ public class NacosServiceDiscovery {
 		if (instance == null || !instance.isEnabled() || !instance.isHealthy()) {
 			return null;
 		}
-		NacosServiceInstance nacosServiceInstance = new NacosServiceInstance();
-		nacosServiceInstance.setHost(instance.getIp());
-		nacosServiceInstance.setPort(instance.getPort());
-		nacosServiceInstance.setServiceId(serviceId);
-		nacosServiceInstance.setInstanceId(instance.getInstanceId());
+		return new NacosServiceInstance(instance, serviceId);
+	}
 
-		Map<String, String> metadata = new HashMap<>();
-		metadata.put("nacos.instanceId", instance.getInstanceId());
-		metadata.put("nacos.weight", instance.getWeight() + "");
-		metadata.put("nacos.healthy", instance.isHealthy() + "");
-		metadata.put("nacos.cluster", instance.getClusterName() + "");
-		if (instance.getMetadata() != null) {
-			metadata.putAll(instance.getMetadata());
+	private static Map<String, NacosServiceInstance> reusable(
+			List<ServiceInstance> previous) {
+		if (previous == null || previous.isEmpty()) {
+			return Collections.emptyMap();
+		}
+		Map<String, NacosServiceInstance> reusable = new HashMap<>(previous.size() * 2);
+		for (ServiceInstance serviceInstance : previous) {
+			if (serviceInstance instanceof NacosServiceInstance
+					&& ((NacosServiceInstance) serviceInstance)
+							.getNacosInstance() != null) {
+				NacosServiceInstance nacosServiceInstance = (NacosServiceInstance) serviceInstance;
+				reusable.put(instanceKey(nacosServiceInstance.getNacosInstance()),
+						nacosServiceInstance);
+			}
 		}
-		metadata.put("nacos.ephemeral", String.valueOf(instance.isEphemeral()));
-		nacosServiceInstance.setMetadata(metadata);
+		return reusable;
+	}
+
+	private static String instanceKey(Instance instance) {
+		String instanceId = instance.getInstanceId();
+		return instanceId != null ? instanceId
+				: instance.getIp() + ":" + instance.getPort();
+	}
 
-		if (metadata.containsKey("secure")) {
-			boolean secure = Boolean.parseBoolean(metadata.get("secure"));
-			nacosServiceInstance.setSecure(secure);
+	/**
+	 * Field by field comparison, {@link Instance#equals(Object)} compares the
+	 * {@code toString()} of both instances.
+	 */
+	private static boolean isUnchanged(Instance previous, Instance current) {
+		if (previous == current) {
+			return true;
 		}
-		return nacosServiceInstance;
+		return current.isEnabled() && current.isHealthy()
+				&& previous.getPort() == current.getPort()
+				&& previous.getWeight() == current.getWeight()
+				&& previous.isEphemeral() == current.isEphemeral()
+				&& Objects.equals(previous.getIp(), current.getIp())
+				&& Objects.equals(previous.getInstanceId(), current.getInstanceId())
+				&& Objects.equals(previous.getClusterName(), current.getClusterName())
+				&& Objects.equals(previous.getServiceName(), current.getServiceName())
+				&& Objects.equals(previous.getMetadata(), current.getMetadata());
 	}
 
 	private NamingService namingService() {
-		return nacosServiceManager.getNamingService();
+		return namespace == null ? nacosServiceManager.getNamingService()
+				: nacosServiceManager.getNamespaceNamingService(namespace);
 	}
 
 }
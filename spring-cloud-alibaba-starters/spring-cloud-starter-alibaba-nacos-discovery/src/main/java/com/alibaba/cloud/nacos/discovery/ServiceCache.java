@@ -47,13 +47,20 @@ public final class ServiceCache {
 
 	private static Map<String, List<ServiceInstance>> instancesMap = new ConcurrentHashMap<>();
 
+	private static volatile Runnable changeListener;
+
 	/**
 	 * Set instances for specific service.
 	 * @param serviceId service id
 	 * @param instances service instances
 	 */
 	public static void setInstances(String serviceId, List<ServiceInstance> instances) {
-		instancesMap.put(serviceId, Collections.unmodifiableList(instances));
+		List<ServiceInstance> previous = instancesMap.put(serviceId,
+				Collections.unmodifiableList(instances));
+		Runnable listener = changeListener;
+		if (listener != null && !sameInstances(previous, instances)) {
+			listener.run();
+		}
 	}
 
 	/**
@@ -82,7 +89,12 @@ public final class ServiceCache {
 	 * @since 2021.0.1.1
 	 */
 	public static void setServiceIds(List<String> serviceIds) {
+		List<String> previous = services;
 		services = Collections.unmodifiableList(serviceIds);
+		Runnable listener = changeListener;
+		if (listener != null && !previous.equals(serviceIds)) {
+			listener.run();
+		}
 	}
 
 	/**
@@ -104,4 +116,58 @@ public final class ServiceCache {
 		return services;
 	}
 
+	/**
+	 * Get instances of all services.
+	 * @return service instances by service id
+	 */
+	static Map<String, List<ServiceInstance>> getAllInstances() {
+		return Collections.unmodifiableMap(instancesMap);
+	}
+
+	/**
+	 * Restore services and instances that are not cached yet.
+	 * @param serviceIds all services
+	 * @param instances service instances by service id
+	 */
+	static void restore(List<String> serviceIds,
+			Map<String, List<ServiceInstance>> instances) {
+		if (services.isEmpty()) {
+			services = Collections.unmodifiableList(serviceIds);
+		}
+		instances.forEach((serviceId, list) -> instancesMap.putIfAbsent(serviceId,
+				Collections.unmodifiableList(list)));
+	}
+
+	/**
+	 * Remove the cached instances of a service.
+	 * @param serviceId service id
+	 */
+	static void removeInstances(String serviceId) {
+		instancesMap.remove(serviceId);
+	}
+
+	/**
+	 * Set the listener notified when the cached services or instances change.
+	 * @param listener listener, or null to remove it
+	 */
+	static void setChangeListener(Runnable listener) {
+		changeListener = listener;
+	}
+
+	/**
+	 * Cheap change detection, unchanged instances being reused across lookups.
+	 */
+	private static boolean sameInstances(List<ServiceInstance> previous,
+			List<ServiceInstance> current) {
+		if (previous == null || previous.size() != current.size()) {
+			return false;
+		}
+		for (int i = 0; i < current.size(); i++) {
+			if (previous.get(i) != current.get(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
 }
@@ -0,0 +1,323 @@
+/*
+ * Copyright 2013-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alibaba.cloud.nacos.discovery;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.CRC32;
+
+import com.alibaba.cloud.commons.lang.StringUtils;
+import com.alibaba.cloud.nacos.NacosDiscoveryProperties;
+import com.alibaba.cloud.nacos.NacosServiceInstance;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.cloud.client.ServiceInstance;
+
+/**
+ * On-disk snapshot of {@link ServiceCache}.
+ * <p>
+ * The snapshot is loaded at startup, so that with failure tolerance enabled the
+ * discovery clients serve the services and instances of the previous run while Nacos
+ * is unreachable, instead of nothing. It is then written in the background each time
+ * the cached services or instances change, at most once per {@code snapshotWriteDelay}.
+ * The file ends with a CRC32 checksum of its content and is replaced atomically, a
+ * truncated or corrupted snapshot is ignored.
+ *
+ * @author Spring Cloud Alibaba contributors
+ * @since 2021.0.4.0
+ */
+public class ServiceCacheSnapshot implements InitializingBean, DisposableBean {
+
+	private static final Logger log = LoggerFactory.getLogger(ServiceCacheSnapshot.class);
+
+	private static final int MAGIC = 0x4e534353;
+
+	private static final int FORMAT_VERSION = 1;
+
+	private final Path file;
+
+	private final long writeDelay;
+
+	private final AtomicBoolean writeScheduled = new AtomicBoolean(false);
+
+	private final ScheduledExecutorService executor = Executors
+			.newSingleThreadScheduledExecutor(r -> {
+				Thread thread = new Thread(r, "nacos-service-cache-snapshot");
+				thread.setDaemon(true);
+				return thread;
+			});
+
+	public ServiceCacheSnapshot(NacosDiscoveryProperties properties) {
+		this.file = snapshotFile(properties);
+		this.writeDelay = Math.max(properties.getSnapshotWriteDelay(), 0L);
+	}
+
+	@Override
+	public void afterPropertiesSet() {
+		load();
+		ServiceCache.setChangeListener(this::scheduleWrite);
+	}
+
+	@Override
+	public void destroy() {
+		ServiceCache.setChangeListener(null);
+		executor.shutdownNow();
+		if (writeScheduled.getAndSet(false)) {
+			write();
+		}
+	}
+
+	/**
+	 * Restore the services and instances of the snapshot into {@link ServiceCache},
+	 * without replacing those already cached.
+	 * @return true if a valid snapshot was loaded
+	 */
+	public boolean load() {
+		if (!Files.isRegularFile(file)) {
+			return false;
+		}
+		try {
+			byte[] bytes = Files.readAllBytes(file);
+			if (bytes.length < 8) {
+				throw new IOException("truncated snapshot");
+			}
+			int length = bytes.length - 8;
+			CRC32 crc = new CRC32();
+			crc.update(bytes, 0, length);
+			if (ByteBuffer.wrap(bytes, length, 8).getLong() != crc.getValue()) {
+				throw new IOException("checksum mismatch");
+			}
+			DataInputStream in = new DataInputStream(
+					new ByteArrayInputStream(bytes, 0, length));
+			if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+				throw new IOException("unknown snapshot format");
+			}
+			List<String> services = new ArrayList<>(readStrings(in));
+			int serviceCount = in.readInt();
+			Map<String, List<ServiceInstance>> instances = new HashMap<>(
+					serviceCount * 2);
+			for (int i = 0; i < serviceCount; i++) {
+				String serviceId = readString(in);
+				int instanceCount = in.readInt();
+				List<ServiceInstance> list = new ArrayList<>(instanceCount);
+				for (int j = 0; j < instanceCount; j++) {
+					list.add(readInstance(in, serviceId));
+				}
+				instances.put(serviceId, list);
+			}
+			ServiceCache.restore(services, instances);
+			log.info("Loaded {} services and instances of {} services from {}",
+					services.size(), instances.size(), file);
+			return true;
+		}
+		catch (IOException | RuntimeException e) {
+			log.warn("Ignoring invalid service cache snapshot {}", file, e);
+			return false;
+		}
+	}
+
+	/**
+	 * Write the current content of {@link ServiceCache} right away.
+	 */
+	public synchronized void write() {
+		try {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream(4096);
+			DataOutputStream out = new DataOutputStream(bytes);
+			out.writeInt(MAGIC);
+			out.writeInt(FORMAT_VERSION);
+			writeStrings(out, ServiceCache.getServiceIds());
+			Map<String, List<ServiceInstance>> instances = ServiceCache.getAllInstances();
+			// the map may change while written, count the services actually written
+			List<Map.Entry<String, List<ServiceInstance>>> entries = new ArrayList<>(
+					instances.entrySet());
+			out.writeInt(entries.size());
+			for (Map.Entry<String, List<ServiceInstance>> entry : entries) {
+				writeString(out, entry.getKey());
+				List<ServiceInstance> list = entry.getValue();
+				out.writeInt(list.size());
+				for (ServiceInstance instance : list) {
+					writeInstance(out, instance);
+				}
+			}
+			out.flush();
+			CRC32 crc = new CRC32();
+			crc.update(bytes.toByteArray());
+			out.writeLong(crc.getValue());
+			out.flush();
+
+			Path parent = file.toAbsolutePath().getParent();
+			if (parent != null) {
+				Files.createDirectories(parent);
+			}
+			Path temp = Files.createTempFile(parent, file.getFileName().toString(),
+					".tmp");
+			try {
+				Files.write(temp, bytes.toByteArray());
+				Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING,
+						StandardCopyOption.ATOMIC_MOVE);
+			}
+			finally {
+				Files.deleteIfExists(temp);
+			}
+		}
+		catch (IOException | RuntimeException e) {
+			log.warn("Failed to write service cache snapshot {}", file, e);
+		}
+	}
+
+	/**
+	 * @return the file of the snapshot
+	 */
+	public Path getFile() {
+		return file;
+	}
+
+	private void scheduleWrite() {
+		if (!writeScheduled.compareAndSet(false, true)) {
+			return;
+		}
+		try {
+			executor.schedule(() -> {
+				writeScheduled.set(false);
+				write();
+			}, writeDelay, TimeUnit.MILLISECONDS);
+		}
+		catch (Exception e) {
+			// the executor is shut down
+			writeScheduled.set(false);
+		}
+	}
+
+	private static Path snapshotFile(NacosDiscoveryProperties properties) {
+		if (StringUtils.isNotBlank(properties.getSnapshotFile())) {
+			return Paths.get(properties.getSnapshotFile());
+		}
+		String namespace = StringUtils.isBlank(properties.getNamespace()) ? "public"
+				: properties.getNamespace();
+		// not in the naming cache directory of Nacos, which reads every file there
+		return Paths.get(System.getProperty("user.home"), "nacos", "spring-cloud",
+				namespace, "service-cache.snapshot");
+	}
+
+	private static void writeInstance(DataOutputStream out, ServiceInstance instance)
+			throws IOException {
+		writeNullableString(out, instance.getInstanceId());
+		writeString(out, instance.getHost());
+		out.writeInt(instance.getPort());
+		out.writeBoolean(instance.isSecure());
+		Map<String, String> metadata = instance.getMetadata();
+		if (metadata == null) {
+			out.writeInt(0);
+			return;
+		}
+		List<Map.Entry<String, String>> entries = new ArrayList<>(metadata.entrySet());
+		out.writeInt(entries.size());
+		for (Map.Entry<String, String> entry : entries) {
+			writeString(out, entry.getKey());
+			writeNullableString(out, entry.getValue());
+		}
+	}
+
+	private static ServiceInstance readInstance(DataInputStream in, String serviceId)
+			throws IOException {
+		NacosServiceInstance instance = new NacosServiceInstance();
+		instance.setServiceId(serviceId);
+		instance.setInstanceId(readNullableString(in));
+		instance.setHost(readString(in));
+		instance.setPort(in.readInt());
+		instance.setSecure(in.readBoolean());
+		int size = in.readInt();
+		Map<String, String> metadata = new HashMap<>(size * 2);
+		for (int i = 0; i < size; i++) {
+			metadata.put(readString(in), readNullableString(in));
+		}
+		instance.setMetadata(metadata);
+		return instance;
+	}
+
+	private static void writeStrings(DataOutputStream out, List<String> values)
+			throws IOException {
+		List<String> copy = new ArrayList<>(values);
+		out.writeInt(copy.size());
+		for (String value : copy) {
+			writeString(out, value);
+		}
+	}
+
+	private static List<String> readStrings(DataInputStream in) throws IOException {
+		int size = in.readInt();
+		List<String> values = new ArrayList<>(size);
+		for (int i = 0; i < size; i++) {
+			values.add(readString(in));
+		}
+		return values;
+	}
+
+	private static void writeNullableString(DataOutputStream out, String value)
+			throws IOException {
+		out.writeBoolean(value != null);
+		if (value != null) {
+			writeString(out, value);
+		}
+	}
+
+	private static String readNullableString(DataInputStream in) throws IOException {
+		return in.readBoolean() ? readString(in) : null;
+	}
+
+	/**
+	 * Length-prefixed UTF-8, {@link DataOutputStream#writeUTF(String)} being limited to
+	 * 64KB.
+	 */
+	private static void writeString(DataOutputStream out, String value)
+			throws IOException {
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	private static String readString(DataInputStream in) throws IOException {
+		int length = in.readInt();
+		if (length < 0 || length > in.available()) {
+			throw new IOException("invalid string length " + length);
+		}
+		byte[] bytes = new byte[length];
+		in.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+}
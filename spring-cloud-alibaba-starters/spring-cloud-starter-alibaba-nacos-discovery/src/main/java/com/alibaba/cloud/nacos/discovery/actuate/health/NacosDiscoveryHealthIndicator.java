@@ -16,21 +16,42 @@
 
 package com.alibaba.cloud.nacos.discovery.actuate.health;
 
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import com.alibaba.cloud.nacos.NacosDiscoveryProperties;
 import com.alibaba.cloud.nacos.NacosServiceManager;
+import com.alibaba.cloud.nacos.utils.NacosThreads;
 import com.alibaba.nacos.api.naming.NamingService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
 import org.springframework.boot.actuate.health.AbstractHealthIndicator;
 import org.springframework.boot.actuate.health.Health;
 import org.springframework.boot.actuate.health.HealthIndicator;
 
 /**
  * The {@link HealthIndicator} for Nacos Discovery.
+ * <p>
+ * With {@link NacosDiscoveryProperties#isHealthProbeAsync()}, the server status is
+ * probed on a background schedule and health checks answer the last probe along with
+ * its age, going DOWN when it is older than
+ * {@link NacosDiscoveryProperties#getHealthProbeMaxAge()}.
  *
  * @author <a href="mailto:mercyblitz@gmail.com">Mercy</a>
  * @since 2.2.0
  * @see HealthIndicator
  */
-public class NacosDiscoveryHealthIndicator extends AbstractHealthIndicator {
+public class NacosDiscoveryHealthIndicator extends AbstractHealthIndicator
+		implements InitializingBean, DisposableBean {
+
+	private static final Logger log = LoggerFactory
+			.getLogger(NacosDiscoveryHealthIndicator.class);
 
 	/**
 	 * status up.
@@ -44,6 +65,14 @@ public class NacosDiscoveryHealthIndicator extends AbstractHealthIndicator {
 
 	private NacosServiceManager nacosServiceManager;
 
+	private NacosDiscoveryProperties nacosDiscoveryProperties;
+
+	private ScheduledExecutorService probeExecutor;
+
+	private volatile Probe lastProbe;
+
+	private volatile Exception lastProbeError;
+
 	@Deprecated
 	private NamingService namingService;
 
@@ -51,6 +80,32 @@ public class NacosDiscoveryHealthIndicator extends AbstractHealthIndicator {
 		this.nacosServiceManager = nacosServiceManager;
 	}
 
+	public NacosDiscoveryHealthIndicator(NacosServiceManager nacosServiceManager,
+			NacosDiscoveryProperties nacosDiscoveryProperties) {
+		this.nacosServiceManager = nacosServiceManager;
+		this.nacosDiscoveryProperties = nacosDiscoveryProperties;
+	}
+
+	@Override
+	public void afterPropertiesSet() {
+		if (!isProbeAsync()) {
+			return;
+		}
+		probeExecutor = Executors.newSingleThreadScheduledExecutor(
+				NacosThreads.threadFactory("nacos-health-probe",
+						nacosDiscoveryProperties.isVirtualThreads()));
+		// probe right away so that the health is known soon after startup, the jitter
+		// of the following probes spreads those of instances started together
+		scheduleProbe(0);
+	}
+
+	@Override
+	public void destroy() {
+		if (probeExecutor != null) {
+			probeExecutor.shutdownNow();
+		}
+	}
+
 	@Deprecated
 	public NacosDiscoveryHealthIndicator(NamingService namingService) {
 		this.namingService = namingService;
@@ -58,8 +113,72 @@ public class NacosDiscoveryHealthIndicator extends AbstractHealthIndicator {
 
 	@Override
 	protected void doHealthCheck(Health.Builder builder) throws Exception {
-		// Just return "UP" or "DOWN"
-		String status = nacosServiceManager.getNamingService().getServerStatus();
+		if (!isProbeAsync()) {
+			// Just return "UP" or "DOWN"
+			status(builder, nacosServiceManager.getNamingService().getServerStatus());
+			return;
+		}
+		Probe probe = lastProbe;
+		Exception error = lastProbeError;
+		if (probe == null) {
+			if (error != null) {
+				builder.down(error);
+			}
+			else {
+				// not probed yet
+				builder.unknown();
+			}
+			return;
+		}
+		long age = System.currentTimeMillis() - probe.timestamp;
+		if (age > nacosDiscoveryProperties.getHealthProbeMaxAge()) {
+			builder.down().withDetail("serverStatus", probe.status);
+		}
+		else {
+			status(builder, probe.status);
+		}
+		builder.withDetail("ageMillis", age);
+		if (error != null) {
+			builder.withDetail("error",
+					error.getClass().getName() + ": " + error.getMessage());
+		}
+	}
+
+	void probe() {
+		try {
+			String status = nacosServiceManager.getNamingService().getServerStatus();
+			lastProbe = new Probe(status, System.currentTimeMillis());
+			lastProbeError = null;
+		}
+		catch (Exception e) {
+			lastProbeError = e;
+			log.warn("Nacos server status probe failed", e);
+		}
+		finally {
+			scheduleProbe(nacosDiscoveryProperties.getHealthProbeInterval()
+					+ jitter(nacosDiscoveryProperties.getHealthProbeInterval() / 10));
+		}
+	}
+
+	private void scheduleProbe(long delay) {
+		try {
+			probeExecutor.schedule(this::probe, delay, TimeUnit.MILLISECONDS);
+		}
+		catch (RejectedExecutionException e) {
+			// shut down
+		}
+	}
+
+	private boolean isProbeAsync() {
+		return nacosDiscoveryProperties != null
+				&& nacosDiscoveryProperties.isHealthProbeAsync();
+	}
+
+	private static long jitter(long bound) {
+		return bound > 0 ? ThreadLocalRandom.current().nextLong(bound) : 0;
+	}
+
+	private static void status(Health.Builder builder, String status) {
 		// Set the status to Builder
 		builder.status(status);
 		switch (status) {
@@ -75,4 +194,17 @@ public class NacosDiscoveryHealthIndicator extends AbstractHealthIndicator {
 		}
 	}
 
+	private static final class Probe {
+
+		private final String status;
+
+		private final long timestamp;
+
+		private Probe(String status, long timestamp) {
+			this.status = status;
+			this.timestamp = timestamp;
+		}
+
+	}
+
 }
@@ -0,0 +1,68 @@
+/*
+ * Copyright 2013-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alibaba.cloud.nacos.discovery.actuate.health;
+
+import com.alibaba.cloud.nacos.registry.NacosRegistrationState;
+import com.alibaba.cloud.nacos.registry.NacosServiceRegistry;
+
+import org.springframework.boot.actuate.health.AbstractHealthIndicator;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+
+/**
+ * The {@link HealthIndicator} of the registration in Nacos, meant for the readiness
+ * group: the application is out of service until its asynchronous registration
+ * succeeded, and down when it gave up.
+ *
+ * @author Spring Cloud Alibaba contributors
+ * @since 2021.0.4.0
+ * @see NacosRegistrationState
+ */
+public class NacosRegistrationHealthIndicator extends AbstractHealthIndicator {
+
+	private final NacosServiceRegistry nacosServiceRegistry;
+
+	public NacosRegistrationHealthIndicator(NacosServiceRegistry nacosServiceRegistry) {
+		this.nacosServiceRegistry = nacosServiceRegistry;
+	}
+
+	@Override
+	protected void doHealthCheck(Health.Builder builder) {
+		NacosRegistrationState state = nacosServiceRegistry.getRegistrationState();
+		switch (state) {
+		case REGISTERED:
+			builder.up();
+			break;
+		case REGISTERING:
+			builder.outOfService();
+			break;
+		case FAILED:
+			builder.down();
+			break;
+		default:
+			builder.unknown();
+			break;
+		}
+		builder.withDetail("state", state);
+		Exception failure = nacosServiceRegistry.getRegistrationFailure();
+		if (failure != null && state != NacosRegistrationState.REGISTERED) {
+			builder.withDetail("error",
+					failure.getClass().getName() + ": " + failure.getMessage());
+		}
+	}
+
+}
@@ -16,33 +16,42 @@
 
 package com.alibaba.cloud.nacos.discovery.reactive;
 
+import java.util.List;
+import java.util.concurrent.ExecutorService;
 import java.util.function.Function;
 
+import com.alibaba.cloud.nacos.discovery.InstanceChangeEvent;
 import com.alibaba.cloud.nacos.discovery.NacosServiceDiscovery;
 import com.alibaba.cloud.nacos.discovery.ServiceCache;
+import com.alibaba.cloud.nacos.metrics.NacosDiscoveryMetrics;
+import com.alibaba.cloud.nacos.utils.NacosThreads;
 import com.alibaba.nacos.api.exception.NacosException;
 import org.reactivestreams.Publisher;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
 import reactor.core.scheduler.Schedulers;
 
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cloud.client.ServiceInstance;
 import org.springframework.cloud.client.discovery.ReactiveDiscoveryClient;
 
 /**
  * @author <a href="mailto:echooy.mxq@gmail.com">echooymxq</a>
- * @author freeman
  **/
-public class NacosReactiveDiscoveryClient implements ReactiveDiscoveryClient {
+public class NacosReactiveDiscoveryClient
+		implements ReactiveDiscoveryClient, DisposableBean {
 
 	private static final Logger log = LoggerFactory
 			.getLogger(NacosReactiveDiscoveryClient.class);
 
 	private NacosServiceDiscovery serviceDiscovery;
 
+	private volatile Scheduler scheduler = Schedulers.boundedElastic();
+
 	@Value("${spring.cloud.nacos.discovery.failure-tolerance-enabled:false}")
 	private boolean failureToleranceEnabled;
 
@@ -50,6 +59,22 @@ public class NacosReactiveDiscoveryClient implements ReactiveDiscoveryClient {
 		this.serviceDiscovery = nacosServiceDiscovery;
 	}
 
+	/**
+	 * Call Nacos on virtual threads rather than on the bounded elastic scheduler, if the
+	 * JDK supports them.
+	 * @param virtualThreads whether to use virtual threads
+	 */
+	public void setVirtualThreads(boolean virtualThreads) {
+		ExecutorService executor = virtualThreads
+				? NacosThreads.newVirtualThreadPerTaskExecutor("nacos-discovery-")
+				: null;
+		Scheduler previous = scheduler;
+		scheduler = executor != null
+				? Schedulers.fromExecutorService(executor, "nacos-discovery")
+				: Schedulers.boundedElastic();
+		dispose(previous);
+	}
+
 	@Override
 	public String description() {
 		return "Spring Cloud Nacos Reactive Discovery Client";
@@ -57,9 +82,40 @@ public class NacosReactiveDiscoveryClient implements ReactiveDiscoveryClient {
 
 	@Override
 	public Flux<ServiceInstance> getInstances(String serviceId) {
+		return Flux.defer(() -> {
+			List<ServiceInstance> cachedInstances = serviceId == null ? null
+					: serviceDiscovery.getCachedInstances(serviceId);
+			if (cachedInstances != null && !cachedInstances.isEmpty()) {
+				// snapshot kept up to date by Nacos pushes, no thread hop needed
+				return Flux.fromIterable(cachedInstances);
+			}
+			return Mono.justOrEmpty(serviceId).flatMapMany(loadInstancesFromNacos())
+					.subscribeOn(scheduler);
+		});
+	}
 
-		return Mono.justOrEmpty(serviceId).flatMapMany(loadInstancesFromNacos())
-				.subscribeOn(Schedulers.boundedElastic());
+	/**
+	 * Stream the instance changes of the given service, starting with its current
+	 * instances as added instances. Requires the instance cache to be enabled.
+	 * @param serviceId id of service
+	 * @return endless stream of instance changes
+	 */
+	public Flux<InstanceChangeEvent> getInstanceChanges(String serviceId) {
+		return Flux.create(sink -> {
+			Runnable cancel = serviceDiscovery.watchInstances(serviceId, sink::next);
+			sink.onDispose(cancel::run);
+			if (serviceDiscovery.getCachedInstances(serviceId) == null) {
+				// the first lookup subscribes to the service and emits its instances
+				scheduler.schedule(() -> {
+					try {
+						serviceDiscovery.getInstances(serviceId);
+					}
+					catch (NacosException e) {
+						sink.error(e);
+					}
+				});
+			}
+		});
 	}
 
 	private Function<String, Publisher<ServiceInstance>> loadInstancesFromNacos() {
@@ -67,21 +123,37 @@ public class NacosReactiveDiscoveryClient implements ReactiveDiscoveryClient {
 			try {
 				return Mono.justOrEmpty(serviceDiscovery.getInstances(serviceId))
 						.flatMapMany(instances -> {
-							ServiceCache.setInstances(serviceId, instances);
+							if (!serviceDiscovery.isInstanceCacheEnabled()) {
+								ServiceCache.setInstances(serviceId, instances);
+							}
 							return Flux.fromIterable(instances);
 						});
 			}
 			catch (NacosException e) {
 				log.error("get service instance[{}] from nacos error!", serviceId, e);
-				return failureToleranceEnabled
-						? Flux.fromIterable(ServiceCache.getInstances(serviceId))
-						: Flux.empty();
+				if (failureToleranceEnabled) {
+					recordFallback(NacosDiscoveryMetrics.INSTANCES);
+					return Flux.fromIterable(ServiceCache.getInstances(serviceId));
+				}
+				return Flux.empty();
 			}
 		};
 	}
 
 	@Override
 	public Flux<String> getServices() {
+		return Flux.defer(() -> {
+			List<String> cachedServices = serviceDiscovery.getCachedServices();
+			if (cachedServices != null && !cachedServices.isEmpty()) {
+				// served from memory, no need to hop to a blocking-friendly thread
+				ServiceCache.setServiceIds(cachedServices);
+				return Flux.fromIterable(cachedServices);
+			}
+			return loadServicesFromNacos().subscribeOn(scheduler);
+		});
+	}
+
+	private Flux<String> loadServicesFromNacos() {
 		return Flux.defer(() -> {
 			try {
 				return Mono.justOrEmpty(serviceDiscovery.getServices())
@@ -92,11 +164,32 @@ public class NacosReactiveDiscoveryClient implements ReactiveDiscoveryClient {
 			}
 			catch (Exception e) {
 				log.error("get services from nacos server fail,", e);
-				return failureToleranceEnabled
-						? Flux.fromIterable(ServiceCache.getServiceIds())
-						: Flux.empty();
+				if (failureToleranceEnabled) {
+					recordFallback(NacosDiscoveryMetrics.SERVICES);
+					return Flux.fromIterable(ServiceCache.getServiceIds());
+				}
+				return Flux.empty();
 			}
-		}).subscribeOn(Schedulers.boundedElastic());
+		});
+	}
+
+	@Override
+	public void destroy() {
+		dispose(scheduler);
+	}
+
+	private static void dispose(Scheduler scheduler) {
+		// the bounded elastic scheduler is shared, only ours is disposed
+		if (scheduler != Schedulers.boundedElastic()) {
+			scheduler.dispose();
+		}
+	}
+
+	private void recordFallback(String operation) {
+		NacosDiscoveryMetrics metrics = serviceDiscovery.getMetrics();
+		if (metrics != null) {
+			metrics.recordFallback(operation);
+		}
 	}
 
 }
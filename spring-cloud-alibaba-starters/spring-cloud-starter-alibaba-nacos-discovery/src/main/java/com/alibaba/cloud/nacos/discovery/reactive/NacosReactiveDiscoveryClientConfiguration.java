@@ -17,6 +17,7 @@
 package com.alibaba.cloud.nacos.discovery.reactive;
 
 import com.alibaba.cloud.nacos.ConditionalOnNacosDiscoveryEnabled;
+import com.alibaba.cloud.nacos.NacosDiscoveryProperties;
 import com.alibaba.cloud.nacos.discovery.NacosDiscoveryAutoConfiguration;
 import com.alibaba.cloud.nacos.discovery.NacosServiceDiscovery;
 
@@ -45,8 +46,12 @@ public class NacosReactiveDiscoveryClientConfiguration {
 	@Bean
 	@ConditionalOnMissingBean
 	public NacosReactiveDiscoveryClient nacosReactiveDiscoveryClient(
-			NacosServiceDiscovery nacosServiceDiscovery) {
-		return new NacosReactiveDiscoveryClient(nacosServiceDiscovery);
+			NacosServiceDiscovery nacosServiceDiscovery,
+			NacosDiscoveryProperties nacosDiscoveryProperties) {
+		NacosReactiveDiscoveryClient client = new NacosReactiveDiscoveryClient(
+				nacosServiceDiscovery);
+		client.setVirtualThreads(nacosDiscoveryProperties.isVirtualThreads());
+		return client;
 	}
 
 }
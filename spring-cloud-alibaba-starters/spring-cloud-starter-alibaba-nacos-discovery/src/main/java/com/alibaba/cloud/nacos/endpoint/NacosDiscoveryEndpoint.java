@@ -16,33 +16,72 @@
 
 package com.alibaba.cloud.nacos.endpoint;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import com.alibaba.cloud.commons.lang.StringUtils;
 import com.alibaba.cloud.nacos.NacosDiscoveryProperties;
 import com.alibaba.cloud.nacos.NacosServiceManager;
+import com.alibaba.cloud.nacos.utils.NacosThreads;
 import com.alibaba.nacos.api.naming.NamingService;
 import com.alibaba.nacos.api.naming.pojo.Instance;
 import com.alibaba.nacos.api.naming.pojo.ServiceInfo;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
 import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.lang.Nullable;
 
 /**
  * Endpoint for nacos discovery, get nacos properties and subscribed services.
+ * <p>
+ * The subscribed services can be filtered by group and by a part of their name, and are
+ * paginated, only the instances of the returned page being looked up. The instances are
+ * looked up with the clusters of the subscription, so that the Nacos client answers from
+ * its subscription cache, on a bounded pool so that lookups which go to the server run
+ * in parallel without exhausting the node.
  *
  * @author xiaojing
  */
 @Endpoint(id = "nacosdiscovery")
-public class NacosDiscoveryEndpoint {
+public class NacosDiscoveryEndpoint implements DisposableBean {
 
 	private static final Logger log = LoggerFactory
 			.getLogger(NacosDiscoveryEndpoint.class);
 
+	/**
+	 * Number of services of a page when no size is given.
+	 */
+	static final int DEFAULT_PAGE_SIZE = 100;
+
+	/**
+	 * Threads looking up instances in parallel.
+	 */
+	private static final int LOOKUP_THREADS = 4;
+
+	/**
+	 * Time in milliseconds given to the instance lookups of a page, the services whose
+	 * instances were not found in time being returned without instances.
+	 */
+	private static final long LOOKUP_TIMEOUT = 5000;
+
+	private final ExecutorService lookupExecutor;
+
 	private NacosServiceManager nacosServiceManager;
 
 	private NacosDiscoveryProperties nacosDiscoveryProperties;
@@ -51,32 +90,124 @@ public class NacosDiscoveryEndpoint {
 			NacosDiscoveryProperties nacosDiscoveryProperties) {
 		this.nacosServiceManager = nacosServiceManager;
 		this.nacosDiscoveryProperties = nacosDiscoveryProperties;
+		this.lookupExecutor = newLookupExecutor(
+				nacosDiscoveryProperties.isVirtualThreads());
+	}
+
+	private static ExecutorService newLookupExecutor(boolean virtualThreads) {
+		ExecutorService virtualExecutor = virtualThreads
+				? NacosThreads.newVirtualThreadPerTaskExecutor("nacos-discovery-endpoint-")
+				: null;
+		if (virtualExecutor != null) {
+			return virtualExecutor;
+		}
+		AtomicInteger threads = new AtomicInteger();
+		ThreadPoolExecutor executor = new ThreadPoolExecutor(LOOKUP_THREADS,
+				LOOKUP_THREADS, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+					Thread thread = new Thread(r,
+							"nacos-discovery-endpoint-" + threads.incrementAndGet());
+					thread.setDaemon(true);
+					return thread;
+				});
+		executor.allowCoreThreadTimeOut(true);
+		return executor;
+	}
+
+	/**
+	 * @return nacos discovery endpoint, with the first page of subscribed services
+	 */
+	public Map<String, Object> nacosDiscovery() {
+		return nacosDiscovery(null, null, null, null);
 	}
 
 	/**
+	 * @param service part of the name of the services to return, all if null
+	 * @param group group of the services to return, all if null
+	 * @param page index of the page to return, starting at 0
+	 * @param size number of services of a page, {@value #DEFAULT_PAGE_SIZE} if null
 	 * @return nacos discovery endpoint
 	 */
 	@ReadOperation
-	public Map<String, Object> nacosDiscovery() {
+	public Map<String, Object> nacosDiscovery(@Nullable String service,
+			@Nullable String group, @Nullable Integer page, @Nullable Integer size) {
+		int pageIndex = page == null ? 0 : Math.max(page, 0);
+		int pageSize = size == null ? DEFAULT_PAGE_SIZE : Math.max(size, 1);
+
 		Map<String, Object> result = new HashMap<>();
 		result.put("NacosDiscoveryProperties", nacosDiscoveryProperties);
 
 		NamingService namingService = nacosServiceManager.getNamingService();
-		List<ServiceInfo> subscribe = Collections.emptyList();
-
+		List<ServiceInfo> subscribe = new ArrayList<>();
 		try {
-			subscribe = namingService.getSubscribeServices();
-			for (ServiceInfo serviceInfo : subscribe) {
-				List<Instance> instances = namingService.getAllInstances(
-						serviceInfo.getName(), serviceInfo.getGroupName());
-				serviceInfo.setHosts(instances);
+			for (ServiceInfo serviceInfo : namingService.getSubscribeServices()) {
+				if ((StringUtils.isEmpty(service)
+						|| serviceInfo.getName().contains(service))
+						&& (StringUtils.isEmpty(group)
+								|| group.equals(serviceInfo.getGroupName()))) {
+					subscribe.add(serviceInfo);
+				}
 			}
 		}
 		catch (Exception e) {
 			log.error("get subscribe services from nacos fail,", e);
 		}
-		result.put("subscribe", subscribe);
+		// stable pages
+		subscribe.sort(Comparator.comparing(ServiceInfo::getGroupName,
+				Comparator.nullsFirst(Comparator.naturalOrder()))
+				.thenComparing(ServiceInfo::getName));
+		result.put("total", subscribe.size());
+		result.put("page", pageIndex);
+		result.put("size", pageSize);
+
+		long from = (long) pageIndex * pageSize;
+		List<ServiceInfo> services = from >= subscribe.size() ? Collections.emptyList()
+				: subscribe.subList((int) from,
+						(int) Math.min(from + pageSize, subscribe.size()));
+		setHosts(namingService, services);
+		result.put("subscribe", services);
 		return result;
 	}
 
+	private void setHosts(NamingService namingService, List<ServiceInfo> services) {
+		if (services.isEmpty()) {
+			return;
+		}
+		List<Callable<List<Instance>>> lookups = new ArrayList<>(services.size());
+		for (ServiceInfo serviceInfo : services) {
+			List<String> clusters = StringUtils.isEmpty(serviceInfo.getClusters())
+					? Collections.emptyList()
+					: Arrays.asList(serviceInfo.getClusters().split(","));
+			lookups.add(() -> namingService.getAllInstances(serviceInfo.getName(),
+					serviceInfo.getGroupName(), clusters));
+		}
+		List<Future<List<Instance>>> results;
+		try {
+			results = lookupExecutor.invokeAll(lookups, LOOKUP_TIMEOUT,
+					TimeUnit.MILLISECONDS);
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return;
+		}
+		for (int i = 0; i < services.size(); i++) {
+			ServiceInfo serviceInfo = services.get(i);
+			try {
+				serviceInfo.setHosts(results.get(i).get());
+			}
+			catch (CancellationException e) {
+				log.warn("get instances of {} from nacos timed out",
+						serviceInfo.getKey());
+			}
+			catch (Exception e) {
+				log.error("get instances of {} from nacos fail,", serviceInfo.getKey(),
+						e);
+			}
+		}
+	}
+
+	@Override
+	public void destroy() {
+		lookupExecutor.shutdownNow();
+	}
+
 }
@@ -20,13 +20,19 @@ import com.alibaba.cloud.nacos.ConditionalOnNacosDiscoveryEnabled;
 import com.alibaba.cloud.nacos.NacosDiscoveryProperties;
 import com.alibaba.cloud.nacos.NacosServiceManager;
 import com.alibaba.cloud.nacos.discovery.actuate.health.NacosDiscoveryHealthIndicator;
+import com.alibaba.cloud.nacos.discovery.actuate.health.NacosRegistrationHealthIndicator;
+import com.alibaba.cloud.nacos.registry.NacosServiceRegistry;
+import com.alibaba.cloud.nacos.registry.NacosServiceRegistryAutoConfiguration;
 
 import org.springframework.boot.actuate.autoconfigure.endpoint.condition.ConditionalOnAvailableEndpoint;
 import org.springframework.boot.actuate.autoconfigure.health.ConditionalOnEnabledHealthIndicator;
 import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
 import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.autoconfigure.AutoConfigureAfter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
@@ -39,6 +45,7 @@ import org.springframework.context.annotation.Configuration;
 @Configuration(proxyBeanMethods = false)
 @ConditionalOnClass(Endpoint.class)
 @ConditionalOnNacosDiscoveryEnabled
+@AutoConfigureAfter(NacosServiceRegistryAutoConfiguration.class)
 public class NacosDiscoveryEndpointAutoConfiguration {
 
 	@Bean
@@ -52,8 +59,24 @@ public class NacosDiscoveryEndpointAutoConfiguration {
 
 	@Bean
 	@ConditionalOnEnabledHealthIndicator("nacos-discovery")
-	public HealthIndicator nacosDiscoveryHealthIndicator(NacosServiceManager nacosServiceManager) {
-		return new NacosDiscoveryHealthIndicator(nacosServiceManager);
+	public HealthIndicator nacosDiscoveryHealthIndicator(
+			NacosServiceManager nacosServiceManager,
+			NacosDiscoveryProperties nacosDiscoveryProperties) {
+		return new NacosDiscoveryHealthIndicator(nacosServiceManager,
+				nacosDiscoveryProperties);
+	}
+
+	/**
+	 * Only for asynchronous registrations, a failed synchronous registration without
+	 * fail fast being logged while the application stays up.
+	 */
+	@Bean
+	@ConditionalOnBean(NacosServiceRegistry.class)
+	@ConditionalOnProperty(value = "spring.cloud.nacos.discovery.register-async", havingValue = "true")
+	@ConditionalOnEnabledHealthIndicator("nacos-registration")
+	public HealthIndicator nacosRegistrationHealthIndicator(
+			NacosServiceRegistry nacosServiceRegistry) {
+		return new NacosRegistrationHealthIndicator(nacosServiceRegistry);
 	}
 
 }
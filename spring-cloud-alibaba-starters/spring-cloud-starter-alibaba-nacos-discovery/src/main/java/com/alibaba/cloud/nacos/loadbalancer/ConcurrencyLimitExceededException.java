@@ -0,0 +1,41 @@
+/*
+ * Copyright 2013-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alibaba.cloud.nacos.loadbalancer;
+
+/**
+ * A {@code ConcurrencyLimitExceededException} is thrown when every available instance of
+ * a service is at its {@link ConcurrencyLimiter concurrency limit}, so that the request
+ * fails fast instead of overloading an instance.
+ *
+ * @author Spring Cloud Alibaba contributors
+ * @since 2021.0.4.0
+ */
+public class ConcurrencyLimitExceededException extends RuntimeException {
+
+	private final String serviceId;
+
+	public ConcurrencyLimitExceededException(String serviceId) {
+		super("All instances of service " + serviceId
+				+ " are at their concurrency limit");
+		this.serviceId = serviceId;
+	}
+
+	public String getServiceId() {
+		return serviceId;
+	}
+
+}
@@ -0,0 +1,293 @@
+/*
+ * Copyright 2013-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alibaba.cloud.nacos.loadbalancer;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.DoubleUnaryOperator;
+
+import com.alibaba.cloud.nacos.balancer.NacosBalancer;
+import com.alibaba.cloud.nacos.balancer.WeightedInstanceSelector;
+
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.CompletionContext;
+import org.springframework.cloud.client.loadbalancer.LoadBalancerLifecycle;
+import org.springframework.cloud.client.loadbalancer.Request;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.client.loadbalancer.TimedRequestContext;
+
+/**
+ * Adaptive limit of the in-flight requests of each instance, through the LoadBalancer
+ * lifecycle callbacks.
+ * <p>
+ * The limit follows a gradient algorithm driven by the response times: each response
+ * time is compared with the long-term average of the response times of the instance.
+ * While responses are not slower than the average times the tolerance, the limit grows
+ * by its square root, the allowed queue. When they get slower the limit shrinks in
+ * proportion, down to half. Each new estimate is smoothed into the limit, and a failed
+ * request decreases it by 10%. The limit only grows while at least half of it is used.
+ * <p>
+ * The state is kept in a {@link ConcurrentHashMap} keyed by instance id and updated with
+ * atomics only, so recording never blocks the request path.
+ *
+ * @author Spring Cloud Alibaba contributors
+ * @since 2021.0.4.0
+ */
+public class ConcurrencyLimiter
+		implements LoadBalancerLifecycle<Object, Object, ServiceInstance> {
+
+	private final Map<String, InstanceLimit> limits = new ConcurrentHashMap<>(16);
+
+	private final double initialLimit;
+
+	private final double minLimit;
+
+	private final double maxLimit;
+
+	private final double rttTolerance;
+
+	private final double smoothing;
+
+	private final int longWindow;
+
+	public ConcurrencyLimiter(NacosLoadBalancerProperties properties) {
+		NacosLoadBalancerProperties.ConcurrencyLimit concurrencyLimit = properties
+				.getConcurrencyLimit();
+		this.minLimit = Math.max(concurrencyLimit.getMinLimit(), 1);
+		this.maxLimit = Math.max(concurrencyLimit.getMaxLimit(), this.minLimit);
+		this.initialLimit = Math.min(
+				Math.max(concurrencyLimit.getInitialLimit(), this.minLimit),
+				this.maxLimit);
+		this.rttTolerance = Math.max(concurrencyLimit.getRttTolerance(), 1D);
+		this.smoothing = Math.min(Math.max(concurrencyLimit.getSmoothing(), 0.01D), 1D);
+		this.longWindow = Math.max(concurrencyLimit.getLongWindow(), 1);
+	}
+
+	/**
+	 * Whether the instance has as many in-flight requests as its limit.
+	 * @param instance service instance
+	 * @return true if the instance is at its limit
+	 */
+	public boolean isSaturated(ServiceInstance instance) {
+		InstanceLimit limit = limits.get(NacosBalancer.instanceKey(instance));
+		return limit != null && limit.isSaturated();
+	}
+
+	/**
+	 * Return a selector without the saturated instances of the given selector.
+	 * @param selector selector of the selected cluster
+	 * @return the given selector if none of its instances is saturated, a selector
+	 * without the saturated instances, or null if all of them are saturated
+	 */
+	public WeightedInstanceSelector filter(WeightedInstanceSelector selector) {
+		int size = selector.size();
+		Set<String> saturated = null;
+		for (int i = 0; i < size; i++) {
+			String key = NacosBalancer.instanceKey(selector.getInstance(i));
+			InstanceLimit limit = limits.get(key);
+			if (limit != null && limit.isSaturated()) {
+				if (saturated == null) {
+					saturated = new HashSet<>();
+				}
+				saturated.add(key);
+			}
+		}
+		if (saturated == null) {
+			return selector;
+		}
+		if (saturated.size() == size) {
+			return null;
+		}
+		Set<String> excluded = saturated;
+		return selector
+				.exclude(instance -> excluded.contains(NacosBalancer.instanceKey(instance)));
+	}
+
+	/**
+	 * Return the limit of an instance.
+	 * @param key instance key, see {@link NacosBalancer#instanceKey(ServiceInstance)}
+	 * @return limit of the instance, or null if no request was sent to it yet
+	 */
+	public InstanceLimit getLimit(String key) {
+		return limits.get(key);
+	}
+
+	/**
+	 * Drop the state of instances that are no longer in the given list.
+	 * @param instances current instances
+	 */
+	public void retain(List<ServiceInstance> instances) {
+		Set<String> keys = new HashSet<>(instances.size() * 2);
+		for (ServiceInstance instance : instances) {
+			keys.add(NacosBalancer.instanceKey(instance));
+		}
+		limits.keySet().retainAll(keys);
+	}
+
+	@Override
+	public void onStart(Request<Object> request) {
+	}
+
+	@Override
+	public void onStartRequest(Request<Object> request,
+			Response<ServiceInstance> lbResponse) {
+		if (lbResponse == null || !lbResponse.hasServer()) {
+			return;
+		}
+		if (request != null && request.getContext() instanceof TimedRequestContext) {
+			TimedRequestContext context = (TimedRequestContext) request.getContext();
+			if (context.getRequestStartTime() == 0) {
+				context.setRequestStartTime(System.nanoTime());
+			}
+		}
+		limits.computeIfAbsent(NacosBalancer.instanceKey(lbResponse.getServer()),
+				key -> new InstanceLimit(initialLimit)).inFlight.incrementAndGet();
+	}
+
+	@Override
+	public void onComplete(
+			CompletionContext<Object, ServiceInstance, Object> completionContext) {
+		Response<ServiceInstance> lbResponse = completionContext
+				.getLoadBalancerResponse();
+		if (lbResponse == null || !lbResponse.hasServer()) {
+			return;
+		}
+		InstanceLimit limit = limits
+				.get(NacosBalancer.instanceKey(lbResponse.getServer()));
+		if (limit == null) {
+			return;
+		}
+		int inFlight = limit.inFlight.getAndUpdate(count -> count > 0 ? count - 1 : 0);
+		CompletionContext.Status status = completionContext.status();
+		if (status == CompletionContext.Status.FAILED) {
+			limit.update(current -> clamp(current * 0.9));
+			return;
+		}
+		if (status != CompletionContext.Status.SUCCESS) {
+			return;
+		}
+		Request<Object> request = completionContext.getLoadBalancerRequest();
+		if (request != null && request.getContext() instanceof TimedRequestContext) {
+			long startTime = ((TimedRequestContext) request.getContext())
+					.getRequestStartTime();
+			if (startTime != 0) {
+				sample(limit, Math.max(System.nanoTime() - startTime, 1L), inFlight);
+			}
+		}
+	}
+
+	private void sample(InstanceLimit limit, long rtt, int inFlight) {
+		double longRtt = limit.updateLongRtt(rtt, longWindow);
+		if (inFlight < limit.getLimit() / 2) {
+			// not enough load to tell whether the instance could take more
+			return;
+		}
+		double gradient = Math.max(0.5, Math.min(1D, rttTolerance * longRtt / rtt));
+		limit.update(current -> {
+			double estimate = current * gradient + Math.sqrt(current);
+			return clamp(current * (1 - smoothing) + estimate * smoothing);
+		});
+	}
+
+	private double clamp(double limit) {
+		return Math.min(Math.max(limit, minLimit), maxLimit);
+	}
+
+	/**
+	 * Concurrency limit of a single instance.
+	 */
+	public static final class InstanceLimit {
+
+		private static final long UNKNOWN = Double.doubleToRawLongBits(-1D);
+
+		private final AtomicInteger inFlight = new AtomicInteger();
+
+		private final AtomicLong limit;
+
+		private final AtomicLong longRtt = new AtomicLong(UNKNOWN);
+
+		private InstanceLimit(double initialLimit) {
+			this.limit = new AtomicLong(Double.doubleToRawLongBits(initialLimit));
+		}
+
+		/**
+		 * @return the number of requests sent to the instance and not completed yet
+		 */
+		public int getInFlight() {
+			return inFlight.get();
+		}
+
+		/**
+		 * @return the current limit of in-flight requests
+		 */
+		public double getLimit() {
+			return Double.longBitsToDouble(limit.get());
+		}
+
+		/**
+		 * @return the long-term average response time in nanoseconds, or a negative
+		 * value if no response time was recorded yet
+		 */
+		public double getLongRtt() {
+			return Double.longBitsToDouble(longRtt.get());
+		}
+
+		boolean isSaturated() {
+			return inFlight.get() >= (int) getLimit();
+		}
+
+		void update(DoubleUnaryOperator function) {
+			long bits;
+			long next;
+			do {
+				bits = limit.get();
+				next = Double.doubleToRawLongBits(
+						function.applyAsDouble(Double.longBitsToDouble(bits)));
+			}
+			while (!limit.compareAndSet(bits, next));
+		}
+
+		double updateLongRtt(long rtt, int window) {
+			long bits;
+			double next;
+			do {
+				bits = longRtt.get();
+				double previous = Double.longBitsToDouble(bits);
+				if (previous < 0) {
+					next = rtt;
+				}
+				else {
+					next = previous + (rtt - previous) / window;
+					if (next > 2D * rtt) {
+						// the average lags far behind a drop of the response time,
+						// catch up so that the limit can grow again
+						next *= 0.95;
+					}
+				}
+			}
+			while (!longRtt.compareAndSet(bits, Double.doubleToRawLongBits(next)));
+			return next;
+		}
+
+	}
+
+}
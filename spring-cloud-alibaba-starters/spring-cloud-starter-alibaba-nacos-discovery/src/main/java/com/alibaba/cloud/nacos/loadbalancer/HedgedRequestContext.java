@@ -0,0 +1,67 @@
+/*
+ * Copyright 2013-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alibaba.cloud.nacos.loadbalancer;
+
+import java.util.Set;
+
+import com.alibaba.cloud.nacos.balancer.NacosBalancer;
+
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.RequestData;
+import org.springframework.cloud.client.loadbalancer.RequestDataContext;
+
+/**
+ * Context of a load balancer request that is one of the attempts of a hedged request.
+ * {@link NacosLoadBalancer} does not choose the instances already chosen for the other
+ * attempts, so that each attempt goes to a distinct instance.
+ *
+ * @author Spring Cloud Alibaba contributors
+ * @since 2021.0.4.0
+ */
+public class HedgedRequestContext extends RequestDataContext {
+
+	private final Set<String> excludedInstances;
+
+	/**
+	 * @param requestData data of the client request
+	 * @param hint load balancer hint
+	 * @param excludedInstances keys, see {@link NacosBalancer#instanceKey}, of the
+	 * instances chosen for the other attempts, updated as they are chosen
+	 */
+	public HedgedRequestContext(RequestData requestData, String hint,
+			Set<String> excludedInstances) {
+		super(requestData, hint);
+		this.excludedInstances = excludedInstances;
+	}
+
+	/**
+	 * @return keys of the instances that must not be chosen
+	 */
+	public Set<String> getExcludedInstances() {
+		return excludedInstances;
+	}
+
+	/**
+	 * @param instance a service instance
+	 * @return true if the instance was chosen for another attempt
+	 */
+	public boolean isExcluded(ServiceInstance instance) {
+		return !excludedInstances.isEmpty()
+				&& excludedInstances.contains(NacosBalancer.instanceKey(instance));
+	}
+
+}
@@ -0,0 +1,374 @@
+/*
+ * Copyright 2013-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alibaba.cloud.nacos.loadbalancer;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import com.alibaba.cloud.nacos.balancer.NacosBalancer;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+import reactor.core.scheduler.Schedulers;
+
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.CompletionContext;
+import org.springframework.cloud.client.loadbalancer.DefaultRequest;
+import org.springframework.cloud.client.loadbalancer.EmptyResponse;
+import org.springframework.cloud.client.loadbalancer.LoadBalancerLifecycle;
+import org.springframework.cloud.client.loadbalancer.LoadBalancerLifecycleValidator;
+import org.springframework.cloud.client.loadbalancer.RequestData;
+import org.springframework.cloud.client.loadbalancer.RequestDataContext;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.client.loadbalancer.ResponseData;
+import org.springframework.cloud.client.loadbalancer.reactive.ReactiveLoadBalancer;
+
+/**
+ * Load balances the requests of the hedging HTTP clients, sending a second request to
+ * another instance when the first one is slow, as decided by a {@link HedgingPolicy}.
+ * <p>
+ * Each attempt is a load balancer request of its own, going through the
+ * {@link LoadBalancerLifecycle} callbacks so that the outlier detection, the load
+ * tracking and the concurrency limits see it. The attempt that loses is cancelled and
+ * completes as {@link CompletionContext.Status#DISCARD discarded}.
+ *
+ * @author Spring Cloud Alibaba contributors
+ * @see NacosHedgingExchangeFilterFunction
+ * @see NacosHedgingClientHttpRequestInterceptor
+ */
+class HedgingExecutor {
+
+	private final ReactiveLoadBalancer.Factory<ServiceInstance> loadBalancerFactory;
+
+	private final HedgingPolicy hedgingPolicy;
+
+	HedgingExecutor(ReactiveLoadBalancer.Factory<ServiceInstance> loadBalancerFactory,
+			HedgingPolicy hedgingPolicy) {
+		this.loadBalancerFactory = loadBalancerFactory;
+		this.hedgingPolicy = hedgingPolicy;
+	}
+
+	HedgingPolicy getHedgingPolicy() {
+		return hedgingPolicy;
+	}
+
+	/**
+	 * Send a request to an instance of the service, hedging it if asked to.
+	 * @param serviceId id of service
+	 * @param requestData data of the request
+	 * @param hedge whether the request may be hedged
+	 * @param send sends the request to the given instance, told whether the attempt is
+	 * a hedge, empty if the request could not be sent
+	 * @param responseData data of a response, for the lifecycle callbacks
+	 * @param release releases a response that arrived too late to be used
+	 * @param <T> type of the responses
+	 * @return the first response, empty if no instance could be chosen
+	 */
+	<T> Mono<T> execute(String serviceId, RequestData requestData, boolean hedge,
+			BiFunction<ServiceInstance, Boolean, Mono<T>> send,
+			Function<T, ResponseData> responseData, Consumer<T> release) {
+		Attempts<T> attempts = new Attempts<>(serviceId, requestData, send,
+				responseData);
+		if (!hedge) {
+			return attempts.next(false);
+		}
+		long delay = hedgingPolicy.onRequest(serviceId);
+		return Mono.create(sink -> new Race<>(attempts, sink, release).start(delay));
+	}
+
+	private Mono<Response<ServiceInstance>> choose(String serviceId,
+			DefaultRequest<RequestDataContext> request) {
+		ReactiveLoadBalancer<ServiceInstance> loadBalancer = loadBalancerFactory
+				.getInstance(serviceId);
+		if (loadBalancer == null) {
+			return Mono.just(new EmptyResponse());
+		}
+		return Mono.from(loadBalancer.choose(request));
+	}
+
+	private String getHint(String serviceId) {
+		Map<String, String> hints = loadBalancerFactory.getProperties(serviceId)
+				.getHint();
+		String hint = hints.get(serviceId);
+		return hint != null ? hint : hints.getOrDefault("default", "default");
+	}
+
+	/**
+	 * The attempts of a request, each going to an instance that no other attempt chose.
+	 */
+	private final class Attempts<T> {
+
+		private final String serviceId;
+
+		private final RequestData requestData;
+
+		private final BiFunction<ServiceInstance, Boolean, Mono<T>> send;
+
+		private final Function<T, ResponseData> responseData;
+
+		private final Set<LoadBalancerLifecycle> lifecycles;
+
+		private final String hint;
+
+		private final Set<String> chosen = ConcurrentHashMap.newKeySet();
+
+		private Attempts(String serviceId, RequestData requestData,
+				BiFunction<ServiceInstance, Boolean, Mono<T>> send,
+				Function<T, ResponseData> responseData) {
+			this.serviceId = serviceId;
+			this.requestData = requestData;
+			this.send = send;
+			this.responseData = responseData;
+			this.lifecycles = LoadBalancerLifecycleValidator
+					.getSupportedLifecycleProcessors(
+							loadBalancerFactory.getInstances(serviceId,
+									LoadBalancerLifecycle.class),
+							RequestDataContext.class, ResponseData.class,
+							ServiceInstance.class);
+			this.hint = getHint(serviceId);
+		}
+
+		/**
+		 * @return true if an instance was chosen for an attempt
+		 */
+		private boolean hasChosen() {
+			return !chosen.isEmpty();
+		}
+
+		/**
+		 * @param hedged whether the attempt is a hedge of the request
+		 * @return the response of the instance chosen for the attempt, empty if every
+		 * instance was already chosen or if the request could not be sent
+		 */
+		@SuppressWarnings("unchecked")
+		private Mono<T> next(boolean hedged) {
+			DefaultRequest<RequestDataContext> lbRequest = new DefaultRequest<>(hedged
+					? new HedgedRequestContext(requestData, hint, chosen)
+					: new RequestDataContext(requestData, hint));
+			lifecycles.forEach(lifecycle -> lifecycle.onStart(lbRequest));
+			return choose(serviceId, lbRequest).flatMap(lbResponse -> {
+				ServiceInstance instance = lbResponse.getServer();
+				if (instance == null
+						|| !chosen.add(NacosBalancer.instanceKey(instance))) {
+					lifecycles.forEach(lifecycle -> lifecycle.onComplete(
+							new CompletionContext<>(CompletionContext.Status.DISCARD,
+									lbRequest, lbResponse)));
+					return Mono.empty();
+				}
+				lifecycles.forEach(
+						lifecycle -> lifecycle.onStartRequest(lbRequest, lbResponse));
+				AtomicBoolean completed = new AtomicBoolean();
+				long start = System.nanoTime();
+				return send.apply(instance, hedged).doOnSuccess(response -> {
+					if (response == null) {
+						// the request could not be sent
+						if (completed.compareAndSet(false, true)) {
+							lifecycles.forEach(lifecycle -> lifecycle.onComplete(
+									new CompletionContext<>(
+											CompletionContext.Status.DISCARD, lbRequest,
+											lbResponse)));
+						}
+					}
+					else if (completed.compareAndSet(false, true)) {
+						if (!hedged) {
+							hedgingPolicy.recordResponseTime(serviceId,
+									System.nanoTime() - start);
+						}
+						lifecycles.forEach(lifecycle -> lifecycle.onComplete(
+								new CompletionContext<>(CompletionContext.Status.SUCCESS,
+										lbRequest, lbResponse,
+										responseData.apply(response))));
+					}
+				}).doOnError(throwable -> {
+					if (completed.compareAndSet(false, true)) {
+						lifecycles.forEach(lifecycle -> lifecycle
+								.onComplete(new CompletionContext<>(
+										CompletionContext.Status.FAILED, throwable,
+										lbRequest, lbResponse)));
+					}
+				}).doOnCancel(() -> {
+					if (completed.compareAndSet(false, true)) {
+						// a slow request beaten by its hedge still counts, its elapsed
+						// time being a lower bound of its response time
+						if (!hedged) {
+							hedgingPolicy.recordResponseTime(serviceId,
+									System.nanoTime() - start);
+						}
+						lifecycles.forEach(lifecycle -> lifecycle.onComplete(
+								new CompletionContext<>(CompletionContext.Status.DISCARD,
+										lbRequest, lbResponse)));
+					}
+				});
+			});
+		}
+
+	}
+
+	/**
+	 * A request and its hedge racing, the first response wins. Errors do not trigger
+	 * hedges, the request fails when all the attempts sent have failed.
+	 */
+	private final class Race<T> {
+
+		private final Attempts<T> attempts;
+
+		private final MonoSink<T> sink;
+
+		private final Consumer<T> release;
+
+		private final Disposable.Composite disposables = Disposables.composite();
+
+		private int pending;
+
+		private boolean done;
+
+		private boolean hedged;
+
+		private Throwable error;
+
+		private Race(Attempts<T> attempts, MonoSink<T> sink, Consumer<T> release) {
+			this.attempts = attempts;
+			this.sink = sink;
+			this.release = release;
+		}
+
+		private void start(long delayNanos) {
+			sink.onDispose(disposables);
+			subscribe(false);
+			disposables.add(
+					Schedulers.parallel().schedule(this::hedge, delayNanos,
+							TimeUnit.NANOSECONDS));
+		}
+
+		private void hedge() {
+			synchronized (this) {
+				// no hedge when the first attempt has not even chosen an instance yet
+				if (done || !attempts.hasChosen()) {
+					return;
+				}
+			}
+			if (!hedgingPolicy.tryAcquireHedge(attempts.serviceId)) {
+				return;
+			}
+			synchronized (this) {
+				hedged = true;
+			}
+			subscribe(true);
+		}
+
+		private void subscribe(boolean hedge) {
+			synchronized (this) {
+				if (done) {
+					return;
+				}
+				pending++;
+			}
+			AtomicBoolean received = new AtomicBoolean();
+			disposables.add(attempts.next(hedge).subscribe(response -> {
+				received.set(true);
+				onResponse(response, hedge);
+			}, this::onError, () -> {
+				if (!received.get()) {
+					onEmpty(hedge);
+				}
+			}));
+		}
+
+		private void onResponse(T response, boolean hedge) {
+			boolean won;
+			boolean wasHedged;
+			synchronized (this) {
+				pending--;
+				won = !done;
+				done = true;
+				wasHedged = hedged;
+			}
+			if (!won) {
+				release.accept(response);
+				return;
+			}
+			if (wasHedged) {
+				hedgingPolicy.record(attempts.serviceId,
+						hedge ? HedgingPolicy.Outcome.HEDGE_WON
+								: HedgingPolicy.Outcome.PRIMARY_WON);
+			}
+			// cancel the other attempt before the response is handed over, so that it
+			// is completed by the time the caller sees the response
+			disposables.dispose();
+			sink.success(response);
+		}
+
+		private void onError(Throwable throwable) {
+			Throwable failure;
+			synchronized (this) {
+				pending--;
+				if (error == null) {
+					error = throwable;
+				}
+				else if (error != throwable) {
+					error.addSuppressed(throwable);
+				}
+				if (done || pending > 0) {
+					return;
+				}
+				done = true;
+				failure = error;
+			}
+			sink.error(failure);
+		}
+
+		private void onEmpty(boolean hedge) {
+			boolean finish;
+			Throwable failure;
+			synchronized (this) {
+				pending--;
+				if (hedge) {
+					hedged = false;
+				}
+				finish = !done && pending == 0;
+				if (finish) {
+					done = true;
+				}
+				failure = error;
+			}
+			if (hedge) {
+				hedgingPolicy.refundHedge(attempts.serviceId);
+				hedgingPolicy.record(attempts.serviceId,
+						HedgingPolicy.Outcome.UNAVAILABLE);
+			}
+			if (!finish) {
+				return;
+			}
+			if (failure != null) {
+				sink.error(failure);
+			}
+			else {
+				// no instance could be chosen
+				sink.success();
+			}
+		}
+
+	}
+
+}
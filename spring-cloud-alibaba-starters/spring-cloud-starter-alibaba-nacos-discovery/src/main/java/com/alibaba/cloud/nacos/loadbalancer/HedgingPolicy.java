@@ -0,0 +1,247 @@
+/*
+ * Copyright 2013-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alibaba.cloud.nacos.loadbalancer;
+
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import com.alibaba.cloud.nacos.metrics.NacosHedgingMetrics;
+
+import org.springframework.http.HttpMethod;
+
+/**
+ * When and how often the requests of a service are hedged.
+ * <p>
+ * A second request is sent to another instance when the first one has not responded
+ * within a percentile of the recent response times of the service, bounded by the
+ * configured delays. The response times of the last {@value #SAMPLES} first attempts are
+ * kept in a ring and the percentile is computed again every {@value #REFRESH_INTERVAL}
+ * samples. Hedges are not sampled, and a first attempt beaten by its hedge is sampled
+ * with its elapsed time, so that the percentile does not drift towards the winners.
+ * <p>
+ * Hedges are paid from a budget per service: each hedgeable request adds the budget
+ * percentage of a hedge to it, and each hedge takes a whole one. The budget holds at most
+ * {@value #MAX_HEDGES} hedges, so that hedging stays bounded in bursts of slow responses.
+ *
+ * @author Spring Cloud Alibaba contributors
+ * @since 2021.0.4.0
+ */
+public class HedgingPolicy {
+
+	static final int SAMPLES = 256;
+
+	static final int REFRESH_INTERVAL = 16;
+
+	/**
+	 * Response times needed before the delay follows the percentile.
+	 */
+	static final int MIN_SAMPLES = 32;
+
+	static final int MAX_HEDGES = 10;
+
+	/**
+	 * Cost of a hedge, the budget being counted in hundredths of a hedge.
+	 */
+	private static final long HEDGE_COST = 100;
+
+	private final Map<String, ServiceHedging> services = new ConcurrentHashMap<>(16);
+
+	private final Set<HttpMethod> methods;
+
+	private final double percentile;
+
+	private final long minDelayNanos;
+
+	private final long maxDelayNanos;
+
+	private final long deposit;
+
+	private NacosHedgingMetrics metrics;
+
+	public HedgingPolicy(NacosLoadBalancerProperties.Hedging properties) {
+		this.methods = properties.getMethods().isEmpty()
+				? EnumSet.noneOf(HttpMethod.class)
+				: EnumSet.copyOf(properties.getMethods());
+		this.percentile = Math.min(Math.max(properties.getPercentile(), 0D), 1D);
+		this.minDelayNanos = properties.getMinDelay().toNanos();
+		this.maxDelayNanos = Math.max(properties.getMaxDelay().toNanos(), minDelayNanos);
+		this.deposit = Math.min(Math.max(properties.getBudgetPercent(), 0), 100);
+	}
+
+	/**
+	 * Set the meters counting the outcomes of the hedges.
+	 * @param metrics hedging meters, may be null
+	 */
+	public void setMetrics(NacosHedgingMetrics metrics) {
+		this.metrics = metrics;
+	}
+
+	/**
+	 * @param method HTTP method of a request
+	 * @return true if requests with this method may be hedged
+	 */
+	public boolean isHedgeable(HttpMethod method) {
+		return method != null && methods.contains(method);
+	}
+
+	/**
+	 * Record a hedgeable request, adding to the hedge budget of its service.
+	 * @param serviceId id of service
+	 * @return delay in nanoseconds after which the request may be hedged
+	 */
+	public long onRequest(String serviceId) {
+		ServiceHedging hedging = service(serviceId);
+		hedging.budget.accumulateAndGet(deposit,
+				(balance, amount) -> Math.min(balance + amount, MAX_HEDGES * HEDGE_COST));
+		return hedging.delayNanos;
+	}
+
+	/**
+	 * Take a hedge from the budget of a service.
+	 * @param serviceId id of service
+	 * @return true if the request may be hedged
+	 */
+	public boolean tryAcquireHedge(String serviceId) {
+		AtomicLong budget = service(serviceId).budget;
+		long balance;
+		do {
+			balance = budget.get();
+			if (balance < HEDGE_COST) {
+				record(serviceId, Outcome.THROTTLED);
+				return false;
+			}
+		}
+		while (!budget.compareAndSet(balance, balance - HEDGE_COST));
+		return true;
+	}
+
+	/**
+	 * Give back a hedge that could not be sent.
+	 * @param serviceId id of service
+	 */
+	public void refundHedge(String serviceId) {
+		service(serviceId).budget.accumulateAndGet(HEDGE_COST,
+				(balance, amount) -> Math.min(balance + amount, MAX_HEDGES * HEDGE_COST));
+	}
+
+	/**
+	 * Record the response time of the first attempt of a request.
+	 * @param serviceId id of service
+	 * @param nanos response time in nanoseconds, or elapsed time if the attempt was
+	 * cancelled
+	 */
+	public void recordResponseTime(String serviceId, long nanos) {
+		ServiceHedging hedging = service(serviceId);
+		long count = hedging.count.getAndIncrement();
+		hedging.samples.set((int) (count % SAMPLES), nanos);
+		long recorded = count + 1;
+		if (recorded >= MIN_SAMPLES && recorded % REFRESH_INTERVAL == 0) {
+			hedging.delayNanos = computeDelay(hedging.samples,
+					(int) Math.min(recorded, SAMPLES));
+		}
+	}
+
+	/**
+	 * Record how a hedged request ended.
+	 * @param serviceId id of service
+	 * @param outcome outcome of the hedge
+	 */
+	public void record(String serviceId, Outcome outcome) {
+		NacosHedgingMetrics metrics = this.metrics;
+		if (metrics != null) {
+			metrics.record(serviceId, outcome);
+		}
+	}
+
+	/**
+	 * @param serviceId id of service
+	 * @return current delay in nanoseconds after which requests of the service are
+	 * hedged
+	 */
+	public long getDelay(String serviceId) {
+		return service(serviceId).delayNanos;
+	}
+
+	private long computeDelay(AtomicLongArray samples, int count) {
+		long[] sorted = new long[count];
+		for (int i = 0; i < count; i++) {
+			sorted[i] = samples.get(i);
+		}
+		Arrays.sort(sorted);
+		int index = (int) Math.ceil(percentile * count) - 1;
+		long delay = sorted[Math.min(Math.max(index, 0), count - 1)];
+		return Math.min(Math.max(delay, minDelayNanos), maxDelayNanos);
+	}
+
+	private ServiceHedging service(String serviceId) {
+		ServiceHedging hedging = services.get(serviceId);
+		if (hedging == null) {
+			hedging = services.computeIfAbsent(serviceId,
+					id -> new ServiceHedging(maxDelayNanos));
+		}
+		return hedging;
+	}
+
+	/**
+	 * Outcome of a hedge.
+	 */
+	public enum Outcome {
+
+		/**
+		 * A second request was sent and the first one answered first.
+		 */
+		PRIMARY_WON,
+
+		/**
+		 * A second request was sent and answered first.
+		 */
+		HEDGE_WON,
+
+		/**
+		 * The request was slow but the hedge budget was spent.
+		 */
+		THROTTLED,
+
+		/**
+		 * The request was slow but no other instance could be chosen.
+		 */
+		UNAVAILABLE
+
+	}
+
+	private static final class ServiceHedging {
+
+		private final AtomicLongArray samples = new AtomicLongArray(SAMPLES);
+
+		private final AtomicLong count = new AtomicLong();
+
+		private final AtomicLong budget = new AtomicLong();
+
+		private volatile long delayNanos;
+
+		private ServiceHedging(long delayNanos) {
+			this.delayNanos = delayNanos;
+		}
+
+	}
+
+}
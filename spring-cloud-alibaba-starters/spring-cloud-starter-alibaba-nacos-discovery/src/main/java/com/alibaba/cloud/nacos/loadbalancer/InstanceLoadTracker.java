@@ -0,0 +1,185 @@
+/*
+ * Copyright 2013-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alibaba.cloud.nacos.loadbalancer;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.alibaba.cloud.nacos.balancer.NacosBalancer;
+
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.CompletionContext;
+import org.springframework.cloud.client.loadbalancer.LoadBalancerLifecycle;
+import org.springframework.cloud.client.loadbalancer.Request;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.client.loadbalancer.TimedRequestContext;
+
+/**
+ * Tracks the number of in-flight requests and an exponentially weighted moving average
+ * of the response time of each instance, through the LoadBalancer lifecycle callbacks.
+ * <p>
+ * The state is kept in a {@link ConcurrentHashMap} keyed by instance id and updated with
+ * atomics only, so recording never blocks the request path.
+ *
+ * @author Spring Cloud Alibaba contributors
+ * @since 2021.0.4.0
+ */
+public class InstanceLoadTracker
+		implements LoadBalancerLifecycle<Object, Object, ServiceInstance> {
+
+	private final Map<String, InstanceLoad> loads = new ConcurrentHashMap<>(16);
+
+	private final long decayNanos;
+
+	public InstanceLoadTracker(NacosLoadBalancerProperties properties) {
+		this.decayNanos = Math.max(
+				properties.getLeastLoaded().getDecayTime().toNanos(), 1L);
+	}
+
+	/**
+	 * Return the tracked load of an instance.
+	 * @param instance service instance
+	 * @return load of the instance, or null if no request was sent to it yet
+	 */
+	public InstanceLoad getLoad(ServiceInstance instance) {
+		return loads.get(NacosBalancer.instanceKey(instance));
+	}
+
+	/**
+	 * Drop the state of instances that are no longer in the given list.
+	 * @param instances current instances
+	 */
+	public void retain(List<ServiceInstance> instances) {
+		Set<String> keys = new HashSet<>(instances.size() * 2);
+		for (ServiceInstance instance : instances) {
+			keys.add(NacosBalancer.instanceKey(instance));
+		}
+		loads.keySet().retainAll(keys);
+	}
+
+	@Override
+	public void onStart(Request<Object> request) {
+	}
+
+	@Override
+	public void onStartRequest(Request<Object> request,
+			Response<ServiceInstance> lbResponse) {
+		if (lbResponse == null || !lbResponse.hasServer()) {
+			return;
+		}
+		if (request != null && request.getContext() instanceof TimedRequestContext) {
+			((TimedRequestContext) request.getContext())
+					.setRequestStartTime(System.nanoTime());
+		}
+		loads.computeIfAbsent(NacosBalancer.instanceKey(lbResponse.getServer()),
+				key -> new InstanceLoad()).start();
+	}
+
+	@Override
+	public void onComplete(
+			CompletionContext<Object, ServiceInstance, Object> completionContext) {
+		Response<ServiceInstance> lbResponse = completionContext
+				.getLoadBalancerResponse();
+		if (lbResponse == null || !lbResponse.hasServer()) {
+			return;
+		}
+		InstanceLoad load = loads
+				.get(NacosBalancer.instanceKey(lbResponse.getServer()));
+		if (load == null) {
+			return;
+		}
+		if (completionContext.status() == CompletionContext.Status.DISCARD) {
+			// abandoned after being sent, such as the losing attempt of a hedged request
+			load.complete(-1, decayNanos);
+			return;
+		}
+		long responseTime = -1;
+		Request<Object> request = completionContext.getLoadBalancerRequest();
+		if (request != null && request.getContext() instanceof TimedRequestContext) {
+			long startTime = ((TimedRequestContext) request.getContext())
+					.getRequestStartTime();
+			if (startTime != 0) {
+				responseTime = System.nanoTime() - startTime;
+			}
+		}
+		load.complete(responseTime, decayNanos);
+	}
+
+	/**
+	 * Load of a single instance.
+	 */
+	public static final class InstanceLoad {
+
+		private static final long UNKNOWN = Double.doubleToRawLongBits(-1D);
+
+		private final AtomicInteger inFlight = new AtomicInteger();
+
+		private final AtomicLong responseTime = new AtomicLong(UNKNOWN);
+
+		private volatile long lastUpdateTime;
+
+		/**
+		 * @return the number of requests sent to the instance and not completed yet
+		 */
+		public int getInFlight() {
+			return inFlight.get();
+		}
+
+		/**
+		 * @return the moving average of the response time in nanoseconds, or a
+		 * negative value if no response time was recorded yet
+		 */
+		public double getResponseTime() {
+			return Double.longBitsToDouble(responseTime.get());
+		}
+
+		void start() {
+			inFlight.incrementAndGet();
+		}
+
+		void complete(long responseTimeNanos, long decayNanos) {
+			inFlight.updateAndGet(count -> count > 0 ? count - 1 : 0);
+			if (responseTimeNanos < 0) {
+				return;
+			}
+			long now = System.nanoTime();
+			long bits;
+			double next;
+			do {
+				bits = responseTime.get();
+				double previous = Double.longBitsToDouble(bits);
+				if (previous < 0) {
+					next = responseTimeNanos;
+				}
+				else {
+					double decay = Math.exp(
+							-Math.max(now - lastUpdateTime, 0L) / (double) decayNanos);
+					next = previous * decay + responseTimeNanos * (1 - decay);
+				}
+			}
+			while (!responseTime.compareAndSet(bits, Double.doubleToRawLongBits(next)));
+			lastUpdateTime = now;
+		}
+
+	}
+
+}
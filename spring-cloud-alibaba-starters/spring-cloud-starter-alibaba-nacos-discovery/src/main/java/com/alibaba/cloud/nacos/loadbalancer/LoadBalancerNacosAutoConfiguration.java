@@ -16,21 +16,150 @@
 
 package com.alibaba.cloud.nacos.loadbalancer;
 
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
 import com.alibaba.cloud.nacos.ConditionalOnNacosDiscoveryEnabled;
+import com.alibaba.cloud.nacos.NacosDiscoveryProperties;
+import com.alibaba.cloud.nacos.NacosServiceManager;
+import com.alibaba.cloud.nacos.discovery.NacosInstanceCache;
+import com.alibaba.cloud.nacos.metrics.NacosHedgingMetrics;
+import com.alibaba.cloud.nacos.utils.NacosThreads;
+import io.micrometer.core.instrument.MeterRegistry;
 
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.AutoConfigureAfter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.cloud.loadbalancer.annotation.LoadBalancerClients;
+import org.springframework.cloud.loadbalancer.support.LoadBalancerClientFactory;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
 
 /**
  * {@link org.springframework.boot.autoconfigure.EnableAutoConfiguration
  * Auto-configuration} that sets up LoadBalancer for Nacos.
  */
 @Configuration(proxyBeanMethods = false)
-@EnableConfigurationProperties
+@EnableConfigurationProperties(NacosLoadBalancerProperties.class)
 @ConditionalOnLoadBalancerNacos
 @ConditionalOnNacosDiscoveryEnabled
 @LoadBalancerClients(defaultConfiguration = NacosLoadBalancerClientConfiguration.class)
+@AutoConfigureAfter(name = {
+		"org.springframework.boot.actuate.autoconfigure.metrics.MetricsAutoConfiguration",
+		"org.springframework.boot.actuate.autoconfigure.metrics.CompositeMeterRegistryAutoConfiguration",
+		"org.springframework.boot.actuate.autoconfigure.metrics.export.simple.SimpleMetricsExportAutoConfiguration" })
 public class LoadBalancerNacosAutoConfiguration {
 
+	/**
+	 * The registry shares the instance cache of the discovery client when it is
+	 * enabled, otherwise it has its own.
+	 */
+	@Bean
+	@ConditionalOnMissingBean
+	@ConditionalOnProperty(value = "spring.cloud.loadbalancer.nacos.shared-supplier.enabled", havingValue = "true")
+	public NacosServiceInstanceListSupplierRegistry nacosServiceInstanceListSupplierRegistry(
+			ObjectProvider<NacosInstanceCache> nacosInstanceCache,
+			NacosServiceManager nacosServiceManager,
+			NacosDiscoveryProperties nacosDiscoveryProperties) {
+		NacosInstanceCache instanceCache = nacosInstanceCache.getIfAvailable();
+		if (instanceCache != null) {
+			return new NacosServiceInstanceListSupplierRegistry(instanceCache, false);
+		}
+		return new NacosServiceInstanceListSupplierRegistry(
+				new NacosInstanceCache(nacosServiceManager, nacosDiscoveryProperties),
+				true);
+	}
+
+	@Configuration(proxyBeanMethods = false)
+	@ConditionalOnProperty(value = "spring.cloud.loadbalancer.nacos.hedging.enabled", havingValue = "true")
+	public static class HedgingConfiguration {
+
+		@Bean
+		@ConditionalOnMissingBean
+		public HedgingPolicy nacosHedgingPolicy(
+				NacosLoadBalancerProperties nacosLoadBalancerProperties) {
+			return new HedgingPolicy(nacosLoadBalancerProperties.getHedging());
+		}
+
+		@Configuration(proxyBeanMethods = false)
+		@ConditionalOnClass(name = "io.micrometer.core.instrument.MeterRegistry")
+		@ConditionalOnProperty(value = "spring.cloud.loadbalancer.nacos.metrics.enabled", havingValue = "true")
+		public static class HedgingMetricsConfiguration {
+
+			@Bean
+			@ConditionalOnMissingBean
+			@ConditionalOnBean(MeterRegistry.class)
+			public NacosHedgingMetrics nacosHedgingMetrics(MeterRegistry meterRegistry,
+					HedgingPolicy nacosHedgingPolicy) {
+				NacosHedgingMetrics metrics = new NacosHedgingMetrics(meterRegistry);
+				nacosHedgingPolicy.setMetrics(metrics);
+				return metrics;
+			}
+
+		}
+
+	}
+
+	@Configuration(proxyBeanMethods = false)
+	@ConditionalOnProperty(value = "spring.cloud.loadbalancer.nacos.hedging.enabled", havingValue = "true")
+	@ConditionalOnClass(name = "org.springframework.web.reactive.function.client.WebClient")
+	public static class ReactiveHedgingConfiguration {
+
+		@Bean
+		@ConditionalOnMissingBean
+		public NacosHedgingExchangeFilterFunction nacosHedgingExchangeFilterFunction(
+				LoadBalancerClientFactory loadBalancerClientFactory,
+				HedgingPolicy nacosHedgingPolicy) {
+			return new NacosHedgingExchangeFilterFunction(loadBalancerClientFactory,
+					nacosHedgingPolicy);
+		}
+
+	}
+
+	@Configuration(proxyBeanMethods = false)
+	@ConditionalOnProperty(value = "spring.cloud.loadbalancer.nacos.hedging.enabled", havingValue = "true")
+	@ConditionalOnClass(name = "org.springframework.web.client.RestTemplate")
+	public static class BlockingHedgingConfiguration {
+
+		/**
+		 * Hedgeable requests are sent from a bounded pool of threads, virtual when they
+		 * are enabled. Without a {@link ClientHttpRequestFactory} bean, the hedges are
+		 * sent with the configured connect and read timeouts.
+		 */
+		@Bean
+		@ConditionalOnMissingBean
+		public NacosHedgingClientHttpRequestInterceptor nacosHedgingClientHttpRequestInterceptor(
+				LoadBalancerClientFactory loadBalancerClientFactory,
+				HedgingPolicy nacosHedgingPolicy,
+				ObjectProvider<ClientHttpRequestFactory> clientHttpRequestFactory,
+				NacosDiscoveryProperties nacosDiscoveryProperties,
+				NacosLoadBalancerProperties nacosLoadBalancerProperties) {
+			NacosLoadBalancerProperties.Hedging hedging = nacosLoadBalancerProperties
+					.getHedging();
+			ExecutorService executor = new ThreadPoolExecutor(0,
+					Math.max(hedging.getMaxThreads(), 1), 60L, TimeUnit.SECONDS,
+					new SynchronousQueue<>(), NacosThreads.threadFactory("nacos-hedging",
+							nacosDiscoveryProperties.isVirtualThreads()));
+			return new NacosHedgingClientHttpRequestInterceptor(
+					loadBalancerClientFactory, nacosHedgingPolicy,
+					clientHttpRequestFactory.getIfAvailable(() -> {
+						SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+						requestFactory.setConnectTimeout(
+								(int) hedging.getConnectTimeout().toMillis());
+						requestFactory.setReadTimeout(
+								(int) hedging.getReadTimeout().toMillis());
+						return requestFactory;
+					}), executor);
+		}
+
+	}
+
 }
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2013-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alibaba.cloud.nacos.loadbalancer;
+
+import com.alibaba.cloud.commons.lang.StringUtils;
+import com.alibaba.cloud.nacos.NacosDiscoveryProperties;
+import com.alibaba.cloud.nacos.balancer.ConsistentHashRing;
+import com.alibaba.cloud.nacos.balancer.WeightedInstanceSelector;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.Request;
+import org.springframework.cloud.client.loadbalancer.RequestData;
+import org.springframework.cloud.client.loadbalancer.RequestDataContext;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+
+/**
+ * Consistent hash load balancer.
+ * <p>
+ * Requests carrying the same value of the configured header, or cookie, are routed to
+ * the same instance of the selected cluster as long as that instance is available.
+ * Requests without a hash key are balanced by weighted random.
+ *
+ * @author Spring Cloud Alibaba contributors
+ * @since 2021.0.4.0
+ * @see ConsistentHashRing
+ */
+public class NacosConsistentHashLoadBalancer extends NacosLoadBalancer {
+
+	private final NacosLoadBalancerProperties.ConsistentHash properties;
+
+	/**
+	 * Ring of the last selected cluster, rebuilt when its instances change, not when
+	 * instances are filtered out for a request.
+	 */
+	private volatile ConsistentHashRing ring;
+
+	public NacosConsistentHashLoadBalancer(
+			ObjectProvider<ServiceInstanceListSupplier> serviceInstanceListSupplierProvider,
+			String serviceId, NacosDiscoveryProperties nacosDiscoveryProperties,
+			NacosLoadBalancerProperties nacosLoadBalancerProperties) {
+		super(serviceInstanceListSupplierProvider, serviceId, nacosDiscoveryProperties);
+		this.properties = nacosLoadBalancerProperties.getConsistentHash();
+	}
+
+	@Override
+	protected ServiceInstance choose(WeightedInstanceSelector selector,
+			Request<?> request) {
+		String key = hashKey(request);
+		if (StringUtils.isEmpty(key)) {
+			return selector.choose();
+		}
+		return getRing(selector.getOrigin()).choose(key, selector);
+	}
+
+	private ConsistentHashRing getRing(WeightedInstanceSelector selector) {
+		ConsistentHashRing current = this.ring;
+		if (current == null || !current.isBuiltFrom(selector)) {
+			current = ConsistentHashRing.build(selector, properties.getVirtualNodes(),
+					current);
+			this.ring = current;
+		}
+		return current;
+	}
+
+	private String hashKey(Request<?> request) {
+		if (request == null || !(request.getContext() instanceof RequestDataContext)) {
+			return null;
+		}
+		RequestData requestData = ((RequestDataContext) request.getContext())
+				.getClientRequest();
+		if (requestData == null) {
+			return null;
+		}
+		String key = null;
+		if (StringUtils.isNotEmpty(properties.getHeader())
+				&& requestData.getHeaders() != null) {
+			key = requestData.getHeaders().getFirst(properties.getHeader());
+		}
+		if (StringUtils.isEmpty(key) && StringUtils.isNotEmpty(properties.getCookie())
+				&& requestData.getCookies() != null) {
+			key = requestData.getCookies().getFirst(properties.getCookie());
+		}
+		return key;
+	}
+
+}
@@ -0,0 +1,234 @@
+/*
+ * Copyright 2013-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alibaba.cloud.nacos.loadbalancer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+
+import reactor.core.Exceptions;
+import reactor.core.publisher.Mono;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.LoadBalancerUriTools;
+import org.springframework.cloud.client.loadbalancer.RequestData;
+import org.springframework.cloud.client.loadbalancer.ResponseData;
+import org.springframework.cloud.client.loadbalancer.reactive.ReactiveLoadBalancer;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.client.ClientHttpRequest;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.http.client.support.HttpRequestWrapper;
+import org.springframework.util.Assert;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.StreamUtils;
+
+/**
+ * Load balancing {@link ClientHttpRequestInterceptor} that hedges the idempotent
+ * requests: when the instance chosen for a request has not responded within the delay of
+ * the {@link HedgingPolicy}, the request is also sent to another instance and the first
+ * response wins.
+ * <p>
+ * It replaces the {@code @LoadBalanced} interceptor, the URLs using the service id as
+ * host. Requests whose method is not hedgeable are load balanced once and go on through
+ * the interceptor chain. The first attempt of a hedgeable request also goes on through
+ * the interceptor chain, and so through the request factory of the
+ * {@code RestTemplate}, but from the given executor so that the calling thread can
+ * return the response of the hedge. The hedges are sent with the given request factory,
+ * which should have finite timeouts, bypassing the interceptors registered after this
+ * one. The response that loses is closed. When the executor is saturated, the first
+ * attempt is sent from the calling thread and no hedge is sent.
+ *
+ * @author Spring Cloud Alibaba contributors
+ * @since 2021.0.4.0
+ */
+public class NacosHedgingClientHttpRequestInterceptor
+		implements ClientHttpRequestInterceptor, DisposableBean {
+
+	private static final int RUNNING = 0;
+
+	private static final int CANCELLED = 1;
+
+	private static final int DONE = 2;
+
+	private final HedgingExecutor executor;
+
+	private final ClientHttpRequestFactory requestFactory;
+
+	private final ExecutorService requestExecutor;
+
+	/**
+	 * @param loadBalancerFactory load balancer factory
+	 * @param hedgingPolicy hedging policy
+	 * @param requestFactory factory of the hedges, which should have finite timeouts
+	 * @param requestExecutor bounded executor sending the attempts of the hedgeable
+	 * requests, shut down with the interceptor
+	 */
+	public NacosHedgingClientHttpRequestInterceptor(
+			ReactiveLoadBalancer.Factory<ServiceInstance> loadBalancerFactory,
+			HedgingPolicy hedgingPolicy, ClientHttpRequestFactory requestFactory,
+			ExecutorService requestExecutor) {
+		this.executor = new HedgingExecutor(loadBalancerFactory, hedgingPolicy);
+		this.requestFactory = requestFactory;
+		this.requestExecutor = requestExecutor;
+	}
+
+	@Override
+	public ClientHttpResponse intercept(HttpRequest request, byte[] body,
+			ClientHttpRequestExecution execution) throws IOException {
+		URI originalUri = request.getURI();
+		String serviceId = originalUri.getHost();
+		Assert.state(serviceId != null,
+				"Request URI does not contain a valid hostname: " + originalUri);
+		RequestData requestData = new RequestData(request);
+		boolean hedge = executor.getHedgingPolicy().isHedgeable(request.getMethod());
+		BiFunction<ServiceInstance, Boolean, Mono<ClientHttpResponse>> send = (instance,
+				hedged) -> {
+			Callable<ClientHttpResponse> call = hedged
+					? () -> send(request, body, instance)
+					: () -> execution.execute(new InstanceRequest(request, instance),
+							body);
+			return hedge ? sendAsync(call, !hedged) : Mono.fromCallable(call);
+		};
+		ClientHttpResponse response;
+		try {
+			response = executor.execute(serviceId, requestData, hedge, send,
+					clientResponse -> responseData(requestData, clientResponse),
+					ClientHttpResponse::close).block();
+		}
+		catch (RuntimeException e) {
+			Throwable cause = Exceptions.unwrap(e);
+			if (cause instanceof IOException) {
+				throw (IOException) cause;
+			}
+			throw e;
+		}
+		if (response == null) {
+			throw new IllegalStateException("No instances available for " + serviceId);
+		}
+		return response;
+	}
+
+	@Override
+	public void destroy() {
+		requestExecutor.shutdownNow();
+	}
+
+	/**
+	 * Send the request from the executor, closing the response if the attempt was
+	 * cancelled meanwhile.
+	 * @param call sends the request
+	 * @param callerRuns whether to send the request from the calling thread when the
+	 * executor is saturated, otherwise the attempt completes empty
+	 */
+	private Mono<ClientHttpResponse> sendAsync(Callable<ClientHttpResponse> call,
+			boolean callerRuns) {
+		return Mono.create(sink -> {
+			AtomicInteger state = new AtomicInteger(RUNNING);
+			Runnable task = () -> {
+				ClientHttpResponse response;
+				try {
+					response = call.call();
+				}
+				catch (Exception e) {
+					if (state.compareAndSet(RUNNING, DONE)) {
+						sink.error(e);
+					}
+					return;
+				}
+				if (state.compareAndSet(RUNNING, DONE)) {
+					sink.success(response);
+				}
+				else {
+					response.close();
+				}
+			};
+			Future<?> future;
+			try {
+				future = requestExecutor.submit(task);
+			}
+			catch (RejectedExecutionException e) {
+				if (callerRuns) {
+					task.run();
+				}
+				else {
+					sink.success();
+				}
+				return;
+			}
+			sink.onCancel(() -> {
+				if (state.compareAndSet(RUNNING, CANCELLED)) {
+					future.cancel(true);
+				}
+			});
+		});
+	}
+
+	private ClientHttpResponse send(HttpRequest request, byte[] body,
+			ServiceInstance instance) throws IOException {
+		ClientHttpRequest instanceRequest = requestFactory.createRequest(
+				LoadBalancerUriTools.reconstructURI(instance, request.getURI()),
+				request.getMethod());
+		instanceRequest.getHeaders().putAll(request.getHeaders());
+		if (body.length > 0) {
+			try (OutputStream output = instanceRequest.getBody()) {
+				StreamUtils.copy(body, output);
+			}
+		}
+		return instanceRequest.execute();
+	}
+
+	@SuppressWarnings("deprecation")
+	private static ResponseData responseData(RequestData requestData,
+			ClientHttpResponse response) {
+		Integer status;
+		try {
+			status = response.getRawStatusCode();
+		}
+		catch (IOException e) {
+			status = null;
+		}
+		return new ResponseData(response.getHeaders(), new LinkedMultiValueMap<>(),
+				requestData, status);
+	}
+
+	private static final class InstanceRequest extends HttpRequestWrapper {
+
+		private final URI uri;
+
+		private InstanceRequest(HttpRequest request, ServiceInstance instance) {
+			super(request);
+			this.uri = LoadBalancerUriTools.reconstructURI(instance, request.getURI());
+		}
+
+		@Override
+		public URI getURI() {
+			return uri;
+		}
+
+	}
+
+}
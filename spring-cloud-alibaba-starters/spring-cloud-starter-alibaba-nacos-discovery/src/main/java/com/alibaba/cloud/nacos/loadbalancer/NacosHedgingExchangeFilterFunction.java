@@ -0,0 +1,91 @@
+/*
+ * Copyright 2013-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alibaba.cloud.nacos.loadbalancer;
+
+import java.net.URI;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Mono;
+
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.LoadBalancerUriTools;
+import org.springframework.cloud.client.loadbalancer.RequestData;
+import org.springframework.cloud.client.loadbalancer.ResponseData;
+import org.springframework.cloud.client.loadbalancer.reactive.ReactiveLoadBalancer;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+
+/**
+ * Load balancing {@link ExchangeFilterFunction} that hedges the idempotent requests: when
+ * the instance chosen for a request has not responded within the delay of the
+ * {@link HedgingPolicy}, the request is also sent to another instance and the first
+ * response wins.
+ * <p>
+ * It replaces the {@code @LoadBalanced} filter, the URLs using the service id as host.
+ * Requests whose method is not hedgeable are load balanced once. Bodies of hedged
+ * requests are written once per attempt.
+ *
+ * @author Spring Cloud Alibaba contributors
+ * @since 2021.0.4.0
+ */
+public class NacosHedgingExchangeFilterFunction implements ExchangeFilterFunction {
+
+	private static final Logger log = LoggerFactory
+			.getLogger(NacosHedgingExchangeFilterFunction.class);
+
+	private final HedgingExecutor executor;
+
+	public NacosHedgingExchangeFilterFunction(
+			ReactiveLoadBalancer.Factory<ServiceInstance> loadBalancerFactory,
+			HedgingPolicy hedgingPolicy) {
+		this.executor = new HedgingExecutor(loadBalancerFactory, hedgingPolicy);
+	}
+
+	@Override
+	@SuppressWarnings("deprecation")
+	public Mono<ClientResponse> filter(ClientRequest request, ExchangeFunction next) {
+		URI originalUrl = request.url();
+		String serviceId = originalUrl.getHost();
+		if (serviceId == null) {
+			String message = "Request URI does not contain a valid hostname: "
+					+ originalUrl;
+			log.warn(message);
+			return Mono.just(
+					ClientResponse.create(HttpStatus.BAD_REQUEST).body(message).build());
+		}
+		RequestData requestData = new RequestData(request);
+		boolean hedge = executor.getHedgingPolicy().isHedgeable(request.method());
+		return executor.execute(serviceId, requestData, hedge,
+				(instance, hedged) -> next.exchange(ClientRequest.from(request)
+						.url(LoadBalancerUriTools.reconstructURI(instance, originalUrl))
+						.build()),
+				response -> new ResponseData(requestData, response),
+				response -> response.releaseBody().subscribe())
+				.switchIfEmpty(Mono.fromSupplier(() -> {
+					String message = "Load balancer does not contain an instance for the service "
+							+ serviceId;
+					log.warn(message);
+					return ClientResponse.create(HttpStatus.SERVICE_UNAVAILABLE)
+							.body(message).build();
+				}));
+	}
+
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2013-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alibaba.cloud.nacos.loadbalancer;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+import com.alibaba.cloud.nacos.NacosDiscoveryProperties;
+import com.alibaba.cloud.nacos.balancer.WeightedInstanceSelector;
+import com.alibaba.cloud.nacos.loadbalancer.InstanceLoadTracker.InstanceLoad;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.Request;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+
+/**
+ * Power of two choices load balancer.
+ * <p>
+ * Picks two distinct random instances of the selected cluster and keeps the one with
+ * the lower cost, the cost being the moving average of its response time multiplied by
+ * its in-flight requests plus one, divided by its Nacos weight. Loads are recorded by
+ * {@link InstanceLoadTracker}.
+ *
+ * @author Spring Cloud Alibaba contributors
+ * @since 2021.0.4.0
+ */
+public class NacosLeastLoadedLoadBalancer extends NacosLoadBalancer {
+
+	private final InstanceLoadTracker loadTracker;
+
+	public NacosLeastLoadedLoadBalancer(
+			ObjectProvider<ServiceInstanceListSupplier> serviceInstanceListSupplierProvider,
+			String serviceId, NacosDiscoveryProperties nacosDiscoveryProperties,
+			InstanceLoadTracker loadTracker) {
+		super(serviceInstanceListSupplierProvider, serviceId, nacosDiscoveryProperties);
+		this.loadTracker = loadTracker;
+	}
+
+	@Override
+	protected ServiceInstance choose(WeightedInstanceSelector selector,
+			Request<?> request) {
+		int size = selector.size();
+		if (size <= 1) {
+			return selector.choose();
+		}
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		int first = random.nextInt(size);
+		int second = random.nextInt(size - 1);
+		if (second >= first) {
+			second++;
+		}
+
+		InstanceLoad firstLoad = loadTracker.getLoad(selector.getInstance(first));
+		InstanceLoad secondLoad = loadTracker.getLoad(selector.getInstance(second));
+		double firstResponseTime = responseTime(firstLoad);
+		double secondResponseTime = responseTime(secondLoad);
+		// an instance without samples is assumed as fast as the other one
+		if (firstResponseTime < 0) {
+			firstResponseTime = secondResponseTime < 0 ? 1D : secondResponseTime;
+		}
+		if (secondResponseTime < 0) {
+			secondResponseTime = firstResponseTime;
+		}
+
+		double firstCost = firstResponseTime * (inFlight(firstLoad) + 1)
+				/ selector.getWeight(first);
+		double secondCost = secondResponseTime * (inFlight(secondLoad) + 1)
+				/ selector.getWeight(second);
+		return selector.getInstance(firstCost <= secondCost ? first : second);
+	}
+
+	@Override
+	protected void onInstancesChanged(List<ServiceInstance> serviceInstances) {
+		loadTracker.retain(serviceInstances);
+	}
+
+	private static double responseTime(InstanceLoad load) {
+		return load == null ? -1D : load.getResponseTime();
+	}
+
+	private static int inFlight(InstanceLoad load) {
+		return load == null ? 0 : load.getInFlight();
+	}
+
+}
@@ -17,12 +17,11 @@
 package com.alibaba.cloud.nacos.loadbalancer;
 
 import java.util.List;
-import java.util.stream.Collectors;
 
-import com.alibaba.cloud.commons.lang.StringUtils;
 import com.alibaba.cloud.nacos.NacosDiscoveryProperties;
-import com.alibaba.cloud.nacos.balancer.NacosBalancer;
-import com.alibaba.nacos.client.naming.utils.CollectionUtils;
+import com.alibaba.cloud.nacos.balancer.ClusterPartitionedSelector;
+import com.alibaba.cloud.nacos.balancer.WeightedInstanceSelector;
+import com.alibaba.cloud.nacos.metrics.NacosLoadBalancerMetrics;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import reactor.core.publisher.Mono;
@@ -54,6 +53,24 @@ public class NacosLoadBalancer implements ReactorServiceInstanceLoadBalancer {
 
 	private final NacosDiscoveryProperties nacosDiscoveryProperties;
 
+	/**
+	 * Cluster partitions of the last instance list, reused until the list changes.
+	 */
+	private volatile ClusterPartitionedSelector partitions;
+
+	private OutlierDetector outlierDetector;
+
+	private SlowStartWeigher slowStartWeigher;
+
+	private NacosLoadBalancerMetrics metrics;
+
+	private ConcurrencyLimiter concurrencyLimiter;
+
+	/**
+	 * When the weights of warming up instances must be computed again.
+	 */
+	private volatile long weightRefreshTime = Long.MAX_VALUE;
+
 	public NacosLoadBalancer(
 			ObjectProvider<ServiceInstanceListSupplier> serviceInstanceListSupplierProvider,
 			String serviceId, NacosDiscoveryProperties nacosDiscoveryProperties) {
@@ -62,15 +79,58 @@ public class NacosLoadBalancer implements ReactorServiceInstanceLoadBalancer {
 		this.nacosDiscoveryProperties = nacosDiscoveryProperties;
 	}
 
+	/**
+	 * Set the detector whose ejected instances are excluded from selection.
+	 * @param outlierDetector outlier detector, may be null
+	 */
+	public void setOutlierDetector(OutlierDetector outlierDetector) {
+		this.outlierDetector = outlierDetector;
+	}
+
+	/**
+	 * Set the weigher ramping up the weight of new instances.
+	 * @param slowStartWeigher slow start weigher, may be null
+	 */
+	public void setSlowStartWeigher(SlowStartWeigher slowStartWeigher) {
+		this.slowStartWeigher = slowStartWeigher;
+	}
+
+	/**
+	 * Set the meters recording the choose latency and the selections.
+	 * @param metrics load balancer meters, may be null
+	 */
+	public void setMetrics(NacosLoadBalancerMetrics metrics) {
+		this.metrics = metrics;
+	}
+
+	/**
+	 * Set the limiter whose saturated instances are skipped. When all the instances are
+	 * saturated, choosing fails with a {@link ConcurrencyLimitExceededException}.
+	 * @param concurrencyLimiter concurrency limiter, may be null
+	 */
+	public void setConcurrencyLimiter(ConcurrencyLimiter concurrencyLimiter) {
+		this.concurrencyLimiter = concurrencyLimiter;
+	}
+
 	@Override
 	public Mono<Response<ServiceInstance>> choose(Request request) {
 		ServiceInstanceListSupplier supplier = serviceInstanceListSupplierProvider
 				.getIfAvailable(NoopServiceInstanceListSupplier::new);
-		return supplier.get().next().map(this::getInstanceResponse);
+		Mono<Response<ServiceInstance>> response = supplier.get().next()
+				.map(serviceInstances -> getInstanceResponse(serviceInstances, request));
+		NacosLoadBalancerMetrics metrics = this.metrics;
+		if (metrics == null) {
+			return response;
+		}
+		return Mono.defer(() -> {
+			long start = System.nanoTime();
+			return response.doOnNext(r -> metrics.recordChoose(
+					System.nanoTime() - start, r.hasServer() ? r.getServer() : null));
+		});
 	}
 
 	private Response<ServiceInstance> getInstanceResponse(
-			List<ServiceInstance> serviceInstances) {
+			List<ServiceInstance> serviceInstances, Request<?> request) {
 		if (serviceInstances.isEmpty()) {
 			log.warn("No servers available for service: " + this.serviceId);
 			return new EmptyResponse();
@@ -78,30 +138,48 @@ public class NacosLoadBalancer implements ReactorServiceInstanceLoadBalancer {
 
 		try {
 			String clusterName = this.nacosDiscoveryProperties.getClusterName();
+			List<String> fallbackClusters = this.nacosDiscoveryProperties
+					.getFallbackClusters();
 
-			List<ServiceInstance> instancesToChoose = serviceInstances;
-			if (StringUtils.isNotBlank(clusterName)) {
-				List<ServiceInstance> sameClusterInstances = serviceInstances.stream()
-						.filter(serviceInstance -> {
-							String cluster = serviceInstance.getMetadata()
-									.get("nacos.cluster");
-							return StringUtils.equals(cluster, clusterName);
-						}).collect(Collectors.toList());
-				if (!CollectionUtils.isEmpty(sameClusterInstances)) {
-					instancesToChoose = sameClusterInstances;
-				}
+			WeightedInstanceSelector selector = getPartitions(serviceInstances,
+					clusterName, fallbackClusters).select(clusterName, fallbackClusters);
+			if (outlierDetector != null) {
+				selector = outlierDetector.filter(selector);
 			}
-			else {
-				log.warn(
-						"A cross-cluster call occurs，name = {}, clusterName = {}, instance = {}",
-						serviceId, clusterName, serviceInstances);
+			if (request != null && request.getContext() instanceof HedgedRequestContext) {
+				HedgedRequestContext context = (HedgedRequestContext) request.getContext();
+				if (!context.getExcludedInstances().isEmpty()) {
+					selector = selector.exclude(context::isExcluded);
+					if (selector.size() == 0) {
+						// every instance already serves another attempt of the request
+						return new EmptyResponse();
+					}
+				}
 			}
 
-			ServiceInstance instance = NacosBalancer
-					.getHostByRandomWeight3(instancesToChoose);
+			ServiceInstance instance = choose(selector, request);
+			if (instance != null && concurrencyLimiter != null
+					&& concurrencyLimiter.isSaturated(instance)) {
+				// only look for the saturated instances when the chosen one is
+				WeightedInstanceSelector available = concurrencyLimiter.filter(selector);
+				if (available == null) {
+					if (metrics != null) {
+						metrics.recordRejected();
+					}
+					throw new ConcurrencyLimitExceededException(serviceId);
+				}
+				instance = choose(available, request);
+			}
+			if (instance == null) {
+				log.warn("No weighted servers available for service: " + this.serviceId);
+				return new EmptyResponse();
+			}
 
 			return new DefaultResponse(instance);
 		}
+		catch (ConcurrencyLimitExceededException e) {
+			throw e;
+		}
 		catch (Exception e) {
 			log.warn("NacosLoadBalancer error", e);
 			return null;
@@ -109,4 +187,65 @@ public class NacosLoadBalancer implements ReactorServiceInstanceLoadBalancer {
 
 	}
 
+	private ClusterPartitionedSelector getPartitions(
+			List<ServiceInstance> serviceInstances, String clusterName,
+			List<String> fallbackClusters) {
+		ClusterPartitionedSelector current = this.partitions;
+		boolean changed = current == null || !current.isBuiltFrom(serviceInstances);
+		if (slowStartWeigher != null) {
+			long now = System.currentTimeMillis();
+			if (changed || now >= weightRefreshTime) {
+				if (changed) {
+					slowStartWeigher.observe(serviceInstances, now);
+				}
+				current = ClusterPartitionedSelector.build(serviceInstances,
+						slowStartWeigher.weigher(now));
+				this.weightRefreshTime = slowStartWeigher
+						.nextRefreshTime(serviceInstances, now);
+				this.partitions = current;
+			}
+		}
+		else if (changed) {
+			current = ClusterPartitionedSelector.build(serviceInstances);
+			this.partitions = current;
+		}
+		if (changed) {
+			if (outlierDetector != null) {
+				outlierDetector.retain(serviceInstances);
+			}
+			if (metrics != null) {
+				metrics.retain(serviceInstances);
+			}
+			if (concurrencyLimiter != null) {
+				concurrencyLimiter.retain(serviceInstances);
+			}
+			onInstancesChanged(serviceInstances);
+			// only warn once per instance list instead of on every request
+			if (current.cluster(clusterName) == null) {
+				log.warn(
+						"A cross-cluster call occurs，name = {}, clusterName = {}, fallbackClusters = {}",
+						serviceId, clusterName, fallbackClusters);
+			}
+		}
+		return current;
+	}
+
+	/**
+	 * Choose an instance among the available instances of the selected cluster.
+	 * @param selector weighted selector of the selected cluster
+	 * @param request the load balancer request
+	 * @return the chosen instance, or null if none can be chosen
+	 */
+	protected ServiceInstance choose(WeightedInstanceSelector selector,
+			Request<?> request) {
+		return selector.choose();
+	}
+
+	/**
+	 * Called once each time the supplied instance list changes.
+	 * @param serviceInstances the new instance list
+	 */
+	protected void onInstancesChanged(List<ServiceInstance> serviceInstances) {
+	}
+
 }
@@ -17,8 +17,12 @@
 package com.alibaba.cloud.nacos.loadbalancer;
 
 import com.alibaba.cloud.nacos.NacosDiscoveryProperties;
+import com.alibaba.cloud.nacos.metrics.NacosLoadBalancerMetrics;
+import io.micrometer.core.instrument.MeterRegistry;
 
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.cloud.client.ConditionalOnBlockingDiscoveryEnabled;
@@ -29,6 +33,7 @@ import org.springframework.cloud.client.discovery.DiscoveryClient;
 import org.springframework.cloud.client.discovery.ReactiveDiscoveryClient;
 import org.springframework.cloud.loadbalancer.core.ReactorLoadBalancer;
 import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplierBuilder;
 import org.springframework.cloud.loadbalancer.support.LoadBalancerClientFactory;
 import org.springframework.context.ConfigurableApplicationContext;
 import org.springframework.context.annotation.Bean;
@@ -54,14 +59,190 @@ public class NacosLoadBalancerClientConfiguration {
 
 	@Bean
 	@ConditionalOnMissingBean
+	@ConditionalOnProperty(value = "spring.cloud.loadbalancer.nacos.strategy", havingValue = "weighted-random", matchIfMissing = true)
 	public ReactorLoadBalancer<ServiceInstance> nacosLoadBalancer(Environment environment,
 			LoadBalancerClientFactory loadBalancerClientFactory,
-			NacosDiscoveryProperties nacosDiscoveryProperties) {
+			NacosDiscoveryProperties nacosDiscoveryProperties,
+			ObjectProvider<OutlierDetector> nacosOutlierDetector,
+			ObjectProvider<SlowStartWeigher> nacosSlowStartWeigher,
+			ObjectProvider<NacosLoadBalancerMetrics> nacosLoadBalancerMetrics,
+			ObjectProvider<ConcurrencyLimiter> nacosConcurrencyLimiter) {
 		String name = environment.getProperty(LoadBalancerClientFactory.PROPERTY_NAME);
-		return new NacosLoadBalancer(
+		NacosLoadBalancer loadBalancer = new NacosLoadBalancer(
 				loadBalancerClientFactory.getLazyProvider(name,
 						ServiceInstanceListSupplier.class),
 				name, nacosDiscoveryProperties);
+		loadBalancer.setOutlierDetector(nacosOutlierDetector.getIfAvailable());
+		loadBalancer.setSlowStartWeigher(nacosSlowStartWeigher.getIfAvailable());
+		loadBalancer.setMetrics(nacosLoadBalancerMetrics.getIfAvailable());
+		loadBalancer.setConcurrencyLimiter(nacosConcurrencyLimiter.getIfAvailable());
+		return loadBalancer;
+	}
+
+	@Bean
+	@ConditionalOnMissingBean
+	@ConditionalOnProperty(value = "spring.cloud.loadbalancer.nacos.outlier-detection.enabled", havingValue = "true")
+	public OutlierDetector nacosOutlierDetector(
+			ObjectProvider<NacosLoadBalancerProperties> nacosLoadBalancerProperties) {
+		return new OutlierDetector(nacosLoadBalancerProperties
+				.getIfAvailable(NacosLoadBalancerProperties::new));
+	}
+
+	@Bean
+	@ConditionalOnMissingBean
+	@ConditionalOnProperty(value = "spring.cloud.loadbalancer.nacos.slow-start.enabled", havingValue = "true")
+	public SlowStartWeigher nacosSlowStartWeigher(
+			ObjectProvider<NacosLoadBalancerProperties> nacosLoadBalancerProperties) {
+		return new SlowStartWeigher(nacosLoadBalancerProperties
+				.getIfAvailable(NacosLoadBalancerProperties::new));
+	}
+
+	@Bean
+	@ConditionalOnMissingBean
+	@ConditionalOnProperty(value = "spring.cloud.loadbalancer.nacos.concurrency-limit.enabled", havingValue = "true")
+	public ConcurrencyLimiter nacosConcurrencyLimiter(
+			ObjectProvider<NacosLoadBalancerProperties> nacosLoadBalancerProperties) {
+		return new ConcurrencyLimiter(nacosLoadBalancerProperties
+				.getIfAvailable(NacosLoadBalancerProperties::new));
+	}
+
+	/**
+	 * Restrict the instances to a stable subset when
+	 * {@code spring.cloud.loadbalancer.nacos.subset.size} is set.
+	 */
+	private static ServiceInstanceListSupplier subset(
+			ConfigurableApplicationContext context,
+			ServiceInstanceListSupplier delegate) {
+		NacosLoadBalancerProperties properties = context
+				.getBeanProvider(NacosLoadBalancerProperties.class)
+				.getIfAvailable(NacosLoadBalancerProperties::new);
+		int size = properties.getSubset().getSize();
+		if (size <= 0) {
+			return delegate;
+		}
+		return new NacosSubsetServiceInstanceListSupplier(delegate,
+				context.getBean(NacosDiscoveryProperties.class), size);
+	}
+
+	@Configuration(proxyBeanMethods = false)
+	@ConditionalOnProperty(value = "spring.cloud.loadbalancer.nacos.strategy", havingValue = "least-loaded")
+	public static class LeastLoadedConfiguration {
+
+		@Bean
+		@ConditionalOnMissingBean
+		public InstanceLoadTracker nacosInstanceLoadTracker(
+				ObjectProvider<NacosLoadBalancerProperties> nacosLoadBalancerProperties) {
+			return new InstanceLoadTracker(nacosLoadBalancerProperties
+					.getIfAvailable(NacosLoadBalancerProperties::new));
+		}
+
+		@Bean
+		@ConditionalOnMissingBean
+		public ReactorLoadBalancer<ServiceInstance> nacosLeastLoadedLoadBalancer(
+				Environment environment,
+				LoadBalancerClientFactory loadBalancerClientFactory,
+				NacosDiscoveryProperties nacosDiscoveryProperties,
+				InstanceLoadTracker nacosInstanceLoadTracker,
+				ObjectProvider<OutlierDetector> nacosOutlierDetector,
+				ObjectProvider<SlowStartWeigher> nacosSlowStartWeigher,
+				ObjectProvider<NacosLoadBalancerMetrics> nacosLoadBalancerMetrics,
+				ObjectProvider<ConcurrencyLimiter> nacosConcurrencyLimiter) {
+			String name = environment
+					.getProperty(LoadBalancerClientFactory.PROPERTY_NAME);
+			NacosLeastLoadedLoadBalancer loadBalancer = new NacosLeastLoadedLoadBalancer(
+					loadBalancerClientFactory.getLazyProvider(name,
+							ServiceInstanceListSupplier.class),
+					name, nacosDiscoveryProperties, nacosInstanceLoadTracker);
+			loadBalancer.setOutlierDetector(nacosOutlierDetector.getIfAvailable());
+			loadBalancer
+					.setSlowStartWeigher(nacosSlowStartWeigher.getIfAvailable());
+			loadBalancer.setMetrics(nacosLoadBalancerMetrics.getIfAvailable());
+			loadBalancer
+					.setConcurrencyLimiter(nacosConcurrencyLimiter.getIfAvailable());
+			return loadBalancer;
+		}
+
+	}
+
+	@Configuration(proxyBeanMethods = false)
+	@ConditionalOnProperty(value = "spring.cloud.loadbalancer.nacos.strategy", havingValue = "consistent-hash")
+	public static class ConsistentHashConfiguration {
+
+		@Bean
+		@ConditionalOnMissingBean
+		public ReactorLoadBalancer<ServiceInstance> nacosConsistentHashLoadBalancer(
+				Environment environment,
+				LoadBalancerClientFactory loadBalancerClientFactory,
+				NacosDiscoveryProperties nacosDiscoveryProperties,
+				ObjectProvider<NacosLoadBalancerProperties> nacosLoadBalancerProperties,
+				ObjectProvider<OutlierDetector> nacosOutlierDetector,
+				ObjectProvider<SlowStartWeigher> nacosSlowStartWeigher,
+				ObjectProvider<NacosLoadBalancerMetrics> nacosLoadBalancerMetrics,
+				ObjectProvider<ConcurrencyLimiter> nacosConcurrencyLimiter) {
+			String name = environment
+					.getProperty(LoadBalancerClientFactory.PROPERTY_NAME);
+			NacosConsistentHashLoadBalancer loadBalancer = new NacosConsistentHashLoadBalancer(
+					loadBalancerClientFactory.getLazyProvider(name,
+							ServiceInstanceListSupplier.class),
+					name, nacosDiscoveryProperties, nacosLoadBalancerProperties
+							.getIfAvailable(NacosLoadBalancerProperties::new));
+			loadBalancer.setOutlierDetector(nacosOutlierDetector.getIfAvailable());
+			loadBalancer
+					.setSlowStartWeigher(nacosSlowStartWeigher.getIfAvailable());
+			loadBalancer.setMetrics(nacosLoadBalancerMetrics.getIfAvailable());
+			loadBalancer
+					.setConcurrencyLimiter(nacosConcurrencyLimiter.getIfAvailable());
+			return loadBalancer;
+		}
+
+	}
+
+	@Configuration(proxyBeanMethods = false)
+	@ConditionalOnClass(name = "io.micrometer.core.instrument.MeterRegistry")
+	@ConditionalOnProperty(value = "spring.cloud.loadbalancer.nacos.metrics.enabled", havingValue = "true")
+	public static class MetricsConfiguration {
+
+		@Bean
+		@ConditionalOnMissingBean
+		@ConditionalOnBean(MeterRegistry.class)
+		public NacosLoadBalancerMetrics nacosLoadBalancerMetrics(Environment environment,
+				MeterRegistry meterRegistry,
+				ObjectProvider<ConcurrencyLimiter> nacosConcurrencyLimiter) {
+			return new NacosLoadBalancerMetrics(meterRegistry,
+					environment.getProperty(LoadBalancerClientFactory.PROPERTY_NAME),
+					nacosConcurrencyLimiter.getIfAvailable());
+		}
+
+	}
+
+	/**
+	 * Take the instances from the process-wide
+	 * {@link NacosServiceInstanceListSupplierRegistry} instead of building a discovery
+	 * client supplier in each child context.
+	 */
+	@Configuration(proxyBeanMethods = false)
+	@ConditionalOnProperty(value = "spring.cloud.loadbalancer.nacos.shared-supplier.enabled", havingValue = "true")
+	@Order(REACTIVE_SERVICE_INSTANCE_SUPPLIER_ORDER - 1)
+	public static class SharedSupplierConfiguration {
+
+		@Bean
+		@ConditionalOnBean(NacosServiceInstanceListSupplierRegistry.class)
+		@ConditionalOnMissingBean
+		public ServiceInstanceListSupplier nacosSharedServiceInstanceListSupplier(
+				ConfigurableApplicationContext context,
+				NacosServiceInstanceListSupplierRegistry registry) {
+			String name = context.getEnvironment()
+					.getProperty(LoadBalancerClientFactory.PROPERTY_NAME);
+			ServiceInstanceListSupplierBuilder builder = ServiceInstanceListSupplier
+					.builder().withBase(registry.getSupplier(name))
+					.with(NacosLoadBalancerClientConfiguration::subset);
+			if ("zone-preference".equals(context.getEnvironment()
+					.getProperty("spring.cloud.loadbalancer.configurations"))) {
+				builder.withZonePreference();
+			}
+			return builder.build(context);
+		}
+
 	}
 
 	@Configuration(proxyBeanMethods = false)
@@ -76,7 +257,7 @@ public class NacosLoadBalancerClientConfiguration {
 		public ServiceInstanceListSupplier discoveryClientServiceInstanceListSupplier(
 				ConfigurableApplicationContext context) {
 			return ServiceInstanceListSupplier.builder().withDiscoveryClient()
-					.build(context);
+					.with(NacosLoadBalancerClientConfiguration::subset).build(context);
 		}
 
 		@Bean
@@ -86,6 +267,7 @@ public class NacosLoadBalancerClientConfiguration {
 		public ServiceInstanceListSupplier zonePreferenceDiscoveryClientServiceInstanceListSupplier(
 				ConfigurableApplicationContext context) {
 			return ServiceInstanceListSupplier.builder().withDiscoveryClient()
+					.with(NacosLoadBalancerClientConfiguration::subset)
 					.withZonePreference().build(context);
 		}
 
@@ -103,7 +285,7 @@ public class NacosLoadBalancerClientConfiguration {
 		public ServiceInstanceListSupplier discoveryClientServiceInstanceListSupplier(
 				ConfigurableApplicationContext context) {
 			return ServiceInstanceListSupplier.builder().withBlockingDiscoveryClient()
-					.build(context);
+					.with(NacosLoadBalancerClientConfiguration::subset).build(context);
 		}
 
 		@Bean
@@ -113,6 +295,7 @@ public class NacosLoadBalancerClientConfiguration {
 		public ServiceInstanceListSupplier zonePreferenceDiscoveryClientServiceInstanceListSupplier(
 				ConfigurableApplicationContext context) {
 			return ServiceInstanceListSupplier.builder().withBlockingDiscoveryClient()
+					.with(NacosLoadBalancerClientConfiguration::subset)
 					.withZonePreference().build(context);
 		}
 
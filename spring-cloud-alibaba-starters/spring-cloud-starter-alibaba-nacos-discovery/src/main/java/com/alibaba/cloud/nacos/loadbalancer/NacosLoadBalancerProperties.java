@@ -0,0 +1,682 @@
+/*
+ * Copyright 2013-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alibaba.cloud.nacos.loadbalancer;
+
+import java.time.Duration;
+import java.util.EnumSet;
+import java.util.Set;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.http.HttpMethod;
+
+/**
+ * Properties of the Nacos LoadBalancer integration.
+ *
+ * @author Spring Cloud Alibaba contributors
+ * @since 2021.0.4.0
+ */
+@ConfigurationProperties(NacosLoadBalancerProperties.PREFIX)
+public class NacosLoadBalancerProperties {
+
+	/**
+	 * Prefix of {@link NacosLoadBalancerProperties}.
+	 */
+	public static final String PREFIX = "spring.cloud.loadbalancer.nacos";
+
+	/**
+	 * load balancing strategy, one of weighted-random, least-loaded and
+	 * consistent-hash.
+	 */
+	private String strategy = "weighted-random";
+
+	private LeastLoaded leastLoaded = new LeastLoaded();
+
+	private ConsistentHash consistentHash = new ConsistentHash();
+
+	private OutlierDetection outlierDetection = new OutlierDetection();
+
+	private SlowStart slowStart = new SlowStart();
+
+	private Subset subset = new Subset();
+
+	private Metrics metrics = new Metrics();
+
+	private SharedSupplier sharedSupplier = new SharedSupplier();
+
+	private ConcurrencyLimit concurrencyLimit = new ConcurrencyLimit();
+
+	private Hedging hedging = new Hedging();
+
+	public String getStrategy() {
+		return strategy;
+	}
+
+	public void setStrategy(String strategy) {
+		this.strategy = strategy;
+	}
+
+	public LeastLoaded getLeastLoaded() {
+		return leastLoaded;
+	}
+
+	public void setLeastLoaded(LeastLoaded leastLoaded) {
+		this.leastLoaded = leastLoaded;
+	}
+
+	public ConsistentHash getConsistentHash() {
+		return consistentHash;
+	}
+
+	public void setConsistentHash(ConsistentHash consistentHash) {
+		this.consistentHash = consistentHash;
+	}
+
+	public OutlierDetection getOutlierDetection() {
+		return outlierDetection;
+	}
+
+	public void setOutlierDetection(OutlierDetection outlierDetection) {
+		this.outlierDetection = outlierDetection;
+	}
+
+	public SlowStart getSlowStart() {
+		return slowStart;
+	}
+
+	public void setSlowStart(SlowStart slowStart) {
+		this.slowStart = slowStart;
+	}
+
+	public Subset getSubset() {
+		return subset;
+	}
+
+	public void setSubset(Subset subset) {
+		this.subset = subset;
+	}
+
+	public Metrics getMetrics() {
+		return metrics;
+	}
+
+	public void setMetrics(Metrics metrics) {
+		this.metrics = metrics;
+	}
+
+	public SharedSupplier getSharedSupplier() {
+		return sharedSupplier;
+	}
+
+	public void setSharedSupplier(SharedSupplier sharedSupplier) {
+		this.sharedSupplier = sharedSupplier;
+	}
+
+	public ConcurrencyLimit getConcurrencyLimit() {
+		return concurrencyLimit;
+	}
+
+	public void setConcurrencyLimit(ConcurrencyLimit concurrencyLimit) {
+		this.concurrencyLimit = concurrencyLimit;
+	}
+
+	public Hedging getHedging() {
+		return hedging;
+	}
+
+	public void setHedging(Hedging hedging) {
+		this.hedging = hedging;
+	}
+
+	@Override
+	public String toString() {
+		return "NacosLoadBalancerProperties{" + "strategy='" + strategy + '\''
+				+ ", leastLoaded=" + leastLoaded + ", consistentHash=" + consistentHash
+				+ ", outlierDetection=" + outlierDetection + ", slowStart=" + slowStart
+				+ ", subset=" + subset + ", metrics=" + metrics + ", sharedSupplier="
+				+ sharedSupplier + ", concurrencyLimit=" + concurrencyLimit + ", hedging="
+				+ hedging + '}';
+	}
+
+	public static class LeastLoaded {
+
+		/**
+		 * time after which a response time only weighs 1/e in the moving average of
+		 * response times.
+		 */
+		private Duration decayTime = Duration.ofSeconds(10);
+
+		public Duration getDecayTime() {
+			return decayTime;
+		}
+
+		public void setDecayTime(Duration decayTime) {
+			this.decayTime = decayTime;
+		}
+
+		@Override
+		public String toString() {
+			return "LeastLoaded{" + "decayTime=" + decayTime + '}';
+		}
+
+	}
+
+	public static class ConsistentHash {
+
+		/**
+		 * request header whose value is the hash key.
+		 */
+		private String header;
+
+		/**
+		 * request cookie whose value is the hash key, used when the header is absent.
+		 */
+		private String cookie;
+
+		/**
+		 * number of virtual nodes on the hash ring of the instances with the highest
+		 * weight, other instances get a number proportional to their weight.
+		 */
+		private int virtualNodes = 160;
+
+		public String getHeader() {
+			return header;
+		}
+
+		public void setHeader(String header) {
+			this.header = header;
+		}
+
+		public String getCookie() {
+			return cookie;
+		}
+
+		public void setCookie(String cookie) {
+			this.cookie = cookie;
+		}
+
+		public int getVirtualNodes() {
+			return virtualNodes;
+		}
+
+		public void setVirtualNodes(int virtualNodes) {
+			this.virtualNodes = virtualNodes;
+		}
+
+		@Override
+		public String toString() {
+			return "ConsistentHash{" + "header='" + header + '\'' + ", cookie='" + cookie
+					+ '\'' + ", virtualNodes=" + virtualNodes + '}';
+		}
+
+	}
+
+	public static class OutlierDetection {
+
+		/**
+		 * whether to eject instances with consecutive failures from load balancing.
+		 */
+		private boolean enabled = false;
+
+		/**
+		 * number of consecutive exceptions or 5xx responses after which an instance is
+		 * ejected.
+		 */
+		private int consecutiveErrors = 5;
+
+		/**
+		 * duration of the first ejection, doubled for each following ejection.
+		 */
+		private Duration baseEjectionTime = Duration.ofSeconds(30);
+
+		/**
+		 * maximum duration of an ejection.
+		 */
+		private Duration maxEjectionTime = Duration.ofMinutes(5);
+
+		/**
+		 * maximum percentage of the instances of a cluster that can be ejected at the
+		 * same time.
+		 */
+		private int maxEjectionPercent = 50;
+
+		public boolean isEnabled() {
+			return enabled;
+		}
+
+		public void setEnabled(boolean enabled) {
+			this.enabled = enabled;
+		}
+
+		public int getConsecutiveErrors() {
+			return consecutiveErrors;
+		}
+
+		public void setConsecutiveErrors(int consecutiveErrors) {
+			this.consecutiveErrors = consecutiveErrors;
+		}
+
+		public Duration getBaseEjectionTime() {
+			return baseEjectionTime;
+		}
+
+		public void setBaseEjectionTime(Duration baseEjectionTime) {
+			this.baseEjectionTime = baseEjectionTime;
+		}
+
+		public Duration getMaxEjectionTime() {
+			return maxEjectionTime;
+		}
+
+		public void setMaxEjectionTime(Duration maxEjectionTime) {
+			this.maxEjectionTime = maxEjectionTime;
+		}
+
+		public int getMaxEjectionPercent() {
+			return maxEjectionPercent;
+		}
+
+		public void setMaxEjectionPercent(int maxEjectionPercent) {
+			this.maxEjectionPercent = maxEjectionPercent;
+		}
+
+		@Override
+		public String toString() {
+			return "OutlierDetection{" + "enabled=" + enabled + ", consecutiveErrors="
+					+ consecutiveErrors + ", baseEjectionTime=" + baseEjectionTime
+					+ ", maxEjectionTime=" + maxEjectionTime + ", maxEjectionPercent="
+					+ maxEjectionPercent + '}';
+		}
+
+	}
+
+	public static class SlowStart {
+
+		/**
+		 * whether to ramp up the weight of new instances.
+		 */
+		private boolean enabled = false;
+
+		/**
+		 * warm-up window during which the weight of a new instance ramps up.
+		 */
+		private Duration window = Duration.ofSeconds(60);
+
+		/**
+		 * shape of the weight ramp, linear or exponential.
+		 */
+		private String ramp = "linear";
+
+		/**
+		 * percentage of its weight an instance gets at the start of the warm-up.
+		 */
+		private int minWeightPercent = 10;
+
+		public boolean isEnabled() {
+			return enabled;
+		}
+
+		public void setEnabled(boolean enabled) {
+			this.enabled = enabled;
+		}
+
+		public Duration getWindow() {
+			return window;
+		}
+
+		public void setWindow(Duration window) {
+			this.window = window;
+		}
+
+		public String getRamp() {
+			return ramp;
+		}
+
+		public void setRamp(String ramp) {
+			this.ramp = ramp;
+		}
+
+		public int getMinWeightPercent() {
+			return minWeightPercent;
+		}
+
+		public void setMinWeightPercent(int minWeightPercent) {
+			this.minWeightPercent = minWeightPercent;
+		}
+
+		@Override
+		public String toString() {
+			return "SlowStart{" + "enabled=" + enabled + ", window=" + window
+					+ ", ramp='" + ramp + '\'' + ", minWeightPercent=" + minWeightPercent
+					+ '}';
+		}
+
+	}
+
+	public static class Subset {
+
+		/**
+		 * number of instances of each cluster of a service this client connects to, 0
+		 * to use all instances.
+		 */
+		private int size = 0;
+
+		public int getSize() {
+			return size;
+		}
+
+		public void setSize(int size) {
+			this.size = size;
+		}
+
+		@Override
+		public String toString() {
+			return "Subset{" + "size=" + size + '}';
+		}
+
+	}
+
+	public static class Metrics {
+
+		/**
+		 * whether to record the choose latency and the selections of each instance when
+		 * Micrometer is available.
+		 */
+		private boolean enabled = false;
+
+		public boolean isEnabled() {
+			return enabled;
+		}
+
+		public void setEnabled(boolean enabled) {
+			this.enabled = enabled;
+		}
+
+		@Override
+		public String toString() {
+			return "Metrics{" + "enabled=" + enabled + '}';
+		}
+
+	}
+
+	public static class SharedSupplier {
+
+		/**
+		 * whether the load balancers of all services take their instances from a single
+		 * process-wide registry, backed by one Nacos subscription per service and
+		 * updated by Nacos push events.
+		 */
+		private boolean enabled;
+
+		public boolean isEnabled() {
+			return enabled;
+		}
+
+		public void setEnabled(boolean enabled) {
+			this.enabled = enabled;
+		}
+
+		@Override
+		public String toString() {
+			return "SharedSupplier{" + "enabled=" + enabled + '}';
+		}
+
+	}
+
+	public static class ConcurrencyLimit {
+
+		/**
+		 * whether to limit the in-flight requests of each instance to a limit adapted to
+		 * its response times, skipping the instances at their limit.
+		 */
+		private boolean enabled = false;
+
+		/**
+		 * limit of an instance before its first response.
+		 */
+		private int initialLimit = 20;
+
+		/**
+		 * lowest limit of an instance.
+		 */
+		private int minLimit = 1;
+
+		/**
+		 * highest limit of an instance.
+		 */
+		private int maxLimit = 200;
+
+		/**
+		 * ratio by which the response time may exceed its long-term average before the
+		 * limit decreases.
+		 */
+		private double rttTolerance = 1.5;
+
+		/**
+		 * weight of each new limit estimate, between 0 and 1.
+		 */
+		private double smoothing = 0.2;
+
+		/**
+		 * number of responses over which the long-term average response time is
+		 * computed.
+		 */
+		private int longWindow = 600;
+
+		public boolean isEnabled() {
+			return enabled;
+		}
+
+		public void setEnabled(boolean enabled) {
+			this.enabled = enabled;
+		}
+
+		public int getInitialLimit() {
+			return initialLimit;
+		}
+
+		public void setInitialLimit(int initialLimit) {
+			this.initialLimit = initialLimit;
+		}
+
+		public int getMinLimit() {
+			return minLimit;
+		}
+
+		public void setMinLimit(int minLimit) {
+			this.minLimit = minLimit;
+		}
+
+		public int getMaxLimit() {
+			return maxLimit;
+		}
+
+		public void setMaxLimit(int maxLimit) {
+			this.maxLimit = maxLimit;
+		}
+
+		public double getRttTolerance() {
+			return rttTolerance;
+		}
+
+		public void setRttTolerance(double rttTolerance) {
+			this.rttTolerance = rttTolerance;
+		}
+
+		public double getSmoothing() {
+			return smoothing;
+		}
+
+		public void setSmoothing(double smoothing) {
+			this.smoothing = smoothing;
+		}
+
+		public int getLongWindow() {
+			return longWindow;
+		}
+
+		public void setLongWindow(int longWindow) {
+			this.longWindow = longWindow;
+		}
+
+		@Override
+		public String toString() {
+			return "ConcurrencyLimit{" + "enabled=" + enabled + ", initialLimit="
+					+ initialLimit + ", minLimit=" + minLimit + ", maxLimit=" + maxLimit
+					+ ", rttTolerance=" + rttTolerance + ", smoothing=" + smoothing
+					+ ", longWindow=" + longWindow + '}';
+		}
+
+	}
+
+	public static class Hedging {
+
+		/**
+		 * whether to provide the hedging WebClient filter and RestTemplate interceptor.
+		 */
+		private boolean enabled = false;
+
+		/**
+		 * HTTP methods of the requests that may be hedged, which must be idempotent.
+		 */
+		private Set<HttpMethod> methods = EnumSet.of(HttpMethod.GET, HttpMethod.HEAD,
+				HttpMethod.OPTIONS);
+
+		/**
+		 * percentile of the recent response times of a service after which a second
+		 * request is sent to another instance, between 0 and 1.
+		 */
+		private double percentile = 0.95;
+
+		/**
+		 * lowest delay before a second request is sent.
+		 */
+		private Duration minDelay = Duration.ofMillis(10);
+
+		/**
+		 * highest delay before a second request is sent, also used until enough
+		 * response times are known.
+		 */
+		private Duration maxDelay = Duration.ofSeconds(1);
+
+		/**
+		 * highest percentage of the requests of a service that may be hedged.
+		 */
+		private int budgetPercent = 10;
+
+		/**
+		 * highest number of threads sending the hedgeable requests of the RestTemplate
+		 * interceptor, the requests being sent from the calling thread without hedging
+		 * beyond.
+		 */
+		private int maxThreads = 200;
+
+		/**
+		 * connect timeout of the hedges sent by the RestTemplate interceptor, unless a
+		 * ClientHttpRequestFactory bean is defined.
+		 */
+		private Duration connectTimeout = Duration.ofSeconds(1);
+
+		/**
+		 * read timeout of the hedges sent by the RestTemplate interceptor, unless a
+		 * ClientHttpRequestFactory bean is defined.
+		 */
+		private Duration readTimeout = Duration.ofSeconds(10);
+
+		public boolean isEnabled() {
+			return enabled;
+		}
+
+		public void setEnabled(boolean enabled) {
+			this.enabled = enabled;
+		}
+
+		public Set<HttpMethod> getMethods() {
+			return methods;
+		}
+
+		public void setMethods(Set<HttpMethod> methods) {
+			this.methods = methods;
+		}
+
+		public double getPercentile() {
+			return percentile;
+		}
+
+		public void setPercentile(double percentile) {
+			this.percentile = percentile;
+		}
+
+		public Duration getMinDelay() {
+			return minDelay;
+		}
+
+		public void setMinDelay(Duration minDelay) {
+			this.minDelay = minDelay;
+		}
+
+		public Duration getMaxDelay() {
+			return maxDelay;
+		}
+
+		public void setMaxDelay(Duration maxDelay) {
+			this.maxDelay = maxDelay;
+		}
+
+		public int getBudgetPercent() {
+			return budgetPercent;
+		}
+
+		public void setBudgetPercent(int budgetPercent) {
+			this.budgetPercent = budgetPercent;
+		}
+
+		public int getMaxThreads() {
+			return maxThreads;
+		}
+
+		public void setMaxThreads(int maxThreads) {
+			this.maxThreads = maxThreads;
+		}
+
+		public Duration getConnectTimeout() {
+			return connectTimeout;
+		}
+
+		public void setConnectTimeout(Duration connectTimeout) {
+			this.connectTimeout = connectTimeout;
+		}
+
+		public Duration getReadTimeout() {
+			return readTimeout;
+		}
+
+		public void setReadTimeout(Duration readTimeout) {
+			this.readTimeout = readTimeout;
+		}
+
+		@Override
+		public String toString() {
+			return "Hedging{" + "enabled=" + enabled + ", methods=" + methods
+					+ ", percentile=" + percentile + ", minDelay=" + minDelay
+					+ ", maxDelay=" + maxDelay + ", budgetPercent=" + budgetPercent
+					+ ", maxThreads=" + maxThreads + ", connectTimeout=" + connectTimeout
+					+ ", readTimeout=" + readTimeout + '}';
+		}
+
+	}
+
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright 2013-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alibaba.cloud.nacos.loadbalancer;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.alibaba.cloud.nacos.discovery.InstanceChangeEvent;
+import com.alibaba.cloud.nacos.discovery.NacosInstanceCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Schedulers;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+
+/**
+ * Process-wide registry of the {@link ServiceInstanceListSupplier} of each service,
+ * shared by the LoadBalancer child contexts.
+ * <p>
+ * The suppliers are backed by a {@link NacosInstanceCache}, so each service is
+ * subscribed to once in the process and its instances are only replaced when Nacos
+ * pushes a change, instead of each child context caching and polling the discovery
+ * client. A supplier emits the current instances, then the instances of each change.
+ *
+ * @author Spring Cloud Alibaba contributors
+ * @since 2021.0.4.0
+ */
+public class NacosServiceInstanceListSupplierRegistry implements DisposableBean {
+
+	private static final Logger log = LoggerFactory
+			.getLogger(NacosServiceInstanceListSupplierRegistry.class);
+
+	private final Map<String, SharedSupplier> suppliers = new ConcurrentHashMap<>(16);
+
+	private final NacosInstanceCache instanceCache;
+
+	private final boolean ownsInstanceCache;
+
+	/**
+	 * @param instanceCache instance cache shared with the discovery client
+	 * @param ownsInstanceCache whether the cache is private to this registry and must be
+	 * destroyed with it
+	 */
+	public NacosServiceInstanceListSupplierRegistry(NacosInstanceCache instanceCache,
+			boolean ownsInstanceCache) {
+		this.instanceCache = instanceCache;
+		this.ownsInstanceCache = ownsInstanceCache;
+	}
+
+	/**
+	 * @param serviceId id of service
+	 * @return the shared supplier of the service
+	 */
+	public ServiceInstanceListSupplier getSupplier(String serviceId) {
+		SharedSupplier supplier = suppliers.get(serviceId);
+		if (supplier == null) {
+			supplier = suppliers.computeIfAbsent(serviceId, SharedSupplier::new);
+		}
+		return supplier;
+	}
+
+	@Override
+	public void destroy() {
+		suppliers.values().forEach(SharedSupplier::close);
+		suppliers.clear();
+		if (ownsInstanceCache) {
+			instanceCache.destroy();
+		}
+	}
+
+	private final class SharedSupplier implements ServiceInstanceListSupplier {
+
+		private final String serviceId;
+
+		private final Sinks.Many<List<ServiceInstance>> changes = Sinks.many()
+				.multicast().directBestEffort();
+
+		private final Runnable unwatch;
+
+		private SharedSupplier(String serviceId) {
+			this.serviceId = serviceId;
+			this.unwatch = instanceCache.watch(serviceId, this::onChange);
+		}
+
+		@Override
+		public String getServiceId() {
+			return serviceId;
+		}
+
+		@Override
+		public Flux<List<ServiceInstance>> get() {
+			Mono<List<ServiceInstance>> current = Mono.defer(() -> {
+				List<ServiceInstance> cached = instanceCache
+						.getCachedInstances(serviceId);
+				if (cached != null) {
+					return Mono.just(cached);
+				}
+				// the first lookup subscribes to the service, which blocks on Nacos
+				return Mono.fromCallable(() -> instanceCache.getInstances(serviceId))
+						.subscribeOn(Schedulers.boundedElastic());
+			}).onErrorResume(e -> {
+				log.warn("get instances of {} from nacos failed", serviceId, e);
+				return Mono.just(Collections.emptyList());
+			});
+			return current.concatWith(changes.asFlux());
+		}
+
+		private void onChange(InstanceChangeEvent event) {
+			if (!event.isEmpty()) {
+				// called on the Nacos notifier thread, so emissions are serialized
+				changes.tryEmitNext(event.getInstances());
+			}
+		}
+
+		private void close() {
+			unwatch.run();
+			changes.tryEmitComplete();
+		}
+
+	}
+
+}
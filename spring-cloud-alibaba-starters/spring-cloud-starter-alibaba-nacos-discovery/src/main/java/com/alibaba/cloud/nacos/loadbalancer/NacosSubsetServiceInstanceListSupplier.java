@@ -0,0 +1,179 @@
+/*
+ * Copyright 2013-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alibaba.cloud.nacos.loadbalancer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+import com.alibaba.cloud.nacos.NacosDiscoveryProperties;
+import com.alibaba.cloud.nacos.balancer.ConsistentHashRing;
+import com.alibaba.cloud.nacos.balancer.NacosBalancer;
+import reactor.core.publisher.Flux;
+
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.loadbalancer.core.DelegatingServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+
+/**
+ * Restricts the instances of a large service to a stable subset per client.
+ * <p>
+ * Every instance is ranked by a rendezvous hash of the client address, the
+ * {@code ip:port} of {@link NacosDiscoveryProperties}, and of the instance id; the
+ * client keeps the instances with the highest ranks of each cluster, as partitioned by
+ * the {@code nacos.cluster} metadata, so the cluster selection of the load balancer still
+ * finds the instances of every cluster. Different clients therefore get different,
+ * evenly spread subsets, and an instance joining or leaving only changes the subsets it
+ * belongs to. The subset of a list holding the very same instances is reused, so
+ * downstream caches keyed by the list keep working.
+ *
+ * @author Spring Cloud Alibaba contributors
+ * @since 2021.0.4.0
+ */
+public class NacosSubsetServiceInstanceListSupplier
+		extends DelegatingServiceInstanceListSupplier {
+
+	private final NacosDiscoveryProperties nacosDiscoveryProperties;
+
+	private final int subsetSize;
+
+	/**
+	 * Address of this client, null until its port is known.
+	 */
+	private volatile String clientKey;
+
+	private volatile Subset subset;
+
+	public NacosSubsetServiceInstanceListSupplier(ServiceInstanceListSupplier delegate,
+			NacosDiscoveryProperties nacosDiscoveryProperties, int subsetSize) {
+		super(delegate);
+		this.nacosDiscoveryProperties = nacosDiscoveryProperties;
+		this.subsetSize = subsetSize;
+	}
+
+	@Override
+	public Flux<List<ServiceInstance>> get() {
+		return getDelegate().get().map(this::subset);
+	}
+
+	private List<ServiceInstance> subset(List<ServiceInstance> serviceInstances) {
+		if (serviceInstances.size() <= subsetSize) {
+			return serviceInstances;
+		}
+		Subset current = this.subset;
+		if (current != null && sameInstances(current.source, serviceInstances)) {
+			return current.instances;
+		}
+		current = new Subset(serviceInstances, select(serviceInstances));
+		if (clientKey != null) {
+			this.subset = current;
+		}
+		return current.instances;
+	}
+
+	private List<ServiceInstance> select(List<ServiceInstance> serviceInstances) {
+		String client = clientKey();
+		// min-heap of the highest ranked instances of each cluster, by position in the
+		// list
+		Map<String, PriorityQueue<long[]>> highest = new HashMap<>();
+		for (int i = 0; i < serviceInstances.size(); i++) {
+			ServiceInstance instance = serviceInstances.get(i);
+			long rank = ConsistentHashRing
+					.hash(client + NacosBalancer.instanceKey(instance));
+			PriorityQueue<long[]> cluster = highest.computeIfAbsent(
+					clusterOf(instance), k -> new PriorityQueue<>(subsetSize + 1,
+							(a, b) -> Long.compare(a[0], b[0])));
+			cluster.offer(new long[] { rank, i });
+			if (cluster.size() > subsetSize) {
+				cluster.poll();
+			}
+		}
+		boolean[] selected = new boolean[serviceInstances.size()];
+		int count = 0;
+		for (PriorityQueue<long[]> cluster : highest.values()) {
+			for (long[] entry : cluster) {
+				selected[(int) entry[1]] = true;
+				count++;
+			}
+		}
+		if (count == serviceInstances.size()) {
+			return serviceInstances;
+		}
+		// keep the order of the source list
+		List<ServiceInstance> result = new ArrayList<>(count);
+		for (int i = 0; i < selected.length; i++) {
+			if (selected[i]) {
+				result.add(serviceInstances.get(i));
+			}
+		}
+		return Collections.unmodifiableList(result);
+	}
+
+	private String clientKey() {
+		if (clientKey != null) {
+			return clientKey;
+		}
+		int port = nacosDiscoveryProperties.getPort();
+		String key = nacosDiscoveryProperties.getIp() + ":" + port + "#";
+		// the port is only known once the web server started
+		if (port > 0) {
+			clientKey = key;
+		}
+		return key;
+	}
+
+	/**
+	 * Cheap change detection, unchanged instances being reused across lookups.
+	 */
+	private static boolean sameInstances(List<ServiceInstance> previous,
+			List<ServiceInstance> current) {
+		if (previous == current) {
+			return true;
+		}
+		if (previous.size() != current.size()) {
+			return false;
+		}
+		for (int i = 0; i < current.size(); i++) {
+			if (previous.get(i) != current.get(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static String clusterOf(ServiceInstance instance) {
+		Map<String, String> metadata = instance.getMetadata();
+		return metadata == null ? null : metadata.get("nacos.cluster");
+	}
+
+	private static final class Subset {
+
+		private final List<ServiceInstance> source;
+
+		private final List<ServiceInstance> instances;
+
+		private Subset(List<ServiceInstance> source, List<ServiceInstance> instances) {
+			this.source = source;
+			this.instances = instances;
+		}
+
+	}
+
+}
@@ -0,0 +1,351 @@
+/*
+ * Copyright 2013-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alibaba.cloud.nacos.loadbalancer;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.alibaba.cloud.nacos.balancer.NacosBalancer;
+import com.alibaba.cloud.nacos.balancer.WeightedInstanceSelector;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.CompletionContext;
+import org.springframework.cloud.client.loadbalancer.LoadBalancerLifecycle;
+import org.springframework.cloud.client.loadbalancer.Request;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.client.loadbalancer.ResponseData;
+
+/**
+ * Passive outlier detection through the LoadBalancer lifecycle callbacks.
+ * <p>
+ * Counts the consecutive failures of each instance, a failure being an exception, such
+ * as a connect or read timeout, or a 5xx response. An instance reaching the configured
+ * number of consecutive failures is ejected from selection for the base ejection time
+ * multiplied by two for each of its previous ejections, up to the max ejection time. At
+ * most the configured percentage of the instances of a cluster, as partitioned by the
+ * {@code nacos.cluster} metadata, are ejected at the same time, so a failing cluster keeps
+ * receiving traffic instead of none.
+ *
+ * @author Spring Cloud Alibaba contributors
+ * @since 2021.0.4.0
+ */
+public class OutlierDetector
+		implements LoadBalancerLifecycle<Object, Object, ServiceInstance> {
+
+	private static final Logger log = LoggerFactory.getLogger(OutlierDetector.class);
+
+	private final Map<String, InstanceState> states = new ConcurrentHashMap<>(16);
+
+	private final int consecutiveErrors;
+
+	private final long baseEjectionNanos;
+
+	private final long maxEjectionNanos;
+
+	private final int maxEjectionPercent;
+
+	/**
+	 * Number of ejected instances, zero on the fast path.
+	 */
+	private final AtomicInteger ejectedCount = new AtomicInteger();
+
+	/**
+	 * Incremented each time an instance is ejected or restored.
+	 */
+	private final AtomicLong version = new AtomicLong();
+
+	private final Object ejectionLock = new Object();
+
+	/**
+	 * Number of instances of each cluster, keyed by {@code nacos.cluster} metadata.
+	 */
+	private volatile Map<String, Integer> clusterSizes = Collections.emptyMap();
+
+	private volatile Filtered filtered;
+
+	public OutlierDetector(NacosLoadBalancerProperties properties) {
+		NacosLoadBalancerProperties.OutlierDetection outlierDetection = properties
+				.getOutlierDetection();
+		this.consecutiveErrors = Math.max(outlierDetection.getConsecutiveErrors(), 1);
+		this.baseEjectionNanos = Math.max(
+				outlierDetection.getBaseEjectionTime().toNanos(), 1L);
+		this.maxEjectionNanos = Math.max(outlierDetection.getMaxEjectionTime().toNanos(),
+				this.baseEjectionNanos);
+		this.maxEjectionPercent = outlierDetection.getMaxEjectionPercent();
+	}
+
+	/**
+	 * Whether the instance is currently ejected.
+	 * @param instance service instance
+	 * @return true if the instance is ejected
+	 */
+	public boolean isEjected(ServiceInstance instance) {
+		InstanceState state = states.get(NacosBalancer.instanceKey(instance));
+		return state != null && state.isEjected(System.nanoTime());
+	}
+
+	/**
+	 * Return a selector without the ejected instances of the given selector.
+	 * @param selector selector of the selected cluster
+	 * @return the given selector if none of its instances is ejected, otherwise a
+	 * selector without the ejected instances, within the max ejection percentage
+	 */
+	public WeightedInstanceSelector filter(WeightedInstanceSelector selector) {
+		if (ejectedCount.get() == 0) {
+			return selector;
+		}
+		long now = System.nanoTime();
+		restoreExpired(now);
+		if (ejectedCount.get() == 0) {
+			return selector;
+		}
+		long currentVersion = version.get();
+		Filtered current = this.filtered;
+		if (current != null && current.source == selector
+				&& current.version == currentVersion) {
+			return current.selector;
+		}
+		WeightedInstanceSelector result = exclude(selector, now);
+		this.filtered = new Filtered(selector, currentVersion, result);
+		return result;
+	}
+
+	/**
+	 * Drop the state of instances that are no longer in the given list.
+	 * @param instances current instances
+	 */
+	public void retain(List<ServiceInstance> instances) {
+		Set<String> keys = new HashSet<>(instances.size() * 2);
+		Map<String, Integer> sizes = new HashMap<>();
+		for (ServiceInstance instance : instances) {
+			if (keys.add(NacosBalancer.instanceKey(instance))) {
+				sizes.merge(clusterOf(instance), 1, Integer::sum);
+			}
+		}
+		clusterSizes = sizes;
+		states.entrySet().removeIf(entry -> {
+			if (keys.contains(entry.getKey())) {
+				return false;
+			}
+			if (entry.getValue().ejected) {
+				ejectedCount.decrementAndGet();
+				version.incrementAndGet();
+			}
+			return true;
+		});
+	}
+
+	@Override
+	public void onStart(Request<Object> request) {
+	}
+
+	@Override
+	public void onStartRequest(Request<Object> request,
+			Response<ServiceInstance> lbResponse) {
+	}
+
+	@Override
+	public void onComplete(
+			CompletionContext<Object, ServiceInstance, Object> completionContext) {
+		Response<ServiceInstance> lbResponse = completionContext
+				.getLoadBalancerResponse();
+		if (completionContext.status() == CompletionContext.Status.DISCARD
+				|| lbResponse == null || !lbResponse.hasServer()) {
+			return;
+		}
+		ServiceInstance instance = lbResponse.getServer();
+		String key = NacosBalancer.instanceKey(instance);
+		if (isFailure(completionContext)) {
+			InstanceState state = states.computeIfAbsent(key,
+					k -> new InstanceState(clusterOf(instance)));
+			if (state.failures.incrementAndGet() >= consecutiveErrors) {
+				eject(key, state, System.nanoTime());
+			}
+		}
+		else {
+			InstanceState state = states.get(key);
+			if (state != null) {
+				state.succeed(System.nanoTime());
+			}
+		}
+	}
+
+	private static boolean isFailure(
+			CompletionContext<Object, ServiceInstance, Object> completionContext) {
+		if (completionContext.status() == CompletionContext.Status.FAILED) {
+			return true;
+		}
+		Object clientResponse = completionContext.getClientResponse();
+		if (clientResponse instanceof ResponseData) {
+			Integer status = ((ResponseData) clientResponse).getRawHttpStatus();
+			return status != null && status >= 500;
+		}
+		return false;
+	}
+
+	private void eject(String key, InstanceState state, long now) {
+		// the lock keeps concurrent ejections of one cluster within the max percentage
+		synchronized (ejectionLock) {
+			synchronized (state) {
+				if (state.ejected || state.failures.get() < consecutiveErrors) {
+					return;
+				}
+				Integer size = clusterSizes.get(state.cluster);
+				if (size != null && (ejectedIn(state.cluster) + 1) * 100L > (long) size
+						* maxEjectionPercent) {
+					return;
+				}
+				long duration = baseEjectionNanos << Math.min(state.ejections, 30);
+				if (duration <= 0 || duration > maxEjectionNanos) {
+					duration = maxEjectionNanos;
+				}
+				state.ejections++;
+				state.ejectionNanos = duration;
+				state.ejectedUntil = now + duration;
+				state.ejected = true;
+				state.failures.set(0);
+				ejectedCount.incrementAndGet();
+				version.incrementAndGet();
+			}
+		}
+		if (log.isWarnEnabled()) {
+			log.warn("Instance {} ejected for {} ms after {} consecutive failures", key,
+					state.ejectionNanos / 1_000_000, consecutiveErrors);
+		}
+	}
+
+	private int ejectedIn(String cluster) {
+		int count = 0;
+		for (InstanceState state : states.values()) {
+			if (state.ejected && Objects.equals(state.cluster, cluster)) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	private void restoreExpired(long now) {
+		for (InstanceState state : states.values()) {
+			if (state.ejected && now - state.ejectedUntil >= 0) {
+				synchronized (state) {
+					if (state.ejected && now - state.ejectedUntil >= 0) {
+						state.restoredAt = state.ejectedUntil;
+						state.ejected = false;
+						ejectedCount.decrementAndGet();
+						version.incrementAndGet();
+					}
+				}
+			}
+		}
+	}
+
+	private static String clusterOf(ServiceInstance instance) {
+		Map<String, String> metadata = instance.getMetadata();
+		return metadata == null ? null : metadata.get("nacos.cluster");
+	}
+
+	private WeightedInstanceSelector exclude(WeightedInstanceSelector selector,
+			long now) {
+		int size = selector.size();
+		int allowed = (int) ((long) size * maxEjectionPercent / 100);
+		Set<ServiceInstance> excluded = Collections
+				.newSetFromMap(new IdentityHashMap<>());
+		for (int i = 0; i < size && excluded.size() < allowed; i++) {
+			ServiceInstance instance = selector.getInstance(i);
+			InstanceState state = states.get(NacosBalancer.instanceKey(instance));
+			if (state != null && state.isEjected(now)) {
+				excluded.add(instance);
+			}
+		}
+		if (excluded.isEmpty() || excluded.size() == size) {
+			return selector;
+		}
+		return selector.exclude(excluded::contains);
+	}
+
+	private static final class InstanceState {
+
+		private final String cluster;
+
+		private final AtomicInteger failures = new AtomicInteger();
+
+		/**
+		 * Whether the instance is ejected, written after {@link #ejectedUntil}.
+		 */
+		private volatile boolean ejected;
+
+		/**
+		 * End of the current ejection, only meaningful while ejected.
+		 */
+		private volatile long ejectedUntil;
+
+		private volatile long restoredAt;
+
+		private volatile long ejectionNanos;
+
+		private int ejections;
+
+		private InstanceState(String cluster) {
+			this.cluster = cluster;
+		}
+
+		boolean isEjected(long now) {
+			return ejected && now - ejectedUntil < 0;
+		}
+
+		void succeed(long now) {
+			failures.set(0);
+			// forget previous ejections once the instance stayed healthy for as long as
+			// it was last ejected
+			if (ejections > 0 && !ejected && now - restoredAt >= ejectionNanos) {
+				synchronized (this) {
+					ejections = 0;
+				}
+			}
+		}
+
+	}
+
+	private static final class Filtered {
+
+		private final WeightedInstanceSelector source;
+
+		private final long version;
+
+		private final WeightedInstanceSelector selector;
+
+		private Filtered(WeightedInstanceSelector source, long version,
+				WeightedInstanceSelector selector) {
+			this.source = source;
+			this.version = version;
+			this.selector = selector;
+		}
+
+	}
+
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright 2013-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alibaba.cloud.nacos.loadbalancer;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.ToDoubleFunction;
+
+import com.alibaba.cloud.nacos.balancer.NacosBalancer;
+import com.alibaba.cloud.nacos.balancer.WeightedInstanceSelector;
+import com.alibaba.cloud.nacos.registry.NacosRegistration;
+
+import org.springframework.cloud.client.ServiceInstance;
+
+/**
+ * Ramps up the weight of new instances over a warm-up window.
+ * <p>
+ * The start of the warm-up is the registration time written by
+ * {@link com.alibaba.cloud.nacos.registry.NacosServiceRegistry} into the
+ * {@value NacosRegistration#REGISTER_TIMESTAMP} metadata, or the time the instance was
+ * first seen when the metadata is absent. Instances of the first instance list are
+ * considered warm unless they carry a registration time. The effective weight is the
+ * Nacos weight scaled by a factor growing linearly, or exponentially, from the min
+ * weight percent to 1.
+ *
+ * @author Spring Cloud Alibaba contributors
+ * @since 2021.0.4.0
+ */
+public class SlowStartWeigher {
+
+	/**
+	 * Number of weight updates during the warm-up window.
+	 */
+	private static final int STEPS = 20;
+
+	private static final long MIN_STEP_MILLIS = 100;
+
+	private final Map<String, Long> firstSeen = new ConcurrentHashMap<>(16);
+
+	private final long windowMillis;
+
+	private final boolean exponential;
+
+	private final double minFactor;
+
+	private volatile boolean initialized;
+
+	public SlowStartWeigher(NacosLoadBalancerProperties properties) {
+		NacosLoadBalancerProperties.SlowStart slowStart = properties.getSlowStart();
+		this.windowMillis = Math.max(slowStart.getWindow().toMillis(), 0L);
+		this.exponential = "exponential".equalsIgnoreCase(slowStart.getRamp());
+		this.minFactor = Math.min(Math.max(slowStart.getMinWeightPercent(), 0), 100)
+				/ 100D;
+	}
+
+	/**
+	 * Record the first-seen time of new instances and forget removed instances.
+	 * @param instances current instances
+	 * @param now current time in milliseconds
+	 */
+	public void observe(List<ServiceInstance> instances, long now) {
+		// instances already present at startup are not warming up
+		long seen = initialized ? now : 0L;
+		Set<String> keys = new HashSet<>(instances.size() * 2);
+		for (ServiceInstance instance : instances) {
+			String key = NacosBalancer.instanceKey(instance);
+			keys.add(key);
+			firstSeen.putIfAbsent(key, seen);
+		}
+		firstSeen.keySet().retainAll(keys);
+		initialized = true;
+	}
+
+	/**
+	 * Return the weigher of the instances at the given time.
+	 * @param now current time in milliseconds
+	 * @return effective weight of an instance
+	 */
+	public ToDoubleFunction<ServiceInstance> weigher(long now) {
+		return instance -> weightOf(instance, now);
+	}
+
+	/**
+	 * Return the effective weight of an instance.
+	 * @param instance service instance
+	 * @param now current time in milliseconds
+	 * @return Nacos weight scaled by the warm-up factor
+	 */
+	public double weightOf(ServiceInstance instance, long now) {
+		double weight = WeightedInstanceSelector.weightOf(instance);
+		if (weight <= 0) {
+			return weight;
+		}
+		return weight * factor(now - startTimeOf(instance, now));
+	}
+
+	/**
+	 * Return when effective weights should be computed again.
+	 * @param instances current instances
+	 * @param now current time in milliseconds
+	 * @return the next refresh time in milliseconds, {@link Long#MAX_VALUE} if no
+	 * instance is warming up
+	 */
+	public long nextRefreshTime(List<ServiceInstance> instances, long now) {
+		for (ServiceInstance instance : instances) {
+			if (now - startTimeOf(instance, now) < windowMillis) {
+				return now + Math.max(windowMillis / STEPS, MIN_STEP_MILLIS);
+			}
+		}
+		return Long.MAX_VALUE;
+	}
+
+	private long startTimeOf(ServiceInstance instance, long now) {
+		Map<String, String> metadata = instance.getMetadata();
+		String registered = metadata == null ? null
+				: metadata.get(NacosRegistration.REGISTER_TIMESTAMP);
+		Long seen = firstSeen.get(NacosBalancer.instanceKey(instance));
+		long start = seen == null ? now : seen;
+		if (registered != null) {
+			try {
+				long registerTime = Long.parseLong(registered);
+				// a clock ahead of ours must not delay the warm-up
+				return registerTime <= now ? registerTime : start;
+			}
+			catch (NumberFormatException ignored) {
+				// fall back to the first-seen time
+			}
+		}
+		return start;
+	}
+
+	private double factor(long elapsed) {
+		if (elapsed >= windowMillis) {
+			return 1D;
+		}
+		double progress = Math.max(elapsed, 0L) / (double) windowMillis;
+		// exponential doubles the weight every tenth of the window
+		double factor = exponential ? Math.pow(2, 10 * (progress - 1)) : progress;
+		return Math.max(factor, minFactor);
+	}
+
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright 2013-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alibaba.cloud.nacos.metrics;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import com.alibaba.cloud.nacos.discovery.ServiceCache;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Micrometer meters of Nacos discovery.
+ * <ul>
+ * <li>{@code nacos.discovery.get.instances}: timer of the instance lookups, tagged with
+ * the service and the outcome.</li>
+ * <li>{@code nacos.discovery.get.services}: timer of the service name lookups, tagged
+ * with the outcome.</li>
+ * <li>{@code nacos.discovery.fallback}: counter of the lookups answered from
+ * {@link ServiceCache} after a failure, tagged with the operation.</li>
+ * <li>{@code nacos.discovery.instances}: gauge of the cached instances of each looked-up
+ * service.</li>
+ * </ul>
+ * Meters are created once and cached, so recording does not allocate.
+ *
+ * @author Spring Cloud Alibaba contributors
+ * @since 2021.0.4.0
+ */
+public class NacosDiscoveryMetrics {
+
+	/**
+	 * Operation tag of instance lookups.
+	 */
+	public static final String INSTANCES = "instances";
+
+	/**
+	 * Operation tag of service name lookups.
+	 */
+	public static final String SERVICES = "services";
+
+	private final MeterRegistry registry;
+
+	private final Map<String, ServiceMeters> serviceMeters = new ConcurrentHashMap<>(16);
+
+	private final Timer getServicesSuccess;
+
+	private final Timer getServicesError;
+
+	private final Counter instancesFallback;
+
+	private final Counter servicesFallback;
+
+	public NacosDiscoveryMetrics(MeterRegistry registry) {
+		this.registry = registry;
+		this.getServicesSuccess = getServicesTimer("SUCCESS");
+		this.getServicesError = getServicesTimer("ERROR");
+		this.instancesFallback = fallbackCounter(INSTANCES);
+		this.servicesFallback = fallbackCounter(SERVICES);
+	}
+
+	/**
+	 * Record an instance lookup.
+	 * @param serviceId id of service
+	 * @param nanos duration of the lookup
+	 * @param success whether the lookup succeeded
+	 */
+	public void recordGetInstances(String serviceId, long nanos, boolean success) {
+		ServiceMeters meters = serviceMeters.get(serviceId);
+		if (meters == null) {
+			meters = serviceMeters.computeIfAbsent(serviceId, ServiceMeters::new);
+		}
+		(success ? meters.success : meters.error).record(nanos, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Record a service name lookup.
+	 * @param nanos duration of the lookup
+	 * @param success whether the lookup succeeded
+	 */
+	public void recordGetServices(long nanos, boolean success) {
+		(success ? getServicesSuccess : getServicesError).record(nanos,
+				TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Record a lookup answered from {@link ServiceCache} after a failure.
+	 * @param operation {@link #INSTANCES} or {@link #SERVICES}
+	 */
+	public void recordFallback(String operation) {
+		(INSTANCES.equals(operation) ? instancesFallback : servicesFallback).increment();
+	}
+
+	private Timer getServicesTimer(String outcome) {
+		return Timer.builder("nacos.discovery.get.services")
+				.description("Duration of the Nacos service name lookups")
+				.tag("outcome", outcome).register(registry);
+	}
+
+	private Counter fallbackCounter(String operation) {
+		return Counter.builder("nacos.discovery.fallback")
+				.description("Lookups answered from the service cache after a failure")
+				.tag("operation", operation).register(registry);
+	}
+
+	private final class ServiceMeters {
+
+		private final Timer success;
+
+		private final Timer error;
+
+		private ServiceMeters(String serviceId) {
+			this.success = getInstancesTimer(serviceId, "SUCCESS");
+			this.error = getInstancesTimer(serviceId, "ERROR");
+			Gauge.builder("nacos.discovery.instances", serviceId,
+					id -> ServiceCache.getInstances(id).size())
+					.description("Cached instances of the service")
+					.tag("service", serviceId).strongReference(true).register(registry);
+		}
+
+		private Timer getInstancesTimer(String serviceId, String outcome) {
+			return Timer.builder("nacos.discovery.get.instances")
+					.description("Duration of the Nacos instance lookups")
+					.tag("service", serviceId).tag("outcome", outcome).register(registry);
+		}
+
+	}
+
+}
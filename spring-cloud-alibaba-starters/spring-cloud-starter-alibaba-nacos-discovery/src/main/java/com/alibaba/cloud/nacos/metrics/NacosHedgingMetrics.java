@@ -0,0 +1,74 @@
+/*
+ * Copyright 2013-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alibaba.cloud.nacos.metrics;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.alibaba.cloud.nacos.loadbalancer.HedgingPolicy;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Micrometer meters of hedged requests.
+ * <ul>
+ * <li>{@code nacos.loadbalancer.hedges}: counter of the hedges, tagged with the service
+ * and the {@link HedgingPolicy.Outcome outcome}: whether the first or the second request
+ * answered first, or why no second request could be sent.</li>
+ * </ul>
+ *
+ * @author Spring Cloud Alibaba contributors
+ * @since 2021.0.4.0
+ */
+public class NacosHedgingMetrics {
+
+	private final MeterRegistry registry;
+
+	private final Map<String, Map<HedgingPolicy.Outcome, Counter>> counters = new ConcurrentHashMap<>(
+			16);
+
+	public NacosHedgingMetrics(MeterRegistry registry) {
+		this.registry = registry;
+	}
+
+	/**
+	 * Record the outcome of a hedge.
+	 * @param serviceId id of service
+	 * @param outcome outcome of the hedge
+	 */
+	public void record(String serviceId, HedgingPolicy.Outcome outcome) {
+		Map<HedgingPolicy.Outcome, Counter> serviceCounters = counters.get(serviceId);
+		if (serviceCounters == null) {
+			serviceCounters = counters.computeIfAbsent(serviceId, this::register);
+		}
+		serviceCounters.get(outcome).increment();
+	}
+
+	private Map<HedgingPolicy.Outcome, Counter> register(String serviceId) {
+		Map<HedgingPolicy.Outcome, Counter> serviceCounters = new EnumMap<>(
+				HedgingPolicy.Outcome.class);
+		for (HedgingPolicy.Outcome outcome : HedgingPolicy.Outcome.values()) {
+			serviceCounters.put(outcome, Counter.builder("nacos.loadbalancer.hedges")
+					.description("Hedges of slow requests by outcome")
+					.tag("service", serviceId).tag("outcome", outcome.name())
+					.register(registry));
+		}
+		return serviceCounters;
+	}
+
+}
@@ -0,0 +1,177 @@
+/*
+ * Copyright 2013-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alibaba.cloud.nacos.metrics;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToDoubleFunction;
+
+import com.alibaba.cloud.nacos.balancer.NacosBalancer;
+import com.alibaba.cloud.nacos.loadbalancer.ConcurrencyLimiter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import org.springframework.cloud.client.ServiceInstance;
+
+/**
+ * Micrometer meters of a Nacos load balancer.
+ * <ul>
+ * <li>{@code nacos.loadbalancer.choose}: timer with percentile histogram of the
+ * {@code choose} calls, tagged with the service and whether an instance was chosen.</li>
+ * <li>{@code nacos.loadbalancer.selections}: counter of the selections of each instance,
+ * tagged with the service and the instance, to spot skewed balancing. The counters of
+ * instances that left are removed.</li>
+ * <li>{@code nacos.loadbalancer.concurrency.limit} and
+ * {@code nacos.loadbalancer.concurrency.in.flight}: gauges of the limit and of the
+ * in-flight requests of each instance, with a {@link ConcurrencyLimiter}.</li>
+ * <li>{@code nacos.loadbalancer.concurrency.rejected}: counter of the requests rejected
+ * because every instance was at its limit.</li>
+ * </ul>
+ *
+ * @author Spring Cloud Alibaba contributors
+ * @since 2021.0.4.0
+ */
+public class NacosLoadBalancerMetrics {
+
+	private final MeterRegistry registry;
+
+	private final String serviceId;
+
+	private final Timer chosen;
+
+	private final Timer empty;
+
+	private final Counter rejected;
+
+	private final ConcurrencyLimiter concurrencyLimiter;
+
+	private final Map<String, InstanceMeters> selections = new ConcurrentHashMap<>(16);
+
+	public NacosLoadBalancerMetrics(MeterRegistry registry, String serviceId) {
+		this(registry, serviceId, null);
+	}
+
+	public NacosLoadBalancerMetrics(MeterRegistry registry, String serviceId,
+			ConcurrencyLimiter concurrencyLimiter) {
+		this.registry = registry;
+		this.serviceId = serviceId;
+		this.concurrencyLimiter = concurrencyLimiter;
+		this.chosen = chooseTimer("CHOSEN");
+		this.empty = chooseTimer("EMPTY");
+		this.rejected = Counter.builder("nacos.loadbalancer.concurrency.rejected")
+				.description(
+						"Requests rejected because every instance was at its concurrency limit")
+				.tag("service", serviceId).register(registry);
+	}
+
+	/**
+	 * Record a {@code choose} call.
+	 * @param nanos duration of the call
+	 * @param instance chosen instance, null if none
+	 */
+	public void recordChoose(long nanos, ServiceInstance instance) {
+		if (instance == null) {
+			empty.record(nanos, TimeUnit.NANOSECONDS);
+			return;
+		}
+		chosen.record(nanos, TimeUnit.NANOSECONDS);
+		String key = NacosBalancer.instanceKey(instance);
+		InstanceMeters meters = selections.get(key);
+		if (meters == null) {
+			meters = selections.computeIfAbsent(key, InstanceMeters::new);
+		}
+		meters.selections.increment();
+	}
+
+	/**
+	 * Record a request rejected because every instance was at its concurrency limit.
+	 */
+	public void recordRejected() {
+		rejected.increment();
+	}
+
+	/**
+	 * Remove the meters of instances that are no longer in the list.
+	 * @param instances current instances
+	 */
+	public void retain(List<ServiceInstance> instances) {
+		if (selections.isEmpty()) {
+			return;
+		}
+		Set<String> keys = new HashSet<>(instances.size() * 2);
+		for (ServiceInstance instance : instances) {
+			keys.add(NacosBalancer.instanceKey(instance));
+		}
+		selections.entrySet().removeIf(entry -> {
+			if (keys.contains(entry.getKey())) {
+				return false;
+			}
+			entry.getValue().meters.forEach(registry::remove);
+			return true;
+		});
+	}
+
+	private Timer chooseTimer(String outcome) {
+		return Timer.builder("nacos.loadbalancer.choose")
+				.description("Duration of the load balancer choose calls")
+				.tag("service", serviceId).tag("outcome", outcome)
+				.publishPercentileHistogram().register(registry);
+	}
+
+	private final class InstanceMeters {
+
+		private final Counter selections;
+
+		private final List<Meter> meters = new ArrayList<>(3);
+
+		private InstanceMeters(String instance) {
+			this.selections = Counter.builder("nacos.loadbalancer.selections")
+					.description("Number of times the instance was chosen")
+					.tag("service", serviceId).tag("instance", instance)
+					.register(registry);
+			meters.add(selections);
+			if (concurrencyLimiter != null) {
+				meters.add(concurrencyGauge("nacos.loadbalancer.concurrency.limit",
+						"Concurrency limit of the instance", instance,
+						ConcurrencyLimiter.InstanceLimit::getLimit));
+				meters.add(concurrencyGauge("nacos.loadbalancer.concurrency.in.flight",
+						"In-flight requests of the instance", instance,
+						ConcurrencyLimiter.InstanceLimit::getInFlight));
+			}
+		}
+
+		private Gauge concurrencyGauge(String name, String description,
+				String instance,
+				ToDoubleFunction<ConcurrencyLimiter.InstanceLimit> value) {
+			return Gauge.builder(name, concurrencyLimiter, limiter -> {
+				ConcurrencyLimiter.InstanceLimit limit = limiter.getLimit(instance);
+				return limit == null ? Double.NaN : value.applyAsDouble(limit);
+			}).description(description).tag("service", serviceId)
+					.tag("instance", instance).register(registry);
+		}
+
+	}
+
+}
@@ -59,6 +59,11 @@ public class NacosRegistration implements Registration, ServiceInstance {
 	 */
 	public static final String MANAGEMENT_ENDPOINT_BASE_PATH = "management.endpoints.web.base-path";
 
+	/**
+	 * The metadata key of the registration time, in milliseconds since the epoch.
+	 */
+	public static final String REGISTER_TIMESTAMP = "nacos.register.timestamp";
+
 	private List<NacosRegistrationCustomizer> registrationCustomizers;
 
 	private NacosDiscoveryProperties nacosDiscoveryProperties;
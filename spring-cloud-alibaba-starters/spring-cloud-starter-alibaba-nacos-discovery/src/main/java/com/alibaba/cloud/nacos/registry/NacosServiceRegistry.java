@@ -16,15 +16,30 @@
 
 package com.alibaba.cloud.nacos.registry;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 
 import com.alibaba.cloud.commons.lang.StringUtils;
 import com.alibaba.cloud.nacos.NacosDiscoveryProperties;
 import com.alibaba.cloud.nacos.NacosServiceManager;
+import com.alibaba.cloud.nacos.utils.NacosThreads;
 import com.alibaba.nacos.api.exception.NacosException;
 import com.alibaba.nacos.api.naming.NamingService;
 import com.alibaba.nacos.api.naming.pojo.Instance;
+import com.alibaba.nacos.api.naming.utils.NamingUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -51,6 +66,46 @@ public class NacosServiceRegistry implements ServiceRegistry<Registration> {
 
 	private final NacosServiceManager nacosServiceManager;
 
+	/**
+	 * Instances registered by this registry, by grouped service name and address.
+	 * Written while holding its lock, which serializes the registration calls.
+	 */
+	private final Map<String, Map<String, Instance>> registered = new ConcurrentHashMap<>(
+			4);
+
+	/**
+	 * Instances waiting for an asynchronous registration, by grouped service name and
+	 * address, guarded by its lock along with the fields of the registration task.
+	 */
+	private final Map<String, Map<String, Instance>> pending = new LinkedHashMap<>(4);
+
+	/**
+	 * Addresses of the instances being registered asynchronously, by grouped service
+	 * name, guarded by the lock of {@link #pending}.
+	 */
+	private Map<String, Set<String>> inFlight = Collections.emptyMap();
+
+	/**
+	 * Addresses of in-flight instances deregistered meanwhile, by grouped service name,
+	 * guarded by the lock of {@link #pending}.
+	 */
+	private final Map<String, Set<String>> cancelled = new HashMap<>(4);
+
+	private ScheduledExecutorService registrationExecutor;
+
+	private ScheduledFuture<?> registrationTask;
+
+	private int attempts;
+
+	private volatile NacosRegistrationState state = NacosRegistrationState.UNREGISTERED;
+
+	private volatile Exception registrationFailure;
+
+	/**
+	 * Time of the last registration, advertised in the metadata of the instance.
+	 */
+	private volatile long registerTimestamp;
+
 	public NacosServiceRegistry(NacosServiceManager nacosServiceManager,
 			NacosDiscoveryProperties nacosDiscoveryProperties) {
 		this.nacosDiscoveryProperties = nacosDiscoveryProperties;
@@ -65,18 +120,26 @@ public class NacosServiceRegistry implements ServiceRegistry<Registration> {
 			return;
 		}
 
-		NamingService namingService = namingService();
 		String serviceId = registration.getServiceId();
 		String group = nacosDiscoveryProperties.getGroup();
 
+		registerTimestamp = System.currentTimeMillis();
 		Instance instance = getNacosInstanceFromRegistration(registration);
 
+		if (nacosDiscoveryProperties.isRegisterAsync()) {
+			registerAsync(serviceId, group, instance);
+			return;
+		}
+
 		try {
-			namingService.registerInstance(serviceId, group, instance);
+			register(serviceId, group, Collections.singletonList(instance));
+			state = NacosRegistrationState.REGISTERED;
 			log.info("nacos registry, {} {} {}:{} register finished", group, serviceId,
 					instance.getIp(), instance.getPort());
 		}
 		catch (Exception e) {
+			registrationFailure = e;
+			state = NacosRegistrationState.FAILED;
 			if (nacosDiscoveryProperties.isFailFast()) {
 				log.error("nacos registry, {} register failed...{},", serviceId,
 						registration.toString(), e);
@@ -89,6 +152,179 @@ public class NacosServiceRegistry implements ServiceRegistry<Registration> {
 		}
 	}
 
+	/**
+	 * Register the instances of a service. Several ephemeral instances of the same
+	 * service are registered at once with the batch API, which replaces the instances
+	 * previously registered by this client for the service.
+	 */
+	private void register(String serviceId, String group, Collection<Instance> instances)
+			throws NacosException {
+		String key = NamingUtils.getGroupedName(serviceId, group);
+		synchronized (registered) {
+			Map<String, Instance> next = new LinkedHashMap<>(
+					registered.getOrDefault(key, Collections.emptyMap()));
+			for (Instance instance : instances) {
+				next.put(address(instance.getIp(), instance.getPort()), instance);
+			}
+			if (next.size() > 1 && allEphemeral(next.values())) {
+				namingService().batchRegisterInstance(serviceId, group,
+						new ArrayList<>(next.values()));
+			}
+			else {
+				for (Instance instance : instances) {
+					namingService().registerInstance(serviceId, group, instance);
+				}
+			}
+			registered.put(key, next);
+		}
+	}
+
+	private void registerAsync(String serviceId, String group, Instance instance) {
+		String key = NamingUtils.getGroupedName(serviceId, group);
+		String address = address(instance.getIp(), instance.getPort());
+		synchronized (pending) {
+			pending.computeIfAbsent(key, k -> new LinkedHashMap<>()).put(address,
+					instance);
+			Set<String> addresses = cancelled.get(key);
+			if (addresses != null) {
+				addresses.remove(address);
+			}
+			state = NacosRegistrationState.REGISTERING;
+			if (registrationTask == null) {
+				attempts = 0;
+				scheduleRegistration(0);
+			}
+		}
+	}
+
+	private void registerPending() {
+		Map<String, Map<String, Instance>> batch;
+		synchronized (pending) {
+			batch = new LinkedHashMap<>(pending);
+			pending.clear();
+			attempts++;
+			Map<String, Set<String>> addresses = new HashMap<>(batch.size() * 2);
+			batch.forEach((key, instances) -> addresses.put(key,
+					new HashSet<>(instances.keySet())));
+			inFlight = addresses;
+		}
+		Exception failure = null;
+		for (Map.Entry<String, Map<String, Instance>> entry : batch.entrySet()) {
+			String serviceId = NamingUtils.getServiceName(entry.getKey());
+			String group = NamingUtils.getGroupName(entry.getKey());
+			try {
+				// a deregistration either waits for this registration and undoes it, or
+				// cancels the instance before it is registered
+				synchronized (registered) {
+					Map<String, Instance> instances = withoutCancelled(entry.getKey(),
+							entry.getValue());
+					if (instances.isEmpty()) {
+						continue;
+					}
+					register(serviceId, group, instances.values());
+					log.info("nacos registry, {} {} {} register finished", group,
+							serviceId, instances.keySet());
+				}
+			}
+			catch (Exception e) {
+				failure = e;
+				synchronized (pending) {
+					// instances registered again meanwhile replace the failed ones
+					Map<String, Instance> retry = pending.computeIfAbsent(entry.getKey(),
+							k -> new LinkedHashMap<>());
+					withoutCancelled(entry.getKey(), entry.getValue())
+							.forEach(retry::putIfAbsent);
+					if (retry.isEmpty()) {
+						pending.remove(entry.getKey());
+					}
+				}
+			}
+		}
+		synchronized (pending) {
+			inFlight = Collections.emptyMap();
+			cancelled.clear();
+			registrationTask = null;
+			if (registrationExecutor.isShutdown()) {
+				return;
+			}
+			if (failure == null) {
+				attempts = 0;
+				if (pending.isEmpty()) {
+					state = registered.isEmpty() ? NacosRegistrationState.UNREGISTERED
+							: NacosRegistrationState.REGISTERED;
+				}
+				else {
+					scheduleRegistration(0);
+				}
+				return;
+			}
+			registrationFailure = failure;
+			if (attempts >= nacosDiscoveryProperties.getRegisterRetryMaxAttempts()) {
+				log.error("nacos registry, {} register failed after {} attempts",
+						pending.keySet(), attempts, failure);
+				pending.clear();
+				state = NacosRegistrationState.FAILED;
+				return;
+			}
+			long delay = retryDelay(attempts);
+			log.warn("nacos registry, {} register failed, retrying in {} ms",
+					pending.keySet(), delay, failure);
+			scheduleRegistration(delay);
+		}
+	}
+
+	private Map<String, Instance> withoutCancelled(String key,
+			Map<String, Instance> instances) {
+		synchronized (pending) {
+			if (registrationExecutor.isShutdown()) {
+				return Collections.emptyMap();
+			}
+			Set<String> addresses = cancelled.get(key);
+			if (addresses == null) {
+				return instances;
+			}
+			Map<String, Instance> remaining = new LinkedHashMap<>(instances);
+			remaining.keySet().removeAll(addresses);
+			return remaining;
+		}
+	}
+
+	private void scheduleRegistration(long delay) {
+		if (registrationExecutor == null) {
+			registrationExecutor = Executors.newSingleThreadScheduledExecutor(
+					NacosThreads.threadFactory("nacos-registration",
+							nacosDiscoveryProperties.isVirtualThreads()));
+		}
+		registrationTask = registrationExecutor.schedule(this::registerPending, delay,
+				TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Exponential backoff from the initial interval, bounded by the maximum interval.
+	 */
+	private long retryDelay(int attempt) {
+		long max = nacosDiscoveryProperties.getRegisterRetryMaxInterval();
+		long delay = nacosDiscoveryProperties.getRegisterRetryInitialInterval();
+		for (int i = 1; i < attempt && delay < max; i++) {
+			delay *= 2;
+		}
+		return Math.min(delay, max);
+	}
+
+	/**
+	 * @return the state of the registrations of this registry
+	 */
+	public NacosRegistrationState getRegistrationState() {
+		return state;
+	}
+
+	/**
+	 * @return the last registration failure, or null if none
+	 */
+	public Exception getRegistrationFailure() {
+		return registrationFailure;
+	}
+
 	@Override
 	public void deregister(Registration registration) {
 
@@ -99,24 +335,69 @@ public class NacosServiceRegistry implements ServiceRegistry<Registration> {
 			return;
 		}
 
-		NamingService namingService = namingService();
 		String serviceId = registration.getServiceId();
 		String group = nacosDiscoveryProperties.getGroup();
+		String key = NamingUtils.getGroupedName(serviceId, group);
+		String address = address(registration.getHost(), registration.getPort());
+
+		synchronized (pending) {
+			Map<String, Instance> instances = pending.get(key);
+			if (instances != null && instances.remove(address) != null
+					&& instances.isEmpty()) {
+				pending.remove(key);
+			}
+			if (inFlight.getOrDefault(key, Collections.emptySet()).contains(address)) {
+				cancelled.computeIfAbsent(key, k -> new HashSet<>()).add(address);
+			}
+		}
 
 		try {
-			namingService.deregisterInstance(serviceId, group, registration.getHost(),
-					registration.getPort(), nacosDiscoveryProperties.getClusterName());
+			synchronized (registered) {
+				Map<String, Instance> current = registered.getOrDefault(key,
+						Collections.emptyMap());
+				Map<String, Instance> remaining = new LinkedHashMap<>(current);
+				remaining.remove(address);
+				if (!remaining.isEmpty() && current.size() > 1
+						&& allEphemeral(remaining.values())) {
+					// the instances were registered with the batch API
+					namingService().batchRegisterInstance(serviceId, group,
+							new ArrayList<>(remaining.values()));
+				}
+				else {
+					namingService().deregisterInstance(serviceId, group,
+							registration.getHost(), registration.getPort(),
+							nacosDiscoveryProperties.getClusterName());
+				}
+				if (remaining.isEmpty()) {
+					registered.remove(key);
+				}
+				else {
+					registered.put(key, remaining);
+				}
+			}
 		}
 		catch (Exception e) {
 			log.error("ERR_NACOS_DEREGISTER, de-register failed...{},",
 					registration.toString(), e);
 		}
+		synchronized (pending) {
+			if (registrationTask == null) {
+				state = registered.isEmpty() ? NacosRegistrationState.UNREGISTERED
+						: NacosRegistrationState.REGISTERED;
+			}
+		}
 
 		log.info("De-registration finished.");
 	}
 
 	@Override
 	public void close() {
+		synchronized (pending) {
+			if (registrationExecutor != null) {
+				registrationExecutor.shutdownNow();
+			}
+			pending.clear();
+		}
 		try {
 			nacosServiceManager.nacosServiceShutDown();
 		}
@@ -184,11 +465,32 @@ public class NacosServiceRegistry implements ServiceRegistry<Registration> {
 		instance.setWeight(nacosDiscoveryProperties.getWeight());
 		instance.setClusterName(nacosDiscoveryProperties.getClusterName());
 		instance.setEnabled(nacosDiscoveryProperties.isInstanceEnabled());
-		instance.setMetadata(registration.getMetadata());
+		Map<String, String> metadata = registration.getMetadata() == null
+				? new HashMap<>() : new HashMap<>(registration.getMetadata());
+		long timestamp = registerTimestamp;
+		if (registration instanceof NacosRegistration && timestamp != 0) {
+			// lets consumers ramp up the weight of this instance while it warms up
+			metadata.put(NacosRegistration.REGISTER_TIMESTAMP,
+					String.valueOf(timestamp));
+		}
+		instance.setMetadata(metadata);
 		instance.setEphemeral(nacosDiscoveryProperties.isEphemeral());
 		return instance;
 	}
 
+	private static String address(String ip, int port) {
+		return ip + ":" + port;
+	}
+
+	private static boolean allEphemeral(Collection<Instance> instances) {
+		for (Instance instance : instances) {
+			if (!instance.isEphemeral()) {
+				return false;
+			}
+		}
+		return true;
+	}
+
 	private NamingService namingService() {
 		return nacosServiceManager.getNamingService();
 	}
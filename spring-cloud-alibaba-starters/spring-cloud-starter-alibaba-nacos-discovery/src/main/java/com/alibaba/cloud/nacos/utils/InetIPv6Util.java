@@ -22,12 +22,15 @@ import java.net.Inet6Address;
 import java.net.InetAddress;
 import java.net.NetworkInterface;
 import java.net.UnknownHostException;
+import java.util.ArrayList;
 import java.util.Enumeration;
 import java.util.List;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
 
 import com.alibaba.cloud.commons.lang.StringUtils;
 import org.apache.commons.logging.Log;
@@ -37,6 +40,10 @@ import org.springframework.cloud.commons.util.InetUtils;
 import org.springframework.cloud.commons.util.InetUtilsProperties;
 
 /**
+ * Finds the first non-loopback IPv6 address. The address is looked up once and cached
+ * until {@link #refresh()}, and the hostname of the cached host info is only resolved
+ * when asked for, so that finding the address never waits for a DNS lookup.
+ *
  * @author HH
  */
 public class InetIPv6Util implements Closeable {
@@ -47,27 +54,61 @@ public class InetIPv6Util implements Closeable {
 
 	private final InetUtilsProperties properties;
 
+	private volatile ResolvedAddress resolved;
+
+	private volatile List<Pattern> ignoredInterfaces;
+
+	private volatile List<Pattern> preferredNetworks;
+
 	@Override
 	public void close() {
 		this.executorService.shutdown();
 	}
 
 	public InetIPv6Util(final InetUtilsProperties properties) {
+		this(properties, false);
+	}
+
+	/**
+	 * @param properties properties of the address lookup
+	 * @param virtualThreads whether to resolve hostnames on a virtual thread
+	 */
+	public InetIPv6Util(final InetUtilsProperties properties, boolean virtualThreads) {
 		this.properties = properties;
-		this.executorService = Executors.newSingleThreadExecutor((r) -> {
-			Thread thread = new Thread(r);
-			thread.setName("spring.cloud.alibaba.inetIPV6Util");
-			thread.setDaemon(true);
-			return thread;
-		});
+		this.executorService = Executors.newSingleThreadExecutor(NacosThreads
+				.threadFactory("spring.cloud.alibaba.inetIPV6Util", virtualThreads));
 	}
 
+	/**
+	 * @return the host info of the cached first non-loopback IPv6 address, whose
+	 * hostname is resolved on first access, or null if there is none
+	 */
 	public InetUtils.HostInfo findFirstNonLoopbackHostInfo() {
-		InetAddress address = this.findFirstNonLoopbackIPv6Address();
-		if (address != null) {
-			return this.convertAddress(address);
+		return resolve().hostInfo;
+	}
+
+	/**
+	 * Forget the cached address and the compiled patterns of the properties, so that the
+	 * next lookup enumerates the network interfaces again.
+	 */
+	public void refresh() {
+		this.resolved = null;
+		this.ignoredInterfaces = null;
+		this.preferredNetworks = null;
+	}
+
+	private ResolvedAddress resolve() {
+		ResolvedAddress current = this.resolved;
+		if (current == null) {
+			synchronized (this) {
+				current = this.resolved;
+				if (current == null) {
+					current = new ResolvedAddress(findFirstNonLoopbackIPv6Address());
+					this.resolved = current;
+				}
+			}
 		}
-		return null;
+		return current;
 	}
 
 	public InetAddress findFirstNonLoopbackIPv6Address() {
@@ -122,8 +163,8 @@ public class InetIPv6Util implements Closeable {
 	}
 
 	public String findIPv6Address() {
-		InetUtils.HostInfo hostInfo = findFirstNonLoopbackHostInfo();
-		String ip = hostInfo != null ? hostInfo.getIpAddress() : "";
+		InetAddress address = resolve().address;
+		String ip = address != null ? address.getHostAddress() : "";
 		if (!StringUtils.isEmpty(ip)) {
 			int index = ip.indexOf('%');
 			ip = index > 0 ? ip.substring(0, index) : ip;
@@ -144,13 +185,18 @@ public class InetIPv6Util implements Closeable {
 			}
 			return siteLocalAddress;
 		}
-		final List<String> preferredNetworks = this.properties.getPreferredNetworks();
+		List<Pattern> preferredNetworks = this.preferredNetworks;
+		if (preferredNetworks == null) {
+			preferredNetworks = compile(this.properties.getPreferredNetworks());
+			this.preferredNetworks = preferredNetworks;
+		}
 		if (preferredNetworks.isEmpty()) {
 			return true;
 		}
-		for (String regex : preferredNetworks) {
-			final String hostAddress = address.getHostAddress();
-			if (hostAddress.matches(regex) || hostAddress.startsWith(regex)) {
+		final String hostAddress = address.getHostAddress();
+		for (Pattern pattern : preferredNetworks) {
+			if (pattern.matcher(hostAddress).matches()
+					|| hostAddress.startsWith(pattern.pattern())) {
 				return true;
 			}
 		}
@@ -159,8 +205,13 @@ public class InetIPv6Util implements Closeable {
 	}
 
 	boolean ignoreInterface(String interfaceName) {
-		for (String regex : this.properties.getIgnoredInterfaces()) {
-			if (interfaceName.matches(regex)) {
+		List<Pattern> ignoredInterfaces = this.ignoredInterfaces;
+		if (ignoredInterfaces == null) {
+			ignoredInterfaces = compile(this.properties.getIgnoredInterfaces());
+			this.ignoredInterfaces = ignoredInterfaces;
+		}
+		for (Pattern pattern : ignoredInterfaces) {
+			if (pattern.matcher(interfaceName).matches()) {
 				log.trace("Ignoring interface: " + interfaceName);
 				return true;
 			}
@@ -168,21 +219,84 @@ public class InetIPv6Util implements Closeable {
 		return false;
 	}
 
+	private List<Pattern> compile(List<String> regexes) {
+		List<Pattern> patterns = new ArrayList<>(regexes.size());
+		for (String regex : regexes) {
+			try {
+				patterns.add(Pattern.compile(regex));
+			}
+			catch (PatternSyntaxException e) {
+				// matched literally rather than failing every lookup
+				patterns.add(Pattern.compile(regex, Pattern.LITERAL));
+			}
+		}
+		return patterns;
+	}
+
 	public InetUtils.HostInfo convertAddress(final InetAddress address) {
 		InetUtils.HostInfo hostInfo = new InetUtils.HostInfo();
-		Future<String> result = this.executorService.submit(address::getHostName);
+		hostInfo.setHostname(lookupHostname(address));
+		hostInfo.setIpAddress(address.getHostAddress());
+		return hostInfo;
+	}
 
-		String hostname;
+	private String lookupHostname(InetAddress address) {
+		Future<String> result = this.executorService.submit(address::getHostName);
 		try {
-			hostname = result.get(this.properties.getTimeoutSeconds(), TimeUnit.SECONDS);
+			return result.get(this.properties.getTimeoutSeconds(), TimeUnit.SECONDS);
 		}
 		catch (Exception e) {
 			log.info("Cannot determine local hostname");
-			hostname = "localhost";
+			return "localhost";
 		}
-		hostInfo.setHostname(hostname);
-		hostInfo.setIpAddress(address.getHostAddress());
-		return hostInfo;
+	}
+
+	private final class ResolvedAddress {
+
+		private final InetAddress address;
+
+		private final InetUtils.HostInfo hostInfo;
+
+		private ResolvedAddress(InetAddress address) {
+			this.address = address;
+			this.hostInfo = address != null ? new LazyHostInfo(address) : null;
+		}
+
+	}
+
+	/**
+	 * Host info resolving its hostname on first access.
+	 */
+	private final class LazyHostInfo extends InetUtils.HostInfo {
+
+		private final InetAddress address;
+
+		private volatile boolean hostnameResolved;
+
+		private LazyHostInfo(InetAddress address) {
+			this.address = address;
+			setIpAddress(address.getHostAddress());
+		}
+
+		@Override
+		public String getHostname() {
+			if (!hostnameResolved) {
+				synchronized (this) {
+					if (!hostnameResolved) {
+						super.setHostname(lookupHostname(address));
+						hostnameResolved = true;
+					}
+				}
+			}
+			return super.getHostname();
+		}
+
+		@Override
+		public void setHostname(String hostname) {
+			super.setHostname(hostname);
+			hostnameResolved = true;
+		}
+
 	}
 
 }
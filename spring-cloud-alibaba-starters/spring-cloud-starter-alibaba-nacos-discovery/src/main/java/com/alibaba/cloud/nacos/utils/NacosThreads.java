@@ -0,0 +1,144 @@
+/*
+ * Copyright 2013-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alibaba.cloud.nacos.utils;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Threads of the background tasks of Nacos discovery, virtual when asked for and the
+ * JDK supports them (21 or later). Virtual threads are created through reflection so
+ * that the starter still runs on older JDKs, which get daemon platform threads instead.
+ *
+ * @author Spring Cloud Alibaba contributors
+ * @since 2021.0.4.0
+ */
+public final class NacosThreads {
+
+	private static final Logger log = LoggerFactory.getLogger(NacosThreads.class);
+
+	private static final AtomicBoolean WARNED = new AtomicBoolean();
+
+	private static final Method OF_VIRTUAL;
+
+	private static final Method NAME;
+
+	private static final Method NAME_PREFIX;
+
+	private static final Method FACTORY;
+
+	private static final Method NEW_THREAD_PER_TASK_EXECUTOR;
+
+	static {
+		Method ofVirtual = null;
+		Method name = null;
+		Method namePrefix = null;
+		Method factory = null;
+		Method newThreadPerTaskExecutor = null;
+		try {
+			Class<?> builder = Class.forName("java.lang.Thread$Builder");
+			name = builder.getMethod("name", String.class);
+			namePrefix = builder.getMethod("name", String.class, long.class);
+			factory = builder.getMethod("factory");
+			newThreadPerTaskExecutor = Executors.class
+					.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+			ofVirtual = Thread.class.getMethod("ofVirtual");
+			// a preview feature before JDK 21, refused unless preview is enabled
+			ofVirtual.invoke(null);
+		}
+		catch (ReflectiveOperationException | RuntimeException | LinkageError e) {
+			ofVirtual = null;
+		}
+		OF_VIRTUAL = ofVirtual;
+		NAME = name;
+		NAME_PREFIX = namePrefix;
+		FACTORY = factory;
+		NEW_THREAD_PER_TASK_EXECUTOR = newThreadPerTaskExecutor;
+	}
+
+	private NacosThreads() {
+	}
+
+	/**
+	 * @return true if the JDK supports virtual threads
+	 */
+	public static boolean isVirtualThreadsSupported() {
+		return OF_VIRTUAL != null;
+	}
+
+	/**
+	 * Factory of the threads of a single-threaded executor, all named after the task.
+	 * @param name name of the threads
+	 * @param virtual whether to create virtual threads if supported
+	 * @return a factory of virtual threads, or of daemon platform threads
+	 */
+	public static ThreadFactory threadFactory(String name, boolean virtual) {
+		if (virtual && checkSupported()) {
+			try {
+				return (ThreadFactory) FACTORY
+						.invoke(NAME.invoke(OF_VIRTUAL.invoke(null), name));
+			}
+			catch (ReflectiveOperationException e) {
+				log.warn("Failed to create virtual threads, using platform threads", e);
+			}
+		}
+		return r -> {
+			Thread thread = new Thread(r, name);
+			thread.setDaemon(true);
+			return thread;
+		};
+	}
+
+	/**
+	 * Executor that starts a virtual thread for each task, named with the given prefix
+	 * and an increasing number.
+	 * @param prefix prefix of the thread names
+	 * @return the executor, or null if virtual threads are not supported
+	 */
+	public static ExecutorService newVirtualThreadPerTaskExecutor(String prefix) {
+		if (!checkSupported()) {
+			return null;
+		}
+		try {
+			ThreadFactory factory = (ThreadFactory) FACTORY
+					.invoke(NAME_PREFIX.invoke(OF_VIRTUAL.invoke(null), prefix, 1L));
+			return (ExecutorService) NEW_THREAD_PER_TASK_EXECUTOR.invoke(null, factory);
+		}
+		catch (ReflectiveOperationException e) {
+			log.warn("Failed to create virtual threads, using platform threads", e);
+			return null;
+		}
+	}
+
+	private static boolean checkSupported() {
+		if (isVirtualThreadsSupported()) {
+			return true;
+		}
+		if (WARNED.compareAndSet(false, true)) {
+			log.warn("Virtual threads need JDK 21 or later, running {} with platform "
+					+ "threads", System.getProperty("java.version"));
+		}
+		return false;
+	}
+
+}
@@ -18,6 +18,7 @@ package com.alibaba.cloud.nacos.utils;
 
 import com.alibaba.cloud.nacos.ConditionalOnNacosDiscoveryEnabled;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.cloud.client.ConditionalOnDiscoveryEnabled;
 import org.springframework.cloud.commons.util.InetUtilsProperties;
@@ -37,8 +38,9 @@ public class UtilIPv6AutoConfiguration {
 
 	@Bean
 	@ConditionalOnMissingBean
-	public InetIPv6Util inetIPv6Util(InetUtilsProperties properties) {
-		return new InetIPv6Util(properties);
+	public InetIPv6Util inetIPv6Util(InetUtilsProperties properties,
+			@Value("${spring.cloud.nacos.discovery.virtual-threads:false}") boolean virtualThreads) {
+		return new InetIPv6Util(properties, virtualThreads);
 	}
 
 }
@@ -0,0 +1,138 @@
+/*
+ * Copyright 2013-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alibaba.cloud.nacos;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+
+import com.alibaba.cloud.nacos.discovery.NacosDiscoveryClient;
+import com.alibaba.cloud.nacos.discovery.NacosServiceDiscovery;
+import com.alibaba.nacos.api.naming.NamingService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static com.alibaba.cloud.nacos.test.NacosMockTest.serviceInstance;
+import static com.alibaba.nacos.api.PropertyKeyConst.NAMESPACE;
+import static com.alibaba.nacos.api.PropertyKeyConst.SERVER_ADDR;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * @author Spring Cloud Alibaba contributors
+ */
+public class NacosServiceManagerTest {
+
+	private final List<Properties> created = new ArrayList<>();
+
+	private final NacosServiceManager manager = new NacosServiceManager() {
+		@Override
+		protected NamingService createNewNamingService(Properties properties) {
+			created.add(properties);
+			return mock(NamingService.class);
+		}
+	};
+
+	private NacosDiscoveryProperties discoveryProperties;
+
+	@BeforeEach
+	public void setUp() {
+		discoveryProperties = mock(NacosDiscoveryProperties.class);
+		when(discoveryProperties.getNamespace()).thenReturn("public");
+		when(discoveryProperties.getGroup()).thenReturn("DEFAULT_GROUP");
+		when(discoveryProperties.getNacosProperties())
+				.thenAnswer(invocation -> properties("public"));
+		manager.setNacosDiscoveryProperties(discoveryProperties);
+	}
+
+	@Test
+	public void testPoolByNamespace() {
+		NamingService namingService = manager.getNamingService();
+		NamingService dev = manager.getNamespaceNamingService("dev");
+
+		assertThat(dev).isNotSameAs(namingService);
+		assertThat(manager.getNamingService()).isSameAs(namingService);
+		assertThat(manager.getNamespaceNamingService("dev")).isSameAs(dev);
+		assertThat(manager.getNamespaceNamingService("public")).isSameAs(namingService);
+		assertThat(manager.getPooledNamingService(properties("dev"))).isSameAs(dev);
+		assertThat(created).hasSize(2);
+
+		Properties otherServer = properties("dev");
+		otherServer.put(SERVER_ADDR, "127.0.0.2:8848");
+		assertThat(manager.getPooledNamingService(otherServer)).isNotSameAs(dev);
+	}
+
+	@Test
+	@SuppressWarnings("deprecation")
+	public void testDeprecatedLookupReturnsTheDiscoveryNamingService() {
+		NamingService namingService = manager.getNamingService(properties("dev"));
+
+		assertThat(manager.getNamingService()).isSameAs(namingService);
+		assertThat(manager.getNamingService(properties("test"))).isSameAs(namingService);
+		assertThat(created).hasSize(1);
+		assertThat(created.get(0).get(NAMESPACE)).isEqualTo("dev");
+	}
+
+	@Test
+	public void testReferenceCountedShutDown() throws Exception {
+		NamingService namingService = manager.getNamingService();
+		NamingService acquired = manager.acquireNamingService(properties("dev"));
+		assertThat(manager.getNamespaceNamingService("dev")).isSameAs(acquired);
+
+		manager.nacosServiceShutDown();
+
+		verify(namingService).shutDown();
+		verify(acquired, never()).shutDown();
+		assertThat(manager.getNamespaceNamingService("dev")).isSameAs(acquired);
+
+		manager.nacosServiceShutDown();
+		manager.releaseNamingService(properties("dev"));
+		verify(acquired).shutDown();
+
+		assertThat(manager.getNamingService()).isNotSameAs(namingService);
+		assertThat(manager.getNamespaceNamingService("dev")).isNotSameAs(acquired);
+	}
+
+	@Test
+	public void testDiscoveryClientForNamespace() throws Exception {
+		when(manager.getNamespaceNamingService("dev").selectInstances(anyString(),
+				anyString(), anyBoolean()))
+						.thenReturn(Collections.singletonList(serviceInstance("service",
+								true, "1.1.1.1", 8080, Collections.emptyMap())));
+		NacosDiscoveryClient client = new NacosDiscoveryClient(
+				new NacosServiceDiscovery(discoveryProperties, manager));
+
+		assertThat(client.forNamespace("public")).isSameAs(client);
+		assertThat(client.getInstances("service")).isEmpty();
+		assertThat(client.forNamespace("dev").getInstances("service")).hasSize(1)
+				.allMatch(instance -> instance.getHost().equals("1.1.1.1"));
+	}
+
+	private static Properties properties(String namespace) {
+		Properties properties = new Properties();
+		properties.put(SERVER_ADDR, "127.0.0.1:8848");
+		properties.put(NAMESPACE, namespace);
+		return properties;
+	}
+
+}
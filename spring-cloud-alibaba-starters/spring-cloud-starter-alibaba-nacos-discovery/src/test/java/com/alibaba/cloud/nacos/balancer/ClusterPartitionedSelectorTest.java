@@ -0,0 +1,84 @@
+/*
+ * Copyright 2013-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alibaba.cloud.nacos.balancer;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author Spring Cloud Alibaba contributors
+ */
+public class ClusterPartitionedSelectorTest {
+
+	private final ServiceInstance a1 = instance("a1", "A", "true");
+
+	private final ServiceInstance b1 = instance("b1", "B", "true");
+
+	private final ServiceInstance c1 = instance("c1", "C", "false");
+
+	private final List<ServiceInstance> instances = Arrays.asList(a1, b1, c1);
+
+	@Test
+	public void testLocalClusterFirst() {
+		ClusterPartitionedSelector selector = ClusterPartitionedSelector
+				.build(instances);
+
+		assertThat(selector.select("A", Collections.singletonList("B")).choose())
+				.isSameAs(a1);
+	}
+
+	@Test
+	public void testFallbackClustersInOrder() {
+		ClusterPartitionedSelector selector = ClusterPartitionedSelector
+				.build(instances);
+
+		// C has no healthy instance, so B is used
+		assertThat(selector.select("X", Arrays.asList("C", "B", "A")).choose())
+				.isSameAs(b1);
+	}
+
+	@Test
+	public void testFallbackToAllInstances() {
+		ClusterPartitionedSelector selector = ClusterPartitionedSelector
+				.build(instances);
+
+		assertThat(selector.select("X", Collections.singletonList("C")))
+				.isSameAs(selector.all());
+		assertThat(selector.select("", null)).isSameAs(selector.all());
+		assertThat(selector.all().size()).isEqualTo(2);
+	}
+
+	private static ServiceInstance instance(String id, String cluster, String healthy) {
+		Map<String, String> metadata = new HashMap<>();
+		metadata.put("nacos.weight", "1.0");
+		metadata.put("nacos.healthy", healthy);
+		metadata.put("nacos.cluster", cluster);
+		return new DefaultServiceInstance(id, "service", "127.0.0.1", 8080, false,
+				metadata);
+	}
+
+}
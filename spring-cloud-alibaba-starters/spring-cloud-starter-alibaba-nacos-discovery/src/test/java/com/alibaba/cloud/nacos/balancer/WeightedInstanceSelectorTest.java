@@ -0,0 +1,107 @@
+/*
+ * Copyright 2013-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alibaba.cloud.nacos.balancer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+/**
+ * @author Spring Cloud Alibaba contributors
+ */
+public class WeightedInstanceSelectorTest {
+
+	@Test
+	public void testChooseByWeight() {
+		ServiceInstance light = instance("light", "1.0", "true");
+		ServiceInstance heavy = instance("heavy", "3.0", "true");
+		WeightedInstanceSelector selector = WeightedInstanceSelector
+				.build(Arrays.asList(light, heavy));
+
+		int heavyCount = 0;
+		int rounds = 100000;
+		for (int i = 0; i < rounds; i++) {
+			if (selector.choose() == heavy) {
+				heavyCount++;
+			}
+		}
+
+		assertThat(heavyCount / (double) rounds).isCloseTo(0.75, within(0.02));
+	}
+
+	@Test
+	public void testSkipUnhealthyAndZeroWeight() {
+		ServiceInstance unhealthy = instance("unhealthy", "1.0", "false");
+		ServiceInstance zero = instance("zero", "0.0", "true");
+		ServiceInstance available = instance("available", "1.0", "true");
+		WeightedInstanceSelector selector = WeightedInstanceSelector
+				.build(Arrays.asList(unhealthy, zero, available));
+
+		assertThat(selector.size()).isEqualTo(1);
+		for (int i = 0; i < 100; i++) {
+			assertThat(selector.choose()).isSameAs(available);
+		}
+		assertThat(WeightedInstanceSelector.build(Arrays.asList(unhealthy, zero))
+				.choose()).isNull();
+		assertThat(WeightedInstanceSelector.build(Collections.emptyList()).choose())
+				.isNull();
+	}
+
+	@Test
+	public void testMissingWeightDefaultsToOne() {
+		ServiceInstance instance = new DefaultServiceInstance("plain", "service",
+				"127.0.0.1", 8080, false);
+
+		assertThat(WeightedInstanceSelector.weightOf(instance)).isEqualTo(1D);
+		assertThat(WeightedInstanceSelector.build(Collections.singletonList(instance))
+				.choose()).isSameAs(instance);
+	}
+
+	@Test
+	public void testIsBuiltFrom() {
+		List<ServiceInstance> instances = Arrays.asList(instance("a", "1.0", "true"),
+				instance("b", "1.0", "true"));
+		WeightedInstanceSelector selector = WeightedInstanceSelector.build(instances);
+
+		assertThat(selector.isBuiltFrom(instances)).isTrue();
+		assertThat(selector.isBuiltFrom(new ArrayList<>(instances))).isTrue();
+		assertThat(selector.isBuiltFrom(instances.subList(0, 1))).isFalse();
+		// equal instances that are not the same objects are not compared field by field
+		assertThat(selector.isBuiltFrom(Arrays.asList(instance("a", "1.0", "true"),
+				instance("b", "1.0", "true")))).isFalse();
+	}
+
+	private static ServiceInstance instance(String id, String weight, String healthy) {
+		Map<String, String> metadata = new HashMap<>();
+		metadata.put("nacos.weight", weight);
+		metadata.put("nacos.healthy", healthy);
+		return new DefaultServiceInstance(id, "service", "127.0.0.1", 8080, false,
+				metadata);
+	}
+
+}
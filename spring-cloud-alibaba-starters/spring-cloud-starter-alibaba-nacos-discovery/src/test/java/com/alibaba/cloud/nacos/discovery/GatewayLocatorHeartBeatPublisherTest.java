@@ -0,0 +1,172 @@
+/*
+ * Copyright 2013-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alibaba.cloud.nacos.discovery;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import com.alibaba.cloud.nacos.NacosDiscoveryProperties;
+import com.alibaba.cloud.nacos.NacosServiceManager;
+import com.alibaba.nacos.api.naming.NamingService;
+import com.alibaba.nacos.api.naming.listener.EventListener;
+import com.alibaba.nacos.api.naming.listener.NamingEvent;
+import com.alibaba.nacos.api.naming.pojo.Instance;
+import com.alibaba.nacos.api.naming.pojo.ListView;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import org.springframework.cloud.client.discovery.event.HeartbeatEvent;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * @author Spring Cloud Alibaba contributors
+ */
+public class GatewayLocatorHeartBeatPublisherTest {
+
+	private final List<String> services = new CopyOnWriteArrayList<>();
+
+	private final Map<String, EventListener> listeners = new ConcurrentHashMap<>();
+
+	/**
+	 * Instances already cached by the Nacos client when a service is subscribed to.
+	 */
+	private final Map<String, List<Instance>> cached = new ConcurrentHashMap<>();
+
+	private final List<Object> events = new CopyOnWriteArrayList<>();
+
+	private GatewayLocatorHeartBeatPublisher publisher;
+
+	@BeforeEach
+	public void setUp() throws Exception {
+		NamingService namingService = mock(NamingService.class);
+		when(namingService.getServicesOfServer(anyInt(), anyInt(), anyString()))
+				.thenAnswer(invocation -> {
+					ListView<String> view = new ListView<>();
+					view.setData(new ArrayList<>(services));
+					view.setCount(services.size());
+					return view;
+				});
+		when(namingService.getAllInstances(anyString(), anyString()))
+				.thenAnswer(invocation -> cached.getOrDefault(invocation.getArgument(0),
+						Collections.emptyList()));
+		doAnswer(invocation -> listeners.put(invocation.getArgument(0),
+				invocation.getArgument(2))).when(namingService).subscribe(anyString(),
+						anyString(), any(EventListener.class));
+		doAnswer(invocation -> listeners.remove(invocation.getArgument(0)))
+				.when(namingService)
+				.unsubscribe(anyString(), anyString(), any(EventListener.class));
+		NacosServiceManager nacosServiceManager = mock(NacosServiceManager.class);
+		when(nacosServiceManager.getNamingService()).thenReturn(namingService);
+
+		NacosDiscoveryProperties properties = new NacosDiscoveryProperties();
+		properties.setWatchDelay(60_000);
+		properties.setWatchDebounce(100);
+		publisher = new GatewayLocatorHeartBeatPublisher(nacosServiceManager,
+				properties);
+		publisher.setApplicationEventPublisher(events::add);
+		services.addAll(Arrays.asList("a", "b"));
+		cached.put("a", Collections.singletonList(instance("10.0.0.1")));
+		cached.put("b", Collections.singletonList(instance("10.0.0.2")));
+		publisher.start();
+	}
+
+	@AfterEach
+	public void tearDown() {
+		publisher.stop();
+	}
+
+	@Test
+	public void testPublishOnlyOnChange() throws InterruptedException {
+		awaitEvents(1);
+		assertThat(listeners).containsOnlyKeys("a", "b");
+		notify("a", instance("10.0.0.1"));
+		notify("b", instance("10.0.0.2"));
+
+		// unchanged service list and instances
+		publisher.refreshServices();
+		notify("a", instance("10.0.0.1"));
+		Thread.sleep(300);
+		assertThat(events).hasSize(1);
+
+		services.remove("b");
+		publisher.refreshServices();
+		awaitEvents(2);
+		assertThat(listeners).containsOnlyKeys("a");
+		assertThat(events.get(1)).isInstanceOf(HeartbeatEvent.class);
+	}
+
+	@Test
+	public void testDebounceInstanceChanges() throws InterruptedException {
+		awaitEvents(1);
+		notify("a", instance("10.0.0.1"));
+		notify("b", instance("10.0.0.2"));
+
+		notify("a", instance("10.0.0.1"), instance("10.0.0.3"));
+		notify("b");
+		notify("a", instance("10.0.0.3"));
+		awaitEvents(2);
+		Thread.sleep(300);
+		assertThat(events).hasSize(2);
+	}
+
+	@Test
+	public void testFirstEventOfCachedServiceIsAChange() throws InterruptedException {
+		awaitEvents(1);
+		cached.put("c", Collections.singletonList(instance("10.0.0.3")));
+		services.add("c");
+		publisher.refreshServices();
+		awaitEvents(2);
+
+		// subscribing to a cached service pushes nothing, the first event is a change
+		notify("c", instance("10.0.0.3"), instance("10.0.0.4"));
+		awaitEvents(3);
+	}
+
+	private void notify(String serviceId, Instance... instances) {
+		listeners.get(serviceId).onEvent(new NamingEvent(serviceId, "DEFAULT_GROUP",
+				"", instances.length == 0 ? Collections.emptyList()
+						: Arrays.asList(instances)));
+	}
+
+	private void awaitEvents(int count) throws InterruptedException {
+		for (int i = 0; i < 100 && events.size() < count; i++) {
+			Thread.sleep(20);
+		}
+		assertThat(events).hasSize(count);
+	}
+
+	private static Instance instance(String ip) {
+		Instance instance = new Instance();
+		instance.setIp(ip);
+		instance.setPort(8080);
+		return instance;
+	}
+
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2013-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alibaba.cloud.nacos.discovery;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import com.alibaba.cloud.nacos.NacosDiscoveryProperties;
+import com.alibaba.cloud.nacos.NacosServiceManager;
+import com.alibaba.cloud.testsupport.nacos.ChurnSimulator;
+import com.alibaba.cloud.testsupport.nacos.InMemoryNamingService;
+import com.alibaba.nacos.api.common.Constants;
+import com.alibaba.nacos.api.naming.NamingService;
+import com.alibaba.nacos.api.naming.pojo.Instance;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import org.springframework.cloud.client.ServiceInstance;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+/**
+ * {@link NacosInstanceCache} following the pushes of a churning service.
+ *
+ * @author Spring Cloud Alibaba contributors
+ */
+public class NacosInstanceCacheChurnTest {
+
+	private static final String SERVICE = "churn-service";
+
+	private final InMemoryNamingService namingService = new InMemoryNamingService();
+
+	private final ExecutorService pushExecutor = Executors.newSingleThreadExecutor();
+
+	private NacosInstanceCache instanceCache;
+
+	@AfterEach
+	public void tearDown() {
+		pushExecutor.shutdownNow();
+		if (instanceCache != null) {
+			instanceCache.destroy();
+		}
+		ServiceCache.removeInstances(SERVICE);
+	}
+
+	@Test
+	public void testFollowChurn() throws Exception {
+		namingService.setPushExecutor(pushExecutor);
+		ChurnSimulator simulator = new ChurnSimulator(namingService, SERVICE,
+				Constants.DEFAULT_GROUP, 42);
+		simulator.setInstanceCount(5000);
+		simulator.setChurnRate(0.02);
+		simulator.setHealthFlapRate(0.01);
+		simulator.populate();
+
+		instanceCache = new NacosInstanceCache(serviceManager(namingService),
+				new NacosDiscoveryProperties());
+		assertThat(instanceCache.getInstances(SERVICE)).hasSize(5000);
+		Set<String> watched = new HashSet<>();
+		instanceCache.watch(SERVICE, event -> {
+			event.getAdded().forEach(instance -> watched.add(key(instance)));
+			event.getRemoved().forEach(instance -> watched.remove(key(instance)));
+		});
+
+		// 10 simulated seconds
+		for (int i = 0; i < 100; i++) {
+			simulator.tick();
+		}
+		pushExecutor.shutdown();
+		assertThat(pushExecutor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+
+		assertThat(simulator.getRemoved()).isCloseTo(1000, within(10L));
+		assertThat(simulator.getHealthChanges()).isCloseTo(500, within(10L));
+		Set<String> expected = new HashSet<>();
+		for (Instance instance : simulator.getInstances()) {
+			if (instance.isHealthy()) {
+				expected.add(instance.getIp() + ":" + instance.getPort());
+			}
+		}
+		List<ServiceInstance> cached = instanceCache.getInstances(SERVICE);
+		Set<String> actual = new HashSet<>();
+		cached.forEach(instance -> actual.add(key(instance)));
+		assertThat(actual).isEqualTo(expected);
+		assertThat(watched).isEqualTo(expected);
+		assertThat(ServiceCache.getInstances(SERVICE)).isSameAs(cached);
+	}
+
+	private static String key(ServiceInstance instance) {
+		return instance.getHost() + ":" + instance.getPort();
+	}
+
+	private static NacosServiceManager serviceManager(NamingService namingService) {
+		return new NacosServiceManager() {
+			@Override
+			public NamingService getNamingService() {
+				return namingService;
+			}
+		};
+	}
+
+}
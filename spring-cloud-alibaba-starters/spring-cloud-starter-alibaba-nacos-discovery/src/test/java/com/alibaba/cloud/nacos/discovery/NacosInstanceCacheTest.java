@@ -0,0 +1,174 @@
+/*
+ * Copyright 2013-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alibaba.cloud.nacos.discovery;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+import com.alibaba.cloud.nacos.NacosDiscoveryProperties;
+import com.alibaba.cloud.nacos.NacosServiceManager;
+import com.alibaba.nacos.api.exception.NacosException;
+import com.alibaba.nacos.api.naming.NamingService;
+import com.alibaba.nacos.api.naming.listener.EventListener;
+import com.alibaba.nacos.api.naming.listener.NamingEvent;
+import com.alibaba.nacos.api.naming.pojo.Instance;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import org.springframework.cloud.client.ServiceInstance;
+
+import static com.alibaba.cloud.nacos.test.NacosMockTest.serviceInstance;
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * @author Spring Cloud Alibaba contributors
+ */
+public class NacosInstanceCacheTest {
+
+	private static final String SERVICE = "test-service";
+
+	private NamingService namingService;
+
+	private NacosInstanceCache instanceCache;
+
+	@BeforeEach
+	public void setUp() {
+		namingService = mock(NamingService.class);
+		NacosServiceManager nacosServiceManager = mock(NacosServiceManager.class);
+		NacosDiscoveryProperties properties = mock(NacosDiscoveryProperties.class);
+		when(nacosServiceManager.getNamingService()).thenReturn(namingService);
+		when(properties.getGroup()).thenReturn("DEFAULT");
+		instanceCache = new NacosInstanceCache(nacosServiceManager, properties);
+	}
+
+	@Test
+	public void testSnapshotIsReusedUntilPushed() throws NacosException {
+		when(namingService.selectInstances(eq(SERVICE), eq("DEFAULT"), eq(true)))
+				.thenReturn(singletonList(
+						serviceInstance(SERVICE, true, "1.1.1.1", 80, new HashMap<>())));
+
+		List<ServiceInstance> first = instanceCache.getInstances(SERVICE);
+		List<ServiceInstance> second = instanceCache.getInstances(SERVICE);
+
+		assertThat(first).hasSize(1).isSameAs(second);
+		assertThatThrownBy(() -> first.add(first.get(0)))
+				.isInstanceOf(UnsupportedOperationException.class);
+		verify(namingService, times(1)).selectInstances(SERVICE, "DEFAULT", true);
+
+		ArgumentCaptor<EventListener> listener = ArgumentCaptor
+				.forClass(EventListener.class);
+		verify(namingService).subscribe(eq(SERVICE), eq("DEFAULT"), listener.capture());
+		listener.getValue()
+				.onEvent(new NamingEvent(SERVICE, Arrays.asList(
+						serviceInstance(SERVICE, true, "1.1.1.1", 80, new HashMap<>()),
+						serviceInstance(SERVICE, true, "2.2.2.2", 80, new HashMap<>()),
+						serviceInstance(SERVICE, false, "3.3.3.3", 80,
+								new HashMap<>()))));
+
+		List<ServiceInstance> pushed = instanceCache.getInstances(SERVICE);
+		assertThat(pushed).hasSize(2).isNotSameAs(first);
+		assertThat(ServiceCache.getInstances(SERVICE)).isEqualTo(pushed);
+		verify(namingService, times(1)).selectInstances(SERVICE, "DEFAULT", true);
+	}
+
+	@Test
+	public void testFailedLookupIsRetried() throws NacosException {
+		when(namingService.selectInstances(eq(SERVICE), eq("DEFAULT"), eq(true)))
+				.thenThrow(new NacosException())
+				.thenReturn(singletonList(
+						serviceInstance(SERVICE, true, "1.1.1.1", 80, new HashMap<>())));
+
+		assertThatThrownBy(() -> instanceCache.getInstances(SERVICE))
+				.isInstanceOf(NacosException.class);
+		assertThat(instanceCache.getInstances(SERVICE)).hasSize(1);
+		verify(namingService, times(1)).subscribe(eq(SERVICE), eq("DEFAULT"),
+				any(EventListener.class));
+	}
+
+	@Test
+	public void testDestroyUnsubscribes() throws NacosException {
+		when(namingService.selectInstances(eq(SERVICE), eq("DEFAULT"), eq(true)))
+				.thenReturn(singletonList(
+						serviceInstance(SERVICE, true, "1.1.1.1", 80, new HashMap<>())));
+		instanceCache.getInstances(SERVICE);
+		assertThat(instanceCache.getSubscribedServices()).containsExactly(SERVICE);
+
+		instanceCache.destroy();
+
+		verify(namingService).unsubscribe(eq(SERVICE), eq("DEFAULT"),
+				any(EventListener.class));
+		assertThat(instanceCache.getSubscribedServices()).isEmpty();
+	}
+
+	@Test
+	public void testWatchInstanceChanges() throws NacosException {
+		Instance a = serviceInstance(SERVICE, true, "1.1.1.1", 80, new HashMap<>());
+		Instance b = serviceInstance(SERVICE, true, "2.2.2.2", 80, new HashMap<>());
+		when(namingService.selectInstances(eq(SERVICE), eq("DEFAULT"), eq(true)))
+				.thenReturn(Arrays.asList(a, b));
+		List<InstanceChangeEvent> events = new ArrayList<>();
+		Runnable cancel = instanceCache.watch(SERVICE, events::add);
+		assertThat(instanceCache.getCachedInstances(SERVICE)).isNull();
+
+		List<ServiceInstance> loaded = instanceCache.getInstances(SERVICE);
+		assertThat(instanceCache.getCachedInstances(SERVICE)).isSameAs(loaded);
+		assertThat(events).hasSize(1);
+		assertThat(events.get(0).getAdded()).isEqualTo(loaded);
+
+		ArgumentCaptor<EventListener> listener = ArgumentCaptor
+				.forClass(EventListener.class);
+		verify(namingService).subscribe(eq(SERVICE), eq("DEFAULT"), listener.capture());
+		Instance changedB = serviceInstance(SERVICE, true, "2.2.2.2", 80,
+				new HashMap<>());
+		changedB.setWeight(2);
+		Instance c = serviceInstance(SERVICE, true, "3.3.3.3", 80, new HashMap<>());
+		listener.getValue().onEvent(new NamingEvent(SERVICE, Arrays.asList(changedB, c)));
+
+		assertThat(events).hasSize(2);
+		InstanceChangeEvent event = events.get(1);
+		assertThat(event.getAdded()).extracting(ServiceInstance::getHost)
+				.containsExactly("3.3.3.3");
+		assertThat(event.getRemoved()).containsExactly(loaded.get(0));
+		assertThat(event.getUpdated()).extracting(ServiceInstance::getHost)
+				.containsExactly("2.2.2.2");
+		assertThat(event.getInstances()).hasSize(2);
+
+		// an identical push changes nothing
+		listener.getValue().onEvent(new NamingEvent(SERVICE, Arrays.asList(changedB, c)));
+		assertThat(events).hasSize(2);
+
+		cancel.run();
+		listener.getValue().onEvent(new NamingEvent(SERVICE, singletonList(c)));
+		assertThat(events).hasSize(2);
+		assertThat(instanceCache.watch(SERVICE, events::add)).isNotNull();
+		assertThat(events).hasSize(3);
+		assertThat(events.get(2).getAdded()).extracting(ServiceInstance::getHost)
+				.containsExactly("3.3.3.3");
+	}
+
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright 2013-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alibaba.cloud.nacos.discovery;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.alibaba.cloud.nacos.NacosDiscoveryProperties;
+import com.alibaba.cloud.nacos.NacosServiceManager;
+import com.alibaba.nacos.api.exception.NacosException;
+import com.alibaba.nacos.api.naming.NamingService;
+import com.alibaba.nacos.api.naming.pojo.ListView;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * @author Spring Cloud Alibaba contributors
+ */
+public class NacosServiceCatalogTest {
+
+	private final List<String> services = new CopyOnWriteArrayList<>();
+
+	private final AtomicBoolean failing = new AtomicBoolean();
+
+	private NamingService namingService;
+
+	private NacosDiscoveryProperties properties;
+
+	private NacosServiceCatalog catalog;
+
+	@BeforeEach
+	public void setUp() throws Exception {
+		namingService = mock(NamingService.class);
+		when(namingService.getServicesOfServer(anyInt(), anyInt(), eq("DEFAULT_GROUP")))
+				.thenAnswer(invocation -> {
+					if (failing.get()) {
+						throw new NacosException(NacosException.SERVER_ERROR, "down");
+					}
+					int pageNo = invocation.getArgument(0);
+					int pageSize = invocation.getArgument(1);
+					int from = Math.min((pageNo - 1) * pageSize, services.size());
+					int to = Math.min(from + pageSize, services.size());
+					ListView<String> view = new ListView<>();
+					view.setData(new ArrayList<>(services.subList(from, to)));
+					view.setCount(services.size());
+					return view;
+				});
+		NacosServiceManager nacosServiceManager = mock(NacosServiceManager.class);
+		when(nacosServiceManager.getNamingService()).thenReturn(namingService);
+
+		properties = new NacosDiscoveryProperties();
+		properties.setServicesPageSize(2);
+		properties.setServicesCacheTtl(60000);
+		catalog = new NacosServiceCatalog(nacosServiceManager, properties);
+	}
+
+	@Test
+	public void testLoadPageByPage() throws Exception {
+		services.addAll(Arrays.asList("a", "b", "c", "d", "e"));
+
+		assertThat(catalog.getServices()).containsExactly("a", "b", "c", "d", "e");
+		verify(namingService, times(3)).getServicesOfServer(anyInt(), eq(2),
+				eq("DEFAULT_GROUP"));
+	}
+
+	@Test
+	public void testServeFromCacheUntilExpired() throws Exception {
+		services.addAll(Arrays.asList("a", "b", "c"));
+
+		assertThat(catalog.getCachedServices()).isNull();
+		List<String> first = catalog.getServices();
+		services.add("d");
+
+		assertThat(catalog.getServices()).isSameAs(first);
+		assertThat(catalog.getCachedServices()).isSameAs(first);
+		verify(namingService, times(2)).getServicesOfServer(anyInt(), anyInt(),
+				eq("DEFAULT_GROUP"));
+
+		properties.setServicesCacheTtl(0);
+		catalog.refresh();
+
+		assertThat(catalog.getCachedServices()).isNull();
+		assertThat(catalog.getServices()).containsExactly("a", "b", "c", "d");
+	}
+
+	@Test
+	public void testDetectChanges() throws Exception {
+		services.addAll(Arrays.asList("a", "b"));
+
+		assertThat(catalog.getVersion()).isZero();
+		assertThat(catalog.refresh()).isTrue();
+		List<String> first = catalog.getServices();
+		assertThat(catalog.getVersion()).isEqualTo(1);
+
+		assertThat(catalog.refresh()).isFalse();
+		assertThat(catalog.getServices()).isSameAs(first);
+		assertThat(catalog.getVersion()).isEqualTo(1);
+
+		services.remove("a");
+		assertThat(catalog.refresh()).isTrue();
+		assertThat(catalog.getServices()).containsExactly("b");
+		assertThat(catalog.getVersion()).isEqualTo(2);
+	}
+
+	@Test
+	public void testServeStaleServicesOnFailure() throws Exception {
+		failing.set(true);
+		assertThatThrownBy(() -> catalog.getServices())
+				.isInstanceOf(NacosException.class);
+
+		failing.set(false);
+		services.add("a");
+		properties.setServicesCacheTtl(0);
+		assertThat(catalog.getServices()).containsExactly("a");
+
+		failing.set(true);
+		assertThat(catalog.getServices()).containsExactly("a");
+	}
+
+	@Test
+	public void testNoReloadDuringOutage() throws Exception {
+		services.add("a");
+		properties.setServicesCacheTtl(0);
+		assertThat(catalog.getServices()).containsExactly("a");
+
+		failing.set(true);
+		assertThat(catalog.getServices()).containsExactly("a");
+		assertThat(catalog.getServices()).containsExactly("a");
+		assertThat(catalog.getCachedServices()).containsExactly("a");
+
+		verify(namingService, times(2)).getServicesOfServer(anyInt(), anyInt(),
+				eq("DEFAULT_GROUP"));
+	}
+
+}
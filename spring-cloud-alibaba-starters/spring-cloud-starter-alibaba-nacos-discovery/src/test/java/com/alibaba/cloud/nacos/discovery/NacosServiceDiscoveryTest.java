@@ -17,9 +17,11 @@
 package com.alibaba.cloud.nacos.discovery;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 
 import com.alibaba.cloud.nacos.NacosDiscoveryProperties;
 import com.alibaba.cloud.nacos.NacosServiceManager;
@@ -133,4 +135,69 @@ public class NacosServiceDiscoveryTest {
 		return "http://" + host + ":" + port;
 	}
 
+	@Test
+	public void testMetadataView() {
+		HashMap<String, String> map = new HashMap<>();
+		map.put("test-key", "test-value");
+		map.put("nacos.cluster", "overridden");
+		map.put("nacos.ephemeral", "not-overridden");
+		Instance instance = serviceInstance(serviceName, true, host, port, map);
+		instance.setInstanceId("id");
+		instance.setWeight(2);
+
+		ServiceInstance serviceInstance = NacosServiceDiscovery
+				.hostToServiceInstance(instance, serviceName);
+		Map<String, String> metadata = serviceInstance.getMetadata();
+
+		assertThat(metadata.get("test-key")).isEqualTo("test-value");
+		assertThat(metadata.get("nacos.weight")).isEqualTo("2.0");
+		assertThat(metadata.get("nacos.cluster")).isEqualTo("overridden");
+		assertThat(metadata.get("nacos.ephemeral")).isEqualTo("true");
+
+		Map<String, String> expected = new HashMap<>(map);
+		expected.put("nacos.instanceId", "id");
+		expected.put("nacos.weight", "2.0");
+		expected.put("nacos.healthy", "true");
+		expected.put("nacos.ephemeral", "true");
+		assertThat(metadata).isEqualTo(expected);
+	}
+
+	@Test
+	public void testMetadataCopiedOnWrite() {
+		HashMap<String, String> map = new HashMap<>();
+		map.put("test-key", "test-value");
+		Instance instance = serviceInstance(serviceName, true, host, port, map);
+
+		Map<String, String> metadata = NacosServiceDiscovery
+				.hostToServiceInstance(instance, serviceName).getMetadata();
+		metadata.put("k", "v");
+		metadata.remove("test-key");
+
+		assertThat(metadata).containsEntry("k", "v").doesNotContainKey("test-key")
+				.containsEntry("nacos.healthy", "true");
+		assertThat(instance.getMetadata()).containsOnlyKeys("test-key");
+	}
+
+	@Test
+	public void testReuseUnchangedInstances() {
+		Instance a = serviceInstance(serviceName, true, "1.1.1.1", port,
+				new HashMap<>());
+		Instance b = serviceInstance(serviceName, true, "2.2.2.2", port,
+				new HashMap<>());
+		List<ServiceInstance> first = NacosServiceDiscovery
+				.hostToServiceInstanceList(Arrays.asList(a, b), serviceName);
+
+		Instance sameA = serviceInstance(serviceName, true, "1.1.1.1", port,
+				new HashMap<>());
+		Instance changedB = serviceInstance(serviceName, true, "2.2.2.2", port,
+				new HashMap<>());
+		changedB.setWeight(5);
+		List<ServiceInstance> second = NacosServiceDiscovery.hostToServiceInstanceList(
+				Arrays.asList(sameA, changedB), serviceName, first);
+
+		assertThat(second.get(0)).isSameAs(first.get(0));
+		assertThat(second.get(1)).isNotSameAs(first.get(1));
+		assertThat(second.get(1).getMetadata().get("nacos.weight")).isEqualTo("5.0");
+	}
+
 }
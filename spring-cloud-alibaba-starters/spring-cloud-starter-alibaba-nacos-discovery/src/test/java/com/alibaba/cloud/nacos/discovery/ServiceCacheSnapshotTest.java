@@ -0,0 +1,138 @@
+/*
+ * Copyright 2013-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alibaba.cloud.nacos.discovery;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import com.alibaba.cloud.nacos.NacosDiscoveryProperties;
+import com.alibaba.nacos.api.naming.pojo.Instance;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import org.springframework.cloud.client.ServiceInstance;
+
+import static com.alibaba.cloud.nacos.test.NacosMockTest.serviceInstance;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author Spring Cloud Alibaba contributors
+ */
+public class ServiceCacheSnapshotTest {
+
+	@TempDir
+	Path dir;
+
+	private ServiceCacheSnapshot snapshot;
+
+	@AfterEach
+	public void tearDown() {
+		if (snapshot != null) {
+			snapshot.destroy();
+		}
+	}
+
+	@Test
+	public void testWriteAndLoad() throws Exception {
+		String serviceId = "snapshot-" + UUID.randomUUID();
+		Map<String, String> metadata = new HashMap<>();
+		metadata.put("secure", "true");
+		metadata.put("zone", "a");
+		Instance instance = serviceInstance(serviceId, true, "1.1.1.1", 8080, metadata);
+		instance.setInstanceId("id-1");
+		ServiceCache.setInstances(serviceId, NacosServiceDiscovery
+				.hostToServiceInstanceList(Collections.singletonList(instance), serviceId));
+
+		ServiceCacheSnapshot writer = snapshot(1000);
+		writer.write();
+
+		ServiceCache.removeInstances(serviceId);
+
+		assertThat(snapshot(1000).load()).isTrue();
+		List<ServiceInstance> restored = ServiceCache.getInstances(serviceId);
+		assertThat(restored).hasSize(1);
+		ServiceInstance restoredInstance = restored.get(0);
+		assertThat(restoredInstance.getInstanceId()).isEqualTo("id-1");
+		assertThat(restoredInstance.getHost()).isEqualTo("1.1.1.1");
+		assertThat(restoredInstance.getPort()).isEqualTo(8080);
+		assertThat(restoredInstance.isSecure()).isTrue();
+		assertThat(restoredInstance.getMetadata()).containsEntry("zone", "a")
+				.containsEntry("nacos.instanceId", "id-1");
+
+		// instances cached since the snapshot was written are not replaced
+		ServiceCache.setInstances(serviceId, Collections.emptyList());
+		assertThat(snapshot(1000).load()).isTrue();
+		assertThat(ServiceCache.getInstances(serviceId)).isEmpty();
+	}
+
+	@Test
+	public void testIgnoreCorruptedSnapshot() throws Exception {
+		String serviceId = "snapshot-" + UUID.randomUUID();
+		ServiceCache.setInstances(serviceId, NacosServiceDiscovery
+				.hostToServiceInstanceList(Collections.singletonList(serviceInstance(
+						serviceId, true, "1.1.1.1", 8080, new HashMap<>())), serviceId));
+		ServiceCacheSnapshot writer = snapshot(1000);
+		writer.write();
+
+		byte[] bytes = Files.readAllBytes(writer.getFile());
+		bytes[bytes.length / 2] ^= 1;
+		Files.write(writer.getFile(), bytes);
+		assertThat(snapshot(1000).load()).isFalse();
+
+		Files.write(writer.getFile(), Arrays.copyOf(bytes, 4));
+		assertThat(snapshot(1000).load()).isFalse();
+	}
+
+	@Test
+	public void testWriteOnChange() throws Exception {
+		snapshot = snapshot(10);
+		snapshot.afterPropertiesSet();
+		assertThat(Files.exists(snapshot.getFile())).isFalse();
+
+		String serviceId = "snapshot-" + UUID.randomUUID();
+		List<ServiceInstance> instances = NacosServiceDiscovery
+				.hostToServiceInstanceList(Collections.singletonList(serviceInstance(
+						serviceId, true, "1.1.1.1", 8080, new HashMap<>())), serviceId);
+		ServiceCache.setInstances(serviceId, instances);
+
+		for (int i = 0; i < 100 && !Files.exists(snapshot.getFile()); i++) {
+			Thread.sleep(20);
+		}
+		assertThat(Files.exists(snapshot.getFile())).isTrue();
+		Files.delete(snapshot.getFile());
+
+		// same instances, nothing to write
+		ServiceCache.setInstances(serviceId, instances);
+		Thread.sleep(100);
+		assertThat(Files.exists(snapshot.getFile())).isFalse();
+	}
+
+	private ServiceCacheSnapshot snapshot(long writeDelay) {
+		NacosDiscoveryProperties properties = new NacosDiscoveryProperties();
+		properties.setSnapshotFile(dir.resolve("service-cache.snapshot").toString());
+		properties.setSnapshotWriteDelay(writeDelay);
+		return new ServiceCacheSnapshot(properties);
+	}
+
+}
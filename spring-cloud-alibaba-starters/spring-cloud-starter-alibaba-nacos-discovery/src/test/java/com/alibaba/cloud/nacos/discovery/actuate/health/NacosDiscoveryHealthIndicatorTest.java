@@ -0,0 +1,120 @@
+/*
+ * Copyright 2013-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alibaba.cloud.nacos.discovery.actuate.health;
+
+import com.alibaba.cloud.nacos.NacosDiscoveryProperties;
+import com.alibaba.cloud.nacos.NacosServiceManager;
+import com.alibaba.nacos.api.naming.NamingService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.Status;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * @author Spring Cloud Alibaba contributors
+ */
+public class NacosDiscoveryHealthIndicatorTest {
+
+	private final NamingService namingService = mock(NamingService.class);
+
+	private final NacosDiscoveryProperties properties = new NacosDiscoveryProperties();
+
+	private NacosDiscoveryHealthIndicator indicator;
+
+	@BeforeEach
+	public void setUp() {
+		NacosServiceManager manager = mock(NacosServiceManager.class);
+		when(manager.getNamingService()).thenReturn(namingService);
+		properties.setHealthProbeAsync(true);
+		// probes are triggered by the test
+		properties.setHealthProbeInterval(60000);
+		indicator = new NacosDiscoveryHealthIndicator(manager, properties);
+	}
+
+	@AfterEach
+	public void tearDown() {
+		indicator.destroy();
+	}
+
+	@Test
+	public void testSynchronousCheck() {
+		properties.setHealthProbeAsync(false);
+		when(namingService.getServerStatus()).thenReturn("UP");
+
+		assertThat(indicator.health().getStatus()).isEqualTo(Status.UP);
+		assertThat(indicator.health().getStatus()).isEqualTo(Status.UP);
+		verify(namingService, times(2)).getServerStatus();
+	}
+
+	@Test
+	public void testAnswerLastProbe() throws Exception {
+		when(namingService.getServerStatus()).thenReturn("UP");
+		indicator.afterPropertiesSet();
+		awaitStatus(Status.UP);
+
+		Health health = indicator.health();
+		assertThat(health.getStatus()).isEqualTo(Status.UP);
+		assertThat(health.getDetails()).containsKey("ageMillis");
+		// only the first probe called Nacos, the next one being a minute away
+		verify(namingService, times(1)).getServerStatus();
+	}
+
+	@Test
+	public void testDownWhenProbeTooOld() throws Exception {
+		properties.setHealthProbeMaxAge(500);
+		when(namingService.getServerStatus()).thenReturn("UP")
+				.thenThrow(new IllegalStateException("unreachable"));
+		indicator.afterPropertiesSet();
+		awaitStatus(Status.UP);
+
+		indicator.probe();
+		// the last successful probe is still recent
+		Health health = indicator.health();
+		assertThat(health.getStatus()).isEqualTo(Status.UP);
+		assertThat(health.getDetails()).containsKey("error");
+
+		Thread.sleep(600);
+		health = indicator.health();
+		assertThat(health.getStatus()).isEqualTo(Status.DOWN);
+		assertThat(health.getDetails()).containsEntry("serverStatus", "UP");
+	}
+
+	@Test
+	public void testDownWhenNeverProbed() throws Exception {
+		when(namingService.getServerStatus())
+				.thenThrow(new IllegalStateException("unreachable"));
+		indicator.afterPropertiesSet();
+
+		awaitStatus(Status.DOWN);
+	}
+
+	private void awaitStatus(Status status) throws InterruptedException {
+		for (int i = 0; i < 200 && !status.equals(indicator.health().getStatus()); i++) {
+			Thread.sleep(10);
+		}
+		assertThat(indicator.health().getStatus()).isEqualTo(status);
+	}
+
+}
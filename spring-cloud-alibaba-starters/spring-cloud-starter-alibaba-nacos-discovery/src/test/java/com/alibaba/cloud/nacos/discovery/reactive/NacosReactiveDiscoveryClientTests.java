@@ -17,7 +17,11 @@
 package com.alibaba.cloud.nacos.discovery.reactive;
 
 import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 
+import com.alibaba.cloud.nacos.discovery.InstanceChangeEvent;
 import com.alibaba.cloud.nacos.discovery.NacosServiceDiscovery;
 import com.alibaba.cloud.nacos.discovery.ServiceCache;
 import com.alibaba.nacos.api.exception.NacosException;
@@ -33,6 +37,11 @@ import org.springframework.cloud.client.ServiceInstance;
 import org.springframework.test.util.ReflectionTestUtils;
 
 import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 /**
@@ -142,4 +151,65 @@ class NacosReactiveDiscoveryClientTests {
 						.expectComplete().verify();
 	}
 
+	@Test
+	void testGetInstancesFromSnapshot() throws NacosException {
+		when(serviceDiscovery.getCachedInstances("reactive-service"))
+				.thenReturn(singletonList(serviceInstance));
+
+		StepVerifier.create(this.client.getInstances("reactive-service"))
+				.expectNext(serviceInstance).expectComplete().verify();
+		verify(serviceDiscovery, never()).getInstances("reactive-service");
+	}
+
+	@Test
+	void testGetInstancesReadsSnapshotOnSubscribe() throws NacosException {
+		Flux<ServiceInstance> instances = this.client.getInstances("reactive-service");
+		when(serviceDiscovery.getCachedInstances("reactive-service"))
+				.thenReturn(singletonList(serviceInstance));
+
+		StepVerifier.create(instances).expectNext(serviceInstance).expectComplete()
+				.verify();
+		verify(serviceDiscovery, never()).getInstances("reactive-service");
+	}
+
+	@Test
+	void testGetServicesReadsSnapshotOnSubscribe() throws NacosException {
+		Flux<String> services = this.client.getServices();
+		when(serviceDiscovery.getCachedServices())
+				.thenReturn(singletonList("reactive-service"));
+
+		StepVerifier.create(services).expectNext("reactive-service").expectComplete()
+				.verify();
+		verify(serviceDiscovery, never()).getServices();
+	}
+
+	@Test
+	void testGetInstanceChanges() {
+		AtomicReference<Consumer<InstanceChangeEvent>> listener = new AtomicReference<>();
+		AtomicBoolean cancelled = new AtomicBoolean();
+		when(serviceDiscovery.getCachedInstances("reactive-service"))
+				.thenReturn(singletonList(serviceInstance));
+		when(serviceDiscovery.watchInstances(eq("reactive-service"), any()))
+				.thenAnswer(invocation -> {
+					listener.set(invocation.getArgument(1));
+					return (Runnable) () -> cancelled.set(true);
+				});
+		InstanceChangeEvent event = InstanceChangeEvent.of("reactive-service", null,
+				singletonList(serviceInstance));
+
+		StepVerifier.create(this.client.getInstanceChanges("reactive-service"))
+				.then(() -> listener.get().accept(event)).expectNext(event).thenCancel()
+				.verify();
+		assertThat(cancelled).isTrue();
+	}
+
+	@Test
+	void testGetInstanceChangesWithoutInstanceCache() {
+		when(serviceDiscovery.watchInstances(eq("reactive-service"), any()))
+				.thenThrow(new IllegalStateException());
+
+		StepVerifier.create(this.client.getInstanceChanges("reactive-service"))
+				.expectError(IllegalStateException.class).verify();
+	}
+
 }
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2013-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.alibaba.cloud.nacos.endpoint;
+
+import com.alibaba.cloud.nacos.NacosServiceAutoConfiguration;
+import com.alibaba.cloud.nacos.discovery.NacosDiscoveryAutoConfiguration;
+import com.alibaba.cloud.nacos.registry.NacosRegistrationState;
+import com.alibaba.cloud.nacos.registry.NacosServiceRegistry;
+import com.alibaba.cloud.nacos.utils.UtilIPv6AutoConfiguration;
+import org.junit.jupiter.api.Test;
+
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.cloud.commons.util.UtilAutoConfiguration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * @author Spring Cloud Alibaba contributors
+ */
+public class NacosDiscoveryEndpointAutoConfigurationTests {
+
+	private final ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+			.withConfiguration(AutoConfigurations.of(UtilAutoConfiguration.class,
+					UtilIPv6AutoConfiguration.class, NacosServiceAutoConfiguration.class,
+					NacosDiscoveryAutoConfiguration.class,
+					NacosDiscoveryEndpointAutoConfiguration.class))
+			.withBean(NacosServiceRegistry.class, NacosDiscoveryEndpointAutoConfigurationTests::failedRegistry);
+
+	@Test
+	public void testNoRegistrationHealthWhenRegisteringSynchronously() {
+		// a failed synchronous registration without fail fast leaves the health up
+		contextRunner.run(context -> assertThat(context)
+				.doesNotHaveBean("nacosRegistrationHealthIndicator"));
+	}
+
+	@Test
+	public void testRegistrationHealthWhenRegisteringAsynchronously() {
+		contextRunner
+				.withPropertyValues("spring.cloud.nacos.discovery.register-async=true")
+				.run(context -> assertThat(context
+						.getBean("nacosRegistrationHealthIndicator",
+								HealthIndicator.class)
+						.health().getStatus()).isEqualTo(Status.DOWN));
+	}
+
+	private static NacosServiceRegistry failedRegistry() {
+		NacosServiceRegistry registry = mock(NacosServiceRegistry.class);
+		when(registry.getRegistrationState()).thenReturn(NacosRegistrationState.FAILED);
+		return registry;
+	}
+
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2013-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alibaba.cloud.nacos.endpoint;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import com.alibaba.cloud.nacos.NacosDiscoveryProperties;
+import com.alibaba.cloud.nacos.NacosServiceManager;
+import com.alibaba.nacos.api.naming.NamingService;
+import com.alibaba.nacos.api.naming.pojo.Instance;
+import com.alibaba.nacos.api.naming.pojo.ServiceInfo;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * @author Spring Cloud Alibaba contributors
+ */
+public class NacosDiscoveryEndpointTest {
+
+	private final NamingService namingService = mock(NamingService.class);
+
+	private NacosDiscoveryEndpoint endpoint;
+
+	@BeforeEach
+	public void setUp() throws Exception {
+		NacosServiceManager manager = mock(NacosServiceManager.class);
+		when(manager.getNamingService()).thenReturn(namingService);
+		when(namingService.getSubscribeServices()).thenReturn(Arrays.asList(
+				ServiceInfo.fromKey("DEFAULT_GROUP@@order-service"),
+				ServiceInfo.fromKey("DEFAULT_GROUP@@user-service@@A,B"),
+				ServiceInfo.fromKey("OTHER_GROUP@@user-service")));
+		when(namingService.getAllInstances(anyString(), anyString(), anyList()))
+				.thenAnswer(invocation -> {
+					Instance instance = new Instance();
+					instance.setServiceName(invocation.getArgument(0));
+					return Collections.singletonList(instance);
+				});
+		endpoint = new NacosDiscoveryEndpoint(manager, new NacosDiscoveryProperties());
+	}
+
+	@AfterEach
+	public void tearDown() {
+		endpoint.destroy();
+	}
+
+	@Test
+	public void testAllServices() throws Exception {
+		Map<String, Object> result = endpoint.nacosDiscovery();
+
+		assertThat(result).containsEntry("total", 3).containsEntry("page", 0)
+				.containsEntry("size", NacosDiscoveryEndpoint.DEFAULT_PAGE_SIZE)
+				.containsKey("NacosDiscoveryProperties");
+		List<ServiceInfo> services = subscribe(result);
+		assertThat(services).extracting(ServiceInfo::getKey).containsExactly(
+				"DEFAULT_GROUP@@order-service", "DEFAULT_GROUP@@user-service@@A,B",
+				"OTHER_GROUP@@user-service");
+		assertThat(services).allSatisfy(service -> assertThat(service.getHosts())
+				.hasSize(1));
+		// looked up with the clusters of the subscription
+		verify(namingService).getAllInstances("user-service", "DEFAULT_GROUP",
+				Arrays.asList("A", "B"));
+	}
+
+	@Test
+	public void testFilterAndPaginate() throws Exception {
+		Map<String, Object> result = endpoint.nacosDiscovery("user", null, 1, 1);
+
+		assertThat(result).containsEntry("total", 2).containsEntry("page", 1)
+				.containsEntry("size", 1);
+		assertThat(subscribe(result)).extracting(ServiceInfo::getKey)
+				.containsExactly("OTHER_GROUP@@user-service");
+		// only the instances of the page are looked up
+		verify(namingService, never()).getAllInstances(eq("user-service"),
+				eq("DEFAULT_GROUP"), anyList());
+		verify(namingService, never()).getAllInstances(eq("order-service"),
+				anyString(), anyList());
+
+		result = endpoint.nacosDiscovery(null, "DEFAULT_GROUP", null, null);
+		assertThat(subscribe(result)).extracting(ServiceInfo::getName)
+				.containsExactly("order-service", "user-service");
+
+		result = endpoint.nacosDiscovery(null, null, 3, 1);
+		assertThat(result).containsEntry("total", 3);
+		assertThat(subscribe(result)).isEmpty();
+	}
+
+	@SuppressWarnings("unchecked")
+	private static List<ServiceInfo> subscribe(Map<String, Object> result) {
+		return (List<ServiceInfo>) result.get("subscribe");
+	}
+
+}
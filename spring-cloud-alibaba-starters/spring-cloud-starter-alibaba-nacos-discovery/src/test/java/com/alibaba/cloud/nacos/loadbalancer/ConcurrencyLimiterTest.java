@@ -0,0 +1,182 @@
+/*
+ * Copyright 2013-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alibaba.cloud.nacos.loadbalancer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import com.alibaba.cloud.nacos.NacosDiscoveryProperties;
+import com.alibaba.cloud.nacos.balancer.NacosBalancer;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.CompletionContext;
+import org.springframework.cloud.client.loadbalancer.DefaultRequest;
+import org.springframework.cloud.client.loadbalancer.DefaultResponse;
+import org.springframework.cloud.client.loadbalancer.Request;
+import org.springframework.cloud.client.loadbalancer.RequestDataContext;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.offset;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * @author Spring Cloud Alibaba contributors
+ */
+public class ConcurrencyLimiterTest {
+
+	private final ServiceInstance busy = instance("busy");
+
+	private final ServiceInstance idle = instance("idle");
+
+	private final NacosLoadBalancerProperties properties = new NacosLoadBalancerProperties();
+
+	@Test
+	public void testSkipSaturatedInstances() {
+		properties.getConcurrencyLimit().setInitialLimit(2);
+		ConcurrencyLimiter limiter = new ConcurrencyLimiter(properties);
+		NacosLoadBalancer loadBalancer = loadBalancer(limiter);
+
+		start(limiter, busy, 0);
+		start(limiter, busy, 0);
+		assertThat(limiter.isSaturated(busy)).isTrue();
+		for (int i = 0; i < 20; i++) {
+			assertThat(loadBalancer.choose().block().getServer()).isSameAs(idle);
+		}
+
+		start(limiter, idle, 0);
+		start(limiter, idle, 0);
+		assertThatThrownBy(() -> loadBalancer.choose().block())
+				.isInstanceOf(ConcurrencyLimitExceededException.class);
+	}
+
+	@Test
+	public void testLimitFollowsResponseTime() {
+		properties.getConcurrencyLimit().setInitialLimit(10);
+		properties.getConcurrencyLimit().setSmoothing(1);
+		ConcurrencyLimiter limiter = new ConcurrencyLimiter(properties);
+
+		// fast responses under load raise the limit
+		for (int round = 0; round < 5; round++) {
+			complete(limiter, startAll(limiter, 10, TimeUnit.MILLISECONDS.toNanos(1)),
+					CompletionContext.Status.SUCCESS);
+		}
+		double raised = limit(limiter);
+		assertThat(raised).isGreaterThan(10);
+
+		// much slower responses under the same load lower it
+		complete(limiter,
+				startAll(limiter, (int) raised * 2, TimeUnit.MILLISECONDS.toNanos(20)),
+				CompletionContext.Status.SUCCESS);
+		double lowered = limit(limiter);
+		assertThat(lowered).isLessThan(raised);
+
+		// failures lower it by 10% each
+		complete(limiter, startAll(limiter, 1, 0), CompletionContext.Status.FAILED);
+		assertThat(limit(limiter)).isCloseTo(lowered * 0.9,
+				offset(0.001));
+		assertThat(limiter.getLimit(NacosBalancer.instanceKey(busy)).getInFlight())
+				.isZero();
+	}
+
+	@Test
+	public void testLimitBounds() {
+		properties.getConcurrencyLimit().setInitialLimit(3);
+		properties.getConcurrencyLimit().setMinLimit(2);
+		properties.getConcurrencyLimit().setMaxLimit(4);
+		properties.getConcurrencyLimit().setSmoothing(1);
+		ConcurrencyLimiter limiter = new ConcurrencyLimiter(properties);
+
+		for (int i = 0; i < 10; i++) {
+			complete(limiter, startAll(limiter, 4, 1000),
+					CompletionContext.Status.SUCCESS);
+		}
+		assertThat(limit(limiter)).isEqualTo(4);
+		for (int i = 0; i < 10; i++) {
+			complete(limiter, startAll(limiter, 1, 0), CompletionContext.Status.FAILED);
+		}
+		assertThat(limit(limiter)).isEqualTo(2);
+	}
+
+	private double limit(ConcurrencyLimiter limiter) {
+		return limiter.getLimit(NacosBalancer.instanceKey(busy)).getLimit();
+	}
+
+	private List<Request<Object>> startAll(ConcurrencyLimiter limiter, int count,
+			long rttNanos) {
+		List<Request<Object>> requests = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			requests.add(start(limiter, busy, rttNanos));
+		}
+		return requests;
+	}
+
+	private void complete(ConcurrencyLimiter limiter, List<Request<Object>> requests,
+			CompletionContext.Status status) {
+		for (Request<Object> request : requests) {
+			limiter.onComplete(
+					new CompletionContext<>(status, request, new DefaultResponse(busy)));
+		}
+	}
+
+	/**
+	 * Start a request that looks like it was sent the given time ago.
+	 */
+	private static Request<Object> start(ConcurrencyLimiter limiter,
+			ServiceInstance instance, long elapsedNanos) {
+		RequestDataContext context = new RequestDataContext();
+		context.setRequestStartTime(System.nanoTime() - elapsedNanos);
+		Request<Object> request = new DefaultRequest<>(context);
+		Response<ServiceInstance> response = new DefaultResponse(instance);
+		limiter.onStartRequest(request, response);
+		return request;
+	}
+
+	@SuppressWarnings("unchecked")
+	private NacosLoadBalancer loadBalancer(ConcurrencyLimiter limiter) {
+		ServiceInstanceListSupplier supplier = mock(ServiceInstanceListSupplier.class);
+		when(supplier.get()).thenReturn(Flux.just(Arrays.asList(busy, idle)));
+		ObjectProvider<ServiceInstanceListSupplier> provider = mock(ObjectProvider.class);
+		when(provider.getIfAvailable(any())).thenReturn(supplier);
+		NacosLoadBalancer loadBalancer = new NacosLoadBalancer(provider, "service",
+				new NacosDiscoveryProperties());
+		loadBalancer.setConcurrencyLimiter(limiter);
+		return loadBalancer;
+	}
+
+	private static ServiceInstance instance(String id) {
+		Map<String, String> metadata = new HashMap<>();
+		metadata.put("nacos.weight", "1.0");
+		metadata.put("nacos.healthy", "true");
+		metadata.put("nacos.cluster", "DEFAULT");
+		return new DefaultServiceInstance(id, "service", "127.0.0.1", 8080, false,
+				metadata);
+	}
+
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2013-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alibaba.cloud.nacos.loadbalancer;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import org.springframework.http.HttpMethod;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author Spring Cloud Alibaba contributors
+ */
+public class HedgingPolicyTest {
+
+	private final NacosLoadBalancerProperties.Hedging properties = new NacosLoadBalancerProperties.Hedging();
+
+	@Test
+	public void testHedgeableMethods() {
+		HedgingPolicy policy = new HedgingPolicy(properties);
+
+		assertThat(policy.isHedgeable(HttpMethod.GET)).isTrue();
+		assertThat(policy.isHedgeable(HttpMethod.HEAD)).isTrue();
+		assertThat(policy.isHedgeable(HttpMethod.POST)).isFalse();
+		assertThat(policy.isHedgeable(null)).isFalse();
+	}
+
+	@Test
+	public void testDelayFollowsPercentile() {
+		properties.setPercentile(0.9);
+		properties.setMinDelay(Duration.ofMillis(5));
+		properties.setMaxDelay(Duration.ofMillis(500));
+		HedgingPolicy policy = new HedgingPolicy(properties);
+
+		// the maximum delay until enough response times are known
+		assertThat(policy.getDelay("service"))
+				.isEqualTo(TimeUnit.MILLISECONDS.toNanos(500));
+
+		for (int i = 1; i <= HedgingPolicy.SAMPLES; i++) {
+			policy.recordResponseTime("service", TimeUnit.MILLISECONDS.toNanos(i));
+		}
+		assertThat(policy.getDelay("service")).isEqualTo(
+				TimeUnit.MILLISECONDS.toNanos((long) Math.ceil(0.9 * HedgingPolicy.SAMPLES)));
+
+		// bounded by the minimum delay
+		for (int i = 0; i < HedgingPolicy.SAMPLES; i++) {
+			policy.recordResponseTime("service", 1);
+		}
+		assertThat(policy.getDelay("service"))
+				.isEqualTo(TimeUnit.MILLISECONDS.toNanos(5));
+		assertThat(policy.getDelay("other"))
+				.isEqualTo(TimeUnit.MILLISECONDS.toNanos(500));
+	}
+
+	@Test
+	public void testBudget() {
+		properties.setBudgetPercent(10);
+		HedgingPolicy policy = new HedgingPolicy(properties);
+
+		assertThat(policy.tryAcquireHedge("service")).isFalse();
+		for (int i = 0; i < 20; i++) {
+			policy.onRequest("service");
+		}
+		assertThat(policy.tryAcquireHedge("service")).isTrue();
+		assertThat(policy.tryAcquireHedge("service")).isTrue();
+		assertThat(policy.tryAcquireHedge("service")).isFalse();
+		policy.refundHedge("service");
+		assertThat(policy.tryAcquireHedge("service")).isTrue();
+
+		// the budget is capped so that a long quiet period does not allow a burst
+		for (int i = 0; i < 10_000; i++) {
+			policy.onRequest("service");
+		}
+		int hedges = 0;
+		while (policy.tryAcquireHedge("service")) {
+			hedges++;
+		}
+		assertThat(hedges).isEqualTo(HedgingPolicy.MAX_HEDGES);
+	}
+
+}
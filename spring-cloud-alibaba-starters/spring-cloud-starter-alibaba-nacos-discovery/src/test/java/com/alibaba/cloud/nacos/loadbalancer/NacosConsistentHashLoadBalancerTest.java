@@ -0,0 +1,203 @@
+/*
+ * Copyright 2013-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alibaba.cloud.nacos.loadbalancer;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.alibaba.cloud.nacos.NacosDiscoveryProperties;
+import com.alibaba.cloud.nacos.balancer.ConsistentHashRing;
+import com.alibaba.cloud.nacos.balancer.WeightedInstanceSelector;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.DefaultRequest;
+import org.springframework.cloud.client.loadbalancer.Request;
+import org.springframework.cloud.client.loadbalancer.RequestData;
+import org.springframework.cloud.client.loadbalancer.RequestDataContext;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.util.LinkedMultiValueMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * @author Spring Cloud Alibaba contributors
+ */
+public class NacosConsistentHashLoadBalancerTest {
+
+	@Test
+	public void testSameKeyChoosesSameInstance() {
+		NacosConsistentHashLoadBalancer loadBalancer = loadBalancer(
+				Arrays.asList(instance("a", 1), instance("b", 1), instance("c", 1)));
+
+		for (int i = 0; i < 50; i++) {
+			String key = "user-" + i;
+			ServiceInstance first = loadBalancer.choose(request(key)).block()
+					.getServer();
+			for (int j = 0; j < 3; j++) {
+				assertThat(loadBalancer.choose(request(key)).block().getServer())
+						.isSameAs(first);
+			}
+		}
+	}
+
+	@Test
+	public void testOnlyKeysOfRemovedInstanceAreRemapped() {
+		List<ServiceInstance> instances = new ArrayList<>();
+		for (int i = 0; i < 5; i++) {
+			instances.add(instance("instance-" + i, 1));
+		}
+		ConsistentHashRing ring = ConsistentHashRing
+				.build(WeightedInstanceSelector.build(instances), 160, null);
+		List<ServiceInstance> remaining = new ArrayList<>(instances);
+		ServiceInstance removed = remaining.remove(2);
+		ConsistentHashRing rebuilt = ConsistentHashRing
+				.build(WeightedInstanceSelector.build(remaining), 160, ring);
+
+		int moved = 0;
+		for (int i = 0; i < 10000; i++) {
+			String key = "key-" + i;
+			ServiceInstance before = ring.choose(key);
+			ServiceInstance after = rebuilt.choose(key);
+			if (before != removed) {
+				assertThat(after).isSameAs(before);
+			}
+			else {
+				moved++;
+			}
+		}
+		assertThat(moved).isBetween(1000, 3000);
+	}
+
+	@Test
+	public void testExcludedInstancesAreSkipped() {
+		List<ServiceInstance> instances = new ArrayList<>();
+		for (int i = 0; i < 5; i++) {
+			instances.add(instance("instance-" + i, 1));
+		}
+		WeightedInstanceSelector selector = WeightedInstanceSelector.build(instances);
+		ConsistentHashRing ring = ConsistentHashRing.build(selector, 160, null);
+		ServiceInstance excluded = instances.get(2);
+		WeightedInstanceSelector filtered = selector
+				.exclude(instance -> instance == excluded);
+		assertThat(filtered.getOrigin()).isSameAs(selector);
+		List<ServiceInstance> remaining = new ArrayList<>(instances);
+		remaining.remove(excluded);
+		ConsistentHashRing rebuilt = ConsistentHashRing
+				.build(WeightedInstanceSelector.build(remaining), 160, ring);
+
+		// walking past an excluded instance maps keys like a ring without it
+		for (int i = 0; i < 10000; i++) {
+			String key = "key-" + i;
+			assertThat(ring.choose(key, filtered)).isSameAs(rebuilt.choose(key));
+		}
+		assertThat(ring.choose("key", selector.exclude(instance -> true))).isNull();
+	}
+
+	@Test
+	public void testHedgeSkipsTheInstanceOfTheKey() {
+		NacosConsistentHashLoadBalancer loadBalancer = loadBalancer(
+				Arrays.asList(instance("a", 1), instance("b", 1), instance("c", 1)));
+
+		for (int i = 0; i < 20; i++) {
+			String key = "user-" + i;
+			ServiceInstance owner = loadBalancer.choose(request(key)).block()
+					.getServer();
+			RequestDataContext context = request(key).getContext();
+			ServiceInstance hedge = loadBalancer
+					.choose(new DefaultRequest<>(new HedgedRequestContext(
+							context.getClientRequest(), "default",
+							Collections.singleton(owner.getInstanceId()))))
+					.block().getServer();
+			assertThat(hedge).isNotNull().isNotSameAs(owner);
+			// the hedge does not change where the key is routed
+			assertThat(loadBalancer.choose(request(key)).block().getServer())
+					.isSameAs(owner);
+		}
+	}
+
+	@Test
+	public void testKeysAreSpreadByWeight() {
+		ServiceInstance heavy = instance("heavy", 3);
+		ServiceInstance light = instance("light", 1);
+		ConsistentHashRing ring = ConsistentHashRing.build(
+				WeightedInstanceSelector.build(Arrays.asList(heavy, light)), 160, null);
+
+		int heavyCount = 0;
+		for (int i = 0; i < 10000; i++) {
+			if (ring.choose("key-" + i) == heavy) {
+				heavyCount++;
+			}
+		}
+		assertThat(heavyCount).isBetween(6500, 8500);
+	}
+
+	@Test
+	public void testRequestWithoutKeyFallsBackToWeightedRandom() {
+		ServiceInstance instance = instance("a", 1);
+		NacosConsistentHashLoadBalancer loadBalancer = loadBalancer(
+				Arrays.asList(instance));
+
+		assertThat(loadBalancer.choose(new DefaultRequest<>()).block().getServer())
+				.isSameAs(instance);
+	}
+
+	@SuppressWarnings("unchecked")
+	private static NacosConsistentHashLoadBalancer loadBalancer(
+			List<ServiceInstance> instances) {
+		ServiceInstanceListSupplier supplier = mock(ServiceInstanceListSupplier.class);
+		when(supplier.get()).thenReturn(Flux.just(instances));
+		ObjectProvider<ServiceInstanceListSupplier> provider = mock(ObjectProvider.class);
+		when(provider.getIfAvailable(any())).thenReturn(supplier);
+		NacosLoadBalancerProperties properties = new NacosLoadBalancerProperties();
+		properties.getConsistentHash().setHeader("X-User-Id");
+		return new NacosConsistentHashLoadBalancer(provider, "service",
+				new NacosDiscoveryProperties(), properties);
+	}
+
+	private static Request<RequestDataContext> request(String key) {
+		HttpHeaders headers = new HttpHeaders();
+		headers.add("X-User-Id", key);
+		RequestData requestData = new RequestData(HttpMethod.GET,
+				URI.create("http://service/"), headers,
+				new LinkedMultiValueMap<>(), new HashMap<>());
+		return new DefaultRequest<>(new RequestDataContext(requestData));
+	}
+
+	private static ServiceInstance instance(String id, double weight) {
+		Map<String, String> metadata = new HashMap<>();
+		metadata.put("nacos.weight", String.valueOf(weight));
+		metadata.put("nacos.healthy", "true");
+		metadata.put("nacos.cluster", "DEFAULT");
+		return new DefaultServiceInstance(id, "service", "127.0.0.1", 8080, false,
+				metadata);
+	}
+
+}
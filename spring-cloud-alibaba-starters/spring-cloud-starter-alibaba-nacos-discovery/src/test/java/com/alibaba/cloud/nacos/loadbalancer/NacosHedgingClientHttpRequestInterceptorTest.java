@@ -0,0 +1,217 @@
+/*
+ * Copyright 2013-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alibaba.cloud.nacos.loadbalancer;
+
+import java.io.IOException;
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import com.alibaba.cloud.nacos.NacosDiscoveryProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.LoadBalancerLifecycle;
+import org.springframework.cloud.client.loadbalancer.LoadBalancerProperties;
+import org.springframework.cloud.client.loadbalancer.reactive.ReactiveLoadBalancer;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.mock.http.client.MockClientHttpRequest;
+import org.springframework.mock.http.client.MockClientHttpResponse;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * @author Spring Cloud Alibaba contributors
+ */
+public class NacosHedgingClientHttpRequestInterceptorTest {
+
+	private final List<String> hosts = Collections.synchronizedList(new ArrayList<>());
+
+	private final List<URI> executed = Collections.synchronizedList(new ArrayList<>());
+
+	private NacosHedgingClientHttpRequestInterceptor interceptor;
+
+	@AfterEach
+	public void tearDown() {
+		if (interceptor != null) {
+			interceptor.destroy();
+		}
+	}
+
+	@Test
+	public void testHedgeWins() throws Exception {
+		interceptor = interceptor(Executors.newCachedThreadPool(), "a", "b");
+
+		ClientHttpResponse response = interceptor.intercept(
+				new MockClientHttpRequest(HttpMethod.GET, URI.create("http://service/path")),
+				new byte[0], execution(Duration.ofSeconds(5)));
+
+		assertThat(response.getHeaders().getFirst("sender")).isEqualTo("factory");
+		assertThat(executed).hasSize(1);
+		assertThat(hosts).hasSize(1).doesNotContain(executed.get(0).getHost());
+	}
+
+	@Test
+	public void testFirstAttemptUsesExecution() throws Exception {
+		interceptor = interceptor(Executors.newCachedThreadPool(), "a", "b");
+
+		ClientHttpResponse response = interceptor.intercept(
+				new MockClientHttpRequest(HttpMethod.GET, URI.create("http://service/path")),
+				new byte[0], execution(Duration.ZERO));
+
+		assertThat(response.getHeaders().getFirst("sender")).isEqualTo("execution");
+		assertThat(executed).hasSize(1);
+		assertThat(executed.get(0).getHost()).isIn("a", "b");
+		assertThat(executed.get(0).getPath()).isEqualTo("/path");
+		assertThat(hosts).isEmpty();
+	}
+
+	@Test
+	public void testSaturatedExecutorSendsFromCallingThread() throws Exception {
+		ExecutorService saturated = Executors.newSingleThreadExecutor();
+		saturated.shutdown();
+		interceptor = interceptor(saturated, "a", "b");
+		Thread caller = Thread.currentThread();
+		List<Thread> threads = new ArrayList<>();
+
+		ClientHttpResponse response = interceptor.intercept(
+				new MockClientHttpRequest(HttpMethod.GET, URI.create("http://service/path")),
+				new byte[0], (request, body) -> {
+					threads.add(Thread.currentThread());
+					return execution(Duration.ofMillis(200)).execute(request, body);
+				});
+
+		assertThat(response.getHeaders().getFirst("sender")).isEqualTo("execution");
+		assertThat(threads).containsExactly(caller);
+		assertThat(hosts).isEmpty();
+	}
+
+	@Test
+	public void testUnsafeMethodsUseExecution() throws Exception {
+		interceptor = interceptor(Executors.newCachedThreadPool(), "a", "b");
+
+		ClientHttpResponse response = interceptor.intercept(
+				new MockClientHttpRequest(HttpMethod.POST,
+						URI.create("http://service/path")),
+				new byte[0], (request, body) -> {
+					executed.add(request.getURI());
+					return new MockClientHttpResponse(new byte[0], HttpStatus.CREATED);
+				});
+
+		assertThat(response.getStatusCode()).isEqualTo(HttpStatus.CREATED);
+		assertThat(executed).hasSize(1);
+		assertThat(executed.get(0).getHost()).isIn("a", "b");
+		assertThat(executed.get(0).getPath()).isEqualTo("/path");
+		assertThat(hosts).isEmpty();
+	}
+
+	@Test
+	public void testNoInstance() {
+		interceptor = interceptor(Executors.newCachedThreadPool());
+
+		assertThatThrownBy(() -> interceptor.intercept(
+				new MockClientHttpRequest(HttpMethod.GET, URI.create("http://service/path")),
+				new byte[0], execution(Duration.ZERO)))
+						.isInstanceOf(IllegalStateException.class)
+						.hasMessageContaining("service");
+	}
+
+	private ClientHttpRequestExecution execution(Duration delay) {
+		return (request, body) -> {
+			executed.add(request.getURI());
+			sleep(delay);
+			return response("execution");
+		};
+	}
+
+	private static void sleep(Duration delay) throws IOException {
+		try {
+			Thread.sleep(delay.toMillis());
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException(e);
+		}
+	}
+
+	private static ClientHttpResponse response(String sender) {
+		MockClientHttpResponse response = new MockClientHttpResponse(new byte[0],
+				HttpStatus.OK);
+		response.getHeaders().add("sender", sender);
+		return response;
+	}
+
+	@SuppressWarnings("unchecked")
+	private NacosHedgingClientHttpRequestInterceptor interceptor(
+			ExecutorService executor, String... ids) {
+		NacosLoadBalancerProperties.Hedging properties = new NacosLoadBalancerProperties.Hedging();
+		properties.setBudgetPercent(100);
+		properties.setMinDelay(Duration.ofMillis(50));
+		properties.setMaxDelay(Duration.ofMillis(50));
+
+		List<ServiceInstance> instances = new ArrayList<>();
+		for (String id : ids) {
+			Map<String, String> metadata = new HashMap<>();
+			metadata.put("nacos.weight", "1.0");
+			metadata.put("nacos.healthy", "true");
+			instances.add(
+					new DefaultServiceInstance(id, "service", id, 8080, false, metadata));
+		}
+		ServiceInstanceListSupplier supplier = mock(ServiceInstanceListSupplier.class);
+		when(supplier.get()).thenReturn(Flux.just(instances));
+		ObjectProvider<ServiceInstanceListSupplier> provider = mock(ObjectProvider.class);
+		when(provider.getIfAvailable(any())).thenReturn(supplier);
+		ReactiveLoadBalancer.Factory<ServiceInstance> factory = mock(
+				ReactiveLoadBalancer.Factory.class);
+		when(factory.getInstance("service")).thenReturn(new NacosLoadBalancer(provider,
+				"service", new NacosDiscoveryProperties()));
+		when(factory.getProperties("service")).thenReturn(new LoadBalancerProperties());
+		when(factory.getInstances(eq("service"), eq(LoadBalancerLifecycle.class)))
+				.thenReturn(Collections.emptyMap());
+
+		return new NacosHedgingClientHttpRequestInterceptor(factory,
+				new HedgingPolicy(properties), (uri, method) -> {
+					hosts.add(uri.getHost());
+					return new MockClientHttpRequest(method, uri) {
+						@Override
+						protected ClientHttpResponse executeInternal() {
+							return response("factory");
+						}
+					};
+				}, executor);
+	}
+
+}
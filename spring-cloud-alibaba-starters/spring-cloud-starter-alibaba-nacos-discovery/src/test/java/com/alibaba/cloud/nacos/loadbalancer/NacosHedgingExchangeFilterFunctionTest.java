@@ -0,0 +1,243 @@
+/*
+ * Copyright 2013-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alibaba.cloud.nacos.loadbalancer;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.alibaba.cloud.nacos.NacosDiscoveryProperties;
+import com.alibaba.cloud.nacos.metrics.NacosHedgingMetrics;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.DefaultRequest;
+import org.springframework.cloud.client.loadbalancer.LoadBalancerLifecycle;
+import org.springframework.cloud.client.loadbalancer.LoadBalancerProperties;
+import org.springframework.cloud.client.loadbalancer.RequestData;
+import org.springframework.cloud.client.loadbalancer.reactive.ReactiveLoadBalancer;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * @author Spring Cloud Alibaba contributors
+ */
+public class NacosHedgingExchangeFilterFunctionTest {
+
+	private static final Duration TIMEOUT = Duration.ofSeconds(30);
+
+	private final MeterRegistry registry = new SimpleMeterRegistry();
+
+	private final NacosLoadBalancerProperties.Hedging properties = new NacosLoadBalancerProperties.Hedging();
+
+	private final List<String> hosts = Collections.synchronizedList(new ArrayList<>());
+
+	private final List<Long> responseTimes = Collections
+			.synchronizedList(new ArrayList<>());
+
+	private final ConcurrencyLimiter limiter = new ConcurrencyLimiter(
+			new NacosLoadBalancerProperties());
+
+	@Test
+	public void testHedgeWins() {
+		NacosHedgingExchangeFilterFunction filter = filter(100, "a", "b");
+
+		ClientResponse response = filter
+				.filter(request(HttpMethod.GET), exchange(Duration.ofSeconds(5)))
+				.block(TIMEOUT);
+
+		assertThat(response.statusCode()).isEqualTo(HttpStatus.OK);
+		assertThat(response.headers().asHttpHeaders().getFirst("attempt"))
+				.isEqualTo("2");
+		assertThat(hosts).hasSize(2).doesNotHaveDuplicates();
+		assertThat(outcome(HedgingPolicy.Outcome.HEDGE_WON)).isEqualTo(1);
+		// the losing attempt completed as discarded
+		assertThat(limiter.getLimit(hosts.get(0)).getInFlight()).isZero();
+		assertThat(limiter.getLimit(hosts.get(1)).getInFlight()).isZero();
+		// only the first attempt is sampled, with the time it waited for the hedge
+		assertThat(responseTimes).hasSize(1);
+		assertThat(responseTimes.get(0))
+				.isGreaterThanOrEqualTo(Duration.ofMillis(350).toNanos());
+	}
+
+	@Test
+	public void testPrimaryWins() {
+		NacosHedgingExchangeFilterFunction filter = filter(100, "a", "b");
+
+		ClientResponse response = filter
+				.filter(request(HttpMethod.GET), exchange(Duration.ofMillis(100)))
+				.block(TIMEOUT);
+
+		assertThat(response.headers().asHttpHeaders().getFirst("attempt"))
+				.isEqualTo("1");
+		assertThat(hosts).hasSize(2).doesNotHaveDuplicates();
+		assertThat(outcome(HedgingPolicy.Outcome.PRIMARY_WON)).isEqualTo(1);
+	}
+
+	@Test
+	public void testNoHedgeWithoutBudget() {
+		NacosHedgingExchangeFilterFunction filter = filter(0, "a", "b");
+
+		ClientResponse response = filter
+				.filter(request(HttpMethod.GET), exchange(Duration.ofMillis(200)))
+				.block(TIMEOUT);
+
+		assertThat(response.headers().asHttpHeaders().getFirst("attempt"))
+				.isEqualTo("1");
+		assertThat(hosts).hasSize(1);
+		assertThat(outcome(HedgingPolicy.Outcome.THROTTLED)).isEqualTo(1);
+	}
+
+	@Test
+	public void testNoHedgeWithoutOtherInstance() {
+		NacosHedgingExchangeFilterFunction filter = filter(100, "a");
+
+		ClientResponse response = filter
+				.filter(request(HttpMethod.GET), exchange(Duration.ofMillis(200)))
+				.block(TIMEOUT);
+
+		assertThat(response.headers().asHttpHeaders().getFirst("attempt"))
+				.isEqualTo("1");
+		assertThat(hosts).containsExactly("a");
+		assertThat(outcome(HedgingPolicy.Outcome.UNAVAILABLE)).isEqualTo(1);
+	}
+
+	@Test
+	public void testNoHedgeOfUnsafeMethods() {
+		NacosHedgingExchangeFilterFunction filter = filter(100, "a", "b");
+
+		ClientResponse response = filter
+				.filter(request(HttpMethod.POST), exchange(Duration.ofMillis(200)))
+				.block(TIMEOUT);
+
+		assertThat(response.statusCode()).isEqualTo(HttpStatus.OK);
+		assertThat(hosts).hasSize(1);
+	}
+
+	@Test
+	public void testExcludedInstances() {
+		NacosLoadBalancer loadBalancer = loadBalancer("a", "b");
+		RequestData requestData = new RequestData(request(HttpMethod.GET));
+
+		for (int i = 0; i < 10; i++) {
+			ServiceInstance instance = loadBalancer
+					.choose(new DefaultRequest<>(new HedgedRequestContext(requestData,
+							"default", Collections.singleton("a"))))
+					.block().getServer();
+			assertThat(instance.getInstanceId()).isEqualTo("b");
+		}
+		assertThat(loadBalancer
+				.choose(new DefaultRequest<>(new HedgedRequestContext(requestData,
+						"default", new HashSet<>(Arrays.asList("a", "b")))))
+				.block().hasServer()).isFalse();
+	}
+
+	private double outcome(HedgingPolicy.Outcome outcome) {
+		return registry.get("nacos.loadbalancer.hedges").tag("service", "service")
+				.tag("outcome", outcome.name()).counter().count();
+	}
+
+	private static ClientRequest request(HttpMethod method) {
+		return ClientRequest.create(method, URI.create("http://service/path")).build();
+	}
+
+	/**
+	 * Exchange whose first attempt responds after the given delay and the next ones
+	 * right away.
+	 */
+	private ExchangeFunction exchange(Duration firstDelay) {
+		AtomicInteger attempts = new AtomicInteger();
+		return request -> {
+			hosts.add(request.url().getHost());
+			int attempt = attempts.incrementAndGet();
+			Mono<ClientResponse> response = Mono.fromSupplier(
+					() -> ClientResponse.create(HttpStatus.OK)
+							.header("attempt", String.valueOf(attempt)).build());
+			return attempt == 1 ? response.delaySubscription(firstDelay)
+					: response.delaySubscription(Duration.ofMillis(300));
+		};
+	}
+
+	@SuppressWarnings("unchecked")
+	private NacosHedgingExchangeFilterFunction filter(int budgetPercent,
+			String... instances) {
+		properties.setBudgetPercent(budgetPercent);
+		properties.setMinDelay(Duration.ofMillis(50));
+		properties.setMaxDelay(Duration.ofMillis(50));
+		HedgingPolicy policy = new HedgingPolicy(properties) {
+			@Override
+			public void recordResponseTime(String serviceId, long nanos) {
+				responseTimes.add(nanos);
+				super.recordResponseTime(serviceId, nanos);
+			}
+		};
+		policy.setMetrics(new NacosHedgingMetrics(registry));
+		NacosLoadBalancer loadBalancer = loadBalancer(instances);
+		loadBalancer.setConcurrencyLimiter(limiter);
+		ReactiveLoadBalancer.Factory<ServiceInstance> factory = mock(
+				ReactiveLoadBalancer.Factory.class);
+		when(factory.getInstance("service")).thenReturn(loadBalancer);
+		when(factory.getProperties("service")).thenReturn(new LoadBalancerProperties());
+		Map<String, LoadBalancerLifecycle> lifecycles = new HashMap<>();
+		lifecycles.put("limiter", limiter);
+		when(factory.getInstances(eq("service"), eq(LoadBalancerLifecycle.class)))
+				.thenReturn(lifecycles);
+		return new NacosHedgingExchangeFilterFunction(factory, policy);
+	}
+
+	@SuppressWarnings("unchecked")
+	private static NacosLoadBalancer loadBalancer(String... ids) {
+		List<ServiceInstance> instances = new ArrayList<>();
+		for (String id : ids) {
+			Map<String, String> metadata = new HashMap<>();
+			metadata.put("nacos.weight", "1.0");
+			metadata.put("nacos.healthy", "true");
+			metadata.put("nacos.cluster", "DEFAULT");
+			instances.add(
+					new DefaultServiceInstance(id, "service", id, 8080, false, metadata));
+		}
+		ServiceInstanceListSupplier supplier = mock(ServiceInstanceListSupplier.class);
+		when(supplier.get()).thenReturn(Flux.just(instances));
+		ObjectProvider<ServiceInstanceListSupplier> provider = mock(ObjectProvider.class);
+		when(provider.getIfAvailable(any())).thenReturn(supplier);
+		return new NacosLoadBalancer(provider, "service", new NacosDiscoveryProperties());
+	}
+
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2013-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alibaba.cloud.nacos.loadbalancer;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.alibaba.cloud.nacos.NacosDiscoveryProperties;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.CompletionContext;
+import org.springframework.cloud.client.loadbalancer.DefaultRequest;
+import org.springframework.cloud.client.loadbalancer.DefaultResponse;
+import org.springframework.cloud.client.loadbalancer.Request;
+import org.springframework.cloud.client.loadbalancer.RequestDataContext;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * @author Spring Cloud Alibaba contributors
+ */
+public class NacosLeastLoadedLoadBalancerTest {
+
+	private final ServiceInstance busy = instance("busy");
+
+	private final ServiceInstance idle = instance("idle");
+
+	private final List<ServiceInstance> instances = Arrays.asList(busy, idle);
+
+	private final InstanceLoadTracker tracker = new InstanceLoadTracker(
+			new NacosLoadBalancerProperties());
+
+	@Test
+	public void testChooseLessLoadedInstance() {
+		for (int i = 0; i < 5; i++) {
+			tracker.onStartRequest(request(), new DefaultResponse(busy));
+		}
+		NacosLeastLoadedLoadBalancer loadBalancer = loadBalancer();
+
+		for (int i = 0; i < 20; i++) {
+			assertThat(loadBalancer.choose().block().getServer()).isSameAs(idle);
+		}
+	}
+
+	@Test
+	public void testTrackResponseTime() throws InterruptedException {
+		Request<Object> request = request();
+		Response<ServiceInstance> response = new DefaultResponse(busy);
+		tracker.onStartRequest(request, response);
+		assertThat(tracker.getLoad(busy).getInFlight()).isEqualTo(1);
+		assertThat(tracker.getLoad(busy).getResponseTime()).isNegative();
+
+		Thread.sleep(5);
+		tracker.onComplete(new CompletionContext<>(CompletionContext.Status.SUCCESS,
+				request, response));
+
+		assertThat(tracker.getLoad(busy).getInFlight()).isZero();
+		assertThat(tracker.getLoad(busy).getResponseTime()).isGreaterThan(5_000_000D);
+	}
+
+	@Test
+	public void testForgetRemovedInstances() {
+		tracker.onStartRequest(request(), new DefaultResponse(busy));
+		tracker.onStartRequest(request(), new DefaultResponse(idle));
+
+		tracker.retain(Arrays.asList(idle));
+
+		assertThat(tracker.getLoad(busy)).isNull();
+		assertThat(tracker.getLoad(idle)).isNotNull();
+	}
+
+	@SuppressWarnings("unchecked")
+	private NacosLeastLoadedLoadBalancer loadBalancer() {
+		ServiceInstanceListSupplier supplier = mock(ServiceInstanceListSupplier.class);
+		when(supplier.get()).thenReturn(Flux.just(instances));
+		ObjectProvider<ServiceInstanceListSupplier> provider = mock(ObjectProvider.class);
+		when(provider.getIfAvailable(any())).thenReturn(supplier);
+		NacosDiscoveryProperties properties = new NacosDiscoveryProperties();
+		return new NacosLeastLoadedLoadBalancer(provider, "service", properties,
+				tracker);
+	}
+
+	private static Request<Object> request() {
+		return new DefaultRequest<>(new RequestDataContext());
+	}
+
+	private static ServiceInstance instance(String id) {
+		Map<String, String> metadata = new HashMap<>();
+		metadata.put("nacos.weight", "1.0");
+		metadata.put("nacos.healthy", "true");
+		metadata.put("nacos.cluster", "DEFAULT");
+		return new DefaultServiceInstance(id, "service", "127.0.0.1", 8080, false,
+				metadata);
+	}
+
+}
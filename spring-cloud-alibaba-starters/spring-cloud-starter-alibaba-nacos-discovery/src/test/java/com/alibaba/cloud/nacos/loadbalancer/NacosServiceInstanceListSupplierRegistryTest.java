@@ -0,0 +1,132 @@
+/*
+ * Copyright 2013-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alibaba.cloud.nacos.loadbalancer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+import com.alibaba.cloud.nacos.NacosDiscoveryProperties;
+import com.alibaba.cloud.nacos.NacosServiceManager;
+import com.alibaba.cloud.nacos.discovery.NacosInstanceCache;
+import com.alibaba.nacos.api.naming.NamingService;
+import com.alibaba.nacos.api.naming.listener.EventListener;
+import com.alibaba.nacos.api.naming.listener.NamingEvent;
+import com.alibaba.nacos.api.naming.pojo.Instance;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import reactor.core.Disposable;
+
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+
+import static com.alibaba.cloud.nacos.test.NacosMockTest.serviceInstance;
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * @author Spring Cloud Alibaba contributors
+ */
+public class NacosServiceInstanceListSupplierRegistryTest {
+
+	private static final String SERVICE = "test-service";
+
+	private final NamingService namingService = mock(NamingService.class);
+
+	private NacosServiceInstanceListSupplierRegistry registry;
+
+	@BeforeEach
+	public void setUp() {
+		NacosServiceManager nacosServiceManager = mock(NacosServiceManager.class);
+		NacosDiscoveryProperties properties = mock(NacosDiscoveryProperties.class);
+		when(nacosServiceManager.getNamingService()).thenReturn(namingService);
+		when(properties.getGroup()).thenReturn("DEFAULT");
+		registry = new NacosServiceInstanceListSupplierRegistry(
+				new NacosInstanceCache(nacosServiceManager, properties), true);
+	}
+
+	@AfterEach
+	public void tearDown() {
+		registry.destroy();
+	}
+
+	@Test
+	public void testSubscribeOnceAndUpdateOnPush() throws Exception {
+		when(namingService.selectInstances(eq(SERVICE), eq("DEFAULT"), eq(true)))
+				.thenReturn(singletonList(
+						serviceInstance(SERVICE, true, "1.1.1.1", 80, new HashMap<>())));
+
+		ServiceInstanceListSupplier supplier = registry.getSupplier(SERVICE);
+		assertThat(registry.getSupplier(SERVICE)).isSameAs(supplier);
+
+		List<ServiceInstance> first = supplier.get().blockFirst();
+		assertThat(first).extracting(ServiceInstance::getHost).containsExactly("1.1.1.1");
+		// served from the snapshot
+		assertThat(supplier.get().blockFirst()).isSameAs(first);
+
+		ArgumentCaptor<EventListener> listener = ArgumentCaptor
+				.forClass(EventListener.class);
+		verify(namingService, times(1)).subscribe(eq(SERVICE), eq("DEFAULT"),
+				listener.capture());
+		verify(namingService, times(1)).selectInstances(SERVICE, "DEFAULT", true);
+
+		List<List<ServiceInstance>> received = new ArrayList<>();
+		Disposable subscription = supplier.get().subscribe(received::add);
+		List<Instance> pushed = Arrays.asList(
+				serviceInstance(SERVICE, true, "1.1.1.1", 80, new HashMap<>()),
+				serviceInstance(SERVICE, true, "2.2.2.2", 80, new HashMap<>()));
+		listener.getValue()
+				.onEvent(new NamingEvent(SERVICE, "DEFAULT", null, pushed));
+
+		assertThat(received).hasSize(2);
+		assertThat(received.get(1)).extracting(ServiceInstance::getHost)
+				.containsExactly("1.1.1.1", "2.2.2.2");
+		assertThat(supplier.get().blockFirst()).isSameAs(received.get(1));
+		subscription.dispose();
+	}
+
+	@Test
+	public void testFirstLookupLeavesTheCallerThread() throws Exception {
+		List<String> threads = new ArrayList<>();
+		when(namingService.selectInstances(eq(SERVICE), eq("DEFAULT"), eq(true)))
+				.thenAnswer(invocation -> {
+					threads.add(Thread.currentThread().getName());
+					return singletonList(
+							serviceInstance(SERVICE, true, "1.1.1.1", 80, new HashMap<>()));
+				});
+
+		assertThat(registry.getSupplier(SERVICE).get().blockFirst()).hasSize(1);
+		assertThat(threads).hasSize(1).allMatch(name -> name.startsWith("boundedElastic"));
+	}
+
+	@Test
+	public void testEmptyOnFailure() throws Exception {
+		when(namingService.selectInstances(eq(SERVICE), eq("DEFAULT"), eq(true)))
+				.thenThrow(new IllegalStateException("unavailable"));
+
+		assertThat(registry.getSupplier(SERVICE).get().blockFirst()).isEmpty();
+	}
+
+}
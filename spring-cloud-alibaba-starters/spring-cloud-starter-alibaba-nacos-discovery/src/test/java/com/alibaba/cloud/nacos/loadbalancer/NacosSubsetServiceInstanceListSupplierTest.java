@@ -0,0 +1,170 @@
+/*
+ * Copyright 2013-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alibaba.cloud.nacos.loadbalancer;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.alibaba.cloud.nacos.NacosDiscoveryProperties;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * @author Spring Cloud Alibaba contributors
+ */
+public class NacosSubsetServiceInstanceListSupplierTest {
+
+	private final AtomicReference<List<ServiceInstance>> instances = new AtomicReference<>(
+			instances(100));
+
+	@Test
+	public void testStableSubset() {
+		NacosSubsetServiceInstanceListSupplier supplier = supplier("10.0.0.1", 8080);
+
+		List<ServiceInstance> subset = supplier.get().blockFirst();
+
+		assertThat(subset).hasSize(10);
+		assertThat(supplier.get().blockFirst()).isSameAs(subset);
+		instances.set(new ArrayList<>(instances.get()));
+		assertThat(supplier.get().blockFirst()).isSameAs(subset);
+		assertThat(supplier("10.0.0.1", 8080).get().blockFirst()).isEqualTo(subset);
+	}
+
+	@Test
+	public void testMinimalChurn() {
+		NacosSubsetServiceInstanceListSupplier supplier = supplier("10.0.0.1", 8080);
+		List<ServiceInstance> subset = supplier.get().blockFirst();
+
+		// instances outside of the subset come and go without changing it
+		List<ServiceInstance> changed = new ArrayList<>();
+		for (ServiceInstance instance : instances.get()) {
+			if (subset.contains(instance) || changed.size() % 2 == 0) {
+				changed.add(instance);
+			}
+		}
+		instances.set(changed);
+		assertThat(supplier.get().blockFirst()).isEqualTo(subset);
+
+		changed = new ArrayList<>(changed);
+		changed.remove(subset.get(0));
+		instances.set(changed);
+		List<ServiceInstance> rebalanced = supplier.get().blockFirst();
+		assertThat(rebalanced).hasSize(10)
+				.containsAll(subset.subList(1, subset.size()));
+
+		changed = new ArrayList<>(changed);
+		changed.addAll(instances(120).subList(100, 120));
+		instances.set(changed);
+		List<ServiceInstance> grown = supplier.get().blockFirst();
+		long added = grown.stream().filter(instance -> !rebalanced.contains(instance))
+				.count();
+		long kept = grown.stream().filter(rebalanced::contains).count();
+		assertThat(kept + added).isEqualTo(10);
+		assertThat(grown).allMatch(instance -> rebalanced.contains(instance)
+				|| instances(120).subList(100, 120).contains(instance));
+	}
+
+	@Test
+	public void testClientsSpreadEvenly() {
+		Map<String, Integer> counts = new HashMap<>();
+		for (int client = 0; client < 200; client++) {
+			for (ServiceInstance instance : supplier("10.0.1." + client, 8080).get()
+					.blockFirst()) {
+				counts.merge(instance.getInstanceId(), 1, Integer::sum);
+			}
+		}
+
+		// 200 clients * 10 instances over 100 instances, 20 clients per instance
+		assertThat(counts).hasSize(100);
+		assertThat(counts.values()).allMatch(count -> count > 5 && count < 40);
+	}
+
+	@Test
+	public void testSmallServiceIsNotSubset() {
+		instances.set(instances(5));
+
+		assertThat(supplier("10.0.0.1", 8080).get().blockFirst())
+				.isSameAs(instances.get());
+	}
+
+	@Test
+	public void testSubsetPerCluster() {
+		List<ServiceInstance> clustered = new ArrayList<>();
+		for (int i = 0; i < 100; i++) {
+			Map<String, String> metadata = new HashMap<>();
+			metadata.put("nacos.cluster", i < 95 ? "A" : "B");
+			clustered.add(new DefaultServiceInstance("instance-" + i, "service",
+					"10.1.0." + i, 8080, false, metadata));
+		}
+		instances.set(clustered);
+
+		List<ServiceInstance> subset = supplier("10.0.0.1", 8080).get().blockFirst();
+
+		// the small cluster is kept whole
+		assertThat(subset).hasSize(15).containsAll(clustered.subList(95, 100));
+	}
+
+	@Test
+	public void testClientKeyWaitsForThePort() {
+		NacosDiscoveryProperties properties = properties("10.0.0.1", -1);
+		NacosSubsetServiceInstanceListSupplier supplier = supplier(properties);
+		supplier.get().blockFirst();
+
+		properties.setPort(8080);
+		assertThat(supplier.get().blockFirst())
+				.isEqualTo(supplier("10.0.0.1", 8080).get().blockFirst());
+	}
+
+	private NacosSubsetServiceInstanceListSupplier supplier(String ip, int port) {
+		return supplier(properties(ip, port));
+	}
+
+	private NacosSubsetServiceInstanceListSupplier supplier(
+			NacosDiscoveryProperties properties) {
+		ServiceInstanceListSupplier delegate = mock(ServiceInstanceListSupplier.class);
+		when(delegate.get()).thenAnswer(invocation -> Flux.just(instances.get()));
+		return new NacosSubsetServiceInstanceListSupplier(delegate, properties, 10);
+	}
+
+	private static NacosDiscoveryProperties properties(String ip, int port) {
+		NacosDiscoveryProperties properties = new NacosDiscoveryProperties();
+		properties.setIp(ip);
+		properties.setPort(port);
+		return properties;
+	}
+
+	private static List<ServiceInstance> instances(int count) {
+		List<ServiceInstance> instances = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			instances.add(new DefaultServiceInstance("instance-" + i, "service",
+					"10.1.0." + i, 8080, false));
+		}
+		return instances;
+	}
+
+}
@@ -0,0 +1,183 @@
+/*
+ * Copyright 2013-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alibaba.cloud.nacos.loadbalancer;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.alibaba.cloud.nacos.balancer.WeightedInstanceSelector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.CompletionContext;
+import org.springframework.cloud.client.loadbalancer.DefaultRequest;
+import org.springframework.cloud.client.loadbalancer.DefaultResponse;
+import org.springframework.cloud.client.loadbalancer.RequestDataContext;
+import org.springframework.cloud.client.loadbalancer.ResponseData;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author Spring Cloud Alibaba contributors
+ */
+public class OutlierDetectorTest {
+
+	private final List<ServiceInstance> instances = new ArrayList<>();
+
+	private OutlierDetector detector;
+
+	@BeforeEach
+	public void setUp() {
+		for (int i = 0; i < 4; i++) {
+			instances.add(instance("instance-" + i));
+		}
+		NacosLoadBalancerProperties properties = new NacosLoadBalancerProperties();
+		properties.getOutlierDetection().setConsecutiveErrors(3);
+		properties.getOutlierDetection().setBaseEjectionTime(Duration.ofMillis(100));
+		detector = new OutlierDetector(properties);
+		detector.retain(instances);
+	}
+
+	@Test
+	public void testEjectAfterConsecutiveFailures() {
+		ServiceInstance failing = instances.get(0);
+		WeightedInstanceSelector selector = WeightedInstanceSelector.build(instances);
+
+		fail(failing, 2);
+		succeed(failing);
+		fail(failing, 2);
+		assertThat(detector.isEjected(failing)).isFalse();
+		assertThat(detector.filter(selector)).isSameAs(selector);
+
+		fail(failing, 1);
+		assertThat(detector.isEjected(failing)).isTrue();
+		WeightedInstanceSelector filtered = detector.filter(selector);
+		assertThat(filtered.size()).isEqualTo(3);
+		for (int i = 0; i < 100; i++) {
+			assertThat(filtered.choose()).isNotSameAs(failing);
+		}
+		assertThat(detector.filter(selector)).isSameAs(filtered);
+	}
+
+	@Test
+	public void testServerErrorIsFailure() {
+		ServiceInstance failing = instances.get(0);
+		for (int i = 0; i < 3; i++) {
+			detector.onComplete(new CompletionContext<>(
+					CompletionContext.Status.SUCCESS, new DefaultRequest<>(),
+					new DefaultResponse(failing),
+					new ResponseData(HttpStatus.SERVICE_UNAVAILABLE, new HttpHeaders(),
+							null, null)));
+		}
+		assertThat(detector.isEjected(failing)).isTrue();
+	}
+
+	@Test
+	public void testEjectionExpiresAndGrows() throws InterruptedException {
+		ServiceInstance failing = instances.get(0);
+		WeightedInstanceSelector selector = WeightedInstanceSelector.build(instances);
+
+		fail(failing, 3);
+		assertThat(detector.filter(selector).size()).isEqualTo(3);
+		Thread.sleep(150);
+		assertThat(detector.filter(selector)).isSameAs(selector);
+		assertThat(detector.isEjected(failing)).isFalse();
+
+		// the second ejection lasts twice as long
+		fail(failing, 3);
+		Thread.sleep(150);
+		assertThat(detector.isEjected(failing)).isTrue();
+		Thread.sleep(100);
+		assertThat(detector.filter(selector)).isSameAs(selector);
+	}
+
+	@Test
+	public void testMaxEjectionPercent() {
+		WeightedInstanceSelector selector = WeightedInstanceSelector.build(instances);
+		for (ServiceInstance instance : instances) {
+			fail(instance, 3);
+		}
+
+		assertThat(detector.filter(selector).size()).isEqualTo(2);
+	}
+
+	@Test
+	public void testMaxEjectionPercentPerCluster() {
+		List<ServiceInstance> clusterA = new ArrayList<>();
+		List<ServiceInstance> clusterB = new ArrayList<>();
+		for (int i = 0; i < 4; i++) {
+			clusterA.add(instance("a-" + i, "A"));
+		}
+		for (int i = 0; i < 2; i++) {
+			clusterB.add(instance("b-" + i, "B"));
+		}
+		List<ServiceInstance> all = new ArrayList<>(clusterA);
+		all.addAll(clusterB);
+		detector.retain(all);
+
+		// half of the service, but the whole of cluster B
+		fail(clusterB.get(0), 3);
+		fail(clusterB.get(1), 3);
+		fail(clusterA.get(0), 3);
+
+		assertThat(detector.isEjected(clusterB.get(0))).isTrue();
+		assertThat(detector.isEjected(clusterB.get(1))).isFalse();
+		assertThat(detector.isEjected(clusterA.get(0))).isTrue();
+		assertThat(detector.filter(WeightedInstanceSelector.build(clusterB)).size())
+				.isEqualTo(1);
+		assertThat(detector.filter(WeightedInstanceSelector.build(clusterA)).size())
+				.isEqualTo(3);
+	}
+
+	private void fail(ServiceInstance instance, int times) {
+		for (int i = 0; i < times; i++) {
+			detector.onComplete(new CompletionContext<>(CompletionContext.Status.FAILED,
+					new IllegalStateException("connect timed out"),
+					new DefaultRequest<>(new RequestDataContext()),
+					new DefaultResponse(instance)));
+		}
+	}
+
+	private void succeed(ServiceInstance instance) {
+		detector.onComplete(new CompletionContext<>(CompletionContext.Status.SUCCESS,
+				new DefaultRequest<>(new RequestDataContext()),
+				new DefaultResponse(instance)));
+	}
+
+	private static ServiceInstance instance(String id) {
+		return instance(id, null);
+	}
+
+	private static ServiceInstance instance(String id, String cluster) {
+		Map<String, String> metadata = new HashMap<>();
+		metadata.put("nacos.weight", "1.0");
+		metadata.put("nacos.healthy", "true");
+		if (cluster != null) {
+			metadata.put("nacos.cluster", cluster);
+		}
+		return new DefaultServiceInstance(id, "service", "127.0.0.1", 8080, false,
+				metadata);
+	}
+
+}
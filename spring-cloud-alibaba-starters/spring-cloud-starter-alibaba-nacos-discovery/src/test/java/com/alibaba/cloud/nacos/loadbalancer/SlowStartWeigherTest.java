@@ -0,0 +1,112 @@
+/*
+ * Copyright 2013-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alibaba.cloud.nacos.loadbalancer;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.alibaba.cloud.nacos.balancer.WeightedInstanceSelector;
+import com.alibaba.cloud.nacos.registry.NacosRegistration;
+import org.junit.jupiter.api.Test;
+
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+/**
+ * @author Spring Cloud Alibaba contributors
+ */
+public class SlowStartWeigherTest {
+
+	private static final long NOW = 1_000_000L;
+
+	@Test
+	public void testLinearRamp() {
+		SlowStartWeigher weigher = weigher("linear");
+		ServiceInstance old = instance("old", null);
+		ServiceInstance fresh = instance("fresh", null);
+		weigher.observe(Collections.singletonList(old), NOW);
+		weigher.observe(Arrays.asList(old, fresh), NOW);
+
+		assertThat(weigher.weightOf(old, NOW)).isEqualTo(2D);
+		assertThat(weigher.weightOf(fresh, NOW)).isEqualTo(0.2D, within(1e-9));
+		assertThat(weigher.weightOf(fresh, NOW + 5_000)).isEqualTo(1D, within(1e-9));
+		assertThat(weigher.weightOf(fresh, NOW + 10_000)).isEqualTo(2D);
+	}
+
+	@Test
+	public void testExponentialRamp() {
+		SlowStartWeigher weigher = weigher("exponential");
+		ServiceInstance fresh = instance("fresh", NOW);
+
+		assertThat(weigher.weightOf(fresh, NOW + 5_000)).isEqualTo(0.2D, within(1e-9));
+		assertThat(weigher.weightOf(fresh, NOW + 9_000)).isEqualTo(1D, within(1e-9));
+		assertThat(weigher.weightOf(fresh, NOW + 10_000)).isEqualTo(2D);
+	}
+
+	@Test
+	public void testRegistrationTimestamp() {
+		SlowStartWeigher weigher = weigher("linear");
+		ServiceInstance registered = instance("registered", NOW - 5_000);
+		ServiceInstance ahead = instance("ahead", NOW + 60_000);
+		List<ServiceInstance> instances = Arrays.asList(registered, ahead);
+		weigher.observe(Collections.emptyList(), NOW - 1_000);
+		weigher.observe(instances, NOW);
+
+		assertThat(weigher.weightOf(registered, NOW)).isEqualTo(1D, within(1e-9));
+		assertThat(weigher.weightOf(ahead, NOW)).isEqualTo(0.2D, within(1e-9));
+		assertThat(weigher.nextRefreshTime(instances, NOW)).isEqualTo(NOW + 500);
+		assertThat(weigher.nextRefreshTime(instances, NOW + 10_000))
+				.isEqualTo(Long.MAX_VALUE);
+	}
+
+	@Test
+	public void testEffectiveWeightFeedsSelector() {
+		SlowStartWeigher weigher = weigher("linear");
+		ServiceInstance warm = instance("warm", NOW - 10_000);
+		ServiceInstance cold = instance("cold", NOW);
+		WeightedInstanceSelector selector = WeightedInstanceSelector
+				.build(Arrays.asList(warm, cold), weigher.weigher(NOW));
+
+		assertThat(selector.getWeight(0)).isEqualTo(2D);
+		assertThat(selector.getWeight(1)).isEqualTo(0.2D, within(1e-9));
+	}
+
+	private static SlowStartWeigher weigher(String ramp) {
+		NacosLoadBalancerProperties properties = new NacosLoadBalancerProperties();
+		properties.getSlowStart().setWindow(Duration.ofSeconds(10));
+		properties.getSlowStart().setRamp(ramp);
+		return new SlowStartWeigher(properties);
+	}
+
+	private static ServiceInstance instance(String id, Long registered) {
+		Map<String, String> metadata = new HashMap<>();
+		metadata.put("nacos.weight", "2.0");
+		if (registered != null) {
+			metadata.put(NacosRegistration.REGISTER_TIMESTAMP, registered.toString());
+		}
+		return new DefaultServiceInstance(id, "service", "127.0.0.1", 8080, false,
+				metadata);
+	}
+
+}
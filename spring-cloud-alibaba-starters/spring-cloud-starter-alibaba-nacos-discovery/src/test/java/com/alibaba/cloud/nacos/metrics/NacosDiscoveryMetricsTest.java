@@ -0,0 +1,77 @@
+/*
+ * Copyright 2013-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alibaba.cloud.nacos.metrics;
+
+import java.util.Collections;
+import java.util.UUID;
+
+import com.alibaba.cloud.nacos.discovery.ServiceCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author Spring Cloud Alibaba contributors
+ */
+public class NacosDiscoveryMetricsTest {
+
+	private final MeterRegistry registry = new SimpleMeterRegistry();
+
+	private final NacosDiscoveryMetrics metrics = new NacosDiscoveryMetrics(registry);
+
+	@Test
+	public void testRecordGetInstances() {
+		String serviceId = "metrics-" + UUID.randomUUID();
+		ServiceInstance instance = new DefaultServiceInstance("id", serviceId,
+				"127.0.0.1", 8080, false);
+		ServiceCache.setInstances(serviceId, Collections.singletonList(instance));
+
+		metrics.recordGetInstances(serviceId, 1_000_000, true);
+		metrics.recordGetInstances(serviceId, 1_000_000, true);
+		metrics.recordGetInstances(serviceId, 1_000_000, false);
+
+		assertThat(registry.get("nacos.discovery.get.instances").tag("service", serviceId)
+				.tag("outcome", "SUCCESS").timer().count()).isEqualTo(2);
+		assertThat(registry.get("nacos.discovery.get.instances").tag("service", serviceId)
+				.tag("outcome", "ERROR").timer().count()).isEqualTo(1);
+		assertThat(registry.get("nacos.discovery.instances").tag("service", serviceId)
+				.gauge().value()).isEqualTo(1);
+	}
+
+	@Test
+	public void testRecordGetServicesAndFallback() {
+		metrics.recordGetServices(1_000_000, true);
+		metrics.recordFallback(NacosDiscoveryMetrics.SERVICES);
+		metrics.recordFallback(NacosDiscoveryMetrics.SERVICES);
+		metrics.recordFallback(NacosDiscoveryMetrics.INSTANCES);
+
+		assertThat(registry.get("nacos.discovery.get.services").tag("outcome", "SUCCESS")
+				.timer().count()).isEqualTo(1);
+		assertThat(registry.get("nacos.discovery.fallback")
+				.tag("operation", NacosDiscoveryMetrics.SERVICES).counter().count())
+						.isEqualTo(2);
+		assertThat(registry.get("nacos.discovery.fallback")
+				.tag("operation", NacosDiscoveryMetrics.INSTANCES).counter().count())
+						.isEqualTo(1);
+	}
+
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2013-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alibaba.cloud.nacos.metrics;
+
+import java.util.Collections;
+
+import com.alibaba.cloud.nacos.loadbalancer.ConcurrencyLimiter;
+import com.alibaba.cloud.nacos.loadbalancer.NacosLoadBalancerProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.DefaultRequest;
+import org.springframework.cloud.client.loadbalancer.DefaultResponse;
+import org.springframework.cloud.client.loadbalancer.RequestDataContext;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author Spring Cloud Alibaba contributors
+ */
+public class NacosLoadBalancerMetricsTest {
+
+	private final MeterRegistry registry = new SimpleMeterRegistry();
+
+	private final NacosLoadBalancerMetrics metrics = new NacosLoadBalancerMetrics(
+			registry, "service");
+
+	private final ServiceInstance a = new DefaultServiceInstance("a", "service",
+			"127.0.0.1", 8080, false);
+
+	private final ServiceInstance b = new DefaultServiceInstance("b", "service",
+			"127.0.0.2", 8080, false);
+
+	@Test
+	public void testRecordChoose() {
+		metrics.recordChoose(1_000_000, a);
+		metrics.recordChoose(1_000_000, a);
+		metrics.recordChoose(1_000_000, b);
+		metrics.recordChoose(1_000_000, null);
+
+		assertThat(registry.get("nacos.loadbalancer.choose").tag("outcome", "CHOSEN")
+				.timer().count()).isEqualTo(3);
+		assertThat(registry.get("nacos.loadbalancer.choose").tag("outcome", "EMPTY")
+				.timer().count()).isEqualTo(1);
+		assertThat(registry.get("nacos.loadbalancer.selections").tag("instance", "a")
+				.counter().count()).isEqualTo(2);
+		assertThat(registry.get("nacos.loadbalancer.selections").tag("instance", "b")
+				.counter().count()).isEqualTo(1);
+	}
+
+	@Test
+	public void testRemoveDepartedInstances() {
+		metrics.recordChoose(1_000_000, a);
+		metrics.recordChoose(1_000_000, b);
+
+		metrics.retain(Collections.singletonList(b));
+
+		assertThat(registry.find("nacos.loadbalancer.selections").tag("instance", "a")
+				.counter()).isNull();
+		assertThat(registry.find("nacos.loadbalancer.selections").tag("instance", "b")
+				.counter()).isNotNull();
+	}
+
+	@Test
+	public void testConcurrencyMeters() {
+		ConcurrencyLimiter limiter = new ConcurrencyLimiter(
+				new NacosLoadBalancerProperties());
+		NacosLoadBalancerMetrics limited = new NacosLoadBalancerMetrics(registry,
+				"limited", limiter);
+		limiter.onStartRequest(new DefaultRequest<>(new RequestDataContext()),
+				new DefaultResponse(a));
+		limited.recordChoose(1_000_000, a);
+		limited.recordRejected();
+
+		assertThat(registry.get("nacos.loadbalancer.concurrency.in.flight")
+				.tag("service", "limited").tag("instance", "a").gauge().value())
+						.isEqualTo(1);
+		assertThat(registry.get("nacos.loadbalancer.concurrency.limit")
+				.tag("service", "limited").tag("instance", "a").gauge().value())
+						.isEqualTo(20);
+		assertThat(registry.get("nacos.loadbalancer.concurrency.rejected")
+				.tag("service", "limited").counter().count()).isEqualTo(1);
+
+		limited.retain(Collections.emptyList());
+		assertThat(registry.find("nacos.loadbalancer.concurrency.limit")
+				.tag("service", "limited").gauge()).isNull();
+	}
+
+}
@@ -0,0 +1,207 @@
+/*
+ * Copyright 2013-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alibaba.cloud.nacos.registry;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import com.alibaba.cloud.nacos.NacosDiscoveryProperties;
+import com.alibaba.cloud.nacos.NacosServiceManager;
+import com.alibaba.nacos.api.exception.NacosException;
+import com.alibaba.nacos.api.naming.NamingService;
+import com.alibaba.nacos.api.naming.pojo.Instance;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.serviceregistry.Registration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * @author Spring Cloud Alibaba contributors
+ */
+public class NacosServiceRegistryTest {
+
+	private final NamingService namingService = mock(NamingService.class);
+
+	private NacosDiscoveryProperties properties;
+
+	private NacosServiceRegistry registry;
+
+	@BeforeEach
+	public void setUp() {
+		NacosServiceManager manager = mock(NacosServiceManager.class);
+		when(manager.getNamingService()).thenReturn(namingService);
+		properties = new NacosDiscoveryProperties();
+		properties.setRegisterRetryInitialInterval(10);
+		properties.setRegisterRetryMaxInterval(20);
+		registry = new NacosServiceRegistry(manager, properties);
+	}
+
+	@AfterEach
+	public void tearDown() {
+		registry.close();
+	}
+
+	@Test
+	public void testAsyncRegisterRetries() throws Exception {
+		properties.setRegisterAsync(true);
+		doThrow(new NacosException(NacosException.SERVER_ERROR, "unavailable"))
+				.doThrow(new NacosException(NacosException.SERVER_ERROR, "unavailable"))
+				.doNothing().when(namingService)
+				.registerInstance(eq("app"), eq("DEFAULT_GROUP"), any(Instance.class));
+
+		registry.register(registration("app", 8080));
+
+		awaitState(NacosRegistrationState.REGISTERED);
+		verify(namingService, times(3)).registerInstance(eq("app"), eq("DEFAULT_GROUP"),
+				any(Instance.class));
+		assertThat(registry.getRegistrationFailure()).isNotNull();
+	}
+
+	@Test
+	public void testAsyncRegisterGivesUp() throws Exception {
+		properties.setRegisterAsync(true);
+		properties.setRegisterRetryMaxAttempts(3);
+		doThrow(new NacosException(NacosException.SERVER_ERROR, "unavailable"))
+				.when(namingService)
+				.registerInstance(eq("app"), eq("DEFAULT_GROUP"), any(Instance.class));
+
+		registry.register(registration("app", 8080));
+
+		awaitState(NacosRegistrationState.FAILED);
+		verify(namingService, times(3)).registerInstance(eq("app"), eq("DEFAULT_GROUP"),
+				any(Instance.class));
+	}
+
+	@Test
+	public void testDeregisterDuringAsyncRegistration() throws Exception {
+		properties.setRegisterAsync(true);
+		CountDownLatch registering = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		doAnswer(invocation -> {
+			registering.countDown();
+			release.await(5, TimeUnit.SECONDS);
+			throw new NacosException(NacosException.SERVER_ERROR, "unavailable");
+		}).when(namingService).registerInstance(eq("app"), eq("DEFAULT_GROUP"),
+				any(Instance.class));
+		Registration registration = registration("app", 8080);
+
+		registry.register(registration);
+		assertThat(registering.await(5, TimeUnit.SECONDS)).isTrue();
+		Thread deregistration = new Thread(() -> registry.deregister(registration));
+		deregistration.start();
+		while (deregistration.getState() != Thread.State.BLOCKED) {
+			Thread.sleep(1);
+		}
+		release.countDown();
+		deregistration.join(5000);
+
+		// the failed attempt is not retried for the deregistered instance
+		awaitState(NacosRegistrationState.UNREGISTERED);
+		Thread.sleep(100);
+		verify(namingService).registerInstance(eq("app"), eq("DEFAULT_GROUP"),
+				any(Instance.class));
+		assertThat(registry.getRegistrationState())
+				.isEqualTo(NacosRegistrationState.UNREGISTERED);
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void testBatchRegisterAndDeregister() throws Exception {
+		Registration first = registration("app", 8080);
+		Registration second = registration("app", 8081);
+
+		registry.register(first);
+		verify(namingService).registerInstance(eq("app"), eq("DEFAULT_GROUP"),
+				any(Instance.class));
+		assertThat(registry.getRegistrationState())
+				.isEqualTo(NacosRegistrationState.REGISTERED);
+
+		registry.register(second);
+		ArgumentCaptor<List<Instance>> batch = ArgumentCaptor.forClass(List.class);
+		verify(namingService).batchRegisterInstance(eq("app"), eq("DEFAULT_GROUP"),
+				batch.capture());
+		assertThat(batch.getValue()).extracting(Instance::getPort)
+				.containsExactly(8080, 8081);
+
+		// the remaining instance is registered again instead of deregistering all
+		registry.deregister(first);
+		verify(namingService, times(2)).batchRegisterInstance(eq("app"),
+				eq("DEFAULT_GROUP"), batch.capture());
+		assertThat(batch.getValue()).extracting(Instance::getPort).containsExactly(8081);
+		verify(namingService, never()).deregisterInstance(eq("app"), eq("DEFAULT_GROUP"),
+				eq("127.0.0.1"), eq(8080), any());
+
+		registry.deregister(second);
+		verify(namingService).deregisterInstance("app", "DEFAULT_GROUP", "127.0.0.1",
+				8081, "DEFAULT");
+		assertThat(registry.getRegistrationState())
+				.isEqualTo(NacosRegistrationState.UNREGISTERED);
+	}
+
+	@Test
+	public void testRegisterTimestampIsNotWrittenToProperties() throws Exception {
+		properties.setService("app");
+		properties.setIp("127.0.0.1");
+		properties.setPort(8080);
+
+		registry.register(new NacosRegistration(null, properties, null));
+
+		ArgumentCaptor<Instance> instance = ArgumentCaptor.forClass(Instance.class);
+		verify(namingService).registerInstance(eq("app"), eq("DEFAULT_GROUP"),
+				instance.capture());
+		assertThat(instance.getValue().getMetadata())
+				.containsKey(NacosRegistration.REGISTER_TIMESTAMP);
+		assertThat(properties.getMetadata())
+				.doesNotContainKey(NacosRegistration.REGISTER_TIMESTAMP);
+	}
+
+	private void awaitState(NacosRegistrationState state) throws InterruptedException {
+		for (int i = 0; i < 200 && registry.getRegistrationState() != state; i++) {
+			Thread.sleep(10);
+		}
+		assertThat(registry.getRegistrationState()).isEqualTo(state);
+	}
+
+	private static Registration registration(String serviceId, int port) {
+		return new TestRegistration(serviceId, port);
+	}
+
+	private static class TestRegistration extends DefaultServiceInstance
+			implements Registration {
+
+		TestRegistration(String serviceId, int port) {
+			super(serviceId + "-" + port, serviceId, "127.0.0.1", port, false);
+		}
+
+	}
+
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2013-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alibaba.cloud.nacos.utils;
+
+import java.net.InetAddress;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import org.springframework.cloud.commons.util.InetUtils;
+import org.springframework.cloud.commons.util.InetUtilsProperties;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author Spring Cloud Alibaba contributors
+ */
+public class InetIPv6UtilTest {
+
+	private final InetUtilsProperties properties = new InetUtilsProperties();
+
+	private final InetIPv6Util util = new InetIPv6Util(properties);
+
+	@AfterEach
+	public void tearDown() {
+		util.close();
+	}
+
+	@Test
+	public void testPreferredNetworks() throws Exception {
+		InetAddress address = InetAddress.getByName("fd00:1:2::3");
+		assertThat(util.isPreferredAddress(address)).isTrue();
+
+		properties.setPreferredNetworks(Arrays.asList("fe80:.*", "fd00:1:"));
+		// patterns are compiled once, until refreshed
+		assertThat(util.isPreferredAddress(address)).isTrue();
+		util.refresh();
+		assertThat(util.isPreferredAddress(address)).isTrue();
+		assertThat(util.isPreferredAddress(InetAddress.getByName("fd00:2::3")))
+				.isFalse();
+
+		// an invalid regex is matched literally instead of failing
+		properties.setPreferredNetworks(Collections.singletonList("fd00:1:[2"));
+		util.refresh();
+		assertThat(util.isPreferredAddress(address)).isFalse();
+	}
+
+	@Test
+	public void testIgnoredInterfaces() {
+		properties.setIgnoredInterfaces(Arrays.asList("docker0", "veth.*"));
+		assertThat(util.ignoreInterface("veth1234")).isTrue();
+		assertThat(util.ignoreInterface("docker0")).isTrue();
+		assertThat(util.ignoreInterface("eth0")).isFalse();
+	}
+
+	@Test
+	public void testCachedHostInfo() {
+		InetUtils.HostInfo hostInfo = util.findFirstNonLoopbackHostInfo();
+		assertThat(util.findFirstNonLoopbackHostInfo()).isSameAs(hostInfo);
+		if (hostInfo != null) {
+			assertThat(util.findIPv6Address()).startsWith("[")
+					.contains(hostInfo.getIpAddress().split("%")[0]);
+			hostInfo.setHostname("host");
+			assertThat(hostInfo.getHostname()).isEqualTo("host");
+		}
+		util.refresh();
+		if (hostInfo != null) {
+			assertThat(util.findFirstNonLoopbackHostInfo()).isNotSameAs(hostInfo);
+		}
+	}
+
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2013-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.alibaba.cloud.nacos.utils;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author Spring Cloud Alibaba contributors
+ */
+public class NacosThreadsTest {
+
+	@Test
+	public void testPlatformThreads() {
+		Thread thread = NacosThreads.threadFactory("nacos-test", false).newThread(() -> {
+		});
+		assertThat(thread.getName()).isEqualTo("nacos-test");
+		assertThat(thread.isDaemon()).isTrue();
+		assertThat(isVirtual(thread)).isFalse();
+	}
+
+	@Test
+	public void testVirtualThreadsIfSupported() throws Exception {
+		Thread thread = NacosThreads.threadFactory("nacos-test", true).newThread(() -> {
+		});
+		assertThat(thread.getName()).isEqualTo("nacos-test");
+		assertThat(thread.isDaemon()).isTrue();
+		assertThat(isVirtual(thread))
+				.isEqualTo(NacosThreads.isVirtualThreadsSupported());
+
+		ExecutorService executor = NacosThreads
+				.newVirtualThreadPerTaskExecutor("nacos-test-");
+		if (!NacosThreads.isVirtualThreadsSupported()) {
+			assertThat(executor).isNull();
+			return;
+		}
+		try {
+			Thread worker = executor.submit(Thread::currentThread).get(5,
+					TimeUnit.SECONDS);
+			assertThat(worker.getName()).startsWith("nacos-test-");
+			assertThat(isVirtual(worker)).isTrue();
+		}
+		finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private static boolean isVirtual(Thread thread) {
+		try {
+			return (Boolean) Thread.class.getMethod("isVirtual").invoke(thread);
+		}
+		catch (ReflectiveOperationException e) {
+			return false;
+		}
+	}
+
+}